@@ -0,0 +1,72 @@
+package com.github.winter4666.excelio.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.winter4666.excelio.common.GridColumn;
+import com.github.winter4666.excelio.out.ExcelWriter;
+import com.github.winter4666.excelio.out.ExcelWriter.AutoSizeStrategy;
+import com.github.winter4666.excelio.out.ExcelWriter.ExcelFormat;
+import com.github.winter4666.excelio.out.ExcelWriterBuilder;
+
+/**
+ * 自动调整列宽度的开销，OFF表示不调整
+ * @author wutian
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AutoSizeBenchmark {
+
+	@Param({"XSSF", "SXSSF"})
+	public ExcelFormat format;
+
+	@Param({"OFF", "FONT_METRICS", "ESTIMATE"})
+	public String autoSize;
+
+	@Param({"20"})
+	public int columns;
+
+	@Param({"10000"})
+	public int rows;
+
+	private List<GridColumn> gridColumns;
+
+	private List<SyntheticRow> data;
+
+	@Setup
+	public void setUp() {
+		gridColumns = SyntheticData.gridColumns(columns);
+		data = SyntheticData.beans(rows);
+	}
+
+	@Benchmark
+	public long writeGrid() throws IOException {
+		ExcelWriterBuilder builder = new ExcelWriterBuilder().setExcelFormat(format);
+		if(!"OFF".equals(autoSize)) {
+			builder.enableAutoSizeColumn(AutoSizeStrategy.valueOf(autoSize));
+		}
+		ExcelWriter excelWriter = builder.build();
+		excelWriter.writeGrid(gridColumns, data);
+		CountingOutputStream outputStream = new CountingOutputStream();
+		excelWriter.export(outputStream);
+		return outputStream.getCount();
+	}
+
+}
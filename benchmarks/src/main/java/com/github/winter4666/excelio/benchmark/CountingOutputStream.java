@@ -0,0 +1,27 @@
+package com.github.winter4666.excelio.benchmark;
+
+import java.io.OutputStream;
+
+/**
+ * 丢弃写入的数据，只记录字节数，避免把导出结果的内存复制算进基准测试
+ * @author wutian
+ */
+public class CountingOutputStream extends OutputStream {
+
+	private long count;
+
+	@Override
+	public void write(int b) {
+		count++;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		count += len;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+}
@@ -0,0 +1,97 @@
+package com.github.winter4666.excelio.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.winter4666.excelio.common.GridColumn;
+import com.github.winter4666.excelio.out.ExcelWriter;
+import com.github.winter4666.excelio.out.ExcelWriter.ExcelFormat;
+import com.github.winter4666.excelio.out.ExcelWriterBuilder;
+import com.github.winter4666.excelio.out.grid.AsyncPagingLoader;
+import com.github.winter4666.excelio.out.grid.AsyncPagingLoader.GridDataSource;
+import com.github.winter4666.excelio.out.grid.GridDataLoader;
+import com.github.winter4666.excelio.out.grid.GridDataLoader.GridDataLoaderListener;
+import com.github.winter4666.excelio.out.grid.ListLoader;
+
+/**
+ * 数据加载器把行交给写表格线程的开销：handOff只读取行，writeGrid写SXSSF表格
+ * @author wutian
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoaderBenchmark {
+
+	@Param({"LIST", "ASYNC_PAGING"})
+	public String loader;
+
+	@Param({"100000"})
+	public int rows;
+
+	@Param({"1000"})
+	public int pageSize;
+
+	private List<GridColumn> gridColumns;
+
+	private List<SyntheticRow> data;
+
+	@Setup
+	public void setUp() {
+		gridColumns = SyntheticData.gridColumns(5);
+		data = SyntheticData.beans(rows);
+	}
+
+	private GridDataLoader newLoader() {
+		if("LIST".equals(loader)) {
+			return new ListLoader(data);
+		}
+		return new AsyncPagingLoader(new GridDataSource<SyntheticRow>() {
+
+			@Override
+			public List<SyntheticRow> getGridData(int pageNo, int pageSize) {
+				int from = Math.min((pageNo - 1) * pageSize, data.size());
+				return data.subList(from, Math.min(from + pageSize, data.size()));
+			}
+		}, pageSize);
+	}
+
+	@Benchmark
+	public void handOff(final Blackhole blackhole) {
+		GridDataLoader gridDataLoader = newLoader();
+		gridDataLoader.loadData();
+		gridDataLoader.getRowData(new GridDataLoaderListener() {
+
+			@Override
+			public void onReadRowData(int gridRowNum, Object rowData) {
+				blackhole.consume(rowData);
+			}
+		});
+	}
+
+	@Benchmark
+	public long writeGrid() throws IOException {
+		ExcelWriter excelWriter = new ExcelWriterBuilder().setExcelFormat(ExcelFormat.SXSSF).build();
+		excelWriter.writeGrid(gridColumns, newLoader());
+		CountingOutputStream outputStream = new CountingOutputStream();
+		excelWriter.export(outputStream);
+		return outputStream.getCount();
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.github.winter4666.excelio.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.winter4666.excelio.common.GridColumn;
+import com.github.winter4666.excelio.in.ExcelReader;
+import com.github.winter4666.excelio.out.ExcelWriter;
+import com.github.winter4666.excelio.out.ExcelWriter.ExcelFormat;
+import com.github.winter4666.excelio.out.ExcelWriterBuilder;
+
+/**
+ * {@link ExcelReader#readGrid(List)}和{@link ExcelReader#readGrid(List, Class)}，包括解析文件
+ * @author wutian
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadGridBenchmark {
+
+	@Param({"HSSF", "XSSF"})
+	public ExcelFormat format;
+
+	@Param({"BEAN", "MAP"})
+	public RowType rowType;
+
+	@Param({"20"})
+	public int columns;
+
+	@Param({"10000"})
+	public int rows;
+
+	private List<GridColumn> gridColumns;
+
+	private byte[] excel;
+
+	@Setup
+	public void setUp() throws IOException {
+		gridColumns = SyntheticData.gridColumns(columns);
+		ExcelWriter excelWriter = new ExcelWriterBuilder().setExcelFormat(format).build();
+		excelWriter.writeGrid(gridColumns, SyntheticData.beans(rows));
+		excel = excelWriter.exportToByteArray();
+	}
+
+	@Benchmark
+	public List<?> readGrid() {
+		ExcelReader excelReader = new ExcelReader(new ByteArrayInputStream(excel));
+		try {
+			return rowType == RowType.BEAN ? excelReader.readGrid(gridColumns, SyntheticRow.class) : excelReader.readGrid(gridColumns);
+		} finally {
+			excelReader.close();
+		}
+	}
+
+}
@@ -0,0 +1,31 @@
+package com.github.winter4666.excelio.benchmark;
+
+import java.util.List;
+
+/**
+ * 行数据类型
+ * @author wutian
+ */
+public enum RowType {
+	/**
+	 * {@link SyntheticRow}
+	 */
+	BEAN {
+		@Override
+		List<?> generate(int rows) {
+			return SyntheticData.beans(rows);
+		}
+	},
+	/**
+	 * Map
+	 */
+	MAP {
+		@Override
+		List<?> generate(int rows) {
+			return SyntheticData.maps(rows);
+		}
+	};
+
+	abstract List<?> generate(int rows);
+
+}
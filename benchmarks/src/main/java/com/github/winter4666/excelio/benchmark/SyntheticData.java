@@ -0,0 +1,114 @@
+package com.github.winter4666.excelio.benchmark;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.github.winter4666.excelio.common.GridColumn;
+
+/**
+ * 生成基准测试数据，同样的参数总是生成同样的数据
+ * @author wutian
+ */
+public class SyntheticData {
+
+	/**
+	 * {@link SyntheticRow}的全部字段，按表格列的顺序
+	 */
+	public static final int MAX_COLUMNS = 20;
+
+	private static final long SEED = 4666;
+
+	private SyntheticData() {
+
+	}
+
+	private static String fieldName(int columnIndex) {
+		if(columnIndex == 0) {
+			return "id";
+		} else if(columnIndex == 1) {
+			return "name";
+		}
+		int group = columnIndex / 2;
+		return (columnIndex % 2 == 0 ? "code" : "amount") + group;
+	}
+
+	/**
+	 * 前columns个字段的表格列
+	 * @param columns 列数，不超过{@link #MAX_COLUMNS}
+	 * @return
+	 */
+	public static List<GridColumn> gridColumns(int columns) {
+		if(columns < 1 || columns > MAX_COLUMNS) {
+			throw new IllegalArgumentException("columns must be between 1 and " + MAX_COLUMNS);
+		}
+		List<GridColumn> gridColumns = new ArrayList<>(columns);
+		for(int i = 0;i < columns;i++) {
+			String fieldName = fieldName(i);
+			gridColumns.add(GridColumn.newInstance(fieldName, fieldName.toUpperCase()));
+		}
+		return gridColumns;
+	}
+
+	public static List<SyntheticRow> beans(int rows) {
+		Random random = new Random(SEED);
+		List<SyntheticRow> beans = new ArrayList<>(rows);
+		for(int i = 0;i < rows;i++) {
+			SyntheticRow row = new SyntheticRow();
+			row.setId((long)i);
+			row.setName("name-" + random.nextInt(100000));
+			row.setCode1(code(random));
+			row.setAmount1(amount(random));
+			row.setCode2(code(random));
+			row.setAmount2(amount(random));
+			row.setCode3(code(random));
+			row.setAmount3(amount(random));
+			row.setCode4(code(random));
+			row.setAmount4(amount(random));
+			row.setCode5(code(random));
+			row.setAmount5(amount(random));
+			row.setCode6(code(random));
+			row.setAmount6(amount(random));
+			row.setCode7(code(random));
+			row.setAmount7(amount(random));
+			row.setCode8(code(random));
+			row.setAmount8(amount(random));
+			row.setCode9(code(random));
+			row.setAmount9(amount(random));
+			beans.add(row);
+		}
+		return beans;
+	}
+
+	/**
+	 * 与{@link #beans(int)}内容相同的Map行数据
+	 * @param rows
+	 * @return
+	 */
+	public static List<Map<String, Object>> maps(int rows) {
+		Random random = new Random(SEED);
+		List<Map<String, Object>> maps = new ArrayList<>(rows);
+		for(int i = 0;i < rows;i++) {
+			Map<String, Object> row = new LinkedHashMap<>();
+			row.put("id", (long)i);
+			row.put("name", "name-" + random.nextInt(100000));
+			for(int group = 1;group <= 9;group++) {
+				row.put("code" + group, code(random));
+				row.put("amount" + group, amount(random));
+			}
+			maps.add(row);
+		}
+		return maps;
+	}
+
+	private static String code(Random random) {
+		return "C" + Integer.toString(random.nextInt(1 << 20), 36);
+	}
+
+	private static Double amount(Random random) {
+		return Math.round(random.nextDouble() * 1000000) / 100.0;
+	}
+
+}
@@ -0,0 +1,209 @@
+package com.github.winter4666.excelio.benchmark;
+
+/**
+ * 基准测试使用的行数据，共20个字段，字段类型与{@link com.github.winter4666.excelio.in.ExcelReader}读取时的类型一致
+ * @author wutian
+ */
+public class SyntheticRow {
+
+	private Long id;
+
+	private String name;
+
+	private String code1;
+
+	private Double amount1;
+
+	private String code2;
+
+	private Double amount2;
+
+	private String code3;
+
+	private Double amount3;
+
+	private String code4;
+
+	private Double amount4;
+
+	private String code5;
+
+	private Double amount5;
+
+	private String code6;
+
+	private Double amount6;
+
+	private String code7;
+
+	private Double amount7;
+
+	private String code8;
+
+	private Double amount8;
+
+	private String code9;
+
+	private Double amount9;
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public String getCode1() {
+		return code1;
+	}
+
+	public void setCode1(String code1) {
+		this.code1 = code1;
+	}
+
+	public Double getAmount1() {
+		return amount1;
+	}
+
+	public void setAmount1(Double amount1) {
+		this.amount1 = amount1;
+	}
+
+	public String getCode2() {
+		return code2;
+	}
+
+	public void setCode2(String code2) {
+		this.code2 = code2;
+	}
+
+	public Double getAmount2() {
+		return amount2;
+	}
+
+	public void setAmount2(Double amount2) {
+		this.amount2 = amount2;
+	}
+
+	public String getCode3() {
+		return code3;
+	}
+
+	public void setCode3(String code3) {
+		this.code3 = code3;
+	}
+
+	public Double getAmount3() {
+		return amount3;
+	}
+
+	public void setAmount3(Double amount3) {
+		this.amount3 = amount3;
+	}
+
+	public String getCode4() {
+		return code4;
+	}
+
+	public void setCode4(String code4) {
+		this.code4 = code4;
+	}
+
+	public Double getAmount4() {
+		return amount4;
+	}
+
+	public void setAmount4(Double amount4) {
+		this.amount4 = amount4;
+	}
+
+	public String getCode5() {
+		return code5;
+	}
+
+	public void setCode5(String code5) {
+		this.code5 = code5;
+	}
+
+	public Double getAmount5() {
+		return amount5;
+	}
+
+	public void setAmount5(Double amount5) {
+		this.amount5 = amount5;
+	}
+
+	public String getCode6() {
+		return code6;
+	}
+
+	public void setCode6(String code6) {
+		this.code6 = code6;
+	}
+
+	public Double getAmount6() {
+		return amount6;
+	}
+
+	public void setAmount6(Double amount6) {
+		this.amount6 = amount6;
+	}
+
+	public String getCode7() {
+		return code7;
+	}
+
+	public void setCode7(String code7) {
+		this.code7 = code7;
+	}
+
+	public Double getAmount7() {
+		return amount7;
+	}
+
+	public void setAmount7(Double amount7) {
+		this.amount7 = amount7;
+	}
+
+	public String getCode8() {
+		return code8;
+	}
+
+	public void setCode8(String code8) {
+		this.code8 = code8;
+	}
+
+	public Double getAmount8() {
+		return amount8;
+	}
+
+	public void setAmount8(Double amount8) {
+		this.amount8 = amount8;
+	}
+
+	public String getCode9() {
+		return code9;
+	}
+
+	public void setCode9(String code9) {
+		this.code9 = code9;
+	}
+
+	public Double getAmount9() {
+		return amount9;
+	}
+
+	public void setAmount9(Double amount9) {
+		this.amount9 = amount9;
+	}
+
+}
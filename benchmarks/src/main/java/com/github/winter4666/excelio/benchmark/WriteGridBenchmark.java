@@ -0,0 +1,67 @@
+package com.github.winter4666.excelio.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.winter4666.excelio.common.GridColumn;
+import com.github.winter4666.excelio.out.ExcelWriter;
+import com.github.winter4666.excelio.out.ExcelWriter.ExcelFormat;
+import com.github.winter4666.excelio.out.ExcelWriterBuilder;
+
+/**
+ * {@link ExcelWriter#writeGrid(List, List)}并导出，比较格式、行数据类型和列数
+ * @author wutian
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriteGridBenchmark {
+
+	@Param({"HSSF", "XSSF", "SXSSF"})
+	public ExcelFormat format;
+
+	@Param({"BEAN", "MAP"})
+	public RowType rowType;
+
+	@Param({"5", "20"})
+	public int columns;
+
+	@Param({"10000"})
+	public int rows;
+
+	private List<GridColumn> gridColumns;
+
+	private List<?> data;
+
+	@Setup
+	public void setUp() {
+		gridColumns = SyntheticData.gridColumns(columns);
+		data = rowType.generate(rows);
+	}
+
+	@Benchmark
+	public long writeGrid() throws IOException {
+		ExcelWriter excelWriter = new ExcelWriterBuilder().setExcelFormat(format).build();
+		excelWriter.writeGrid(gridColumns, data);
+		CountingOutputStream outputStream = new CountingOutputStream();
+		excelWriter.export(outputStream);
+		return outputStream.getCount();
+	}
+
+}
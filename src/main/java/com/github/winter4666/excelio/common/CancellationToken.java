@@ -0,0 +1,128 @@
+package com.github.winter4666.excelio.common;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 取消标记，用于取消正在进行的导出，如客户端已经断开连接时。
+ * 可以调用{@link #cancel()}主动取消，也可以设置超时时间，超过截止时间后视为已取消。
+ * 超过截止时间不会执行取消监听器，所以加载线程中正在进行的数据源调用不会被立即中断，
+ * 要等读取线程按截止时间限制的等待返回、发现已超时后才停止加载。
+ * 同一个标记可以在多个线程中共享。
+ * @author wutian
+ */
+public class CancellationToken {
+
+	private final static Logger logger = LoggerFactory.getLogger(CancellationToken.class);
+
+	private volatile boolean cancelled;
+
+	private final boolean hasDeadline;
+
+	/**
+	 * 截止时间，以{@link System#nanoTime()}为准
+	 */
+	private final long deadline;
+
+	private final List<Runnable> cancelListeners = new CopyOnWriteArrayList<>();
+
+	private CancellationToken(boolean hasDeadline, long deadline) {
+		this.hasDeadline = hasDeadline;
+		this.deadline = deadline;
+	}
+
+	/**
+	 * 创建没有截止时间的取消标记
+	 * @return
+	 */
+	public static CancellationToken newInstance() {
+		return new CancellationToken(false, 0);
+	}
+
+	/**
+	 * 创建超时后自动视为已取消的取消标记
+	 * @param timeout 从现在开始的超时时间
+	 * @param unit
+	 * @return
+	 */
+	public static CancellationToken withTimeout(long timeout, TimeUnit unit) {
+		return new CancellationToken(true, System.nanoTime() + unit.toNanos(timeout));
+	}
+
+	/**
+	 * 取消，并通知已注册的监听器。超过截止时间不会通知监听器，使用者需要自己检查{@link #isCancelled()}
+	 */
+	public void cancel() {
+		if(cancelled) {
+			return;
+		}
+		cancelled = true;
+		for(Runnable cancelListener : cancelListeners) {
+			runCancelListener(cancelListener);
+		}
+	}
+
+	/**
+	 * 是否已经取消或超过截止时间
+	 * @return
+	 */
+	public boolean isCancelled() {
+		return cancelled || (hasDeadline && System.nanoTime() - deadline >= 0);
+	}
+
+	/**
+	 * 已经取消或超过截止时间时抛出{@link CancellationException}
+	 */
+	public void throwIfCancelled() {
+		if(cancelled) {
+			throw new CancellationException("export cancelled");
+		} else if(hasDeadline && System.nanoTime() - deadline >= 0) {
+			throw new CancellationException("export deadline exceeded");
+		}
+	}
+
+	/**
+	 * 距离截止时间的纳秒数
+	 * @return 没有截止时间时返回Long.MAX_VALUE
+	 */
+	public long remainingNanos() {
+		if(!hasDeadline) {
+			return Long.MAX_VALUE;
+		}
+		return Math.max(0, deadline - System.nanoTime());
+	}
+
+	/**
+	 * 注册取消时执行的监听器，已经取消时立即执行。监听器可能在调用cancel的线程中执行，也可能被执行多次，需要是幂等的。
+	 * 只有调用{@link #cancel()}才会执行监听器，超过截止时间不会执行
+	 * @param cancelListener
+	 */
+	public void addCancelListener(Runnable cancelListener) {
+		cancelListeners.add(cancelListener);
+		if(cancelled) {
+			runCancelListener(cancelListener);
+		}
+	}
+
+	/**
+	 * 移除监听器
+	 * @param cancelListener
+	 */
+	public void removeCancelListener(Runnable cancelListener) {
+		cancelListeners.remove(cancelListener);
+	}
+
+	private void runCancelListener(Runnable cancelListener) {
+		try {
+			cancelListener.run();
+		} catch (RuntimeException e) {
+			logger.error("error occours while running cancel listener", e);
+		}
+	}
+
+}
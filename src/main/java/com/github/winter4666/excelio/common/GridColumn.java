@@ -26,6 +26,16 @@ public class GridColumn {
 	 */
 	private int cellNum;
 	
+	/**
+	 * 写到excel的值的类型，为null时按值的实际类型判断
+	 */
+	private ValueType valueType;
+	
+	/**
+	 * 是否纵向合并连续相同的值
+	 */
+	private boolean mergeRepeated;
+	
 	private GridColumn() {
 		
 	}
@@ -60,6 +70,30 @@ public class GridColumn {
 		return this;
 	}
 	
+	/**
+	 * 声明写到excel的值（经过fieldValueConverter转换后）的类型，写表格时按类型直接写单元格，不再逐个单元格判断类型。
+	 * 值必须是该类型或null，只对只占一个单元格的列生效
+	 * @param valueType
+	 * @return
+	 */
+	public GridColumn valueType(ValueType valueType) {
+		this.valueType = valueType;
+		return this;
+	}
+	
+	/**
+	 * 写表格时纵向合并这一列中连续相同（equals）的值，值为null的单元格不合并。
+	 * 合并区域在相同的值结束时才添加，数据不需要全部在内存中；
+	 * 左侧的合并列开始新的值时，右侧的合并列也重新开始合并，适合按多级分组排好序的数据。
+	 * CSV、TSV格式不能合并，每一行都写值
+	 * @param mergeRepeated
+	 * @return
+	 */
+	public GridColumn mergeRepeated(boolean mergeRepeated) {
+		this.mergeRepeated = mergeRepeated;
+		return this;
+	}
+	
 	public String getFieldName() {
 		return fieldName;
 	}
@@ -75,6 +109,14 @@ public class GridColumn {
 	public FieldValueConverter getFieldValueConverter() {
 		return fieldValueConverter;
 	}
+	
+	public ValueType getValueType() {
+		return valueType;
+	}
+	
+	public boolean isMergeRepeated() {
+		return mergeRepeated;
+	}
 
 	/**
 	 * 转换字段的值
@@ -91,5 +133,32 @@ public class GridColumn {
 		 */
 		Object convert(Object fieldValue,Object rowData);
 	}
+	
+	/**
+	 * 列的值类型
+	 * @author wutian
+	 */
+	public enum ValueType {
+		/**
+		 * {@link String}
+		 */
+		STRING,
+		/**
+		 * 任意{@link Number}，按double写
+		 */
+		NUMBER,
+		/**
+		 * 整数{@link Number}，按long写，CSV、TSV格式下不丢失精度
+		 */
+		LONG,
+		/**
+		 * {@link Boolean}
+		 */
+		BOOLEAN,
+		/**
+		 * {@link java.util.Date}、{@link java.time.LocalDate}或{@link java.time.LocalDateTime}
+		 */
+		DATE
+	}
 
 }
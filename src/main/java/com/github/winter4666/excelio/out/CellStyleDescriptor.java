@@ -0,0 +1,273 @@
+package com.github.winter4666.excelio.out;
+
+import java.util.Objects;
+
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.VerticalAlignment;
+
+/**
+ * 单元格样式的描述，不占用工作簿中的样式，通过{@link StyleRegistry#getCellStyle(CellStyleDescriptor)}
+ * 得到属性相同的共享CellStyle。没有设置的属性与{@link ExcelWriter#createCellStyle()}创建的样式一致。
+ * @author wutian
+ */
+public class CellStyleDescriptor {
+
+	/**
+	 * 没有设置颜色、字号时的取值
+	 */
+	static final short UNSET = -1;
+
+	private String fontName = "宋体";
+
+	private short fontHeightInPoints = UNSET;
+
+	private boolean bold;
+
+	private boolean italic;
+
+	private short fontColor = UNSET;
+
+	private short fillForegroundColor = UNSET;
+
+	private FillPatternType fillPattern;
+
+	private BorderStyle borderTop;
+
+	private BorderStyle borderRight;
+
+	private BorderStyle borderBottom;
+
+	private BorderStyle borderLeft;
+
+	private short borderColor = UNSET;
+
+	/**
+	 * 数据格式，如yyyy-MM-dd、0.00
+	 */
+	private String dataFormat;
+
+	private HorizontalAlignment alignment;
+
+	private VerticalAlignment verticalAlignment;
+
+	private boolean wrapText = true;
+
+	private CellStyleDescriptor() {
+
+	}
+
+	public static CellStyleDescriptor newInstance() {
+		return new CellStyleDescriptor();
+	}
+
+	/**
+	 * 复制出一个新的描述
+	 * @return
+	 */
+	public CellStyleDescriptor copy() {
+		CellStyleDescriptor descriptor = new CellStyleDescriptor();
+		descriptor.fontName = fontName;
+		descriptor.fontHeightInPoints = fontHeightInPoints;
+		descriptor.bold = bold;
+		descriptor.italic = italic;
+		descriptor.fontColor = fontColor;
+		descriptor.fillForegroundColor = fillForegroundColor;
+		descriptor.fillPattern = fillPattern;
+		descriptor.borderTop = borderTop;
+		descriptor.borderRight = borderRight;
+		descriptor.borderBottom = borderBottom;
+		descriptor.borderLeft = borderLeft;
+		descriptor.borderColor = borderColor;
+		descriptor.dataFormat = dataFormat;
+		descriptor.alignment = alignment;
+		descriptor.verticalAlignment = verticalAlignment;
+		descriptor.wrapText = wrapText;
+		return descriptor;
+	}
+
+	public CellStyleDescriptor fontName(String fontName) {
+		this.fontName = fontName;
+		return this;
+	}
+
+	public CellStyleDescriptor fontHeightInPoints(int fontHeightInPoints) {
+		this.fontHeightInPoints = (short)fontHeightInPoints;
+		return this;
+	}
+
+	public CellStyleDescriptor bold(boolean bold) {
+		this.bold = bold;
+		return this;
+	}
+
+	public CellStyleDescriptor italic(boolean italic) {
+		this.italic = italic;
+		return this;
+	}
+
+	/**
+	 * 字体颜色
+	 * @param fontColor 颜色下标
+	 * @return
+	 * @see org.apache.poi.ss.usermodel.IndexedColors
+	 */
+	public CellStyleDescriptor fontColor(short fontColor) {
+		this.fontColor = fontColor;
+		return this;
+	}
+
+	/**
+	 * 纯色填充背景
+	 * @param color 颜色下标
+	 * @return
+	 * @see org.apache.poi.ss.usermodel.IndexedColors
+	 */
+	public CellStyleDescriptor fill(short color) {
+		return fill(color, FillPatternType.SOLID_FOREGROUND);
+	}
+
+	public CellStyleDescriptor fill(short color, FillPatternType fillPattern) {
+		this.fillForegroundColor = color;
+		this.fillPattern = fillPattern;
+		return this;
+	}
+
+	/**
+	 * 设置四条边框
+	 * @param borderStyle
+	 * @return
+	 */
+	public CellStyleDescriptor border(BorderStyle borderStyle) {
+		return border(borderStyle, borderStyle, borderStyle, borderStyle);
+	}
+
+	public CellStyleDescriptor border(BorderStyle top, BorderStyle right, BorderStyle bottom, BorderStyle left) {
+		this.borderTop = top;
+		this.borderRight = right;
+		this.borderBottom = bottom;
+		this.borderLeft = left;
+		return this;
+	}
+
+	/**
+	 * 四条边框的颜色
+	 * @param borderColor 颜色下标
+	 * @return
+	 */
+	public CellStyleDescriptor borderColor(short borderColor) {
+		this.borderColor = borderColor;
+		return this;
+	}
+
+	public CellStyleDescriptor dataFormat(String dataFormat) {
+		this.dataFormat = dataFormat;
+		return this;
+	}
+
+	public CellStyleDescriptor alignment(HorizontalAlignment alignment) {
+		this.alignment = alignment;
+		return this;
+	}
+
+	public CellStyleDescriptor verticalAlignment(VerticalAlignment verticalAlignment) {
+		this.verticalAlignment = verticalAlignment;
+		return this;
+	}
+
+	public CellStyleDescriptor wrapText(boolean wrapText) {
+		this.wrapText = wrapText;
+		return this;
+	}
+
+	public String getFontName() {
+		return fontName;
+	}
+
+	public short getFontHeightInPoints() {
+		return fontHeightInPoints;
+	}
+
+	public boolean isBold() {
+		return bold;
+	}
+
+	public boolean isItalic() {
+		return italic;
+	}
+
+	public short getFontColor() {
+		return fontColor;
+	}
+
+	public short getFillForegroundColor() {
+		return fillForegroundColor;
+	}
+
+	public FillPatternType getFillPattern() {
+		return fillPattern;
+	}
+
+	public BorderStyle getBorderTop() {
+		return borderTop;
+	}
+
+	public BorderStyle getBorderRight() {
+		return borderRight;
+	}
+
+	public BorderStyle getBorderBottom() {
+		return borderBottom;
+	}
+
+	public BorderStyle getBorderLeft() {
+		return borderLeft;
+	}
+
+	public short getBorderColor() {
+		return borderColor;
+	}
+
+	public String getDataFormat() {
+		return dataFormat;
+	}
+
+	public HorizontalAlignment getAlignment() {
+		return alignment;
+	}
+
+	public VerticalAlignment getVerticalAlignment() {
+		return verticalAlignment;
+	}
+
+	public boolean isWrapText() {
+		return wrapText;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(fontName, fontHeightInPoints, bold, italic, fontColor, fillForegroundColor, fillPattern,
+				borderTop, borderRight, borderBottom, borderLeft, borderColor, dataFormat, alignment, verticalAlignment, wrapText);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if(this == obj) {
+			return true;
+		}
+		if(!(obj instanceof CellStyleDescriptor)) {
+			return false;
+		}
+		CellStyleDescriptor other = (CellStyleDescriptor)obj;
+		return Objects.equals(fontName, other.fontName) && fontHeightInPoints == other.fontHeightInPoints
+				&& bold == other.bold && italic == other.italic && fontColor == other.fontColor
+				&& fillForegroundColor == other.fillForegroundColor && fillPattern == other.fillPattern
+				&& borderTop == other.borderTop && borderRight == other.borderRight
+				&& borderBottom == other.borderBottom && borderLeft == other.borderLeft
+				&& borderColor == other.borderColor && Objects.equals(dataFormat, other.dataFormat)
+				&& alignment == other.alignment && verticalAlignment == other.verticalAlignment
+				&& wrapText == other.wrapText;
+	}
+
+}
@@ -0,0 +1,87 @@
+package com.github.winter4666.excelio.out;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分块保存数据的内存输出流，扩容时不需要像ByteArrayOutputStream那样复制已有数据
+ * @author wutian
+ */
+class ChunkedOutputStream extends OutputStream {
+
+	private static final int CHUNK_SIZE = 64 * 1024;
+
+	private final List<byte[]> chunks = new ArrayList<>();
+
+	private byte[] currentChunk;
+
+	/**
+	 * 当前块已写入的字节数
+	 */
+	private int position;
+
+	private long size;
+
+	@Override
+	public void write(int b) {
+		if(currentChunk == null || position == CHUNK_SIZE) {
+			nextChunk();
+		}
+		currentChunk[position++] = (byte)b;
+		size++;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		while(len > 0) {
+			if(currentChunk == null || position == CHUNK_SIZE) {
+				nextChunk();
+			}
+			int n = Math.min(len, CHUNK_SIZE - position);
+			System.arraycopy(b, off, currentChunk, position, n);
+			position += n;
+			off += n;
+			len -= n;
+			size += n;
+		}
+	}
+
+	private void nextChunk() {
+		currentChunk = new byte[CHUNK_SIZE];
+		chunks.add(currentChunk);
+		position = 0;
+	}
+
+	/**
+	 * 已写入的字节数
+	 * @return
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * 把已写入的数据写到outputStream
+	 * @param outputStream
+	 * @throws IOException
+	 */
+	public void writeTo(OutputStream outputStream) throws IOException {
+		for(int i = 0;i < chunks.size();i++) {
+			byte[] chunk = chunks.get(i);
+			outputStream.write(chunk, 0, i == chunks.size() - 1 ? position : CHUNK_SIZE);
+		}
+	}
+
+	/**
+	 * 释放已写入的数据
+	 */
+	public void reset() {
+		chunks.clear();
+		currentChunk = null;
+		position = 0;
+		size = 0;
+	}
+
+}
@@ -0,0 +1,228 @@
+package com.github.winter4666.excelio.out;
+
+import java.util.Arrays;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Workbook;
+
+/**
+ * 在写单元格的时候估算列宽度，每列只保留一个当前最大宽度，不依赖AWT字体度量，也不需要保留已写的行。
+ * 宽度按字符类别估算：中日韩文字及全角字符算两个字符宽，数字、普通ASCII字符算一个字符宽，再按字号、粗体缩放。
+ * 跨多列的合并单元格把宽度平均分到所跨的列上。
+ * @author wutian
+ */
+class ColumnWidthEstimator {
+
+	/**
+	 * excel允许的最大列宽度（以1/256字符为单位）
+	 */
+	private static final int MAX_WIDTH = 255 * 256;
+
+	/**
+	 * 估算宽度时的基准字号
+	 */
+	private static final float BASE_FONT_HEIGHT_IN_POINTS = 11f;
+
+	/**
+	 * 单元格两侧的留白，以字符为单位
+	 */
+	private static final float PADDING = 1f;
+
+	private final Workbook workbook;
+
+	/**
+	 * 创建样式、字体时使用的锁，并行写sheet时其它线程可能同时在创建字体
+	 */
+	private final Object styleLock;
+
+	/**
+	 * 以样式下标为下标的字体缩放比例，0表示还未计算
+	 */
+	private float[] fontScales = new float[16];
+
+	/**
+	 * 每列当前的最大宽度（以1/256字符为单位），0表示没有写过
+	 */
+	private int[] widths = new int[16];
+
+	private int lastColumn = -1;
+
+	ColumnWidthEstimator(Workbook workbook, Object styleLock) {
+		this.workbook = workbook;
+		this.styleLock = styleLock;
+	}
+
+	/**
+	 * 根据写入的单元格更新列宽度
+	 * @param firstColumn 单元格所在的第一列
+	 * @param columnSpan 单元格横向所占的列数
+	 * @param data 单元格的值
+	 * @param cellStyle 单元格样式
+	 * @param dateFormat 样式没有设置数据格式时日期使用的格式
+	 */
+	void update(int firstColumn, int columnSpan, Object data, CellStyle cellStyle, String dateFormat) {
+		float chars;
+		if(data == null) {
+			chars = 0;
+		} else if(data instanceof String) {
+			chars = textWidth((String)data);
+		} else if(data instanceof Number) {
+			chars = numberWidth(((Number)data).doubleValue());
+			if(cellStyle != null && cellStyle.getDataFormat() != 0) {
+				chars = Math.max(chars, textWidth(cellStyle.getDataFormatString()));
+			}
+		} else if(data instanceof Boolean) {
+			chars = (Boolean)data ? 4 : 5;
+		} else if(ExcelDates.isDate(data)) {
+			String format = cellStyle != null && cellStyle.getDataFormat() != 0 ? cellStyle.getDataFormatString() : dateFormat;
+			chars = textWidth(format);
+		} else {
+			chars = textWidth(data.toString());
+		}
+		update(firstColumn, columnSpan, chars, cellStyle);
+	}
+
+	/**
+	 * 根据写入的数字单元格更新列宽度，不需要装箱
+	 * @param column 单元格所在的列
+	 * @param number 单元格的值
+	 * @param cellStyle 单元格样式
+	 */
+	void updateNumber(int column, double number, CellStyle cellStyle) {
+		float chars = numberWidth(number);
+		if(cellStyle != null && cellStyle.getDataFormat() != 0) {
+			chars = Math.max(chars, textWidth(cellStyle.getDataFormatString()));
+		}
+		update(column, 1, chars, cellStyle);
+	}
+
+	private void update(int firstColumn, int columnSpan, float chars, CellStyle cellStyle) {
+		int width = (int)((chars * fontScale(cellStyle) + PADDING) * 256 / Math.max(columnSpan, 1));
+		width = Math.min(width, MAX_WIDTH);
+		for(int column = firstColumn;column < firstColumn + columnSpan;column++) {
+			ensureCapacity(column);
+			if(widths[column] < width) {
+				widths[column] = width;
+			}
+			if(column > lastColumn) {
+				lastColumn = column;
+			}
+		}
+	}
+
+	/**
+	 * 得到估算的列宽度（以1/256字符为单位）
+	 * @param column
+	 * @return 没有写过该列返回-1
+	 */
+	int getWidth(int column) {
+		if(column >= widths.length || widths[column] == 0) {
+			return -1;
+		}
+		return widths[column];
+	}
+
+	/**
+	 * 写过的最大列号，没有写过返回-1
+	 * @return
+	 */
+	int getLastColumn() {
+		return lastColumn;
+	}
+
+	/**
+	 * 切换sheet时清空
+	 */
+	void reset() {
+		Arrays.fill(widths, 0);
+		lastColumn = -1;
+	}
+
+	private void ensureCapacity(int column) {
+		if(column >= widths.length) {
+			widths = Arrays.copyOf(widths, Math.max(widths.length * 2, column + 1));
+		}
+	}
+
+	private float fontScale(CellStyle cellStyle) {
+		if(cellStyle == null) {
+			return 1f;
+		}
+		int index = cellStyle.getIndex() & 0xFFFF;
+		if(index >= fontScales.length) {
+			fontScales = Arrays.copyOf(fontScales, Math.max(fontScales.length * 2, index + 1));
+		}
+		float scale = fontScales[index];
+		if(scale == 0) {
+			synchronized (styleLock) {
+				Font font = workbook.getFontAt(cellStyle.getFontIndexAsInt());
+				scale = font.getFontHeightInPoints() / BASE_FONT_HEIGHT_IN_POINTS;
+				if(font.getBold()) {
+					scale *= 1.1f;
+				}
+			}
+			fontScales[index] = scale;
+		}
+		return scale;
+	}
+
+	/**
+	 * 文本的宽度，多行文本取最长的一行
+	 */
+	static float textWidth(String text) {
+		float max = 0;
+		float line = 0;
+		for(int i = 0;i < text.length();i++) {
+			char c = text.charAt(i);
+			if(c == '\n') {
+				max = Math.max(max, line);
+				line = 0;
+			} else {
+				line += charWidth(c);
+			}
+		}
+		return Math.max(max, line);
+	}
+
+	private static float charWidth(char c) {
+		if(c < 128) {
+			if(c >= 'A' && c <= 'Z') {
+				return 1.2f;
+			}
+			if(c == '.' || c == ',' || c == ':' || c == ';' || c == '\'' || c == '|' || c == '!' || c == 'i' || c == 'l') {
+				return 0.5f;
+			}
+			return 1f;
+		}
+		if((c >= 0x1100 && c <= 0x115F) || (c >= 0x2E80 && c <= 0xA4CF) || (c >= 0xAC00 && c <= 0xD7A3)
+				|| (c >= 0xF900 && c <= 0xFAFF) || (c >= 0xFE30 && c <= 0xFE4F) || (c >= 0xFF00 && c <= 0xFF60)
+				|| (c >= 0xFFE0 && c <= 0xFFE6)) {
+			return 2f;
+		}
+		if(Character.isLowSurrogate(c)) {
+			//代理对只算一次
+			return 0;
+		}
+		return Character.isHighSurrogate(c) ? 2f : 1f;
+	}
+
+	/**
+	 * 数字按常规格式显示时的宽度
+	 */
+	private static float numberWidth(double number) {
+		if(number == (long)number && Math.abs(number) < 1e11) {
+			long value = (long)number;
+			int digits = value < 0 ? 2 : 1;
+			value = Math.abs(value);
+			while(value >= 10) {
+				value /= 10;
+				digits++;
+			}
+			return digits;
+		}
+		//常规格式最多显示11位
+		return Math.min(Double.toString(number).length(), 11);
+	}
+
+}
@@ -0,0 +1,40 @@
+package com.github.winter4666.excelio.out;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 记录写出的字节数，不关闭被包装的流
+ * @author wutian
+ */
+class CountingOutputStream extends FilterOutputStream {
+	
+	private long count;
+
+	CountingOutputStream(OutputStream out) {
+		super(out);
+	}
+	
+	@Override
+	public void write(int b) throws IOException {
+		out.write(b);
+		count++;
+	}
+	
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		out.write(b, off, len);
+		count += len;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		flush();
+	}
+	
+	long getCount() {
+		return count;
+	}
+
+}
@@ -0,0 +1,148 @@
+package com.github.winter4666.excelio.out;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * 已经按zip的deflate方式压缩好的一个包部件（如一个sheet的xml），
+ * 压缩数据分块保存在内存中，同时记录crc和大小，由{@link ZipPackageWriter}原样写入zip。
+ * 每个部件独立压缩，可以在不同线程中生成。
+ * 也可以不保存压缩数据，直接把压缩数据写到zip的输出流中，见{@link ZipPackageWriter#beginEntry(String)}。
+ * @author wutian
+ */
+class DeflatedPart {
+
+	/**
+	 * 保存在内存中的压缩数据，直接写出时为null
+	 */
+	private final ChunkedOutputStream compressed;
+
+	private final CRC32 crc = new CRC32();
+
+	private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+	private final DeflaterOutputStream deflaterOutputStream;
+	
+	private long compressedSize;
+
+	private long size;
+
+	private boolean finished;
+
+	private final OutputStream outputStream = new OutputStream() {
+
+		@Override
+		public void write(int b) throws IOException {
+			crc.update(b);
+			size++;
+			deflaterOutputStream.write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			crc.update(b, off, len);
+			size += len;
+			deflaterOutputStream.write(b, off, len);
+		}
+
+	};
+
+	/**
+	 * 压缩数据保存在内存中
+	 */
+	DeflatedPart() {
+		this(null);
+	}
+	
+	/**
+	 * @param target 压缩数据直接写到target，为null时保存在内存中
+	 */
+	DeflatedPart(final OutputStream target) {
+		compressed = target == null ? new ChunkedOutputStream() : null;
+		final OutputStream compressedTarget = target == null ? compressed : target;
+		deflaterOutputStream = new DeflaterOutputStream(new OutputStream() {
+			
+			@Override
+			public void write(int b) throws IOException {
+				compressedTarget.write(b);
+				compressedSize++;
+			}
+			
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				compressedTarget.write(b, off, len);
+				compressedSize += len;
+			}
+			
+		}, deflater, 64 * 1024);
+	}
+	
+	/**
+	 * 写入未压缩数据的输出流，关闭该流不会结束压缩，需要调用{@link #finish()}
+	 * @return
+	 */
+	OutputStream getOutputStream() {
+		return outputStream;
+	}
+
+	/**
+	 * 结束压缩
+	 * @throws IOException
+	 */
+	void finish() throws IOException {
+		if(finished) {
+			return;
+		}
+		deflaterOutputStream.finish();
+		deflater.end();
+		finished = true;
+	}
+
+	boolean isFinished() {
+		return finished;
+	}
+
+	long getCrc() {
+		return crc.getValue();
+	}
+
+	/**
+	 * 未压缩的字节数
+	 * @return
+	 */
+	long getSize() {
+		return size;
+	}
+
+	/**
+	 * 压缩后的字节数
+	 * @return
+	 */
+	long getCompressedSize() {
+		return compressedSize;
+	}
+
+	void writeCompressedTo(OutputStream outputStream) throws IOException {
+		if(compressed == null) {
+			throw new IllegalStateException("compressed data has been written directly");
+		}
+		compressed.writeTo(outputStream);
+	}
+
+	/**
+	 * 释放压缩数据
+	 */
+	void dispose() {
+		if(!finished) {
+			deflater.end();
+			finished = true;
+		}
+		if(compressed != null) {
+			compressed.reset();
+		}
+	}
+
+}
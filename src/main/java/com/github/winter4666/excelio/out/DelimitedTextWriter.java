@@ -0,0 +1,403 @@
+package com.github.winter4666.excelio.out;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.poi.ss.util.NumberToTextConverter;
+
+/**
+ * {@link ExcelWriter.ExcelFormat#CSV}、{@link ExcelWriter.ExcelFormat#TSV}格式下写分隔文本，
+ * 单元格在写入时格式化为文本，经过缓冲的UTF-8编码器直接写到输出流（或内存中），可以再用gzip压缩。
+ * 和{@link StreamingXmlSheet}一样内存中最多保留rowAccessWindowSize行，超出的行按行号从小到大写出。
+ * 样式、列宽、行高不写出；合并单元格的值只保留在左上角的单元格中，其余单元格为空。
+ * 多个sheet依次写在同一个文件中，以空行分隔。
+ * @author wutian
+ */
+class DelimitedTextWriter {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * 没有小数部分时按整数写出的数字的最大绝对值，超出后double已经不能精确表示整数
+	 */
+	private static final double MAX_EXACT_INTEGER = 1e15;
+
+	private final char delimiter;
+
+	private final int rowAccessWindowSize;
+
+	/**
+	 * 不直接写到输出流时保存导出的数据
+	 */
+	private final ChunkedOutputStream buffer;
+
+	private final Writer out;
+
+	/**
+	 * 启用gzip时不为null
+	 */
+	private final ReleasableGZIPOutputStream gzipOutputStream;
+
+	/**
+	 * 内存中还未写出的行
+	 */
+	private final RowWindow<BufferedRow> rows = new RowWindow<>();
+
+	/**
+	 * 已写出的行，可以重复使用
+	 */
+	private final ArrayDeque<BufferedRow> rowPool = new ArrayDeque<>();
+
+	/**
+	 * 当前sheet已写出的最大行号
+	 */
+	private int lastFlushedRownum = -1;
+
+	/**
+	 * 是否写出过任何一行，用于在sheet之间写空行
+	 */
+	private boolean written;
+
+	private boolean finished;
+
+	private String datePattern;
+
+	private SimpleDateFormat simpleDateFormat;
+
+	/**
+	 * @param delimiter 分隔符
+	 * @param rowAccessWindowSize 内存中最多保留的行数
+	 * @param outputStream 不为null时直接写到该输出流，结束后不关闭
+	 * @param gzip 是否用gzip压缩
+	 */
+	DelimitedTextWriter(char delimiter, int rowAccessWindowSize, OutputStream outputStream, boolean gzip) {
+		this.delimiter = delimiter;
+		this.rowAccessWindowSize = rowAccessWindowSize;
+		OutputStream target;
+		if(outputStream == null) {
+			buffer = new ChunkedOutputStream();
+			target = buffer;
+		} else {
+			buffer = null;
+			target = new FilterOutputStream(outputStream) {
+
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					out.write(b, off, len);
+				}
+
+				@Override
+				public void close() throws IOException {
+					//不关闭调用方的输出流
+					flush();
+				}
+			};
+		}
+		try {
+			if(gzip) {
+				gzipOutputStream = new ReleasableGZIPOutputStream(target);
+				target = gzipOutputStream;
+			} else {
+				gzipOutputStream = null;
+			}
+			out = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), BUFFER_SIZE);
+			//Excel根据BOM识别UTF-8编码
+			out.write('\uFEFF');
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	boolean isDirect() {
+		return buffer == null;
+	}
+
+	/**
+	 * 当前sheet是否还没有写过任何内容
+	 * @return
+	 */
+	boolean isSheetEmpty() {
+		return lastFlushedRownum < 0 && rows.isEmpty();
+	}
+
+	/**
+	 * 写出当前sheet的所有行，之后的行属于新的sheet，行号从0开始
+	 */
+	void nextSheet() {
+		flushRows();
+		lastFlushedRownum = -1;
+	}
+
+	/**
+	 * 写一个单元格
+	 * @param rownum
+	 * @param column
+	 * @param data 要写的数据
+	 * @param dateFormat 日期的格式
+	 */
+	void writeCell(int rownum, int column, Object data, String dateFormat) {
+		getRow(rownum).setCell(column, format(data, dateFormat));
+	}
+
+	/**
+	 * 写一个数字单元格
+	 * @param rownum
+	 * @param column
+	 * @param number
+	 */
+	void writeNumber(int rownum, int column, double number) {
+		getRow(rownum).setCell(column, formatNumber(number));
+	}
+
+	/**
+	 * 写一个整数单元格，不经过double，超过2^53的整数也不丢失精度
+	 * @param rownum
+	 * @param column
+	 * @param number
+	 */
+	void writeLong(int rownum, int column, long number) {
+		getRow(rownum).setCell(column, Long.toString(number));
+	}
+
+	/**
+	 * 写一个布尔值单元格，与excel中的显示一致，写为TRUE或FALSE
+	 * @param rownum
+	 * @param column
+	 * @param value
+	 */
+	void writeBoolean(int rownum, int column, boolean value) {
+		getRow(rownum).setCell(column, value ? "TRUE" : "FALSE");
+	}
+
+	/**
+	 * 写一个空单元格，使该行至少有column + 1列
+	 * @param rownum
+	 * @param column
+	 */
+	void writeBlank(int rownum, int column) {
+		BufferedRow row = getRow(rownum);
+		if(column >= row.cellCount) {
+			row.setCell(column, null);
+		}
+	}
+
+	private String format(Object data, String dateFormat) {
+		if(data == null) {
+			return null;
+		} else if(data instanceof String) {
+			return (String)data;
+		} else if(data instanceof BigDecimal) {
+			return ((BigDecimal)data).toPlainString();
+		} else if(data instanceof Long || data instanceof Integer || data instanceof Short || data instanceof Byte
+				|| data instanceof BigInteger) {
+			return data.toString();
+		} else if(data instanceof Number) {
+			return formatNumber(((Number)data).doubleValue());
+		} else if(data instanceof Boolean) {
+			return (Boolean)data ? "TRUE" : "FALSE";
+		} else if(ExcelDates.isDate(data)) {
+			if(!dateFormat.equals(datePattern)) {
+				datePattern = dateFormat;
+				simpleDateFormat = new SimpleDateFormat(dateFormat);
+			}
+			return simpleDateFormat.format(ExcelDates.toDate(data));
+		} else {
+			return data.toString();
+		}
+	}
+
+	private static String formatNumber(double number) {
+		if(number == (long)number && Math.abs(number) < MAX_EXACT_INTEGER) {
+			return Long.toString((long)number);
+		}
+		return NumberToTextConverter.toText(number);
+	}
+
+	private BufferedRow getRow(int rownum) {
+		BufferedRow row = rows.get(rownum);
+		if(row != null) {
+			return row;
+		}
+		if(rownum <= lastFlushedRownum) {
+			throw new IllegalArgumentException("Attempting to write a row[" + rownum + "] in the range [0,"
+					+ lastFlushedRownum + "] that has already been flushed.");
+		}
+		if(finished) {
+			throw new IllegalStateException("text has been finished");
+		}
+		//先写出行号更小的行，再放入新行
+		while(rows.size() >= rowAccessWindowSize && rows.firstRownum() < rownum) {
+			flushRow(rows.pollFirst());
+		}
+		row = rowPool.poll();
+		if(row == null) {
+			row = new BufferedRow();
+		}
+		row.rownum = rownum;
+		rows.put(rownum, row);
+		return row;
+	}
+
+	private void flushRows() {
+		while(!rows.isEmpty()) {
+			flushRow(rows.pollFirst());
+		}
+	}
+
+	private void flushRow(BufferedRow row) {
+		try {
+			if(lastFlushedRownum < 0 && written) {
+				//sheet之间的空行
+				out.write("\r\n");
+			}
+			//跳过的行写成空行
+			for(int rownum = lastFlushedRownum + 1;rownum < row.rownum;rownum++) {
+				out.write("\r\n");
+			}
+			for(int i = 0;i < row.cellCount;i++) {
+				if(i > 0) {
+					out.write(delimiter);
+				}
+				if(row.cells[i] != null) {
+					writeQuoted(row.cells[i]);
+				}
+			}
+			out.write("\r\n");
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		lastFlushedRownum = row.rownum;
+		written = true;
+		row.clear();
+		rowPool.push(row);
+	}
+
+	/**
+	 * 按RFC 4180，包含分隔符、引号或换行的值用引号括起来，其中的引号写两次
+	 */
+	private void writeQuoted(String text) throws IOException {
+		boolean quote = false;
+		for(int i = 0;i < text.length();i++) {
+			char c = text.charAt(i);
+			if(c == delimiter || c == '"' || c == '\r' || c == '\n') {
+				quote = true;
+				break;
+			}
+		}
+		if(!quote) {
+			out.write(text);
+			return;
+		}
+		out.write('"');
+		int start = 0;
+		for(int i = 0;i < text.length();i++) {
+			if(text.charAt(i) == '"') {
+				out.write(text, start, i + 1 - start);
+				out.write('"');
+				start = i + 1;
+			}
+		}
+		out.write(text, start, text.length() - start);
+		out.write('"');
+	}
+
+	/**
+	 * 写出所有行，结束gzip压缩，不关闭输出流
+	 * @throws IOException
+	 */
+	void finish() throws IOException {
+		if(finished) {
+			return;
+		}
+		flushRows();
+		out.flush();
+		if(gzipOutputStream != null) {
+			gzipOutputStream.finish();
+			gzipOutputStream.flush();
+		}
+		finished = true;
+	}
+
+	/**
+	 * 结束并把内存中的数据写到outputStream
+	 * @param outputStream
+	 * @throws IOException
+	 */
+	void writeTo(OutputStream outputStream) throws IOException {
+		if(buffer == null) {
+			throw new IllegalStateException("text has been written directly to output stream");
+		}
+		finish();
+		buffer.writeTo(outputStream);
+	}
+
+	/**
+	 * 释放内存中的数据和gzip使用的本地内存
+	 */
+	void dispose() {
+		rows.clear();
+		rowPool.clear();
+		if(gzipOutputStream != null) {
+			gzipOutputStream.release();
+		}
+		if(buffer != null) {
+			buffer.reset();
+		}
+	}
+
+	/**
+	 * 可以在不关闭底层输出流的情况下释放Deflater的GZIPOutputStream
+	 */
+	private static class ReleasableGZIPOutputStream extends GZIPOutputStream {
+
+		private ReleasableGZIPOutputStream(OutputStream out) throws IOException {
+			super(out, BUFFER_SIZE);
+		}
+
+		private void release() {
+			def.end();
+		}
+	}
+
+	/**
+	 * 内存中的一行，已格式化的单元格按列号保存
+	 */
+	private static class BufferedRow {
+
+		private int rownum;
+
+		/**
+		 * 最大列号 + 1
+		 */
+		private int cellCount;
+
+		private String[] cells = new String[16];
+
+		private void setCell(int column, String text) {
+			if(column >= cells.length) {
+				cells = Arrays.copyOf(cells, Math.max(cells.length * 2, column + 1));
+			}
+			cells[column] = text;
+			if(column >= cellCount) {
+				cellCount = column + 1;
+			}
+		}
+
+		private void clear() {
+			Arrays.fill(cells, 0, cellCount, null);
+			cellCount = 0;
+		}
+	}
+
+}
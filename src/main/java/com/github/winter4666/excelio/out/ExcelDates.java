@@ -0,0 +1,71 @@
+package com.github.winter4666.excelio.out;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * java.time日期与excel日期数值的转换，poi 4.1.0的{@link org.apache.poi.ss.usermodel.DateUtil}只支持{@link Date}和Calendar。
+ * 使用1900日期系统，与DateUtil一致：1900年3月1日之前的日期按excel把1900年当作闰年的规则少算一天，1900年之前返回-1
+ * @author wutian
+ */
+class ExcelDates {
+
+	/**
+	 * excel日期数值0对应的日期（1900年3月1日之后的日期以此为准）
+	 */
+	private static final long EPOCH_DAY_1899_12_30 = LocalDate.of(1899, 12, 30).toEpochDay();
+
+	private static final long EPOCH_DAY_1900_03_01 = LocalDate.of(1900, 3, 1).toEpochDay();
+
+	private static final double NANOS_PER_DAY = 24 * 60 * 60 * 1000_000_000L;
+
+	private ExcelDates() {
+
+	}
+
+	/**
+	 * 是否是可以写成excel日期的值
+	 * @param data
+	 * @return
+	 */
+	static boolean isDate(Object data) {
+		return data instanceof Date || data instanceof LocalDateTime || data instanceof LocalDate;
+	}
+
+	static double getExcelDate(LocalDate date) {
+		if(date.getYear() < 1900) {
+			return -1;
+		}
+		long epochDay = date.toEpochDay();
+		long days = epochDay - EPOCH_DAY_1899_12_30;
+		if(epochDay < EPOCH_DAY_1900_03_01) {
+			days--;
+		}
+		return days;
+	}
+
+	static double getExcelDate(LocalDateTime dateTime) {
+		double days = getExcelDate(dateTime.toLocalDate());
+		if(days < 0) {
+			return -1;
+		}
+		return days + dateTime.toLocalTime().toNanoOfDay() / NANOS_PER_DAY;
+	}
+
+	/**
+	 * 转换成系统默认时区的{@link Date}，用于按SimpleDateFormat的格式格式化
+	 * @param data {@link #isDate(Object)}为true的值
+	 * @return
+	 */
+	static Date toDate(Object data) {
+		if(data instanceof LocalDateTime) {
+			return Date.from(((LocalDateTime)data).atZone(ZoneId.systemDefault()).toInstant());
+		} else if(data instanceof LocalDate) {
+			return Date.from(((LocalDate)data).atStartOfDay(ZoneId.systemDefault()).toInstant());
+		}
+		return (Date)data;
+	}
+
+}
@@ -0,0 +1,210 @@
+package com.github.winter4666.excelio.out;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+/**
+ * 导出使用的xlsx模板，通过{@link ExcelWriterBuilder#setTemplate(ExcelTemplate)}使用。
+ * 模板中的样式、字体、列宽、其他sheet和锚点行之前的行（如logo、标题和表头）原样保留，表格数据从锚点行开始按SXSSF的行窗口流式写。
+ * 锚点行在模板中有单元格时作为样例行，各列单元格的样式作为表格数据的样式，样例行本身不导出。
+ * 模板只在构造时解析一次，之后不可变，可以在多个线程中共享，每次导出只从去掉了锚点行之后内容的模板构造工作簿
+ * @author wutian
+ */
+public final class ExcelTemplate {
+
+	/**
+	 * 去掉了锚点行及之后的行的模板
+	 */
+	private final byte[] content;
+
+	private final int sheetIndex;
+
+	private final int anchorRow;
+
+	/**
+	 * 样例行各列的样式下标，没有样例单元格的列为-1
+	 */
+	private final int[] columnStyleIndexes;
+
+	private ExcelTemplate(byte[] content, int sheetIndex, int anchorRow, int[] columnStyleIndexes) {
+		this.content = content;
+		this.sheetIndex = sheetIndex;
+		this.anchorRow = anchorRow;
+		this.columnStyleIndexes = columnStyleIndexes;
+	}
+
+	/**
+	 * @param file xlsx格式的模板文件
+	 * @return
+	 * @throws IOException
+	 */
+	public static Builder newBuilder(File file) throws IOException {
+		return new Builder(Files.readAllBytes(file.toPath()));
+	}
+
+	/**
+	 * @param inputStream xlsx格式的模板，读取后不会关闭
+	 * @return
+	 * @throws IOException
+	 */
+	public static Builder newBuilder(InputStream inputStream) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int n;
+		while((n = inputStream.read(buffer)) != -1) {
+			outputStream.write(buffer, 0, n);
+		}
+		return new Builder(outputStream.toByteArray());
+	}
+
+	/**
+	 * 用模板构造一个新的工作簿
+	 * @return
+	 * @throws IOException
+	 */
+	XSSFWorkbook openWorkbook() throws IOException {
+		return new XSSFWorkbook(new ByteArrayInputStream(content));
+	}
+
+	/**
+	 * 样例行各列的样式
+	 * @param workbook 用{@link #openWorkbook()}构造的工作簿
+	 * @return 没有样例单元格的列为null
+	 */
+	CellStyle[] resolveColumnStyles(Workbook workbook) {
+		CellStyle[] columnStyles = new CellStyle[columnStyleIndexes.length];
+		for(int i = 0;i < columnStyleIndexes.length;i++) {
+			if(columnStyleIndexes[i] >= 0) {
+				columnStyles[i] = workbook.getCellStyleAt(columnStyleIndexes[i]);
+			}
+		}
+		return columnStyles;
+	}
+
+	/**
+	 * 写表格数据的sheet的下标
+	 * @return
+	 */
+	public int getSheetIndex() {
+		return sheetIndex;
+	}
+
+	/**
+	 * 表格数据开始的行（0-based）
+	 * @return
+	 */
+	public int getAnchorRow() {
+		return anchorRow;
+	}
+
+	/**
+	 * 构造{@link ExcelTemplate}
+	 */
+	public static class Builder {
+
+		private final byte[] content;
+
+		private String sheetName;
+
+		private int sheetIndex;
+
+		private Integer anchorRow;
+
+		private Builder(byte[] content) {
+			this.content = content;
+		}
+
+		/**
+		 * 设置写表格数据的sheet，默认为第一个sheet
+		 * @param sheetName
+		 * @return
+		 */
+		public Builder setSheetName(String sheetName) {
+			this.sheetName = sheetName;
+			return this;
+		}
+
+		/**
+		 * 设置写表格数据的sheet的下标，默认为0
+		 * @param sheetIndex
+		 * @return
+		 */
+		public Builder setSheetIndex(int sheetIndex) {
+			this.sheetIndex = sheetIndex;
+			return this;
+		}
+
+		/**
+		 * 设置表格数据开始的行（0-based），默认为模板sheet最后一行的下一行
+		 * @param anchorRow
+		 * @return
+		 */
+		public Builder setAnchorRow(int anchorRow) {
+			this.anchorRow = anchorRow;
+			return this;
+		}
+
+		/**
+		 * 解析模板，读取样例行的样式，去掉锚点行及之后的行和合并区域
+		 * @return
+		 * @throws IOException 模板不是有效的xlsx文件时
+		 * @throws IllegalArgumentException sheet不存在时
+		 */
+		public ExcelTemplate build() throws IOException {
+			XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(content));
+			try {
+				int index = sheetName != null ? workbook.getSheetIndex(sheetName) : sheetIndex;
+				if(index < 0 || index >= workbook.getNumberOfSheets()) {
+					throw new IllegalArgumentException("sheet " + (sheetName != null ? sheetName : index) + " does not exist in template");
+				}
+				XSSFSheet sheet = workbook.getSheetAt(index);
+				int anchor = anchorRow != null ? anchorRow : (sheet.getPhysicalNumberOfRows() == 0 ? 0 : sheet.getLastRowNum() + 1);
+				int[] columnStyleIndexes = new int[0];
+				XSSFRow sampleRow = sheet.getRow(anchor);
+				if(sampleRow != null && sampleRow.getLastCellNum() > 0) {
+					columnStyleIndexes = new int[sampleRow.getLastCellNum()];
+					Arrays.fill(columnStyleIndexes, -1);
+					for(Cell cell : sampleRow) {
+						columnStyleIndexes[cell.getColumnIndex()] = cell.getCellStyle().getIndex() & 0xFFFF;
+					}
+				}
+				List<Row> removedRows = new ArrayList<>();
+				for(Row row : sheet) {
+					if(row.getRowNum() >= anchor) {
+						removedRows.add(row);
+					}
+				}
+				for(Row row : removedRows) {
+					sheet.removeRow(row);
+				}
+				for(int i = sheet.getNumMergedRegions() - 1;i >= 0;i--) {
+					if(sheet.getMergedRegion(i).getLastRow() >= anchor) {
+						sheet.removeMergedRegion(i);
+					}
+				}
+				ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+				workbook.write(outputStream);
+				return new ExcelTemplate(outputStream.toByteArray(), index, anchor, columnStyleIndexes);
+			} finally {
+				workbook.close();
+			}
+		}
+
+	}
+
+}
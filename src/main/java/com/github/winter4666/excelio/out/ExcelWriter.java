@@ -5,14 +5,22 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ss.usermodel.Cell;
@@ -28,10 +36,19 @@ import org.apache.poi.xssf.streaming.SXSSFSheet;
 import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
+import com.github.winter4666.excelio.common.CancellationToken;
 import com.github.winter4666.excelio.common.GridColumn;
+import com.github.winter4666.excelio.common.GridColumn.ValueType;
+import com.github.winter4666.excelio.out.ExportListener.Phase;
+import com.github.winter4666.excelio.out.grid.ColumnBatch;
+import com.github.winter4666.excelio.out.grid.ColumnarLoader;
+import com.github.winter4666.excelio.out.grid.ColumnarLoader.ColumnBatchListener;
+import com.github.winter4666.excelio.out.grid.FieldAccessors;
 import com.github.winter4666.excelio.out.grid.GridDataLoader;
 import com.github.winter4666.excelio.out.grid.GridDataLoader.GridDataLoaderListener;
+import com.github.winter4666.excelio.out.grid.GridRowAccessor;
 import com.github.winter4666.excelio.out.grid.ListLoader;
+import com.github.winter4666.excelio.out.grid.LoaderExecutors;
 
 
 /**
@@ -41,10 +58,30 @@ import com.github.winter4666.excelio.out.grid.ListLoader;
  */
 public class ExcelWriter {
 	
+	/**
+	 * excel允许的sheet名称最大长度
+	 */
+	private static final int MAX_SHEET_NAME_LENGTH = 31;
+	
 	private ExcelFormat excelFormat;
 	
 	private Workbook workbook;
 	
+	/**
+	 * STREAMING_XML格式下直接生成xml的工作簿，此时workbook只用来保存样式
+	 */
+	private StreamingXmlWorkbook streamingWorkbook;
+	
+	/**
+	 * STREAMING_XML格式下当前正在写的sheet
+	 */
+	private StreamingXmlSheet streamingSheet;
+	
+	/**
+	 * CSV、TSV格式下写分隔文本的writer，此时workbook只用来保存样式和sheet名称
+	 */
+	private DelimitedTextWriter textWriter;
+	
 	/**
 	 * 当前正在写的sheet
 	 */
@@ -83,57 +120,306 @@ public class ExcelWriter {
 	/**
 	 * 发生过合并的ColumnIndex
 	 */
-	private Set<Integer> mergedColumnIndexes;
+	private BitSet mergedColumnIndexes;
+	
+	/**
+	 * 非STREAMING_XML格式下当前sheet暂存的合并区域，结束sheet时检查重叠后批量添加
+	 */
+	private MergedRegions mergedRegions;
 	
 	private CreationHelper creationHelper;
 	
 	private boolean ignoreGridHeader;
 	
-	private Map<CellStyle, CellStyle> dateCellStyleTemp = new HashMap<>();
+	private StyleRegistry styleRegistry;
 	
 	/**
 	 * 根据内容自动调整excel列宽度
 	 */
 	private boolean autoSizeColumn;
 	
-	ExcelWriter(ExcelFormat excelFormat,Boolean autoSizeColumn,Integer rowAccessWindowSize) {
-		if(excelFormat == null) excelFormat = ExcelFormat.XSSF;
+	/**
+	 * 自动调整列宽度的方式
+	 */
+	private AutoSizeStrategy autoSizeStrategy;
+	
+	/**
+	 * ESTIMATE方式下在写单元格时估算列宽度
+	 */
+	private ColumnWidthEstimator columnWidthEstimator;
+	
+	/**
+	 * 取消标记，取消后停止写表格并释放工作簿
+	 */
+	private CancellationToken cancellationToken;
+	
+	/**
+	 * 并行写sheet时创建该ExcelWriter的ExcelWriter，只有最外层的ExcelWriter负责释放工作簿
+	 */
+	private ExcelWriter parent;
+	
+	/**
+	 * 当前sheet是并行写sheet之后添加的，没有写内容时在切换sheet或导出时删除
+	 */
+	private boolean placeholderSheet;
+	
+	private boolean disposed;
+	
+	/**
+	 * 统计导出过程，没有设置监听器时为null，此时不计时
+	 */
+	private MetricsCollector metricsCollector;
+	
+	/**
+	 * 直接写到输出流并设置了监听器时，记录写出的字节数
+	 */
+	CountingOutputStream countingOutputStream;
+	
+	/**
+	 * 所有单元格都使用默认样式的表格样式，按列写表格时使用该样式的列不需要为了取样式装箱
+	 */
+	private final GridCellStyle defaultGridCellStyle = new GridCellStyle() {
+		
+		@Override
+		public CellStyle getHeaderCellStyle(ExcelWriter excelWriter, String fieldName) {
+			return defaultCellStyle;
+		}
+		
+		@Override
+		public CellStyle getDataCellStyle(ExcelWriter excelWriter, String fieldName, int gridRowNum, Object fieldValue) {
+			return defaultCellStyle;
+		}
+
+	};
+	
+	/**
+	 * 每个sheet最多写的行数，写表格时超出后切换到新的sheet继续写
+	 */
+	private int maxRowsPerSheet;
+	
+	/**
+	 * 当前sheet中通过{@link #setColumnWidth(int, int)}设置的列宽度，切换到新的sheet继续写表格时重复设置
+	 */
+	private TreeMap<Integer, Integer> columnWidths;
+	
+	/**
+	 * 基于模板写时模板样例行各列的样式，使用默认表格样式时作为各列数据的样式
+	 */
+	private CellStyle[] templateColumnStyles;
+	
+	/**
+	 * XSSF格式下内存中的行数达到该值后转为SXSSF格式，为0时不转换
+	 */
+	private int streamingRowThreshold;
+	
+	/**
+	 * XSSF格式下估算的单元格内存占用（字节）达到该值后转为SXSSF格式，为0时不转换
+	 */
+	private long streamingHeapThreshold;
+	
+	/**
+	 * 转为SXSSF格式后的行窗口
+	 */
+	private int streamingRowAccessWindowSize;
+	
+	/**
+	 * 工作簿中创建的行数和单元格数，用于判断是否需要转为SXSSF格式
+	 */
+	private long inMemoryRows;
+	
+	private long inMemoryCells;
+	
+	ExcelWriter(ExcelFormat excelFormat,Boolean autoSizeColumn,AutoSizeStrategy autoSizeStrategy,Integer rowAccessWindowSize) {
+		this(excelFormat, autoSizeColumn, autoSizeStrategy, rowAccessWindowSize, null, null, false);
+	}
+	
+	/**
+	 * 没有指定格式时根据其他参数选择格式
+	 * @return
+	 */
+	static ExcelFormat resolveExcelFormat(ExcelFormat excelFormat,OutputStream outputStream,SpillStorage spillStorage,boolean gzip) {
+		if(excelFormat != null) {
+			return excelFormat;
+		} else if(gzip) {
+			return ExcelFormat.CSV;
+		} else if(outputStream != null) {
+			return ExcelFormat.STREAMING_XML;
+		} else if(spillStorage != null) {
+			return ExcelFormat.SXSSF;
+		} else {
+			return ExcelFormat.XSSF;
+		}
+	}
+	
+	/**
+	 * @param outputStream 不为null时直接写到该输出流，只支持STREAMING_XML、CSV、TSV格式
+	 * @param spillStorage 不为null时SXSSF格式超出行窗口的数据的保存方式，只支持SXSSF格式
+	 * @param gzip 是否用gzip压缩，只支持CSV、TSV格式
+	 */
+	ExcelWriter(ExcelFormat excelFormat,Boolean autoSizeColumn,AutoSizeStrategy autoSizeStrategy,Integer rowAccessWindowSize,
+			OutputStream outputStream,SpillStorage spillStorage,boolean gzip) {
+		excelFormat = resolveExcelFormat(excelFormat, outputStream, spillStorage, gzip);
+		boolean text = excelFormat == ExcelFormat.CSV || excelFormat == ExcelFormat.TSV;
+		if(outputStream != null && excelFormat != ExcelFormat.STREAMING_XML && !text) {
+			throw new IllegalArgumentException("writing directly to output stream only supports " + ExcelFormat.STREAMING_XML 
+					+ ", " + ExcelFormat.CSV + " and " + ExcelFormat.TSV);
+		}
+		if(spillStorage != null && excelFormat != ExcelFormat.SXSSF) {
+			throw new IllegalArgumentException("spill storage only supports " + ExcelFormat.SXSSF);
+		}
+		if(gzip && !text) {
+			throw new IllegalArgumentException("gzip only supports " + ExcelFormat.CSV + " and " + ExcelFormat.TSV);
+		}
 		this.excelFormat = excelFormat;
 		if(excelFormat == ExcelFormat.HSSF) {
 			workbook = new HSSFWorkbook();
 		} else if(excelFormat == ExcelFormat.SXSSF) {
-			if(rowAccessWindowSize == null) {
+			if(spillStorage != null) {
+				workbook = new SpillingSXSSFWorkbook(rowAccessWindowSize == null ? SXSSFWorkbook.DEFAULT_WINDOW_SIZE : rowAccessWindowSize, 
+						spillStorage);
+			} else if(rowAccessWindowSize == null) {
 				workbook = new SXSSFWorkbook();
 			} else {
 				workbook = new SXSSFWorkbook(rowAccessWindowSize);
 			}
+		} else if(excelFormat == ExcelFormat.STREAMING_XML) {
+			workbook = new XSSFWorkbook();
+			streamingWorkbook = new StreamingXmlWorkbook((XSSFWorkbook)workbook, 
+					rowAccessWindowSize == null ? SXSSFWorkbook.DEFAULT_WINDOW_SIZE : rowAccessWindowSize, outputStream);
+		} else if(text) {
+			workbook = new XSSFWorkbook();
+			textWriter = new DelimitedTextWriter(excelFormat == ExcelFormat.CSV ? ',' : '\t', 
+					rowAccessWindowSize == null ? SXSSFWorkbook.DEFAULT_WINDOW_SIZE : rowAccessWindowSize, outputStream, gzip);
 		} else {
 			workbook = new XSSFWorkbook();
 		}
-		
-		if(autoSizeColumn == null) autoSizeColumn = false;
+		initWorkbook(text, autoSizeColumn, autoSizeStrategy);
+		defaultCellStyle = createCellStyle();
+	}
+	
+	/**
+	 * 基于模板写，模板中的样式、列宽和锚点行之前的行保留，默认样式为模板的默认样式，默认忽略表格的表头
+	 * @param template
+	 * @param rowAccessWindowSize 内存中最多保存的行数量
+	 */
+	ExcelWriter(ExcelTemplate template,Boolean autoSizeColumn,AutoSizeStrategy autoSizeStrategy,Integer rowAccessWindowSize) {
+		excelFormat = ExcelFormat.SXSSF;
+		try {
+			workbook = new SXSSFWorkbook(template.openWorkbook(), 
+					rowAccessWindowSize == null ? SXSSFWorkbook.DEFAULT_WINDOW_SIZE : rowAccessWindowSize);
+		} catch (IOException e) {
+			throw new RuntimeException("error occours while opening template", e);
+		}
+		initWorkbook(false, autoSizeColumn, autoSizeStrategy);
+		ignoreGridHeader = true;
+		defaultCellStyle = workbook.getCellStyleAt(0);
+		templateColumnStyles = template.resolveColumnStyles(workbook);
+	}
+	
+	private void initWorkbook(boolean text,Boolean autoSizeColumn,AutoSizeStrategy autoSizeStrategy) {
+		if(autoSizeColumn == null || text) autoSizeColumn = false;
 		this.autoSizeColumn = autoSizeColumn;
+		if(autoSizeStrategy == null || excelFormat == ExcelFormat.STREAMING_XML) {
+			//STREAMING_XML格式不保留行，只能估算
+			autoSizeStrategy = excelFormat == ExcelFormat.STREAMING_XML ? AutoSizeStrategy.ESTIMATE : AutoSizeStrategy.FONT_METRICS;
+		}
+		this.autoSizeStrategy = autoSizeStrategy;
 		
 		creationHelper = workbook.getCreationHelper();
+		styleRegistry = new StyleRegistry(workbook);
+		if(autoSizeColumn && autoSizeStrategy == AutoSizeStrategy.ESTIMATE) {
+			columnWidthEstimator = new ColumnWidthEstimator(workbook, styleRegistry);
+		}
 		
 		dateFormat = "yyyy-MM-dd HH:mm:ss";
 		ignoreGridHeader = false;
-		
-		defaultCellStyle = createCellStyle();
+		maxRowsPerSheet = text ? Integer.MAX_VALUE : workbook.getSpreadsheetVersion().getMaxRows();
+	}
+	
+	/**
+	 * 并行写sheet时使用的ExcelWriter，与parent共享工作簿和样式，只写sheet这一个sheet
+	 * @param parent
+	 * @param sheet
+	 * @param streamingSheet
+	 */
+	private ExcelWriter(ExcelWriter parent,Sheet sheet,StreamingXmlSheet streamingSheet) {
+		excelFormat = parent.excelFormat;
+		workbook = parent.workbook;
+		streamingWorkbook = parent.streamingWorkbook;
+		autoSizeColumn = parent.autoSizeColumn;
+		autoSizeStrategy = parent.autoSizeStrategy;
+		creationHelper = parent.creationHelper;
+		styleRegistry = parent.styleRegistry;
+		if(parent.columnWidthEstimator != null) {
+			columnWidthEstimator = new ColumnWidthEstimator(workbook, styleRegistry);
+		}
+		dateFormat = parent.dateFormat;
+		ignoreGridHeader = parent.ignoreGridHeader;
+		maxRowsPerSheet = parent.maxRowsPerSheet;
+		defaultCellStyle = parent.defaultCellStyle;
+		cancellationToken = parent.cancellationToken;
+		metricsCollector = parent.metricsCollector;
+		this.parent = parent;
+		currentSheet = sheet;
+		this.streamingSheet = streamingSheet;
+		initSheetState();
 	}
 	
 	void initSheet(String sheetName) {
+		if(parent != null) {
+			initSheetInParallel(sheetName);
+			return;
+		}
 		if(sheetName != null) {
 			sheetName = WorkbookUtil.createSafeSheetName(sheetName);
 			currentSheet = workbook.createSheet(sheetName);
 		} else {
 			currentSheet = workbook.createSheet();
 		}
-		mergedColumnIndexes = new HashSet<>();
+		if(streamingWorkbook != null) {
+			streamingSheet = streamingWorkbook.createSheet(currentSheet.getSheetName());
+		}
+		if(textWriter != null) {
+			textWriter.nextSheet();
+		}
+		initSheetState();
+	}
+	
+	/**
+	 * 基于模板写时从模板sheet的锚点行开始写
+	 */
+	void initTemplateSheet(int sheetIndex,int anchorRow) {
+		currentSheet = workbook.getSheetAt(sheetIndex);
+		initSheetState();
+		location(anchorRow, 0);
+	}
+	
+	/**
+	 * 并行写sheet时在写sheet的线程中切换到新的sheet，新的sheet添加在最后
+	 */
+	private void initSheetInParallel(String sheetName) {
+		streamingSheet.close();
+		synchronized (styleRegistry) {
+			currentSheet = sheetName == null ? workbook.createSheet() : workbook.createSheet(WorkbookUtil.createSafeSheetName(sheetName));
+			streamingSheet = streamingWorkbook.addSheet(currentSheet.getSheetName());
+		}
+		initSheetState();
+	}
+	
+	private void initSheetState() {
+		mergedColumnIndexes = new BitSet();
+		mergedRegions = new MergedRegions();
+		columnWidths = new TreeMap<>();
 		location(0, 0);
 		
 		autoSizeColumnIndexes = new HashSet<>();
-		if(autoSizeColumn && excelFormat == ExcelFormat.SXSSF) {
+		if(columnWidthEstimator != null) {
+			columnWidthEstimator.reset();
+			if(streamingSheet != null) {
+				streamingSheet.setColumnWidthEstimator(columnWidthEstimator);
+			}
+		}
+		if(autoSizeColumn && autoSizeStrategy == AutoSizeStrategy.FONT_METRICS && excelFormat == ExcelFormat.SXSSF) {
 			((SXSSFSheet)currentSheet).trackAllColumnsForAutoSizing();
 		}
 	}
@@ -143,10 +429,29 @@ public class ExcelWriter {
 	 * @return
 	 */
 	public CellStyle createCellStyle() {
-		CellStyle cellStyle = workbook.createCellStyle();
-		cellStyle.setFont(createFont());
-		cellStyle.setWrapText(true);
-		return cellStyle;
+		synchronized (styleRegistry) {
+			CellStyle cellStyle = workbook.createCellStyle();
+			cellStyle.setFont(createFont());
+			cellStyle.setWrapText(true);
+			return cellStyle;
+		}
+	}
+	
+	/**
+	 * 根据样式描述得到共享的样式，属性相同的描述返回同一个CellStyle，不会重复创建
+	 * @param descriptor
+	 * @return
+	 */
+	public CellStyle getCellStyle(CellStyleDescriptor descriptor) {
+		return styleRegistry.getCellStyle(descriptor);
+	}
+	
+	/**
+	 * 得到样式注册表
+	 * @return
+	 */
+	public StyleRegistry getStyleRegistry() {
+		return styleRegistry;
 	}
 	
 	/**
@@ -154,9 +459,11 @@ public class ExcelWriter {
 	 * @return
 	 */
 	public CellStyle cloneDefaultCellStyle() {
-		CellStyle cellStyle = workbook.createCellStyle();
-		cellStyle.cloneStyleFrom(defaultCellStyle);
-		return cellStyle;
+		synchronized (styleRegistry) {
+			CellStyle cellStyle = workbook.createCellStyle();
+			cellStyle.cloneStyleFrom(defaultCellStyle);
+			return cellStyle;
+		}
 	}
 	
 	/**
@@ -164,25 +471,71 @@ public class ExcelWriter {
 	 * @return
 	 */
 	public Font createFont() {
-		Font font = workbook.createFont();
-		font.setFontName("宋体");
-		return font;
+		synchronized (styleRegistry) {
+			Font font = workbook.createFont();
+			font.setFontName("宋体");
+			return font;
+		}
 	}
 	
 	/**
-	 * 合并单元格
+	 * 合并单元格。合并区域先暂存，切换sheet或导出时一次性检查是否重叠后再添加到sheet，
+	 * 所以区域重叠时在那时才抛出IllegalStateException，在此之前{@link #getCurrentSheet()}中也看不到这些区域
 	 * @param firstRow 起始行
 	 * @param lastRow 结束行
 	 * @param firstCol 起始列
 	 * @param lastCol 结束列
 	 */
 	public void mergeCells(int firstRow,int lastRow,int firstCol,int lastCol) {
-		for(int columnIndex = firstCol;columnIndex <= lastCol;columnIndex++) {
-			if(!mergedColumnIndexes.contains(columnIndex)) {
-				mergedColumnIndexes.add(columnIndex);
+		mergedColumnIndexes.set(firstCol, lastCol + 1);
+		if(streamingSheet != null) {
+			streamingSheet.addMergedRegion(new CellRangeAddress(firstRow, lastRow, firstCol, lastCol));
+		} else if(textWriter != null) {
+			//文本格式不能合并，值只保留在左上角的单元格中
+		} else {
+			mergedRegions.add(new CellRangeAddress(firstRow, lastRow, firstCol, lastCol));
+		}
+	}
+	
+	/**
+	 * 检查暂存的合并区域之间以及和当前sheet已有的区域是否重叠，再批量添加到当前sheet
+	 */
+	private void flushMergedRegions() {
+		if(mergedRegions.isEmpty()) {
+			return;
+		}
+		mergedRegions.validate(currentSheet.getMergedRegions());
+		mergedRegions.addTo(currentSheet);
+		mergedRegions.clear();
+	}
+	
+	/**
+	 * 结束当前sheet：添加合并区域，调整列宽度
+	 */
+	private void finishSheet() {
+		if(placeholderSheet) {
+			placeholderSheet = false;
+			if(streamingSheet.isEmpty()) {
+				removeCurrentSheet();
+				return;
 			}
 		}
-		currentSheet.addMergedRegion(new CellRangeAddress(firstRow, lastRow, firstCol, lastCol));
+		if(metricsCollector == null) {
+			flushMergedRegions();
+			autoSizeColumns();
+			return;
+		}
+		boolean merging = !mergedRegions.isEmpty();
+		long start = System.nanoTime();
+		flushMergedRegions();
+		long merged = System.nanoTime();
+		autoSizeColumns();
+		if(merging) {
+			metricsCollector.onPhase(Phase.MERGE, merged - start);
+		}
+		if(autoSizeColumn && streamingSheet == null) {
+			metricsCollector.onPhase(Phase.AUTO_SIZE, System.nanoTime() - merged);
+		}
 	}
 	
 	/**
@@ -194,7 +547,7 @@ public class ExcelWriter {
 	}
 	
 	/**
-	 * 得到当前正在写的sheet
+	 * 得到当前正在写的sheet，STREAMING_XML格式下返回的sheet只用来保存sheet名称，直接写入其中的内容不会被导出
 	 * @return
 	 */
 	public Sheet getCurrentSheet() {
@@ -240,8 +593,10 @@ public class ExcelWriter {
 	 * @return
 	 */
 	public ExcelWriter cellStyle(CellStyle cellStyle) {
-		defaultCellStyle = workbook.createCellStyle();
-		defaultCellStyle.cloneStyleFrom(cellStyle);
+		synchronized (styleRegistry) {
+			defaultCellStyle = workbook.createCellStyle();
+			defaultCellStyle.cloneStyleFrom(cellStyle);
+		}
 		return this;
 	}
 	
@@ -250,7 +605,11 @@ public class ExcelWriter {
 	 * @param height 行高度
 	 */
 	public ExcelWriter setCurrentRowHeight(float height) {
-		useCurrentRow().setHeightInPoints(height);
+		if(streamingSheet != null) {
+			streamingSheet.setRowHeight(currentRownum, height);
+		} else if(textWriter == null) {
+			useCurrentRow().setHeightInPoints(height);
+		}
 		return this; 
 	}
 	
@@ -260,6 +619,14 @@ public class ExcelWriter {
 	 * @param width 列宽度
 	 */
 	public void setColumnWidth(int columnNum,int width) {
+		columnWidths.put(columnNum, width);
+		if(streamingSheet != null) {
+			streamingSheet.setColumnWidth(columnNum, width);
+			return;
+		}
+		if(textWriter != null) {
+			return;
+		}
 		currentSheet.setColumnWidth(columnNum, width);
 	}
 	
@@ -293,6 +660,45 @@ public class ExcelWriter {
 		return this;
 	}
 	
+	/**
+	 * 设置取消标记。取消或超过截止时间后，写表格时抛出{@link CancellationException}，
+	 * 同时取消数据加载器正在加载的数据，并释放工作簿（如删除SXSSF格式的临时文件），之后不能再导出
+	 * @param cancellationToken
+	 * @return
+	 */
+	public ExcelWriter setCancellationToken(CancellationToken cancellationToken) {
+		this.cancellationToken = cancellationToken;
+		return this;
+	}
+	
+	/**
+	 * 设置导出监听器，报告各阶段的耗时，导出结束时给出整个导出过程的统计。
+	 * 需要在写表格之前设置，设置为null时不再计时
+	 * @param exportListener
+	 * @return
+	 */
+	public ExcelWriter setExportListener(ExportListener exportListener) {
+		metricsCollector = exportListener == null ? null : new MetricsCollector(exportListener);
+		return this;
+	}
+	
+	/**
+	 * XSSF格式下内存中的行数或估算的内存占用超过阈值后，把工作簿转为SXSSF格式，已经写的行移到SXSSF的sheet中，
+	 * 超出行窗口的行写到临时文件。转换后{@link #getExcelFormat()}返回SXSSF，{@link #getCurrentSheet()}返回新的sheet，
+	 * {@link #location(int, int)}只能定位到行窗口内的行
+	 * @param rowThreshold 内存中的行数阈值，为0时不按行数转换
+	 * @param heapThreshold 估算的单元格内存占用阈值（字节），为0时不按内存占用转换
+	 * @param rowAccessWindowSize 转换后的行窗口
+	 */
+	void enableStreamingUpgrade(int rowThreshold,long heapThreshold,int rowAccessWindowSize) {
+		if(excelFormat != ExcelFormat.XSSF) {
+			throw new IllegalArgumentException("streaming upgrade only supports " + ExcelFormat.XSSF);
+		}
+		streamingRowThreshold = rowThreshold;
+		streamingHeapThreshold = heapThreshold;
+		streamingRowAccessWindowSize = rowAccessWindowSize;
+	}
+	
 	/**
 	 * 写表格的时候忽略表头
 	 * @param ignoreGridHeader
@@ -302,15 +708,27 @@ public class ExcelWriter {
 		return this;
 	}
 	
-	private CellStyle getDateCellStyle(CellStyle cellStyle) {
-		CellStyle dateCellStyle = dateCellStyleTemp.get(cellStyle);
-		if(dateCellStyle == null) {
-			dateCellStyle = workbook.createCellStyle();
-			dateCellStyle.cloneStyleFrom(cellStyle);
-			dateCellStyle.setDataFormat(creationHelper.createDataFormat().getFormat(dateFormat));
-			dateCellStyleTemp.put(cellStyle, dateCellStyle);
+	/**
+	 * 设置每个sheet最多写的行数（包括表头）。写表格时当前sheet的行数达到该值后，
+	 * 切换到新的sheet（名称为原sheet名称加序号），重复设置列宽度、写表头，数据加载器不中断地继续写。
+	 * 默认为格式允许的最大行数（HSSF为65536，XSSF、SXSSF、STREAMING_XML为1048576），CSV、TSV格式不限制
+	 * @param maxRowsPerSheet 至少为2
+	 * @return
+	 */
+	public ExcelWriter setMaxRowsPerSheet(int maxRowsPerSheet) {
+		if(maxRowsPerSheet < 2) {
+			throw new IllegalArgumentException("maxRowsPerSheet must be at least 2");
+		}
+		if(textWriter == null && maxRowsPerSheet > workbook.getSpreadsheetVersion().getMaxRows()) {
+			throw new IllegalArgumentException("maxRowsPerSheet must not be greater than " 
+					+ workbook.getSpreadsheetVersion().getMaxRows() + " in " + excelFormat);
 		}
-		return dateCellStyle;
+		this.maxRowsPerSheet = maxRowsPerSheet;
+		return this;
+	}
+	
+	private CellStyle getDateCellStyle(CellStyle cellStyle) {
+		return styleRegistry.getDataFormatCellStyle(cellStyle, dateFormat);
 	}
 
 	/**
@@ -323,16 +741,36 @@ public class ExcelWriter {
 	 */
 	public ExcelWriter write(Object data,int horizontalCellNum,int verticalCellNum,CellStyle cellStyle) {
 		//处理日期格式
-		if(cellStyle != null && data instanceof Date && cellStyle.getDataFormat() == 0) {
+		if(cellStyle != null && ExcelDates.isDate(data) && cellStyle.getDataFormat() == 0) {
 			cellStyle = getDateCellStyle(cellStyle);
 		}
 		
+		if(columnWidthEstimator != null) {
+			columnWidthEstimator.update(currentColumn, horizontalCellNum, data, cellStyle, dateFormat);
+		}
+		
+		if(streamingSheet != null) {
+			writeStreaming(data, horizontalCellNum, verticalCellNum, cellStyle);
+		} else if(textWriter != null) {
+			writeText(data, horizontalCellNum);
+		} else {
+			writeCells(data, horizontalCellNum, verticalCellNum, cellStyle);
+		}
+		
+		//合并
+		if(horizontalCellNum > 1 || verticalCellNum > 1) {
+			mergeCells(currentRownum, currentRownum + verticalCellNum - 1, currentColumn - horizontalCellNum, currentColumn -1);
+		}
+		return this;
+	}
+	
+	private void writeCells(Object data,int horizontalCellNum,int verticalCellNum,CellStyle cellStyle) {
 		//添加横向单元格
 		boolean setValue = false;
 		for(int i = 0;i < horizontalCellNum;i++) {
 			Cell cell = useCurrentRow().getCell(currentColumn);
 			if(cell == null) {
-				cell = useCurrentRow().createCell(currentColumn);
+				cell = createCell(useCurrentRow(), currentColumn);
 			}
 			
 			//设置cell值
@@ -341,9 +779,15 @@ public class ExcelWriter {
 					if(data instanceof String) {
 						cell.setCellValue((String)data);
 					} else if(data instanceof Number) {
-						cell.setCellValue(Double.valueOf(data.toString()));
+						cell.setCellValue(((Number)data).doubleValue());
 					} else if(data instanceof Date) {
 						cell.setCellValue((Date)data);
+					} else if(data instanceof Boolean) {
+						cell.setCellValue((Boolean)data);
+					} else if(data instanceof LocalDateTime) {
+						cell.setCellValue(ExcelDates.getExcelDate((LocalDateTime)data));
+					} else if(data instanceof LocalDate) {
+						cell.setCellValue(ExcelDates.getExcelDate((LocalDate)data));
 					} else {
 						cell.setCellValue(data.toString());
 					}
@@ -362,22 +806,45 @@ public class ExcelWriter {
 		for(int i = 1;i < verticalCellNum;i++) {
 			Row row = currentSheet.getRow(currentRownum + i);
 			if(row == null) {
-				row = currentSheet.createRow(currentRownum + i);
+				row = createRow(currentRownum + i);
 			}
 			for(int j = 0;j < horizontalCellNum;j++) {
 				Cell cell = row.getCell(currentColumn - horizontalCellNum + j);
 				if(cell == null) {
-					cell = row.createCell(currentColumn - horizontalCellNum + j);
+					cell = createCell(row, currentColumn - horizontalCellNum + j);
 				}
 				cell.setCellStyle(cellStyle);
 			}
 		}
+	}
+	
+	private void writeStreaming(Object data,int horizontalCellNum,int verticalCellNum,CellStyle cellStyle) {
+		//添加横向单元格
+		for(int i = 0;i < horizontalCellNum;i++) {
+			if(i == 0) {
+				streamingSheet.writeCell(currentRownum, currentColumn, data, cellStyle);
+			} else {
+				streamingSheet.writeBlank(currentRownum, currentColumn, cellStyle);
+			}
+			currentColumn++;
+			detectAutoSizeColumnIndexes();
+		}
 		
-		//合并
-		if(horizontalCellNum > 1 || verticalCellNum > 1) {
-			mergeCells(currentRownum, currentRownum + verticalCellNum - 1, currentColumn - horizontalCellNum, currentColumn -1);
+		//添加纵向单元格
+		for(int i = 1;i < verticalCellNum;i++) {
+			for(int j = 0;j < horizontalCellNum;j++) {
+				streamingSheet.writeBlank(currentRownum + i, currentColumn - horizontalCellNum + j, cellStyle);
+			}
 		}
-		return this;
+	}
+	
+	private void writeText(Object data,int horizontalCellNum) {
+		//合并的单元格只在左上角写值，其余列写空值以保持列数
+		textWriter.writeCell(currentRownum, currentColumn, data, dateFormat);
+		if(horizontalCellNum > 1) {
+			textWriter.writeBlank(currentRownum, currentColumn + horizontalCellNum - 1);
+		}
+		currentColumn += horizontalCellNum;
 	}
 	
 	/**
@@ -433,99 +900,803 @@ public class ExcelWriter {
 	}
 	
 	/**
-	 * 在Excel中写一个表格，默认样式
-	 * @param gridColumns 表格列信息
-	 * @param data 数据
+	 * 在Excel中写一个数字，自定义样式，不经过装箱和类型判断
+	 * @param data 要写的数字
+	 * @param cellStyle 样式
 	 * @return
 	 */
-	public ExcelWriter writeGrid(List<GridColumn> gridColumns, List<?> data) {
-		return writeGrid(gridColumns, new ListLoader(data));
+	public ExcelWriter write(double data,CellStyle cellStyle) {
+		if(columnWidthEstimator != null) {
+			columnWidthEstimator.updateNumber(currentColumn, data, cellStyle);
+		}
+		if(streamingSheet != null) {
+			streamingSheet.writeNumber(currentRownum, currentColumn, data, cellStyle);
+		} else if(textWriter != null) {
+			textWriter.writeNumber(currentRownum, currentColumn, data);
+		} else {
+			Cell cell = useCurrentCell();
+			cell.setCellValue(data);
+			cell.setCellStyle(cellStyle);
+		}
+		currentColumn++;
+		detectAutoSizeColumnIndexes();
+		return this;
 	}
 	
 	/**
-	 * 在Excel中写一个表格，自定义样式
-	 * @param gridColumns 表格列信息
-	 * @param data 数据
-	 * @param gridCellStyle 表格样式
+	 * 在Excel中写一个数字，默认样式，不经过装箱和类型判断
+	 * @param data 要写的数字
+	 * @return
 	 */
-	public ExcelWriter writeGrid(List<GridColumn> gridColumns, List<?> data,GridCellStyle gridCellStyle) {
-		return writeGrid(gridColumns, new ListLoader(data), gridCellStyle);
+	public ExcelWriter write(double data) {
+		return write(data, defaultCellStyle);
 	}
 	
 	/**
-	 * 在Excel中写一个表格，默认样式
-	 * @param gridColumns 表格列信息
-	 * @param gridDataLoader 数据加载器
+	 * 在Excel中写一个整数，自定义样式，不经过装箱和类型判断。excel中的数字都是double，CSV、TSV格式下按整数写，不丢失精度
+	 * @param data 要写的整数
+	 * @param cellStyle 样式
+	 * @return
 	 */
-	public ExcelWriter writeGrid(List<GridColumn> gridColumns, GridDataLoader gridDataLoader) {
-		return writeGrid(gridColumns, gridDataLoader, new GridCellStyle() {
-			
-			@Override
-			public CellStyle getHeaderCellStyle(ExcelWriter excelWriter, String fieldName) {
-				return defaultCellStyle;
-			}
-			
-			@Override
-			public CellStyle getDataCellStyle(ExcelWriter excelWriter, String fieldName, int gridRowNum, Object fieldValue) {
-				return defaultCellStyle;
-			}
-
-		});
+	public ExcelWriter write(long data,CellStyle cellStyle) {
+		if(textWriter == null) {
+			return write((double)data, cellStyle);
+		}
+		textWriter.writeLong(currentRownum, currentColumn, data);
+		currentColumn++;
+		return this;
 	}
 	
 	/**
-	 * 在Excel中写一个表格，自定义样式
-	 * @param gridColumns 表格列信息
-	 * @param gridDataLoader 数据加载器
-	 * @param gridCellStyle 表格样式
+	 * 在Excel中写一个整数，默认样式，不经过装箱和类型判断
+	 * @param data 要写的整数
+	 * @return
 	 */
-	@SuppressWarnings("unchecked")
-	public ExcelWriter writeGrid(List<GridColumn> gridColumns, GridDataLoader gridDataLoader,GridCellStyle gridCellStyle) {
-		gridDataLoader.loadData();
-		int offset = currentColumn - 0;
-		
-		//写表头
-		if(!ignoreGridHeader) {
-			for(GridColumn gridColumn : gridColumns) {
-				write(gridColumn.getLabel(), gridColumn.getCellNum(), gridCellStyle.getHeaderCellStyle(this, gridColumn.getFieldName()));
-			}
-			nextLine();
-		}
-		//写表格数据
-		gridDataLoader.getRowData(new GridDataLoaderListener() {
-			
+	public ExcelWriter write(long data) {
+		return write(data, defaultCellStyle);
+	}
+	
+	/**
+	 * 在Excel中写一个布尔值，自定义样式
+	 * @param data 要写的布尔值
+	 * @param cellStyle 样式
+	 * @return
+	 */
+	public ExcelWriter write(boolean data,CellStyle cellStyle) {
+		if(columnWidthEstimator != null) {
+			columnWidthEstimator.update(currentColumn, 1, data, cellStyle, dateFormat);
+		}
+		if(streamingSheet != null) {
+			streamingSheet.writeBoolean(currentRownum, currentColumn, data, cellStyle);
+		} else if(textWriter != null) {
+			textWriter.writeBoolean(currentRownum, currentColumn, data);
+		} else {
+			Cell cell = useCurrentCell();
+			cell.setCellValue(data);
+			cell.setCellStyle(cellStyle);
+		}
+		currentColumn++;
+		detectAutoSizeColumnIndexes();
+		return this;
+	}
+	
+	/**
+	 * 在Excel中写一个布尔值，默认样式
+	 * @param data 要写的布尔值
+	 * @return
+	 */
+	public ExcelWriter write(boolean data) {
+		return write(data, defaultCellStyle);
+	}
+	
+	/**
+	 * 在Excel中写一个字符，自定义样式，按文本写。没有该方法时字符会被拓宽为整数，调用{@link #write(long, CellStyle)}写成数字
+	 * @param data 要写的字符
+	 * @param cellStyle 样式
+	 * @return
+	 */
+	public ExcelWriter write(char data,CellStyle cellStyle) {
+		return write(String.valueOf(data), 1, 1, cellStyle);
+	}
+	
+	/**
+	 * 在Excel中写一个字符，默认样式，按文本写
+	 * @param data 要写的字符
+	 * @return
+	 */
+	public ExcelWriter write(char data) {
+		return write(data, defaultCellStyle);
+	}
+	
+	/**
+	 * 按列声明的类型写一个不为null的值
+	 */
+	private void writeTyped(ValueType valueType,Object data,CellStyle cellStyle) {
+		//值不是声明的类型时（如转换器返回了字符串）按普通对象写
+		switch (valueType) {
+		case NUMBER:
+			if(data instanceof Number) {
+				write(((Number)data).doubleValue(), cellStyle);
+			} else {
+				write(data, 1, 1, cellStyle);
+			}
+			break;
+		case LONG:
+			if(data instanceof Number) {
+				write(((Number)data).longValue(), cellStyle);
+			} else {
+				write(data, 1, 1, cellStyle);
+			}
+			break;
+		case BOOLEAN:
+			if(data instanceof Boolean) {
+				write(((Boolean)data).booleanValue(), cellStyle);
+			} else {
+				write(data, 1, 1, cellStyle);
+			}
+			break;
+		default:
+			//字符串和日期在write(Object)中最先判断
+			write(data, 1, 1, cellStyle);
+			break;
+		}
+	}
+	
+	/**
+	 * 在Excel中写一个表格，默认样式
+	 * @param gridColumns 表格列信息
+	 * @param data 数据
+	 * @return
+	 */
+	public ExcelWriter writeGrid(List<GridColumn> gridColumns, List<?> data) {
+		return writeGrid(gridColumns, new ListLoader(data));
+	}
+	
+	/**
+	 * 在Excel中写一个表格，自定义样式
+	 * @param gridColumns 表格列信息
+	 * @param data 数据
+	 * @param gridCellStyle 表格样式
+	 */
+	public ExcelWriter writeGrid(List<GridColumn> gridColumns, List<?> data,GridCellStyle gridCellStyle) {
+		return writeGrid(gridColumns, new ListLoader(data), gridCellStyle);
+	}
+	
+	/**
+	 * 在Excel中写一个表格，样式由样式描述给出
+	 * @param gridColumns 表格列信息
+	 * @param data 数据
+	 * @param gridStyleDescriptor 表格样式描述
+	 */
+	public ExcelWriter writeGrid(List<GridColumn> gridColumns, List<?> data,GridStyleDescriptor gridStyleDescriptor) {
+		return writeGrid(gridColumns, new ListLoader(data), gridStyleDescriptor);
+	}
+	
+	/**
+	 * 在Excel中写一个表格，样式由样式描述给出，描述相同的单元格共享同一个CellStyle
+	 * @param gridColumns 表格列信息
+	 * @param gridDataLoader 数据加载器
+	 * @param gridStyleDescriptor 表格样式描述
+	 */
+	public ExcelWriter writeGrid(List<GridColumn> gridColumns, GridDataLoader gridDataLoader,GridStyleDescriptor gridStyleDescriptor) {
+		return writeGrid(gridColumns, gridDataLoader, new GridCellStyle() {
+			
+			@Override
+			public CellStyle getHeaderCellStyle(ExcelWriter excelWriter, String fieldName) {
+				CellStyleDescriptor descriptor = gridStyleDescriptor.getHeaderCellStyle(fieldName);
+				return descriptor == null ? defaultCellStyle : styleRegistry.getCellStyle(descriptor);
+			}
+			
 			@Override
-			public void onReadRowData(int gridRowNum, Object rowData) {
-				if(currentColumn == 0 && offset != 0) {
-					skip(offset);
+			public CellStyle getDataCellStyle(ExcelWriter excelWriter, String fieldName, int gridRowNum, Object fieldValue) {
+				CellStyleDescriptor descriptor = gridStyleDescriptor.getDataCellStyle(fieldName, gridRowNum, fieldValue);
+				return descriptor == null ? defaultCellStyle : styleRegistry.getCellStyle(descriptor);
+			}
+			
+		});
+	}
+	
+	/**
+	 * 在Excel中写一个表格，默认样式
+	 * @param gridColumns 表格列信息
+	 * @param gridDataLoader 数据加载器
+	 */
+	public ExcelWriter writeGrid(List<GridColumn> gridColumns, GridDataLoader gridDataLoader) {
+		return writeGrid(gridColumns, gridDataLoader, defaultGridCellStyle);
+	}
+	
+	/**
+	 * 在Excel中写一个表格，自定义样式
+	 * @param gridColumns 表格列信息
+	 * @param gridDataLoader 数据加载器
+	 * @param gridCellStyle 表格样式
+	 */
+	public ExcelWriter writeGrid(List<GridColumn> gridColumns, GridDataLoader gridDataLoader,GridCellStyle gridCellStyle) {
+		return writeGrid(gridDataLoader, new GridRowWriter(gridColumns, gridCellStyle, null));
+	}
+	
+	/**
+	 * 按预先编译的表格方案写一个表格
+	 * @param gridPlan 表格方案
+	 * @param data 数据
+	 * @return
+	 */
+	public ExcelWriter writeGrid(GridPlan gridPlan, List<?> data) {
+		return writeGrid(gridPlan, new ListLoader(data));
+	}
+	
+	/**
+	 * 按预先编译的表格方案写一个表格，方案中的列宽度从当前列开始设置
+	 * @param gridPlan 表格方案
+	 * @param gridDataLoader 数据加载器
+	 * @return
+	 */
+	public ExcelWriter writeGrid(GridPlan gridPlan, GridDataLoader gridDataLoader) {
+		float[] widths = gridPlan.columnWidths();
+		for(int i = 0;i < widths.length;i++) {
+			if(widths[i] > 0) {
+				setColumnWidth(currentColumn + i, (int)(widths[i] * 256));
+			}
+		}
+		return writeGrid(gridDataLoader, new GridRowWriter(gridPlan.columns(), null, gridPlan));
+	}
+	
+	private ExcelWriter writeGrid(GridDataLoader gridDataLoader,GridRowWriter gridRowWriter) {
+		long start = metricsCollector != null ? System.nanoTime() : 0;
+		try {
+			if(cancellationToken != null) {
+				cancellationToken.throwIfCancelled();
+				gridDataLoader.setCancellationToken(cancellationToken);
+			}
+			if(metricsCollector != null) {
+				gridDataLoader.setExportListener(metricsCollector);
+			}
+			gridDataLoader.loadData();
+			try {
+				gridRowWriter.writeHeader();
+				//写表格数据
+				if(gridDataLoader instanceof ColumnarLoader) {
+					((ColumnarLoader)gridDataLoader).getBatches(gridRowWriter);
+				} else {
+					gridDataLoader.getRowData(gridRowWriter);
 				}
-				for(GridColumn gridColumn : gridColumns) {
-					Object dataCellValue;
-					if(rowData instanceof Map) {
-						dataCellValue = ((Map<String,Object>)rowData).get(gridColumn.getFieldName());
-					} else {
-						try {
-							Method method = rowData.getClass().getMethod("get" 
-									+ gridColumn.getFieldName().substring(0, 1).toUpperCase() + gridColumn.getFieldName().substring(1));
-							dataCellValue = method.invoke(rowData);
-						} catch (NoSuchMethodException | SecurityException | IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-							throw new RuntimeException("get value of " + gridColumn.getFieldName() + "error", e);
-						}
+				gridRowWriter.endRuns();
+			} finally {
+				//写表头出错时加载器还没有被读取，需要在这里停止加载
+				gridDataLoader.release();
+			}
+			if(metricsCollector != null) {
+				metricsCollector.onGridWritten(gridRowWriter.rowCount, System.nanoTime() - start);
+				if(gridRowWriter.convertNanos > 0) {
+					metricsCollector.onPhase(Phase.CONVERT, gridRowWriter.convertNanos);
+				}
+			}
+		} catch (CancellationException e) {
+			disposeOnCancel(e);
+			throw e;
+		}
+		return this;
+	}
+	
+	/**
+	 * 写表格数据的行，按行读取时通过{@link GridRowAccessor}读取字段，按列读取时直接读取列向量
+	 */
+	private class GridRowWriter implements GridDataLoaderListener, ColumnBatchListener {
+		
+		private static final byte VECTOR_OBJECT = 0;
+		
+		private static final byte VECTOR_DOUBLE = 1;
+		
+		private static final byte VECTOR_LONG = 2;
+		
+		private static final byte VECTOR_INT = 3;
+		
+		private static final byte VECTOR_BOOLEAN = 4;
+		
+		private final List<GridColumn> gridColumns;
+		
+		private final GridColumn[] columns;
+		
+		private final GridCellStyle gridCellStyle;
+		
+		/**
+		 * 每一列固定的表头样式和数据样式，使用默认样式或表格方案时不为null，不需要逐个单元格查找样式
+		 */
+		private final CellStyle[] headerStyles;
+		
+		private final CellStyle[] dataStyles;
+		
+		/**
+		 * 表格方案中预先生成的字段读取器
+		 */
+		private final GridRowAccessor planRowAccessor;
+		
+		/**
+		 * 声明了值类型的列按类型直接写
+		 */
+		private final ValueType[] valueTypes;
+		
+		/**
+		 * 表格左侧空出的列数
+		 */
+		private final int offset;
+		
+		private final String baseSheetName;
+		
+		/**
+		 * 需要纵向合并相同值的列
+		 */
+		private final boolean[] mergeColumns;
+		
+		/**
+		 * 合并列当前相同值的起始行号，-1表示没有正在合并的值
+		 */
+		private final int[] runFirstRownums;
+		
+		private final int[] runFirstColumns;
+		
+		private final Object[] runValues;
+		
+		/**
+		 * 当前行是否已有合并列开始了新的值
+		 */
+		private boolean groupChanged;
+		
+		/**
+		 * 已写的数据行数
+		 */
+		private int rowCount;
+		
+		/**
+		 * 设置了监听器时，转换字段值的耗时之和
+		 */
+		private long convertNanos;
+		
+		/**
+		 * 行数超出后切换的sheet数
+		 */
+		private int rolloverCount;
+		
+		/**
+		 * 上一行数据的类型，类型不变时直接复用rowAccessor
+		 */
+		private Class<?> rowClass;
+		
+		private GridRowAccessor rowAccessor;
+		
+		/**
+		 * @param gridColumns 表格列信息
+		 * @param gridCellStyle 表格样式，gridPlan不为null时不使用
+		 * @param gridPlan 表格方案，可以为null
+		 */
+		private GridRowWriter(List<GridColumn> gridColumns,GridCellStyle gridCellStyle,GridPlan gridPlan) {
+			this.gridColumns = gridColumns;
+			this.gridCellStyle = gridCellStyle;
+			columns = gridColumns.toArray(new GridColumn[gridColumns.size()]);
+			if(gridPlan != null) {
+				headerStyles = gridPlan.resolveHeaderStyles(styleRegistry, defaultCellStyle);
+				dataStyles = gridPlan.resolveDataStyles(styleRegistry, defaultCellStyle);
+				planRowAccessor = gridPlan.rowAccessor();
+			} else {
+				if(gridCellStyle == defaultGridCellStyle) {
+					headerStyles = new CellStyle[columns.length];
+					Arrays.fill(headerStyles, defaultCellStyle);
+					dataStyles = templateColumnStyles != null ? resolveTemplateStyles() : headerStyles;
+				} else {
+					headerStyles = null;
+					dataStyles = null;
+				}
+				planRowAccessor = null;
+			}
+			valueTypes = new ValueType[columns.length];
+			for(int i = 0;i < columns.length;i++) {
+				valueTypes[i] = columns[i].getCellNum() == 1 ? columns[i].getValueType() : null;
+			}
+			mergeColumns = new boolean[columns.length];
+			for(int i = 0;i < columns.length;i++) {
+				mergeColumns[i] = columns[i].isMergeRepeated() && textWriter == null;
+			}
+			runFirstRownums = new int[columns.length];
+			Arrays.fill(runFirstRownums, -1);
+			runFirstColumns = new int[columns.length];
+			runValues = new Object[columns.length];
+			offset = currentColumn;
+			baseSheetName = currentSheet.getSheetName();
+		}
+		
+		/**
+		 * 按表格各列所在的单元格取模板样例行的样式
+		 */
+		private CellStyle[] resolveTemplateStyles() {
+			CellStyle[] styles = new CellStyle[columns.length];
+			int column = currentColumn;
+			for(int i = 0;i < columns.length;i++) {
+				CellStyle style = column < templateColumnStyles.length ? templateColumnStyles[column] : null;
+				styles[i] = style != null ? style : defaultCellStyle;
+				column += columns[i].getCellNum();
+			}
+			return styles;
+		}
+		
+		private void beginRow() {
+			if(cancellationToken != null) {
+				cancellationToken.throwIfCancelled();
+			}
+			groupChanged = false;
+			rowCount++;
+			if(currentRownum >= maxRowsPerSheet) {
+				//合并区域不跨sheet
+				endRuns();
+				rolloverCount++;
+				rolloverSheet(rolloverSheetName(baseSheetName, rolloverCount + 1));
+			}
+			if(currentColumn == 0 && offset != 0) {
+				skip(offset);
+			}
+		}
+		
+		@Override
+		public void onReadRowData(int gridRowNum, Object rowData) {
+			beginRow();
+			if(rowData.getClass() != rowClass) {
+				rowClass = rowData.getClass();
+				rowAccessor = planRowAccessor != null && planRowAccessor.getRowClass().isAssignableFrom(rowClass) 
+						? planRowAccessor : FieldAccessors.getRowAccessor(rowClass, gridColumns);
+			}
+			for(int i = 0;i < columns.length;i++) {
+				writeValue(i, gridRowNum, rowAccessor.getFieldValue(i, rowData), rowData);
+			}
+			nextLine();
+		}
+		
+		private void writeValue(int columnIndex,int gridRowNum,Object dataCellValue,Object rowData) {
+			GridColumn gridColumn = columns[columnIndex];
+			if(gridColumn.getFieldValueConverter() != null) {
+				if(metricsCollector != null) {
+					long start = System.nanoTime();
+					dataCellValue = gridColumn.getFieldValueConverter().convert(dataCellValue,rowData);
+					convertNanos += System.nanoTime() - start;
+				} else {
+					dataCellValue = gridColumn.getFieldValueConverter().convert(dataCellValue,rowData);
+				}
+			}
+			CellStyle cellStyle = dataStyles != null ? dataStyles[columnIndex] 
+					: gridCellStyle.getDataCellStyle(ExcelWriter.this, gridColumn.getFieldName(), gridRowNum, dataCellValue);
+			if(mergeColumns[columnIndex]) {
+				writeRepeatable(columnIndex, dataCellValue, cellStyle);
+			} else if(valueTypes[columnIndex] != null && dataCellValue != null) {
+				writeTyped(valueTypes[columnIndex], dataCellValue, cellStyle);
+			} else {
+				write(dataCellValue, gridColumn.getCellNum(), cellStyle);
+			}
+		}
+		
+		/**
+		 * 写合并列的值，与上一行相同时只写带样式的空单元格，不同时结束上一个值的合并。
+		 * 这一列的各个单元格都不单独合并，横向的合并也在值结束时一起添加
+		 */
+		private void writeRepeatable(int columnIndex,Object dataCellValue,CellStyle cellStyle) {
+			int cellNum = columns[columnIndex].getCellNum();
+			if(!groupChanged && dataCellValue != null && runFirstRownums[columnIndex] >= 0 && dataCellValue.equals(runValues[columnIndex])) {
+				for(int i = 0;i < cellNum;i++) {
+					write(null, 1, cellStyle);
+				}
+				return;
+			}
+			endRun(columnIndex);
+			groupChanged = true;
+			if(dataCellValue == null) {
+				write(null, cellNum, cellStyle);
+				return;
+			}
+			runFirstRownums[columnIndex] = currentRownum;
+			runFirstColumns[columnIndex] = currentColumn;
+			runValues[columnIndex] = dataCellValue;
+			if(valueTypes[columnIndex] != null) {
+				writeTyped(valueTypes[columnIndex], dataCellValue, cellStyle);
+			} else {
+				write(dataCellValue, 1, cellStyle);
+			}
+			for(int i = 1;i < cellNum;i++) {
+				write(null, 1, cellStyle);
+			}
+		}
+		
+		/**
+		 * 结束合并列正在合并的值，值的最后一行是当前行的上一行
+		 */
+		private void endRun(int columnIndex) {
+			int firstRownum = runFirstRownums[columnIndex];
+			if(firstRownum < 0) {
+				return;
+			}
+			int firstColumn = runFirstColumns[columnIndex];
+			int lastColumn = firstColumn + columns[columnIndex].getCellNum() - 1;
+			if(currentRownum - 1 > firstRownum || lastColumn > firstColumn) {
+				mergeCells(firstRownum, currentRownum - 1, firstColumn, lastColumn);
+			}
+			runFirstRownums[columnIndex] = -1;
+			runValues[columnIndex] = null;
+		}
+		
+		private void endRuns() {
+			for(int i = 0;i < columns.length;i++) {
+				endRun(i);
+			}
+		}
+		
+		@Override
+		public void onReadBatch(int firstGridRowNum, ColumnBatch batch) {
+			//每批只绑定一次列向量
+			Object[] vectors = new Object[columns.length];
+			byte[] vectorTypes = new byte[columns.length];
+			//不需要装箱的列：没有转换器、只占一个单元格、使用默认样式
+			boolean[] direct = new boolean[columns.length];
+			for(int i = 0;i < columns.length;i++) {
+				Object vector = batch.getColumn(columns[i].getFieldName());
+				if(vector == null) {
+					throw new IllegalArgumentException("no column vector for field " + columns[i].getFieldName());
+				}
+				vectors[i] = vector;
+				if(vector instanceof double[]) {
+					vectorTypes[i] = VECTOR_DOUBLE;
+				} else if(vector instanceof long[]) {
+					vectorTypes[i] = VECTOR_LONG;
+				} else if(vector instanceof int[]) {
+					vectorTypes[i] = VECTOR_INT;
+				} else if(vector instanceof boolean[]) {
+					vectorTypes[i] = VECTOR_BOOLEAN;
+				} else {
+					vectorTypes[i] = VECTOR_OBJECT;
+				}
+				direct[i] = columns[i].getFieldValueConverter() == null && columns[i].getCellNum() == 1 
+						&& dataStyles != null && !mergeColumns[i];
+			}
+			for(int rowIndex = 0;rowIndex < batch.getRowCount();rowIndex++) {
+				beginRow();
+				for(int i = 0;i < columns.length;i++) {
+					if(!direct[i]) {
+						Object rowData = columns[i].getFieldValueConverter() != null ? batch.getRow(rowIndex) : null;
+						writeValue(i, firstGridRowNum + rowIndex, batch.getValue(columns[i].getFieldName(), rowIndex), rowData);
+						continue;
 					}
-					if(gridColumn.getFieldValueConverter() != null) {
-						dataCellValue = gridColumn.getFieldValueConverter().convert(dataCellValue,rowData);
+					switch (vectorTypes[i]) {
+					case VECTOR_DOUBLE:
+						double number = ((double[])vectors[i])[rowIndex];
+						if(Double.isNaN(number)) {
+							write(null, 1, dataStyles[i]);
+						} else {
+							write(number, dataStyles[i]);
+						}
+						break;
+					case VECTOR_LONG:
+						write(((long[])vectors[i])[rowIndex], dataStyles[i]);
+						break;
+					case VECTOR_INT:
+						write((long)((int[])vectors[i])[rowIndex], dataStyles[i]);
+						break;
+					case VECTOR_BOOLEAN:
+						write(((boolean[])vectors[i])[rowIndex], dataStyles[i]);
+						break;
+					default:
+						Object value = ((Object[])vectors[i])[rowIndex];
+						if(valueTypes[i] != null && value != null) {
+							writeTyped(valueTypes[i], value, dataStyles[i]);
+						} else {
+							write(value, 1, dataStyles[i]);
+						}
+						break;
 					}
-					write(dataCellValue, gridColumn.getCellNum(), 
-							gridCellStyle.getDataCellStyle(ExcelWriter.this, gridColumn.getFieldName(), gridRowNum, dataCellValue));
 				}
 				nextLine();
 			}
-		});
+		}
+		
+		private void writeHeader() {
+			if(ignoreGridHeader) {
+				return;
+			}
+			for(int i = 0;i < columns.length;i++) {
+				write(columns[i].getLabel(), columns[i].getCellNum(), 
+						headerStyles != null ? headerStyles[i] : gridCellStyle.getHeaderCellStyle(ExcelWriter.this, columns[i].getFieldName()));
+			}
+			nextLine();
+		}
+		
+		/**
+		 * 切换到新的sheet继续写表格，重复设置列宽度、写表头
+		 */
+		private void rolloverSheet(String sheetName) {
+			TreeMap<Integer, Integer> widths = columnWidths;
+			nextSheet(sheetName);
+			for(Map.Entry<Integer, Integer> entry : widths.entrySet()) {
+				setColumnWidth(entry.getKey(), entry.getValue());
+			}
+			skip(offset);
+			writeHeader();
+		}
+	}
+	
+	/**
+	 * 切换的sheet的名称，如“数据 (2)”，与已有的sheet重名时增加序号
+	 */
+	private String rolloverSheetName(String baseSheetName,int sequence) {
+		synchronized (styleRegistry) {
+			while(true) {
+				String suffix = " (" + sequence + ")";
+				String name = baseSheetName.length() + suffix.length() > MAX_SHEET_NAME_LENGTH 
+						? baseSheetName.substring(0, MAX_SHEET_NAME_LENGTH - suffix.length()) + suffix : baseSheetName + suffix;
+				if(workbook.getSheet(name) == null) {
+					return name;
+				}
+				sequence++;
+			}
+		}
+	}
+	
+	/**
+	 * 导出被取消时释放工作簿，并行写sheet时由最外层的ExcelWriter释放
+	 */
+	private void disposeOnCancel(CancellationException e) {
+		if(parent != null) {
+			return;
+		}
+		try {
+			dispose();
+		} catch (IOException ioe) {
+			e.addSuppressed(ioe);
+		}
+	}
+	
+	/**
+	 * 写多个sheet，每个sheet写一个表格。
+	 * 只有没有指定输出流的STREAMING_XML格式才并行写，此时每次调用创建一个不超过CPU核数的线程池，写完后关闭，
+	 * 频繁调用时建议通过{@link #writeSheets(List, ExecutorService)}复用线程池；其它情况在当前线程中依次写，不创建线程池
+	 * @param sheetJobs sheet任务
+	 * @see #writeSheets(List, ExecutorService)
+	 */
+	public ExcelWriter writeSheets(List<SheetJob> sheetJobs) {
+		if(sheetJobs.isEmpty()) {
+			return this;
+		}
+		if(!isParallelSheetWriting()) {
+			return writeSheets(sheetJobs, null);
+		}
+		int threadNum = Math.min(sheetJobs.size(), Runtime.getRuntime().availableProcessors());
+		ExecutorService executorService = Executors.newFixedThreadPool(threadNum, LoaderExecutors.namedThreadFactory("excel-io-sheet-", true));
+		try {
+			return writeSheets(sheetJobs, executorService);
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+	
+	/**
+	 * 写多个sheet，每个sheet写一个表格。
+	 * STREAMING_XML格式下每个sheet在executorService的线程中用独立的ExcelWriter并行写，共享样式，导出时统一组装；
+	 * 其它格式的工作簿不支持并发修改，直接写到输出流时同一时间只能写一个sheet，这两种情况在当前线程中依次写。
+	 * 当前sheet没有写过内容时由第一个任务使用，否则这些sheet添加在当前sheet之后。
+	 * STREAMING_XML格式下这些sheet写完即结束，之后的内容写在最后添加的一个新sheet中，这个sheet没有写内容时导出或切换sheet时会被删除。
+	 * 有任务失败时等所有任务都结束后再抛出异常。
+	 * 并行写时GridCellStyle会在多个线程中被调用，建议通过{@link #getCellStyle(CellStyleDescriptor)}得到样式，不要并发修改共享的CellStyle。
+	 * @param sheetJobs sheet任务
+	 * @param executorService 并行写时执行任务的线程池，依次写时不使用，可以为null
+	 */
+	public ExcelWriter writeSheets(List<SheetJob> sheetJobs,ExecutorService executorService) {
+		try {
+			return doWriteSheets(sheetJobs, executorService);
+		} catch (CancellationException e) {
+			disposeOnCancel(e);
+			throw e;
+		}
+	}
+	
+	private ExcelWriter doWriteSheets(List<SheetJob> sheetJobs,ExecutorService executorService) {
+		if(sheetJobs.isEmpty()) {
+			return this;
+		}
+		if(!isParallelSheetWriting()) {
+			for(int i = 0;i < sheetJobs.size();i++) {
+				SheetJob sheetJob = sheetJobs.get(i);
+				boolean currentSheetEmpty;
+				if(streamingSheet != null) {
+					currentSheetEmpty = streamingSheet.isEmpty();
+				} else if(textWriter != null) {
+					currentSheetEmpty = textWriter.isSheetEmpty();
+				} else {
+					currentSheetEmpty = currentSheet.getPhysicalNumberOfRows() == 0 && currentSheet.getNumMergedRegions() == 0 
+							&& mergedRegions.isEmpty();
+				}
+				if(i == 0 && currentSheetEmpty) {
+					if(sheetJob.getSheetName() != null) {
+						workbook.setSheetName(workbook.getSheetIndex(currentSheet), WorkbookUtil.createSafeSheetName(sheetJob.getSheetName()));
+						if(streamingSheet != null) {
+							streamingSheet.setSheetName(currentSheet.getSheetName());
+						}
+					}
+				} else {
+					nextSheet(sheetJob.getSheetName());
+				}
+				sheetJob.writeTo(this);
+			}
+			return this;
+		}
+		
+		placeholderSheet = false;
+		if(streamingSheet.isEmpty()) {
+			removeCurrentSheet();
+		} else {
+			streamingSheet.close();
+		}
+		List<ExcelWriter> sheetWriters = new ArrayList<>();
+		for(SheetJob sheetJob : sheetJobs) {
+			Sheet sheet = sheetJob.getSheetName() == null ? workbook.createSheet() 
+					: workbook.createSheet(WorkbookUtil.createSafeSheetName(sheetJob.getSheetName()));
+			sheetWriters.add(new ExcelWriter(this, sheet, streamingWorkbook.addSheet(sheet.getSheetName())));
+		}
+		List<Future<?>> futures = new ArrayList<>();
+		for(int i = 0;i < sheetJobs.size();i++) {
+			SheetJob sheetJob = sheetJobs.get(i);
+			ExcelWriter sheetWriter = sheetWriters.get(i);
+			futures.add(executorService.submit(new Runnable() {
+				
+				@Override
+				public void run() {
+					sheetJob.writeTo(sheetWriter);
+					if(metricsCollector != null) {
+						long start = System.nanoTime();
+						sheetWriter.streamingSheet.close();
+						metricsCollector.onPhase(Phase.SERIALIZE, System.nanoTime() - start);
+					} else {
+						sheetWriter.streamingSheet.close();
+					}
+				}
+			}));
+		}
+		//和invokeAll一样等所有任务都结束后再抛出异常，避免异常返回后仍有线程在写工作簿
+		RuntimeException failure = null;
+		for(int i = 0;i < futures.size();i++) {
+			try {
+				futures.get(i).get();
+			} catch (ExecutionException e) {
+				RuntimeException exception = e.getCause() instanceof CancellationException ? (CancellationException)e.getCause()
+						: new RuntimeException("error occours while writing sheet " + sheetWriters.get(i).currentSheet.getSheetName(), e.getCause());
+				if(failure == null) {
+					failure = exception;
+				} else {
+					failure.addSuppressed(exception);
+				}
+			} catch (InterruptedException e) {
+				for(Future<?> future : futures) {
+					future.cancel(true);
+				}
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+		}
+		if(failure != null) {
+			throw failure;
+		}
+		//各个sheet写完即结束，在最后添加一个新的sheet继续写
+		initSheet(null);
+		placeholderSheet = true;
 		return this;
 	}
 	
+	/**
+	 * 是否能并行写sheet，只有没有指定输出流的STREAMING_XML格式可以
+	 */
+	private boolean isParallelSheetWriting() {
+		return streamingWorkbook != null && !streamingWorkbook.isDirect();
+	}
+	
+	private void removeCurrentSheet() {
+		workbook.removeSheetAt(workbook.getSheetIndex(currentSheet));
+		streamingWorkbook.removeSheet(streamingSheet);
+	}
+	
 	private void detectAutoSizeColumnIndexes() {
-		if(autoSizeColumn) {
+		if(autoSizeColumn && autoSizeStrategy == AutoSizeStrategy.FONT_METRICS) {
 			int columnIndex = currentColumn - 1;
 			if(!autoSizeColumnIndexes.contains(columnIndex)) {
 				autoSizeColumnIndexes.add(columnIndex);
@@ -534,9 +1705,20 @@ public class ExcelWriter {
 	}
 	
 	private void autoSizeColumns() {
-		if(autoSizeColumn) {
+		if(!autoSizeColumn || streamingSheet != null) {
+			//STREAMING_XML格式在开始写出行时设置估算的列宽度
+			return;
+		}
+		if(autoSizeStrategy == AutoSizeStrategy.ESTIMATE) {
+			for(int columnIndex = 0;columnIndex <= columnWidthEstimator.getLastColumn();columnIndex++) {
+				int width = columnWidthEstimator.getWidth(columnIndex);
+				if(width > 0) {
+					currentSheet.setColumnWidth(columnIndex, width);
+				}
+			}
+		} else {
 			for(int columnIndex : autoSizeColumnIndexes) {
-				currentSheet.autoSizeColumn(columnIndex,mergedColumnIndexes.contains(columnIndex));
+				currentSheet.autoSizeColumn(columnIndex,mergedColumnIndexes.get(columnIndex));
 			}
 		}
 	}
@@ -553,11 +1735,55 @@ public class ExcelWriter {
 	
 	private Row useCurrentRow() {
 		if(currentRow == null) {
-			currentRow = currentSheet.createRow(currentRownum);
+			if(shouldUpgradeToStreaming()) {
+				upgradeToStreaming();
+			}
+			if(currentRow == null) {
+				currentRow = createRow(currentRownum);
+			}
 		}
 		return currentRow;
 	}
 	
+	private Cell useCurrentCell() {
+		Cell cell = useCurrentRow().getCell(currentColumn);
+		if(cell == null) {
+			cell = createCell(useCurrentRow(), currentColumn);
+		}
+		return cell;
+	}
+	
+	private Row createRow(int rownum) {
+		inMemoryRows++;
+		return currentSheet.createRow(rownum);
+	}
+	
+	private Cell createCell(Row row,int column) {
+		inMemoryCells++;
+		return row.createCell(column);
+	}
+	
+	private boolean shouldUpgradeToStreaming() {
+		if(excelFormat != ExcelFormat.XSSF || streamingWorkbook != null || textWriter != null) {
+			return false;
+		}
+		return (streamingRowThreshold > 0 && inMemoryRows >= streamingRowThreshold) 
+				|| (streamingHeapThreshold > 0 && inMemoryCells * ExportJob.bytesPerCell(ExcelFormat.XSSF) >= streamingHeapThreshold);
+	}
+	
+	/**
+	 * 把工作簿转为SXSSF格式，已经写的行移到SXSSF的sheet中，之后只能在行窗口内随机写
+	 */
+	private void upgradeToStreaming() {
+		String sheetName = currentSheet.getSheetName();
+		workbook = StreamingUpgrade.upgrade((XSSFWorkbook)workbook, streamingRowAccessWindowSize, 
+				autoSizeColumn && autoSizeStrategy == AutoSizeStrategy.FONT_METRICS);
+		excelFormat = ExcelFormat.SXSSF;
+		creationHelper = workbook.getCreationHelper();
+		currentSheet = workbook.getSheet(sheetName);
+		currentRow = currentSheet.getRow(currentRownum);
+	}
+	
 	/**
 	 *  使写Excel的光标直接定位到指定的单元格
 	 * @param rownum row to get (0-based)
@@ -569,7 +1795,9 @@ public class ExcelWriter {
 	public ExcelWriter location(int rownum,int colnum) {
 		currentRownum = rownum;
 		currentColumn = colnum;
-		currentRow = currentSheet.getRow(currentRownum);
+		if(streamingSheet == null && textWriter == null) {
+			currentRow = currentSheet.getRow(currentRownum);
+		}
 		return this;
 	}
 	
@@ -608,7 +1836,7 @@ public class ExcelWriter {
 	 * @param name sheet名
 	 */
 	public ExcelWriter nextSheet(String name) {
-		autoSizeColumns();
+		finishSheet();
 		initSheet(name);
 		return this;
 	}
@@ -619,11 +1847,100 @@ public class ExcelWriter {
 	 * @throws IOException
 	 */
 	public void export(OutputStream outputStream) throws IOException {
-		autoSizeColumns();
+		if(disposed) {
+			throw new IllegalStateException("excel writer has been disposed");
+		}
+		if((streamingWorkbook != null && streamingWorkbook.isDirect()) || (textWriter != null && textWriter.isDirect())) {
+			throw new IllegalStateException("output stream has been specified when building, call export() instead");
+		}
+		finishSheet();
+		long start = 0;
+		if(metricsCollector != null) {
+			outputStream = new CountingOutputStream(outputStream);
+			start = System.nanoTime();
+		}
 		try {
-			workbook.write(outputStream);
+			if(streamingWorkbook != null) {
+				streamingWorkbook.write(outputStream);
+			} else if(textWriter != null) {
+				textWriter.writeTo(outputStream);
+			} else {
+				workbook.write(outputStream);
+			}
+			if(metricsCollector != null) {
+				metricsCollector.onPhase(Phase.SERIALIZE, System.nanoTime() - start);
+				finishMetrics(((CountingOutputStream)outputStream).getCount());
+			}
 		} finally {
+			dispose();
+		}
+	}
+	
+	/**
+	 * 记录字节数、样式数和共享字符串数，通知监听器导出结束
+	 */
+	private void finishMetrics(long bytesWritten) {
+		int sharedStringCount;
+		if(excelFormat == ExcelFormat.XSSF) {
+			sharedStringCount = ((XSSFWorkbook)workbook).getSharedStringSource().getUniqueCount();
+		} else if(excelFormat == ExcelFormat.SXSSF) {
+			sharedStringCount = ((SXSSFWorkbook)workbook).getXSSFWorkbook().getSharedStringSource().getUniqueCount();
+		} else if(excelFormat == ExcelFormat.HSSF) {
+			sharedStringCount = -1;
+		} else {
+			sharedStringCount = 0;
+		}
+		ExportMetrics metrics = metricsCollector.getMetrics();
+		metrics.finish(bytesWritten, workbook.getNumCellStyles(), sharedStringCount);
+		metricsCollector.onExportFinished(metrics);
+	}
+	
+	/**
+	 * 结束直接写到输出流的导出（见{@link ExcelWriterBuilder#setOutputStream(OutputStream)}），
+	 * 结束最后一个sheet，写出样式等其余部分，不关闭输出流
+	 * @throws IOException
+	 */
+	public void export() throws IOException {
+		if(disposed) {
+			throw new IllegalStateException("excel writer has been disposed");
+		}
+		if((streamingWorkbook == null || !streamingWorkbook.isDirect()) && (textWriter == null || !textWriter.isDirect())) {
+			throw new IllegalStateException("no output stream is specified when building, call export(OutputStream) instead");
+		}
+		long start = metricsCollector != null ? System.nanoTime() : 0;
+		try {
+			if(textWriter != null) {
+				textWriter.finish();
+			} else {
+				streamingWorkbook.finish();
+			}
+			if(metricsCollector != null) {
+				metricsCollector.onPhase(Phase.SERIALIZE, System.nanoTime() - start);
+				finishMetrics(countingOutputStream != null ? countingOutputStream.getCount() : -1);
+			}
+		} finally {
+			dispose();
+		}
+	}
+	
+	/**
+	 * 释放工作簿占用的资源，如SXSSF格式的临时文件。导出后会自动释放，不再导出时（如导出被放弃）需要调用
+	 * @throws IOException
+	 */
+	public void dispose() throws IOException {
+		if(disposed) {
+			return;
+		}
+		disposed = true;
+		try {
 			workbook.close();
+		} finally {
+			if(streamingWorkbook != null) {
+				streamingWorkbook.dispose();
+			}
+			if(textWriter != null) {
+				textWriter.dispose();
+			}
 			if(excelFormat == ExcelFormat.SXSSF) {
 				SXSSFWorkbook wb = (SXSSFWorkbook)workbook;
 				wb.dispose();
@@ -673,11 +1990,43 @@ public class ExcelWriter {
 	public enum ExcelFormat {
 		HSSF,
 		XSSF,
-		SXSSF
+		SXSSF,
+		/**
+		 * xlsx格式，不经过poi的Row、Cell对象，在写行的过程中直接生成sheet的xml并压缩保存在内存中，不产生临时文件。
+		 * 内存中最多保留rowAccessWindowSize行，列宽需要在第一次写出行之前设置
+		 */
+		STREAMING_XML,
+		/**
+		 * 逗号分隔的文本，UTF-8编码，值按RFC 4180加引号。只写单元格的值，忽略样式、列宽、行高和合并，
+		 * 日期按{@link ExcelWriter#setDateFormat(String)}格式化，多个sheet依次写在同一个文件中，以空行分隔
+		 */
+		CSV,
+		/**
+		 * 制表符分隔的文本，其它同{@link #CSV}
+		 */
+		TSV
+	}
+	
+	/**
+	 * 自动调整列宽度的方式
+	 * @author wutian
+	 */
+	public enum AutoSizeStrategy {
+		/**
+		 * 导出时使用poi的{@link Sheet#autoSizeColumn(int, boolean)}，根据AWT字体度量计算，准确但较慢，SXSSF格式下需要跟踪所有行
+		 */
+		FONT_METRICS,
+		/**
+		 * 写单元格时根据字符类别、字号和数据格式估算，每列只保留一个最大宽度。
+		 * STREAMING_XML格式下只有第一次写出行之前（即前rowAccessWindowSize行）的单元格参与估算
+		 */
+		ESTIMATE
 	}
 	
 	/**
-	 * 表格样式
+	 * 表格样式。
+	 * 返回的CellStyle原样使用，不经过{@link StyleRegistry}，实现中每次新建的样式都会留在工作簿中，
+	 * 需要自己缓存样式，或者通过{@link ExcelWriter#getCellStyle(CellStyleDescriptor)}得到共享的样式，也可以改用{@link GridStyleDescriptor}
 	 * @author wutian
 	 */
 	public interface GridCellStyle {
@@ -700,5 +2049,29 @@ public class ExcelWriter {
 		 */
 		CellStyle getDataCellStyle(ExcelWriter excelWriter,String fieldName,int gridRowNum,Object fieldValue);
 	}
+	
+	/**
+	 * 表格样式描述，与{@link GridCellStyle}相比只返回样式描述，由{@link StyleRegistry}转换为共享的CellStyle，
+	 * 实现时不需要自己缓存样式
+	 * @author wutian
+	 */
+	public interface GridStyleDescriptor {
+		
+		/**
+		 * 得到表头样式描述
+		 * @param fieldName 字段名称
+		 * @return 返回null时使用默认样式
+		 */
+		CellStyleDescriptor getHeaderCellStyle(String fieldName);
+		
+		/**
+		 * 得到表格数据样式描述
+		 * @param fieldName 字段名称
+		 * @param gridRowNum 所在表格行数，从0开始
+		 * @param fieldValue 字段值
+		 * @return 返回null时使用默认样式
+		 */
+		CellStyleDescriptor getDataCellStyle(String fieldName,int gridRowNum,Object fieldValue);
+	}
 
 }
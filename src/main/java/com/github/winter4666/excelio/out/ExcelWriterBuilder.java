@@ -1,5 +1,11 @@
 package com.github.winter4666.excelio.out;
 
+import java.io.OutputStream;
+
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import com.github.winter4666.excelio.common.CancellationToken;
+import com.github.winter4666.excelio.out.ExcelWriter.AutoSizeStrategy;
 import com.github.winter4666.excelio.out.ExcelWriter.ExcelFormat;
 
 /**
@@ -14,8 +20,28 @@ public class ExcelWriterBuilder {
 	
 	private Boolean autoSizeColumn;
 	
+	private AutoSizeStrategy autoSizeStrategy;
+	
 	private Integer rowAccessWindowSize;
 	
+	private CancellationToken cancellationToken;
+	
+	private OutputStream outputStream;
+	
+	private SpillStorage spillStorage;
+	
+	private boolean gzip;
+	
+	private Integer maxRowsPerSheet;
+	
+	private ExportListener exportListener;
+	
+	private ExcelTemplate template;
+	
+	private int streamingRowThreshold;
+	
+	private long streamingHeapThreshold;
+	
 	public ExcelWriterBuilder() {
 		
 	}
@@ -31,7 +57,7 @@ public class ExcelWriterBuilder {
 	}
 	
 	/**
-	 * 生成SXSSF格式的excel时，可以设置该参数，表示内存中最多保存的行数量
+	 * 生成SXSSF、STREAMING_XML、CSV或TSV格式的excel，或XSSF格式转为SXSSF格式后，可以设置该参数，表示内存中最多保存的行数量
 	 * @return
 	 * @see org.apache.poi.xssf.streaming.SXSSFWorkbook#SXSSFWorkbook(int)
 	 */
@@ -61,9 +87,188 @@ public class ExcelWriterBuilder {
 		return this;
 	}
 	
+	/**
+	 * 根据内容自动调整excel列宽度，并指定调整方式。STREAMING_XML格式总是使用{@link AutoSizeStrategy#ESTIMATE}
+	 * @param autoSizeStrategy 调整方式，默认{@link AutoSizeStrategy#FONT_METRICS}
+	 * @return
+	 */
+	public ExcelWriterBuilder enableAutoSizeColumn(AutoSizeStrategy autoSizeStrategy) {
+		autoSizeColumn = true;
+		this.autoSizeStrategy = autoSizeStrategy;
+		return this;
+	}
+	
+	/**
+	 * 设置取消标记，取消或超过截止时间后停止写表格、停止加载数据并释放工作簿
+	 * @param cancellationToken
+	 * @return
+	 * @see ExcelWriter#setCancellationToken(CancellationToken)
+	 */
+	public ExcelWriterBuilder setCancellationToken(CancellationToken cancellationToken) {
+		this.cancellationToken = cancellationToken;
+		return this;
+	}
+	
+	/**
+	 * 设置输出流，构造时就在输出流上开始写zip，每个sheet在写行的同时直接写到输出流，不使用临时文件，
+	 * 最后调用{@link ExcelWriter#export()}写出样式等其余部分。支持STREAMING_XML、CSV、TSV格式，没有设置格式时使用STREAMING_XML格式。
+	 * 这种方式下同一时间只能写一个sheet，{@link ExcelWriter#writeSheets(java.util.List)}会依次写各个sheet
+	 * @param outputStream 导出结束后不会关闭
+	 * @return
+	 */
+	public ExcelWriterBuilder setOutputStream(OutputStream outputStream) {
+		this.outputStream = outputStream;
+		return this;
+	}
+	
+	/**
+	 * 设置SXSSF格式超出行窗口的数据的保存方式，默认使用poi的不压缩的临时文件。只支持SXSSF格式，没有设置格式时使用该格式
+	 * @param spillStorage
+	 * @return
+	 */
+	public ExcelWriterBuilder setSpillStorage(SpillStorage spillStorage) {
+		this.spillStorage = spillStorage;
+		return this;
+	}
+	
+	/**
+	 * 用gzip压缩导出的文本，只支持CSV、TSV格式，没有设置格式时使用CSV格式
+	 * @return
+	 */
+	public ExcelWriterBuilder enableGzip() {
+		gzip = true;
+		return this;
+	}
+	
+	/**
+	 * 设置每个sheet最多写的行数，写表格时超出后切换到新的sheet继续写，默认为格式允许的最大行数
+	 * @param maxRowsPerSheet
+	 * @return
+	 * @see ExcelWriter#setMaxRowsPerSheet(int)
+	 */
+	public ExcelWriterBuilder setMaxRowsPerSheet(int maxRowsPerSheet) {
+		this.maxRowsPerSheet = maxRowsPerSheet;
+		return this;
+	}
+	
+	/**
+	 * 基于模板写，使用SXSSF格式，表格数据从模板的锚点行开始按{@link #setRowAccessWindowSize(int)}设置的行窗口流式写。
+	 * 默认样式为模板的默认样式，默认忽略表格的表头，使用默认表格样式时数据的样式取自模板的样例行。
+	 * 不支持输出流、溢写方式和gzip，不能再设置sheet名称
+	 * @param template
+	 * @return
+	 */
+	public ExcelWriterBuilder setTemplate(ExcelTemplate template) {
+		this.template = template;
+		return this;
+	}
+	
+	/**
+	 * XSSF格式下写的行数超过阈值后，把工作簿转为SXSSF格式继续写，已经写的行也移到SXSSF的sheet中，
+	 * 适用于事先不知道导出的行数的情况。转换后内存中最多保存{@link #setRowAccessWindowSize(int)}设置的行数，
+	 * {@link ExcelWriter#location(int, int)}只能定位到行窗口内的行
+	 * @param rowThreshold 行数阈值
+	 * @return
+	 */
+	public ExcelWriterBuilder enableStreamingUpgrade(int rowThreshold) {
+		return enableStreamingUpgrade(rowThreshold, 0);
+	}
+	
+	/**
+	 * XSSF格式下写的行数或估算的单元格内存占用超过阈值后，把工作簿转为SXSSF格式继续写
+	 * @param rowThreshold 行数阈值，为0时不按行数转换
+	 * @param heapThreshold 估算的单元格内存占用阈值（字节），为0时不按内存占用转换
+	 * @return
+	 * @see #enableStreamingUpgrade(int)
+	 */
+	public ExcelWriterBuilder enableStreamingUpgrade(int rowThreshold, long heapThreshold) {
+		if(rowThreshold < 0 || heapThreshold < 0 || (rowThreshold == 0 && heapThreshold == 0)) {
+			throw new IllegalArgumentException("at least one positive threshold is required");
+		}
+		this.streamingRowThreshold = rowThreshold;
+		this.streamingHeapThreshold = heapThreshold;
+		return this;
+	}
+	
+	/**
+	 * 设置导出监听器，报告各阶段耗时、数据源耗时、线程间的等待和导出结束时的统计，默认不计时
+	 * @param exportListener
+	 * @return
+	 * @see ExcelWriter#setExportListener(ExportListener)
+	 * @see MetricsExportListener
+	 */
+	public ExcelWriterBuilder setExportListener(ExportListener exportListener) {
+		this.exportListener = exportListener;
+		return this;
+	}
+	
+	/**
+	 * 构造时将使用的excel格式
+	 * @return
+	 */
+	ExcelFormat resolveExcelFormat() {
+		if(template != null) {
+			return ExcelFormat.SXSSF;
+		}
+		return ExcelWriter.resolveExcelFormat(excelFormat, outputStream, spillStorage, gzip);
+	}
+	
+	/**
+	 * 内存中最多保存的行数量，没有设置时为poi的默认值
+	 * @return
+	 */
+	int resolveRowAccessWindowSize() {
+		return rowAccessWindowSize == null ? SXSSFWorkbook.DEFAULT_WINDOW_SIZE : rowAccessWindowSize;
+	}
+	
+	int getStreamingRowThreshold() {
+		return streamingRowThreshold;
+	}
+	
+	long getStreamingHeapThreshold() {
+		return streamingHeapThreshold;
+	}
+	
+	CancellationToken getCancellationToken() {
+		return cancellationToken;
+	}
+	
 	public ExcelWriter build() {
-		ExcelWriter excelWriter = new ExcelWriter(excelFormat, autoSizeColumn,rowAccessWindowSize);
+		if(template != null) {
+			return buildFromTemplate();
+		}
+		CountingOutputStream countingOutputStream = null;
+		if(exportListener != null && outputStream != null) {
+			countingOutputStream = new CountingOutputStream(outputStream);
+		}
+		ExcelWriter excelWriter = new ExcelWriter(excelFormat, autoSizeColumn, autoSizeStrategy, rowAccessWindowSize, 
+				countingOutputStream != null ? countingOutputStream : outputStream, spillStorage, gzip);
+		excelWriter.setCancellationToken(cancellationToken);
+		excelWriter.setExportListener(exportListener);
+		excelWriter.countingOutputStream = countingOutputStream;
+		if(streamingRowThreshold > 0 || streamingHeapThreshold > 0) {
+			excelWriter.enableStreamingUpgrade(streamingRowThreshold, streamingHeapThreshold, resolveRowAccessWindowSize());
+		}
+		if(maxRowsPerSheet != null) {
+			excelWriter.setMaxRowsPerSheet(maxRowsPerSheet);
+		}
 		excelWriter.initSheet(sheetName);
 		return excelWriter;
 	}
+	
+	private ExcelWriter buildFromTemplate() {
+		if((excelFormat != null && excelFormat != ExcelFormat.SXSSF) || outputStream != null || spillStorage != null || gzip 
+				|| sheetName != null || streamingRowThreshold > 0 || streamingHeapThreshold > 0) {
+			throw new IllegalArgumentException("template only supports " + ExcelFormat.SXSSF 
+					+ " without output stream, spill storage, gzip, sheet name or streaming upgrade");
+		}
+		ExcelWriter excelWriter = new ExcelWriter(template, autoSizeColumn, autoSizeStrategy, rowAccessWindowSize);
+		excelWriter.setCancellationToken(cancellationToken);
+		excelWriter.setExportListener(exportListener);
+		if(maxRowsPerSheet != null) {
+			excelWriter.setMaxRowsPerSheet(maxRowsPerSheet);
+		}
+		excelWriter.initTemplateSheet(template.getSheetIndex(), template.getAnchorRow());
+		return excelWriter;
+	}
 }
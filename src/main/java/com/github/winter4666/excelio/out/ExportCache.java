@@ -0,0 +1,453 @@
+package com.github.winter4666.excelio.out;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 把导出的文件按调用者提供的指纹（如报表id、参数和数据版本）缓存在本地目录中，相同指纹的导出直接返回缓存的文件。
+ * 文件名为指纹的SHA-256，重启后目录中已有的文件继续有效。总大小超过上限时淘汰最久没有使用的文件，
+ * 超过有效期的文件不再使用。同一个指纹同时只生成一次，并发的相同请求等待同一次生成的结果
+ * @author wutian
+ */
+public class ExportCache {
+
+	private static Logger logger = LoggerFactory.getLogger(ExportCache.class);
+
+	private static final String FILE_SUFFIX = ".export";
+
+	private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+	private final File directory;
+
+	private final long maxSize;
+
+	/**
+	 * 有效期（毫秒），为0时不过期
+	 */
+	private final long timeToLive;
+
+	/**
+	 * 按最近使用的顺序排列的缓存文件，键为指纹的SHA-256
+	 */
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long size;
+
+	/**
+	 * 正在生成的导出，键为指纹的SHA-256
+	 */
+	private final ConcurrentHashMap<String, CompletableFuture<Entry>> generating = new ConcurrentHashMap<>();
+
+	private final AtomicLong hitCount = new AtomicLong();
+
+	private final AtomicLong missCount = new AtomicLong();
+
+	private ExportCache(File directory, long maxSize, long timeToLive) throws IOException {
+		if(!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("can not create cache directory " + directory);
+		}
+		this.directory = directory;
+		this.maxSize = maxSize;
+		this.timeToLive = timeToLive;
+		loadEntries();
+	}
+
+	/**
+	 * @param directory 保存缓存文件的目录，不存在时自动创建，不应保存其他文件
+	 * @return
+	 */
+	public static Builder newBuilder(File directory) {
+		return new Builder(directory);
+	}
+
+	/**
+	 * 按修改时间从旧到新加载目录中已有的文件，删除上次没有生成完的临时文件
+	 */
+	private void loadEntries() {
+		File[] files = directory.listFiles();
+		if(files == null) {
+			return;
+		}
+		Arrays.sort(files, new Comparator<File>() {
+
+			@Override
+			public int compare(File f1, File f2) {
+				return Long.compare(f1.lastModified(), f2.lastModified());
+			}
+		});
+		synchronized (this) {
+			for(File file : files) {
+				String name = file.getName();
+				if(name.endsWith(TEMP_FILE_SUFFIX)) {
+					delete(file);
+				} else if(name.endsWith(FILE_SUFFIX) && file.isFile()) {
+					Entry entry = new Entry(file, file.length(), file.lastModified());
+					if(isExpired(entry)) {
+						delete(file);
+					} else {
+						entries.put(name.substring(0, name.length() - FILE_SUFFIX.length()), entry);
+						size += entry.size;
+					}
+				}
+			}
+			evict(null);
+		}
+	}
+
+	/**
+	 * 打开指纹对应的缓存文件，没有缓存或已过期时用excelWriterBuilder构造{@link ExcelWriter}，
+	 * 调用contentWriter写数据后导出到缓存目录中。同一个指纹正在生成时等待该次生成的结果
+	 * @param fingerprint 能唯一确定导出内容的指纹，如报表id、参数和数据版本
+	 * @param excelWriterBuilder 不能设置输出流
+	 * @param contentWriter
+	 * @return 缓存文件的输入流，之后文件被淘汰也可以继续读，需要调用者关闭
+	 * @throws IOException
+	 */
+	public InputStream open(String fingerprint, ExcelWriterBuilder excelWriterBuilder, ContentWriter contentWriter) throws IOException {
+		String key = hash(fingerprint);
+		while(true) {
+			CompletableFuture<Entry> future = new CompletableFuture<>();
+			CompletableFuture<Entry> existing;
+			synchronized (this) {
+				Entry entry = entries.get(key);
+				if(entry != null && isExpired(entry)) {
+					remove(key, entry);
+					entry = null;
+				}
+				if(entry != null) {
+					try {
+						//持有锁时打开，不会在打开之前被淘汰
+						InputStream inputStream = new FileInputStream(entry.file);
+						hitCount.incrementAndGet();
+						return inputStream;
+					} catch (FileNotFoundException e) {
+						//文件被外部删除，重新生成
+						remove(key, entry);
+					}
+				}
+				//和检查缓存在同一个锁中登记生成任务，生成完成的线程先在锁中放入缓存再移除登记，
+				//所以这里没有命中时要么能看到正在进行的生成，要么确实需要生成
+				existing = generating.putIfAbsent(key, future);
+			}
+			if(existing != null) {
+				await(existing, fingerprint);
+				//生成完成后重新从缓存中打开，生成后立即被淘汰时会再生成一次
+				continue;
+			}
+			try {
+				missCount.incrementAndGet();
+				Entry entry = generate(key, excelWriterBuilder, contentWriter);
+				InputStream inputStream;
+				synchronized (this) {
+					inputStream = new FileInputStream(entry.file);
+					Entry previous = entries.put(key, entry);
+					if(previous != null) {
+						size -= previous.size;
+					}
+					size += entry.size;
+					evict(key);
+				}
+				future.complete(entry);
+				return inputStream;
+			} catch (Throwable t) {
+				future.completeExceptionally(t);
+				throw t;
+			} finally {
+				generating.remove(key, future);
+			}
+		}
+	}
+
+	/**
+	 * 读取指纹对应的缓存文件的全部内容
+	 * @return
+	 * @throws IOException
+	 * @see #open(String, ExcelWriterBuilder, ContentWriter)
+	 */
+	public byte[] getBytes(String fingerprint, ExcelWriterBuilder excelWriterBuilder, ContentWriter contentWriter) throws IOException {
+		InputStream inputStream = open(fingerprint, excelWriterBuilder, contentWriter);
+		try {
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int n;
+			while((n = inputStream.read(buffer)) != -1) {
+				outputStream.write(buffer, 0, n);
+			}
+			return outputStream.toByteArray();
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	private Entry generate(String key, ExcelWriterBuilder excelWriterBuilder, ContentWriter contentWriter) throws IOException {
+		File tempFile = File.createTempFile(key, TEMP_FILE_SUFFIX, directory);
+		try {
+			ExcelWriter excelWriter = excelWriterBuilder.build();
+			try {
+				contentWriter.write(excelWriter);
+				excelWriter.exportToFile(tempFile);
+			} catch (IOException | RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new RuntimeException("error occurs while generating export", e);
+			} finally {
+				excelWriter.dispose();
+			}
+			File file = new File(directory, key + FILE_SUFFIX);
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			return new Entry(file, file.length(), System.currentTimeMillis());
+		} finally {
+			if(tempFile.exists()) {
+				delete(tempFile);
+			}
+		}
+	}
+
+	private void await(CompletableFuture<Entry> future, String fingerprint) throws IOException {
+		try {
+			future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting for export " + fingerprint);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof IOException) {
+				throw new IOException("error occurs while generating export " + fingerprint, cause);
+			}
+			throw new RuntimeException("error occurs while generating export " + fingerprint, cause);
+		}
+	}
+
+	/**
+	 * 总大小超过上限时按最久没有使用的顺序淘汰，刚生成的文件不淘汰，调用时需要持有锁
+	 * @param keep 不淘汰的键
+	 */
+	private void evict(String keep) {
+		Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+		while(size > maxSize && iterator.hasNext()) {
+			Map.Entry<String, Entry> eldest = iterator.next();
+			if(eldest.getKey().equals(keep)) {
+				continue;
+			}
+			iterator.remove();
+			size -= eldest.getValue().size;
+			delete(eldest.getValue().file);
+		}
+	}
+
+	private void remove(String key, Entry entry) {
+		if(entries.remove(key, entry)) {
+			size -= entry.size;
+			delete(entry.file);
+		}
+	}
+
+	private boolean isExpired(Entry entry) {
+		return timeToLive > 0 && System.currentTimeMillis() - entry.createdAt >= timeToLive;
+	}
+
+	/**
+	 * 删除指纹对应的缓存文件，如数据已经变化时
+	 * @param fingerprint
+	 */
+	public synchronized void invalidate(String fingerprint) {
+		String key = hash(fingerprint);
+		Entry entry = entries.get(key);
+		if(entry != null) {
+			remove(key, entry);
+		}
+	}
+
+	/**
+	 * 删除所有缓存文件，正在生成的导出不受影响
+	 */
+	public synchronized void clear() {
+		List<Entry> removed = new ArrayList<>(entries.values());
+		entries.clear();
+		size = 0;
+		for(Entry entry : removed) {
+			delete(entry.file);
+		}
+	}
+
+	/**
+	 * 删除所有过期的缓存文件，可以定期调用，没有调用时过期的文件在下次使用或被淘汰时删除
+	 */
+	public synchronized void removeExpired() {
+		Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+		while(iterator.hasNext()) {
+			Entry entry = iterator.next().getValue();
+			if(isExpired(entry)) {
+				iterator.remove();
+				size -= entry.size;
+				delete(entry.file);
+			}
+		}
+	}
+
+	private static void delete(File file) {
+		try {
+			Files.deleteIfExists(file.toPath());
+		} catch (IOException e) {
+			logger.warn("can not delete cache file " + file, e);
+		}
+	}
+
+	private static String hash(String fingerprint) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(fingerprint.getBytes(StandardCharsets.UTF_8));
+			StringBuilder sb = new StringBuilder(digest.length * 2);
+			for(byte b : digest) {
+				sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * 缓存文件的总大小（字节）
+	 * @return
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	/**
+	 * 缓存文件的数量
+	 * @return
+	 */
+	public synchronized int getEntryCount() {
+		return entries.size();
+	}
+
+	/**
+	 * 直接使用缓存文件的次数
+	 * @return
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * 生成导出的次数，并发的相同请求只计一次
+	 * @return
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	private static class Entry {
+
+		private final File file;
+
+		private final long size;
+
+		/**
+		 * 生成时间（毫秒）
+		 */
+		private final long createdAt;
+
+		Entry(File file, long size, long createdAt) {
+			this.file = file;
+			this.size = size;
+			this.createdAt = createdAt;
+		}
+
+	}
+
+	/**
+	 * 生成缓存文件时写导出的内容
+	 */
+	public interface ContentWriter {
+
+		/**
+		 * 写数据，写完后由缓存导出到文件
+		 * @param excelWriter
+		 * @throws Exception
+		 */
+		void write(ExcelWriter excelWriter) throws Exception;
+
+	}
+
+	/**
+	 * 构造{@link ExportCache}
+	 */
+	public static class Builder {
+
+		private final File directory;
+
+		private long maxSize = Long.MAX_VALUE;
+
+		private long timeToLive;
+
+		private Builder(File directory) {
+			if(directory == null) {
+				throw new IllegalArgumentException("directory must not be null");
+			}
+			this.directory = directory;
+		}
+
+		/**
+		 * 设置缓存文件的总大小上限（字节），超过后淘汰最久没有使用的文件，默认不限制
+		 * @param maxSize
+		 * @return
+		 */
+		public Builder setMaxSize(long maxSize) {
+			this.maxSize = maxSize;
+			return this;
+		}
+
+		/**
+		 * 设置缓存文件从生成开始的有效期，默认不过期
+		 * @param timeToLive
+		 * @param unit
+		 * @return
+		 */
+		public Builder setTimeToLive(long timeToLive, TimeUnit unit) {
+			this.timeToLive = unit.toMillis(timeToLive);
+			return this;
+		}
+
+		/**
+		 * 创建缓存，加载目录中已有的文件
+		 * @return
+		 * @throws IOException 目录不能创建时
+		 */
+		public ExportCache build() throws IOException {
+			return new ExportCache(directory, maxSize, timeToLive);
+		}
+
+	}
+
+}
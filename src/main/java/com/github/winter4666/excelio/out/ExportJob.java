@@ -0,0 +1,158 @@
+package com.github.winter4666.excelio.out;
+
+import com.github.winter4666.excelio.out.ExcelWriter.ExcelFormat;
+
+/**
+ * 提交给{@link ExportService}的导出任务，包含构造{@link ExcelWriter}的{@link ExcelWriterBuilder}和使用它写数据的{@link ExportTask}。
+ * {@link ExcelWriter}在任务获准执行后才构造，排队期间不占用工作簿的内存
+ * @author wutian
+ * @param <T> 导出结果的类型
+ */
+public final class ExportJob<T> {
+
+	/**
+	 * 每个导出固定占用的内存，包括工作簿、样式表和zip缓冲区等
+	 */
+	static final long BASE_COST = 4L * 1024 * 1024;
+
+	/**
+	 * 没有设置预计行数时，整个工作簿保存在内存中的格式按该行数估算
+	 */
+	static final long DEFAULT_EXPECTED_ROWS = 10000;
+
+	private final ExcelWriterBuilder excelWriterBuilder;
+
+	private final int columnCount;
+
+	private final ExportTask<T> exportTask;
+
+	private long expectedRows = DEFAULT_EXPECTED_ROWS;
+
+	private long memoryCost = -1;
+
+	private ExportJob(ExcelWriterBuilder excelWriterBuilder, int columnCount, ExportTask<T> exportTask) {
+		if(excelWriterBuilder == null || exportTask == null) {
+			throw new IllegalArgumentException("excelWriterBuilder and exportTask must not be null");
+		}
+		if(columnCount < 1) {
+			throw new IllegalArgumentException("columnCount must be positive");
+		}
+		this.excelWriterBuilder = excelWriterBuilder;
+		this.columnCount = columnCount;
+		this.exportTask = exportTask;
+	}
+
+	/**
+	 * @param excelWriterBuilder 构造导出使用的{@link ExcelWriter}，提交后不应再修改
+	 * @param columnCount 表格的列数，用于估算内存占用
+	 * @param exportTask 写数据并返回导出结果
+	 * @return
+	 */
+	public static <T> ExportJob<T> newInstance(ExcelWriterBuilder excelWriterBuilder, int columnCount, ExportTask<T> exportTask) {
+		return new ExportJob<>(excelWriterBuilder, columnCount, exportTask);
+	}
+
+	/**
+	 * 设置预计导出的行数，HSSF、XSSF格式在内存中保存所有行，占用的内存与行数成正比，默认按{@value #DEFAULT_EXPECTED_ROWS}行估算。
+	 * 其他格式只保存行窗口中的行，不受该参数影响
+	 * @param expectedRows
+	 * @return
+	 */
+	public ExportJob<T> expectedRows(long expectedRows) {
+		this.expectedRows = expectedRows;
+		return this;
+	}
+
+	/**
+	 * 直接指定占用的内存（字节），不再根据格式估算
+	 * @param memoryCost
+	 * @return
+	 */
+	public ExportJob<T> memoryCost(long memoryCost) {
+		this.memoryCost = memoryCost;
+		return this;
+	}
+
+	/**
+	 * 导出占用的内存（字节），没有直接指定时根据格式、行窗口和列数估算：
+	 * HSSF、XSSF格式按预计行数乘以列数，SXSSF、STREAMING_XML、CSV、TSV格式按行窗口乘以列数，
+	 * 再乘以每种格式每个单元格大致占用的内存，加上固定的{@value #BASE_COST}字节。
+	 * XSSF格式设置了{@link ExcelWriterBuilder#enableStreamingUpgrade(int, long)}时，最多按转换阈值加上转换后的行窗口估算
+	 * @return
+	 */
+	public long getMemoryCost() {
+		if(memoryCost >= 0) {
+			return memoryCost;
+		}
+		ExcelFormat excelFormat = excelWriterBuilder.resolveExcelFormat();
+		long rowAccessWindowSize = excelWriterBuilder.resolveRowAccessWindowSize();
+		if(excelFormat != ExcelFormat.HSSF && excelFormat != ExcelFormat.XSSF) {
+			return BASE_COST + rowAccessWindowSize * columnCount * bytesPerCell(excelFormat);
+		}
+		long cost = expectedRows * columnCount * bytesPerCell(excelFormat);
+		if(excelFormat == ExcelFormat.XSSF) {
+			//转为SXSSF格式前最多占用阈值对应的内存，之后只保留行窗口
+			long limit = Long.MAX_VALUE;
+			if(excelWriterBuilder.getStreamingRowThreshold() > 0) {
+				limit = (long)excelWriterBuilder.getStreamingRowThreshold() * columnCount * bytesPerCell(ExcelFormat.XSSF);
+			}
+			if(excelWriterBuilder.getStreamingHeapThreshold() > 0) {
+				limit = Math.min(limit, excelWriterBuilder.getStreamingHeapThreshold());
+			}
+			if(limit != Long.MAX_VALUE) {
+				cost = Math.min(cost, limit + rowAccessWindowSize * columnCount * bytesPerCell(ExcelFormat.SXSSF));
+			}
+		}
+		return BASE_COST + cost;
+	}
+
+	/**
+	 * 每种格式每个单元格大致占用的内存，包括单元格对象、值和行对象分摊的部分
+	 */
+	static long bytesPerCell(ExcelFormat excelFormat) {
+		switch (excelFormat) {
+		case HSSF:
+			return 200;
+		case XSSF:
+			return 1000;
+		case SXSSF:
+			return 500;
+		case STREAMING_XML:
+			return 120;
+		default:
+			return 80;
+		}
+	}
+
+	ExcelWriterBuilder getExcelWriterBuilder() {
+		return excelWriterBuilder;
+	}
+
+	ExportTask<T> getExportTask() {
+		return exportTask;
+	}
+
+	public int getColumnCount() {
+		return columnCount;
+	}
+
+	public long getExpectedRows() {
+		return expectedRows;
+	}
+
+	/**
+	 * 使用构造好的{@link ExcelWriter}写数据并导出
+	 * @param <T> 导出结果的类型
+	 */
+	public interface ExportTask<T> {
+
+		/**
+		 * @param excelWriter 任务结束后如果还没有导出会被释放
+		 * @return 导出结果，如{@link ExcelWriter#exportToByteArray()}的返回值
+		 * @throws Exception
+		 */
+		T export(ExcelWriter excelWriter) throws Exception;
+
+	}
+
+}
@@ -0,0 +1,95 @@
+package com.github.winter4666.excelio.out;
+
+/**
+ * 导出过程的监听器，用于统计各阶段的耗时，通过{@link ExcelWriterBuilder#setExportListener(ExportListener)}设置。
+ * 没有设置监听器时导出过程不计时。
+ * 方法可能在写表格的线程、加载数据的线程以及并行写sheet的线程中同时调用，实现需要是线程安全的，且不应抛出异常。
+ * 所有方法默认不做处理，只需要覆盖关心的事件
+ * @author wutian
+ * @see MetricsExportListener
+ */
+public interface ExportListener {
+	
+	/**
+	 * 一个阶段结束
+	 * @param phase 阶段
+	 * @param nanos 耗时（纳秒）
+	 */
+	default void onPhase(Phase phase, long nanos) {
+		
+	}
+	
+	/**
+	 * 写完一个表格
+	 * @param rows 数据行数，不包括表头
+	 * @param nanos 从开始加载数据到写完最后一行的耗时（纳秒），包括等待数据的时间
+	 */
+	default void onGridWritten(int rows, long nanos) {
+		
+	}
+	
+	/**
+	 * 数据源返回了一页数据，由{@link com.github.winter4666.excelio.out.grid.AsyncPagingLoader}在加载线程中调用
+	 * @param rows 这一页的行数
+	 * @param nanos 数据源的耗时（纳秒）
+	 */
+	default void onPageLoaded(int rows, long nanos) {
+		
+	}
+	
+	/**
+	 * 写表格的线程等待加载线程的时间
+	 * @param nanos 纳秒
+	 */
+	default void onPollBlocked(long nanos) {
+		
+	}
+	
+	/**
+	 * 加载线程等待写表格的线程取走数据的时间
+	 * @param nanos 纳秒
+	 */
+	default void onOfferBlocked(long nanos) {
+		
+	}
+	
+	/**
+	 * 写表格的线程取数据之前，队列中已加载完、等待写的页数
+	 * @param pages
+	 */
+	default void onQueueDepth(int pages) {
+		
+	}
+	
+	/**
+	 * 导出结束，已写完所有数据
+	 * @param metrics 整个导出过程的统计
+	 */
+	default void onExportFinished(ExportMetrics metrics) {
+		
+	}
+	
+	/**
+	 * 导出的阶段
+	 * @author wutian
+	 */
+	enum Phase {
+		/**
+		 * 一个表格中所有{@link com.github.winter4666.excelio.common.GridColumn.FieldValueConverter}的耗时之和
+		 */
+		CONVERT,
+		/**
+		 * 结束sheet时检查并添加合并区域
+		 */
+		MERGE,
+		/**
+		 * 结束sheet时自动调整列宽度
+		 */
+		AUTO_SIZE,
+		/**
+		 * 把工作簿写到输出流，包括压缩。并行写的STREAMING_XML sheet在各自的线程中结束时压缩，也计入这一阶段
+		 */
+		SERIALIZE
+	}
+
+}
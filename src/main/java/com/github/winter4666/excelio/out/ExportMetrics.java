@@ -0,0 +1,210 @@
+package com.github.winter4666.excelio.out;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * 一次导出的统计，由{@link ExportListener#onExportFinished(ExportMetrics)}给出，时间均为纳秒
+ * @author wutian
+ */
+public class ExportMetrics {
+	
+	private final long startNanos = System.nanoTime();
+	
+	private volatile long totalNanos;
+	
+	private final LongAdder rows = new LongAdder();
+	
+	private final LongAdder gridNanos = new LongAdder();
+	
+	private final LongAdder pages = new LongAdder();
+	
+	private final LongAdder dataSourceNanos = new LongAdder();
+	
+	private final LongAdder pollBlockedNanos = new LongAdder();
+	
+	private final LongAdder offerBlockedNanos = new LongAdder();
+	
+	private final LongAdder queueDepthSamples = new LongAdder();
+	
+	private final LongAdder queueDepthSum = new LongAdder();
+	
+	private final LongAccumulator maxQueueDepth = new LongAccumulator(new LongBinaryOperator() {
+		
+		@Override
+		public long applyAsLong(long left, long right) {
+			return Math.max(left, right);
+		}
+	}, 0);
+	
+	/**
+	 * 按{@link ExportListener.Phase}的顺序
+	 */
+	private final LongAdder[] phaseNanos;
+	
+	private volatile long bytesWritten;
+	
+	private volatile int cellStyleCount;
+	
+	private volatile int sharedStringCount = -1;
+	
+	ExportMetrics() {
+		phaseNanos = new LongAdder[ExportListener.Phase.values().length];
+		for(int i = 0;i < phaseNanos.length;i++) {
+			phaseNanos[i] = new LongAdder();
+		}
+	}
+	
+	void addGrid(int rows, long nanos) {
+		this.rows.add(rows);
+		gridNanos.add(nanos);
+	}
+	
+	void addPage(long nanos) {
+		pages.increment();
+		dataSourceNanos.add(nanos);
+	}
+	
+	void addPollBlocked(long nanos) {
+		pollBlockedNanos.add(nanos);
+	}
+	
+	void addOfferBlocked(long nanos) {
+		offerBlockedNanos.add(nanos);
+	}
+	
+	void addQueueDepth(int pages) {
+		queueDepthSamples.increment();
+		queueDepthSum.add(pages);
+		maxQueueDepth.accumulate(pages);
+	}
+	
+	void addPhase(ExportListener.Phase phase, long nanos) {
+		phaseNanos[phase.ordinal()].add(nanos);
+	}
+	
+	void finish(long bytesWritten, int cellStyleCount, int sharedStringCount) {
+		this.bytesWritten = bytesWritten;
+		this.cellStyleCount = cellStyleCount;
+		this.sharedStringCount = sharedStringCount;
+		totalNanos = System.nanoTime() - startNanos;
+	}
+	
+	/**
+	 * 从创建ExcelWriter到导出结束的时间
+	 * @return
+	 */
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+	
+	/**
+	 * 所有表格的数据行数
+	 * @return
+	 */
+	public long getRows() {
+		return rows.sum();
+	}
+	
+	/**
+	 * 写表格的时间之和，并行写sheet时是各个sheet的时间之和
+	 * @return
+	 */
+	public long getGridNanos() {
+		return gridNanos.sum();
+	}
+	
+	/**
+	 * 每秒写的表格行数，按{@link #getGridNanos()}计算
+	 * @return
+	 */
+	public double getRowsPerSecond() {
+		long nanos = getGridNanos();
+		return nanos == 0 ? 0 : getRows() * (double)TimeUnit.SECONDS.toNanos(1) / nanos;
+	}
+	
+	/**
+	 * 某个阶段的时间之和
+	 * @param phase
+	 * @return
+	 */
+	public long getPhaseNanos(ExportListener.Phase phase) {
+		return phaseNanos[phase.ordinal()].sum();
+	}
+	
+	/**
+	 * 数据源返回的页数
+	 * @return
+	 */
+	public long getPages() {
+		return pages.sum();
+	}
+	
+	public long getDataSourceNanos() {
+		return dataSourceNanos.sum();
+	}
+	
+	public long getPollBlockedNanos() {
+		return pollBlockedNanos.sum();
+	}
+	
+	public long getOfferBlockedNanos() {
+		return offerBlockedNanos.sum();
+	}
+	
+	public long getQueueDepthSamples() {
+		return queueDepthSamples.sum();
+	}
+	
+	public double getAverageQueueDepth() {
+		long samples = getQueueDepthSamples();
+		return samples == 0 ? 0 : (double)queueDepthSum.sum() / samples;
+	}
+	
+	public long getMaxQueueDepth() {
+		return maxQueueDepth.get();
+	}
+	
+	/**
+	 * 写到输出流的字节数
+	 * @return
+	 */
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+	
+	/**
+	 * 工作簿中的样式数
+	 * @return
+	 */
+	public int getCellStyleCount() {
+		return cellStyleCount;
+	}
+	
+	/**
+	 * 共享字符串表中不重复的字符串数，字符串写在单元格中的格式（SXSSF默认、STREAMING_XML）为0，HSSF格式无法统计，为-1
+	 * @return
+	 */
+	public int getSharedStringCount() {
+		return sharedStringCount;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("ExportMetrics[totalMs=").append(TimeUnit.NANOSECONDS.toMillis(getTotalNanos()))
+				.append(", rows=").append(getRows()).append(", rowsPerSecond=").append(Math.round(getRowsPerSecond()))
+				.append(", gridMs=").append(TimeUnit.NANOSECONDS.toMillis(getGridNanos()));
+		for(ExportListener.Phase phase : ExportListener.Phase.values()) {
+			sb.append(", ").append(phase.name().toLowerCase()).append("Ms=").append(TimeUnit.NANOSECONDS.toMillis(getPhaseNanos(phase)));
+		}
+		return sb.append(", pages=").append(getPages()).append(", dataSourceMs=").append(TimeUnit.NANOSECONDS.toMillis(getDataSourceNanos()))
+				.append(", pollBlockedMs=").append(TimeUnit.NANOSECONDS.toMillis(getPollBlockedNanos()))
+				.append(", offerBlockedMs=").append(TimeUnit.NANOSECONDS.toMillis(getOfferBlockedNanos()))
+				.append(", maxQueueDepth=").append(getMaxQueueDepth()).append(", bytes=").append(getBytesWritten())
+				.append(", cellStyles=").append(getCellStyleCount()).append(", sharedStrings=").append(getSharedStringCount())
+				.append("]").toString();
+	}
+
+}
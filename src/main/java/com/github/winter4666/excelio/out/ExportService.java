@@ -0,0 +1,202 @@
+package com.github.winter4666.excelio.out;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.winter4666.excelio.common.CancellationToken;
+import com.github.winter4666.excelio.out.grid.LoaderExecutors;
+
+/**
+ * 在有界线程池中异步执行导出，并按内存预算控制同时执行的导出。
+ * 每个导出按{@link ExportJob#getMemoryCost()}占用预算，预算不足时按提交顺序排队，前面的导出结束释放预算后再执行，
+ * 排在前面的大导出不会被后提交的小导出插队。占用超过整个预算的导出按整个预算计算，即只能单独执行
+ * @author wutian
+ */
+public class ExportService {
+
+	private static Logger logger = LoggerFactory.getLogger(ExportService.class);
+
+	private static final String THREAD_NAME_PREFIX = "excel-io-export-";
+
+	private final long memoryBudget;
+
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * 等待预算的导出，按提交顺序
+	 */
+	private final ArrayDeque<PendingExport<?>> pendingExports = new ArrayDeque<>();
+
+	private long availableMemory;
+
+	private boolean shutdown;
+
+	/**
+	 * @param threads 同时执行导出的最大线程数
+	 * @param memoryBudget 同时执行的导出最多占用的内存（字节）
+	 */
+	public ExportService(int threads, long memoryBudget) {
+		if(threads < 1) {
+			throw new IllegalArgumentException("threads must be positive");
+		}
+		if(memoryBudget <= 0) {
+			throw new IllegalArgumentException("memoryBudget must be positive");
+		}
+		this.memoryBudget = memoryBudget;
+		availableMemory = memoryBudget;
+		executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				LoaderExecutors.namedThreadFactory(THREAD_NAME_PREFIX, true));
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * 提交导出，预算允许时在线程池中构造{@link ExcelWriter}并执行{@link ExportJob.ExportTask}。
+	 * 取消返回的future时，排队中的导出不再执行，执行中的导出通过{@link CancellationToken}停止写表格和加载数据
+	 * @param exportJob
+	 * @return 导出结果，导出失败时以导出抛出的异常结束
+	 * @throws RejectedExecutionException 已经调用过{@link #shutdown()}
+	 */
+	public <T> CompletableFuture<T> submit(ExportJob<T> exportJob) {
+		final PendingExport<T> pendingExport = new PendingExport<>(exportJob, Math.min(exportJob.getMemoryCost(), memoryBudget));
+		synchronized (this) {
+			if(shutdown) {
+				throw new RejectedExecutionException("export service has been shut down");
+			}
+			pendingExports.add(pendingExport);
+			admit();
+		}
+		pendingExport.future.whenComplete(new BiConsumer<T, Throwable>() {
+
+			@Override
+			public void accept(T result, Throwable t) {
+				if(pendingExport.future.isCancelled()) {
+					pendingExport.cancellationToken.cancel();
+					synchronized (ExportService.this) {
+						//还在排队时直接移出队列，后面的导出可能因此获准执行
+						if(pendingExports.remove(pendingExport)) {
+							admit();
+						}
+					}
+				}
+			}
+		});
+		return pendingExport.future;
+	}
+
+	/**
+	 * 按提交顺序执行预算允许的导出，调用时需要持有锁
+	 */
+	private void admit() {
+		PendingExport<?> pendingExport;
+		while((pendingExport = pendingExports.peek()) != null && pendingExport.memoryCost <= availableMemory) {
+			pendingExports.poll();
+			availableMemory -= pendingExport.memoryCost;
+			executor.execute(pendingExport);
+		}
+	}
+
+	private synchronized void release(long memoryCost) {
+		availableMemory += memoryCost;
+		admit();
+	}
+
+	/**
+	 * 不再接受新的导出，排队中的导出被取消，执行中的导出会继续执行完
+	 */
+	public void shutdown() {
+		ArrayDeque<PendingExport<?>> cancelledExports;
+		synchronized (this) {
+			shutdown = true;
+			cancelledExports = new ArrayDeque<>(pendingExports);
+			pendingExports.clear();
+		}
+		for(PendingExport<?> pendingExport : cancelledExports) {
+			pendingExport.future.cancel(false);
+		}
+		executor.shutdown();
+	}
+
+	/**
+	 * 等待执行中的导出结束，需要先调用{@link #shutdown()}
+	 * @param timeout
+	 * @param unit
+	 * @return 超时前所有导出都已结束时返回true
+	 * @throws InterruptedException
+	 */
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return executor.awaitTermination(timeout, unit);
+	}
+
+	public long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	/**
+	 * 当前剩余的内存预算（字节）
+	 * @return
+	 */
+	public synchronized long getAvailableMemory() {
+		return availableMemory;
+	}
+
+	/**
+	 * 等待预算的导出数量
+	 * @return
+	 */
+	public synchronized int getPendingCount() {
+		return pendingExports.size();
+	}
+
+	private class PendingExport<T> implements Runnable {
+
+		private final ExportJob<T> exportJob;
+
+		private final long memoryCost;
+
+		private final CompletableFuture<T> future = new CompletableFuture<>();
+
+		private final CancellationToken cancellationToken;
+
+		PendingExport(ExportJob<T> exportJob, long memoryCost) {
+			this.exportJob = exportJob;
+			this.memoryCost = memoryCost;
+			CancellationToken cancellationToken = exportJob.getExcelWriterBuilder().getCancellationToken();
+			this.cancellationToken = cancellationToken != null ? cancellationToken : CancellationToken.newInstance();
+		}
+
+		@Override
+		public void run() {
+			try {
+				if(future.isDone()) {
+					return;
+				}
+				ExcelWriter excelWriter = exportJob.getExcelWriterBuilder().build();
+				try {
+					excelWriter.setCancellationToken(cancellationToken);
+					future.complete(exportJob.getExportTask().export(excelWriter));
+				} finally {
+					excelWriter.dispose();
+				}
+			} catch (CancellationException e) {
+				future.cancel(false);
+			} catch (Throwable t) {
+				if(!future.completeExceptionally(t)) {
+					logger.debug("export failed after its future was completed", t);
+				}
+			} finally {
+				release(memoryCost);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,245 @@
+package com.github.winter4666.excelio.out;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+
+import com.github.winter4666.excelio.common.GridColumn;
+import com.github.winter4666.excelio.out.grid.FieldAccessors;
+import com.github.winter4666.excelio.out.grid.GridRowAccessor;
+
+/**
+ * 预先编译的表格方案：表格列、行数据类型的字段读取器、列宽度、表头和数据的样式描述。
+ * 编译时复制所有的列信息和样式描述，之后不可修改，线程安全，可以被多个{@link ExcelWriter}同时使用，
+ * 适合反复导出的固定报表。写表格时每个ExcelWriter只按描述查找一次样式，之后每个单元格直接使用
+ * @author wutian
+ */
+public final class GridPlan {
+
+	private final List<GridColumn> gridColumns;
+
+	private final GridRowAccessor rowAccessor;
+
+	/**
+	 * 以表格第一列为0的列宽度（以字符为单位），小于等于0的不设置
+	 */
+	private final float[] columnWidths;
+
+	/**
+	 * 每一列的表头样式描述，为null时使用默认样式
+	 */
+	private final CellStyleDescriptor[] headerStyles;
+
+	/**
+	 * 每一列的数据样式描述，为null时使用默认样式
+	 */
+	private final CellStyleDescriptor[] dataStyles;
+
+	/**
+	 * 表格所占的列数
+	 */
+	private final int width;
+
+	private GridPlan(Builder builder) {
+		List<GridColumn> columns = new ArrayList<>(builder.gridColumns.size());
+		for(GridColumn gridColumn : builder.gridColumns) {
+			columns.add(copy(gridColumn));
+		}
+		gridColumns = Collections.unmodifiableList(columns);
+		rowAccessor = FieldAccessors.getRowAccessor(builder.rowClass, gridColumns);
+		columnWidths = builder.columnWidths == null ? new float[0] : builder.columnWidths.clone();
+		headerStyles = new CellStyleDescriptor[columns.size()];
+		dataStyles = new CellStyleDescriptor[columns.size()];
+		int width = 0;
+		for(int i = 0;i < columns.size();i++) {
+			String fieldName = columns.get(i).getFieldName();
+			headerStyles[i] = copy(builder.headerStyles.containsKey(fieldName) ? builder.headerStyles.get(fieldName) : builder.headerStyle);
+			dataStyles[i] = copy(builder.dataStyles.containsKey(fieldName) ? builder.dataStyles.get(fieldName) : builder.dataStyle);
+			width += columns.get(i).getCellNum();
+		}
+		this.width = width;
+	}
+
+	/**
+	 * @param gridColumns 表格列信息
+	 * @param rowClass 行数据类型，Map类型的行数据使用Map.class
+	 * @return
+	 */
+	public static Builder newBuilder(List<GridColumn> gridColumns, Class<?> rowClass) {
+		return new Builder(gridColumns, rowClass);
+	}
+
+	/**
+	 * 使用默认样式编译表格方案
+	 * @param gridColumns 表格列信息
+	 * @param rowClass 行数据类型，Map类型的行数据使用Map.class
+	 * @return
+	 */
+	public static GridPlan compile(List<GridColumn> gridColumns, Class<?> rowClass) {
+		return newBuilder(gridColumns, rowClass).build();
+	}
+
+	private static GridColumn copy(GridColumn gridColumn) {
+		return GridColumn.newInstance(gridColumn.getFieldName(), gridColumn.getLabel()).cellNum(gridColumn.getCellNum())
+				.fieldValueConverter(gridColumn.getFieldValueConverter()).valueType(gridColumn.getValueType())
+				.mergeRepeated(gridColumn.isMergeRepeated());
+	}
+
+	private static CellStyleDescriptor copy(CellStyleDescriptor descriptor) {
+		return descriptor == null ? null : descriptor.copy();
+	}
+
+	/**
+	 * 得到表格列信息的副本，修改副本不影响方案
+	 * @return
+	 */
+	public List<GridColumn> getGridColumns() {
+		List<GridColumn> columns = new ArrayList<>(gridColumns.size());
+		for(GridColumn gridColumn : gridColumns) {
+			columns.add(copy(gridColumn));
+		}
+		return columns;
+	}
+
+	public Class<?> getRowClass() {
+		return rowAccessor.getRowClass();
+	}
+
+	public int getColumnCount() {
+		return gridColumns.size();
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * 方案内部的列信息，ExcelWriter只读取，不修改
+	 */
+	List<GridColumn> columns() {
+		return gridColumns;
+	}
+
+	GridRowAccessor rowAccessor() {
+		return rowAccessor;
+	}
+
+	float[] columnWidths() {
+		return columnWidths;
+	}
+
+	CellStyle[] resolveHeaderStyles(StyleRegistry styleRegistry, CellStyle defaultCellStyle) {
+		return resolve(headerStyles, styleRegistry, defaultCellStyle);
+	}
+
+	CellStyle[] resolveDataStyles(StyleRegistry styleRegistry, CellStyle defaultCellStyle) {
+		return resolve(dataStyles, styleRegistry, defaultCellStyle);
+	}
+
+	private static CellStyle[] resolve(CellStyleDescriptor[] descriptors, StyleRegistry styleRegistry, CellStyle defaultCellStyle) {
+		CellStyle[] cellStyles = new CellStyle[descriptors.length];
+		for(int i = 0;i < descriptors.length;i++) {
+			cellStyles[i] = descriptors[i] == null ? defaultCellStyle : styleRegistry.getCellStyle(descriptors[i]);
+		}
+		return cellStyles;
+	}
+
+	/**
+	 * 表格方案的构建器，不是线程安全的，build后可以继续修改并构建其它方案
+	 * @author wutian
+	 */
+	public static class Builder {
+
+		private final List<GridColumn> gridColumns;
+
+		private final Class<?> rowClass;
+
+		private float[] columnWidths;
+
+		private CellStyleDescriptor headerStyle;
+
+		private CellStyleDescriptor dataStyle;
+
+		private final Map<String, CellStyleDescriptor> headerStyles = new HashMap<>();
+
+		private final Map<String, CellStyleDescriptor> dataStyles = new HashMap<>();
+
+		private Builder(List<GridColumn> gridColumns, Class<?> rowClass) {
+			if(gridColumns == null || gridColumns.isEmpty()) {
+				throw new IllegalArgumentException("gridColumns must not be empty");
+			}
+			if(rowClass == null) {
+				throw new IllegalArgumentException("rowClass must not be null");
+			}
+			this.gridColumns = gridColumns;
+			this.rowClass = rowClass;
+		}
+
+		/**
+		 * 设置列宽度（以字符为单位），从表格的第一列开始，小于等于0的列不设置
+		 * @param columnWidths
+		 * @return
+		 */
+		public Builder setColumnWidths(float... columnWidths) {
+			this.columnWidths = Arrays.copyOf(columnWidths, columnWidths.length);
+			return this;
+		}
+
+		/**
+		 * 设置所有列的表头样式描述
+		 * @param headerStyle
+		 * @return
+		 */
+		public Builder setHeaderStyle(CellStyleDescriptor headerStyle) {
+			this.headerStyle = headerStyle;
+			return this;
+		}
+
+		/**
+		 * 设置某一列的表头样式描述，优先于{@link #setHeaderStyle(CellStyleDescriptor)}
+		 * @param fieldName
+		 * @param headerStyle
+		 * @return
+		 */
+		public Builder setHeaderStyle(String fieldName, CellStyleDescriptor headerStyle) {
+			headerStyles.put(fieldName, headerStyle);
+			return this;
+		}
+
+		/**
+		 * 设置所有列的数据样式描述
+		 * @param dataStyle
+		 * @return
+		 */
+		public Builder setDataStyle(CellStyleDescriptor dataStyle) {
+			this.dataStyle = dataStyle;
+			return this;
+		}
+
+		/**
+		 * 设置某一列的数据样式描述，优先于{@link #setDataStyle(CellStyleDescriptor)}
+		 * @param fieldName
+		 * @param dataStyle
+		 * @return
+		 */
+		public Builder setDataStyle(String fieldName, CellStyleDescriptor dataStyle) {
+			dataStyles.put(fieldName, dataStyle);
+			return this;
+		}
+
+		/**
+		 * 编译表格方案，行数据类型中找不到字段时抛出异常
+		 * @return
+		 */
+		public GridPlan build() {
+			return new GridPlan(this);
+		}
+
+	}
+
+}
@@ -0,0 +1,143 @@
+package com.github.winter4666.excelio.out;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTMergeCell;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTMergeCells;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTWorksheet;
+
+/**
+ * 一个sheet中暂存的合并区域。poi的addMergedRegion每次都和已有的所有区域比较，n个区域需要O(n²)的时间，
+ * 这里先暂存，结束sheet时按行扫描一次检查重叠，需要O(n log n)的时间，之后再不经检查地批量添加
+ * @author wutian
+ */
+class MergedRegions {
+
+	private static final Comparator<CellRangeAddress> FIRST_ROW_ORDER = new Comparator<CellRangeAddress>() {
+
+		@Override
+		public int compare(CellRangeAddress o1, CellRangeAddress o2) {
+			return Integer.compare(o1.getFirstRow(), o2.getFirstRow());
+		}
+	};
+
+	private static final Comparator<CellRangeAddress> LAST_ROW_ORDER = new Comparator<CellRangeAddress>() {
+
+		@Override
+		public int compare(CellRangeAddress o1, CellRangeAddress o2) {
+			return Integer.compare(o1.getLastRow(), o2.getLastRow());
+		}
+	};
+
+	private final List<CellRangeAddress> regions = new ArrayList<>();
+
+	/**
+	 * 暂存一个合并区域
+	 * @param region
+	 */
+	void add(CellRangeAddress region) {
+		if(region.getNumberOfCells() < 2) {
+			throw new IllegalArgumentException("Merged region " + region.formatAsString() + " must contain 2 or more cells");
+		}
+		regions.add(region);
+	}
+
+	boolean isEmpty() {
+		return regions.isEmpty();
+	}
+
+	int size() {
+		return regions.size();
+	}
+
+	List<CellRangeAddress> getRegions() {
+		return Collections.unmodifiableList(regions);
+	}
+
+	/**
+	 * 不经检查地把暂存的区域添加到sheet。xlsx的sheet每添加一个区域poi都会数一遍已有区域，
+	 * 所以直接整体替换mergeCells元素
+	 * @param sheet
+	 */
+	void addTo(Sheet sheet) {
+		XSSFSheet xssfSheet = null;
+		if(sheet instanceof XSSFSheet) {
+			xssfSheet = (XSSFSheet)sheet;
+		} else if(sheet instanceof SXSSFSheet) {
+			xssfSheet = ((SXSSFSheet)sheet).getWorkbook().getXSSFWorkbook().getSheet(sheet.getSheetName());
+		}
+		if(xssfSheet == null) {
+			for(CellRangeAddress region : regions) {
+				sheet.addMergedRegionUnsafe(region);
+			}
+			return;
+		}
+		CTWorksheet worksheet = xssfSheet.getCTWorksheet();
+		CTMergeCells ctMergeCells = worksheet.isSetMergeCells() ? worksheet.getMergeCells() : worksheet.addNewMergeCells();
+		int existing = ctMergeCells.sizeOfMergeCellArray();
+		CTMergeCell[] mergeCells = new CTMergeCell[existing + regions.size()];
+		for(int i = 0;i < existing;i++) {
+			mergeCells[i] = ctMergeCells.getMergeCellArray(i);
+		}
+		for(int i = 0;i < regions.size();i++) {
+			CTMergeCell mergeCell = CTMergeCell.Factory.newInstance();
+			mergeCell.setRef(regions.get(i).formatAsString());
+			mergeCells[existing + i] = mergeCell;
+		}
+		ctMergeCells.setMergeCellArray(mergeCells);
+		ctMergeCells.setCount(mergeCells.length);
+	}
+
+	void clear() {
+		regions.clear();
+	}
+
+	/**
+	 * 检查暂存的区域之间是否有重叠
+	 * @throws IllegalStateException 有区域重叠时抛出
+	 */
+	void validate() {
+		validate(Collections.<CellRangeAddress>emptyList());
+	}
+
+	/**
+	 * 检查暂存的区域之间、以及和sheet中已有的区域是否有重叠。按起始行扫描，正在覆盖当前行的区域按起始列保存在TreeMap中，
+	 * 这些区域两两不重叠，所以新区域只需要和起始列不大于它结束列的最后一个区域比较
+	 * @param existing sheet中已有的合并区域，如模板或之前添加的区域
+	 * @throws IllegalStateException 有区域重叠时抛出
+	 */
+	void validate(List<CellRangeAddress> existing) {
+		if(regions.size() + existing.size() < 2) {
+			return;
+		}
+		List<CellRangeAddress> sorted = new ArrayList<>(existing.size() + regions.size());
+		sorted.addAll(existing);
+		sorted.addAll(regions);
+		Collections.sort(sorted, FIRST_ROW_ORDER);
+		PriorityQueue<CellRangeAddress> activeByLastRow = new PriorityQueue<>(16, LAST_ROW_ORDER);
+		TreeMap<Integer, CellRangeAddress> activeByFirstColumn = new TreeMap<>();
+		for(CellRangeAddress region : sorted) {
+			while(!activeByLastRow.isEmpty() && activeByLastRow.peek().getLastRow() < region.getFirstRow()) {
+				activeByFirstColumn.remove(activeByLastRow.poll().getFirstColumn());
+			}
+			Map.Entry<Integer, CellRangeAddress> left = activeByFirstColumn.floorEntry(region.getLastColumn());
+			if(left != null && left.getValue().getLastColumn() >= region.getFirstColumn()) {
+				throw new IllegalStateException("The range " + region.formatAsString() + " intersects with another merged region "
+						+ left.getValue().formatAsString() + " in this sheet");
+			}
+			activeByFirstColumn.put(region.getFirstColumn(), region);
+			activeByLastRow.add(region);
+		}
+	}
+
+}
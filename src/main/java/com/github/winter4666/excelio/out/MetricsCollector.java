@@ -0,0 +1,62 @@
+package com.github.winter4666.excelio.out;
+
+/**
+ * 把导出事件计入{@link ExportMetrics}并转发给使用者设置的监听器，一次导出中的所有ExcelWriter和加载器共用
+ * @author wutian
+ */
+class MetricsCollector implements ExportListener {
+	
+	private final ExportListener listener;
+	
+	private final ExportMetrics metrics = new ExportMetrics();
+	
+	MetricsCollector(ExportListener listener) {
+		this.listener = listener;
+	}
+	
+	ExportMetrics getMetrics() {
+		return metrics;
+	}
+	
+	@Override
+	public void onPhase(Phase phase, long nanos) {
+		metrics.addPhase(phase, nanos);
+		listener.onPhase(phase, nanos);
+	}
+	
+	@Override
+	public void onGridWritten(int rows, long nanos) {
+		metrics.addGrid(rows, nanos);
+		listener.onGridWritten(rows, nanos);
+	}
+	
+	@Override
+	public void onPageLoaded(int rows, long nanos) {
+		metrics.addPage(nanos);
+		listener.onPageLoaded(rows, nanos);
+	}
+	
+	@Override
+	public void onPollBlocked(long nanos) {
+		metrics.addPollBlocked(nanos);
+		listener.onPollBlocked(nanos);
+	}
+	
+	@Override
+	public void onOfferBlocked(long nanos) {
+		metrics.addOfferBlocked(nanos);
+		listener.onOfferBlocked(nanos);
+	}
+	
+	@Override
+	public void onQueueDepth(int pages) {
+		metrics.addQueueDepth(pages);
+		listener.onQueueDepth(pages);
+	}
+	
+	@Override
+	public void onExportFinished(ExportMetrics metrics) {
+		listener.onExportFinished(metrics);
+	}
+
+}
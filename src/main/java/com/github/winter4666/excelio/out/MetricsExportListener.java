@@ -0,0 +1,102 @@
+package com.github.winter4666.excelio.out;
+
+/**
+ * 把导出事件记录到指标库的适配器。指标库通过{@link MetricsSink}接入，如Micrometer的Timer、Counter和DistributionSummary，
+ * 本项目不依赖任何指标库。指标名以prefix开头：
+ * <ul>
+ * <li>{prefix}.phase.{convert|merge|auto_size|serialize}：各阶段耗时</li>
+ * <li>{prefix}.grid：写表格的耗时，{prefix}.rows：写的行数</li>
+ * <li>{prefix}.datasource：数据源每一页的耗时，{prefix}.poll.blocked、{prefix}.offer.blocked：写表格和加载数据的线程等待的时间</li>
+ * <li>{prefix}.queue.depth：队列中等待写的页数</li>
+ * <li>{prefix}.bytes、{prefix}.cell.styles：导出的字节数和样式数</li>
+ * </ul>
+ * @author wutian
+ */
+public class MetricsExportListener implements ExportListener {
+	
+	private final MetricsSink sink;
+	
+	private final String prefix;
+	
+	private final String[] phaseNames;
+	
+	/**
+	 * @param sink 指标库
+	 * @param prefix 指标名前缀，如"excelio.export"
+	 */
+	public MetricsExportListener(MetricsSink sink, String prefix) {
+		this.sink = sink;
+		this.prefix = prefix;
+		phaseNames = new String[Phase.values().length];
+		for(Phase phase : Phase.values()) {
+			phaseNames[phase.ordinal()] = prefix + ".phase." + phase.name().toLowerCase();
+		}
+	}
+	
+	@Override
+	public void onPhase(Phase phase, long nanos) {
+		sink.recordNanos(phaseNames[phase.ordinal()], nanos);
+	}
+	
+	@Override
+	public void onGridWritten(int rows, long nanos) {
+		sink.recordNanos(prefix + ".grid", nanos);
+		sink.increment(prefix + ".rows", rows);
+	}
+	
+	@Override
+	public void onPageLoaded(int rows, long nanos) {
+		sink.recordNanos(prefix + ".datasource", nanos);
+	}
+	
+	@Override
+	public void onPollBlocked(long nanos) {
+		sink.recordNanos(prefix + ".poll.blocked", nanos);
+	}
+	
+	@Override
+	public void onOfferBlocked(long nanos) {
+		sink.recordNanos(prefix + ".offer.blocked", nanos);
+	}
+	
+	@Override
+	public void onQueueDepth(int pages) {
+		sink.recordValue(prefix + ".queue.depth", pages);
+	}
+	
+	@Override
+	public void onExportFinished(ExportMetrics metrics) {
+		sink.recordNanos(prefix + ".total", metrics.getTotalNanos());
+		sink.recordValue(prefix + ".bytes", metrics.getBytesWritten());
+		sink.recordValue(prefix + ".cell.styles", metrics.getCellStyleCount());
+	}
+	
+	/**
+	 * 指标库，需要是线程安全的
+	 * @author wutian
+	 */
+	public interface MetricsSink {
+		
+		/**
+		 * 记录一次耗时
+		 * @param name 指标名
+		 * @param nanos 纳秒
+		 */
+		void recordNanos(String name, long nanos);
+		
+		/**
+		 * 增加计数
+		 * @param name 指标名
+		 * @param amount 增加的数量
+		 */
+		void increment(String name, long amount);
+		
+		/**
+		 * 记录一次取值
+		 * @param name 指标名
+		 * @param value 值
+		 */
+		void recordValue(String name, long value);
+	}
+
+}
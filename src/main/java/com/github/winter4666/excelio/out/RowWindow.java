@@ -0,0 +1,147 @@
+package com.github.winter4666.excelio.out;
+
+import java.util.Arrays;
+
+/**
+ * 内存中还未写出的行，按行号从小到大保存在环形数组中，用于{@link StreamingXmlSheet}和{@link DelimitedTextWriter}。
+ * 行号不装箱，按行号顺序写行时放入、取出都不创建对象；最近访问的行单独记录，同一行的多个单元格不需要重复查找
+ * @author wutian
+ */
+class RowWindow<T> {
+
+	private int[] rownums = new int[16];
+
+	private Object[] rows = new Object[16];
+
+	/**
+	 * 第一行在数组中的位置
+	 */
+	private int head;
+
+	private int size;
+
+	private int lastRownum = -1;
+
+	private T lastRow;
+
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * 最小的行号，没有行时不能调用
+	 * @return
+	 */
+	int firstRownum() {
+		return rownums[head];
+	}
+
+	@SuppressWarnings("unchecked")
+	T get(int rownum) {
+		if(lastRow != null && lastRownum == rownum) {
+			return lastRow;
+		}
+		if(size == 0 || rownum < rownums[head] || rownum > rownums[index(size - 1)]) {
+			return null;
+		}
+		int position = binarySearch(rownum);
+		if(position < 0) {
+			return null;
+		}
+		lastRownum = rownum;
+		lastRow = (T)rows[index(position)];
+		return lastRow;
+	}
+
+	/**
+	 * 放入一个不存在的行
+	 * @param rownum
+	 * @param row
+	 */
+	void put(int rownum, T row) {
+		if(size == rownums.length) {
+			grow();
+		}
+		int position;
+		if(size == 0 || rownums[index(size - 1)] < rownum) {
+			position = size;
+		} else {
+			position = -binarySearch(rownum) - 1;
+			//后面的行后移一位
+			for(int i = size;i > position;i--) {
+				rownums[index(i)] = rownums[index(i - 1)];
+				rows[index(i)] = rows[index(i - 1)];
+			}
+		}
+		rownums[index(position)] = rownum;
+		rows[index(position)] = row;
+		size++;
+		lastRownum = rownum;
+		lastRow = row;
+	}
+
+	/**
+	 * 取出行号最小的行
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	T pollFirst() {
+		T row = (T)rows[head];
+		rows[head] = null;
+		if(lastRow == row) {
+			lastRow = null;
+		}
+		head = (head + 1) % rows.length;
+		size--;
+		return row;
+	}
+
+	void clear() {
+		Arrays.fill(rows, null);
+		head = 0;
+		size = 0;
+		lastRow = null;
+	}
+
+	private int index(int position) {
+		return (head + position) % rows.length;
+	}
+
+	/**
+	 * 按位置（相对于head）二分查找
+	 * @return 找到时返回位置，否则返回-(插入位置) - 1
+	 */
+	private int binarySearch(int rownum) {
+		int low = 0;
+		int high = size - 1;
+		while(low <= high) {
+			int mid = (low + high) >>> 1;
+			int midRownum = rownums[index(mid)];
+			if(midRownum < rownum) {
+				low = mid + 1;
+			} else if(midRownum > rownum) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -(low + 1);
+	}
+
+	private void grow() {
+		int[] newRownums = new int[rownums.length * 2];
+		Object[] newRows = new Object[rows.length * 2];
+		for(int i = 0;i < size;i++) {
+			newRownums[i] = rownums[index(i)];
+			newRows[i] = rows[index(i)];
+		}
+		rownums = newRownums;
+		rows = newRows;
+		head = 0;
+	}
+
+}
@@ -0,0 +1,135 @@
+package com.github.winter4666.excelio.out;
+
+import java.util.List;
+
+import com.github.winter4666.excelio.common.GridColumn;
+import com.github.winter4666.excelio.out.ExcelWriter.GridCellStyle;
+import com.github.winter4666.excelio.out.ExcelWriter.GridStyleDescriptor;
+import com.github.winter4666.excelio.out.grid.GridDataLoader;
+import com.github.winter4666.excelio.out.grid.ListLoader;
+
+/**
+ * 一个sheet的写表格任务，用于{@link ExcelWriter#writeSheets(List)}并行写多个sheet
+ * @author wutian
+ */
+public class SheetJob {
+
+	private String sheetName;
+
+	private List<GridColumn> gridColumns;
+
+	private GridDataLoader gridDataLoader;
+
+	private GridCellStyle gridCellStyle;
+
+	private GridStyleDescriptor gridStyleDescriptor;
+
+	private GridPlan gridPlan;
+
+	private SheetJob() {
+
+	}
+
+	/**
+	 * @param sheetName sheet名称，为null时使用默认名称
+	 * @param gridColumns 表格列信息
+	 * @param gridDataLoader 数据加载器
+	 * @return
+	 */
+	public static SheetJob newInstance(String sheetName, List<GridColumn> gridColumns, GridDataLoader gridDataLoader) {
+		SheetJob sheetJob = new SheetJob();
+		sheetJob.sheetName = sheetName;
+		sheetJob.gridColumns = gridColumns;
+		sheetJob.gridDataLoader = gridDataLoader;
+		return sheetJob;
+	}
+
+	/**
+	 * @param sheetName sheet名称，为null时使用默认名称
+	 * @param gridColumns 表格列信息
+	 * @param data 数据
+	 * @return
+	 */
+	public static SheetJob newInstance(String sheetName, List<GridColumn> gridColumns, List<?> data) {
+		return newInstance(sheetName, gridColumns, new ListLoader(data));
+	}
+
+	/**
+	 * 按预先编译的表格方案写表格，样式由方案给出
+	 * @param sheetName sheet名称，为null时使用默认名称
+	 * @param gridPlan 表格方案
+	 * @param gridDataLoader 数据加载器
+	 * @return
+	 */
+	public static SheetJob newInstance(String sheetName, GridPlan gridPlan, GridDataLoader gridDataLoader) {
+		SheetJob sheetJob = newInstance(sheetName, gridPlan.columns(), gridDataLoader);
+		sheetJob.gridPlan = gridPlan;
+		return sheetJob;
+	}
+
+	/**
+	 * 按预先编译的表格方案写表格，样式由方案给出
+	 * @param sheetName sheet名称，为null时使用默认名称
+	 * @param gridPlan 表格方案
+	 * @param data 数据
+	 * @return
+	 */
+	public static SheetJob newInstance(String sheetName, GridPlan gridPlan, List<?> data) {
+		return newInstance(sheetName, gridPlan, new ListLoader(data));
+	}
+
+	/**
+	 * 表格样式，并行写时不同线程会同时调用，创建样式时建议使用{@link ExcelWriter#getCellStyle(CellStyleDescriptor)}
+	 * @param gridCellStyle
+	 * @return
+	 */
+	public SheetJob gridCellStyle(GridCellStyle gridCellStyle) {
+		this.gridCellStyle = gridCellStyle;
+		this.gridStyleDescriptor = null;
+		return this;
+	}
+
+	/**
+	 * 表格样式描述
+	 * @param gridStyleDescriptor
+	 * @return
+	 */
+	public SheetJob gridStyleDescriptor(GridStyleDescriptor gridStyleDescriptor) {
+		this.gridStyleDescriptor = gridStyleDescriptor;
+		this.gridCellStyle = null;
+		return this;
+	}
+
+	public String getSheetName() {
+		return sheetName;
+	}
+
+	public List<GridColumn> getGridColumns() {
+		return gridPlan != null ? gridPlan.getGridColumns() : gridColumns;
+	}
+
+	public GridPlan getGridPlan() {
+		return gridPlan;
+	}
+
+	public GridDataLoader getGridDataLoader() {
+		return gridDataLoader;
+	}
+
+	/**
+	 * 用excelWriter在当前sheet中写表格
+	 * @param excelWriter
+	 */
+	void writeTo(ExcelWriter excelWriter) {
+		if(gridPlan != null) {
+			excelWriter.writeGrid(gridPlan, gridDataLoader);
+		} else if(gridCellStyle != null) {
+			excelWriter.writeGrid(gridColumns, gridDataLoader, gridCellStyle);
+		} else if(gridStyleDescriptor != null) {
+			excelWriter.writeGrid(gridColumns, gridDataLoader, gridStyleDescriptor);
+		} else {
+			excelWriter.writeGrid(gridColumns, gridDataLoader);
+		}
+	}
+
+}
@@ -0,0 +1,59 @@
+package com.github.winter4666.excelio.out;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.poi.xssf.streaming.SheetDataWriter;
+
+import com.github.winter4666.excelio.out.SpillStorage.SpillBuffer;
+
+/**
+ * 把sheet数据写到{@link SpillBuffer}的SheetDataWriter。
+ * poi在父类的构造方法中就会调用{@link #createTempFile()}和{@link #createWriter(File)}，此时子类的字段还没有赋值，
+ * 所以通过ThreadLocal把缓冲传给构造过程，需要使用{@link #newInstance(SpillBuffer)}创建。
+ * @author wutian
+ */
+class SpillSheetDataWriter extends SheetDataWriter {
+
+	private static final ThreadLocal<SpillBuffer> constructingBuffer = new ThreadLocal<>();
+
+	/**
+	 * 在父类构造方法中赋值，不能有初始值
+	 */
+	private SpillBuffer spillBuffer;
+
+	private SpillSheetDataWriter() throws IOException {
+		super();
+	}
+
+	static SpillSheetDataWriter newInstance(SpillBuffer spillBuffer) throws IOException {
+		constructingBuffer.set(spillBuffer);
+		try {
+			return new SpillSheetDataWriter();
+		} finally {
+			constructingBuffer.remove();
+		}
+	}
+
+	@Override
+	public File createTempFile() throws IOException {
+		spillBuffer = constructingBuffer.get();
+		return spillBuffer.getFile();
+	}
+
+	@Override
+	public Writer createWriter(File fd) throws IOException {
+		return new BufferedWriter(new OutputStreamWriter(spillBuffer.openOutputStream(), StandardCharsets.UTF_8), 64 * 1024);
+	}
+
+	@Override
+	public InputStream getWorksheetXMLInputStream() throws IOException {
+		return spillBuffer.openInputStream();
+	}
+
+}
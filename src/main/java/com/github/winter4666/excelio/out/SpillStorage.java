@@ -0,0 +1,605 @@
+package com.github.winter4666.excelio.out;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.poi.util.TempFile;
+
+/**
+ * SXSSF格式下，超出rowAccessWindowSize写出的行（sheet的xml）的保存方式，通过{@link ExcelWriterBuilder#setSpillStorage(SpillStorage)}设置。
+ * 可以选择普通临时文件、gzip压缩的临时文件、有上限的堆外内存或内存映射文件，并统计写入和占用的字节数，
+ * 用于按部署环境在磁盘IO和内存之间取舍。统计的是该对象创建以来所有导出的数据，建议每次导出使用新的对象。
+ * 工作簿释放时立即释放堆外内存、解除内存映射，当前JDK不允许时留给GC回收。
+ * @author wutian
+ */
+public class SpillStorage {
+
+	/**
+	 * 堆外内存每次分配的大小
+	 */
+	private static final int MEMORY_CHUNK_SIZE = 256 * 1024;
+
+	/**
+	 * 内存映射文件每次映射的大小
+	 */
+	private static final int MAPPED_REGION_SIZE = 64 * 1024 * 1024;
+
+	private static final String FILE_PREFIX = "poi-sxssf-sheet";
+
+	private enum Type {
+		TEMP_FILE, GZIP_TEMP_FILE, OFF_HEAP, MEMORY_MAPPED
+	}
+
+	private final Type type;
+
+	/**
+	 * 文件保存的目录，为null时使用poi的临时目录
+	 */
+	private final File directory;
+
+	/**
+	 * 堆外内存上限
+	 */
+	private final long maxMemoryBytes;
+
+	private final AtomicLong writtenBytes = new AtomicLong();
+
+	private final AtomicLong storedBytes = new AtomicLong();
+
+	private final AtomicLong peakStoredBytes = new AtomicLong();
+
+	private final AtomicLong memoryBytes = new AtomicLong();
+
+	private SpillStorage(Type type, File directory, long maxMemoryBytes) {
+		this.type = type;
+		this.directory = directory;
+		this.maxMemoryBytes = maxMemoryBytes;
+	}
+
+	/**
+	 * 不压缩的临时文件，和poi默认的方式相同
+	 * @param directory 临时文件目录，为null时使用poi的临时目录
+	 * @return
+	 */
+	public static SpillStorage tempFile(File directory) {
+		return new SpillStorage(Type.TEMP_FILE, directory, 0);
+	}
+
+	/**
+	 * gzip压缩的临时文件，磁盘占用一般只有不压缩时的十分之一左右，但需要额外的CPU
+	 * @param directory 临时文件目录，为null时使用poi的临时目录
+	 * @return
+	 */
+	public static SpillStorage gzipTempFile(File directory) {
+		return new SpillStorage(Type.GZIP_TEMP_FILE, directory, 0);
+	}
+
+	/**
+	 * 堆外内存，所有sheet占用的内存超过上限后，超出的部分写到临时文件中
+	 * @param maxMemoryBytes 堆外内存上限（字节）
+	 * @param overflowDirectory 超出上限后临时文件的目录，为null时使用poi的临时目录
+	 * @return
+	 */
+	public static SpillStorage offHeap(long maxMemoryBytes, File overflowDirectory) {
+		return new SpillStorage(Type.OFF_HEAP, overflowDirectory, maxMemoryBytes);
+	}
+
+	/**
+	 * 内存映射文件，写入时不经过write系统调用，由操作系统决定何时写到磁盘
+	 * @param directory 文件目录，为null时使用poi的临时目录
+	 * @return
+	 */
+	public static SpillStorage memoryMapped(File directory) {
+		return new SpillStorage(Type.MEMORY_MAPPED, directory, 0);
+	}
+
+	/**
+	 * 写入的sheet xml的字节数（未压缩）
+	 * @return
+	 */
+	public long getWrittenBytes() {
+		return writtenBytes.get();
+	}
+
+	/**
+	 * 当前保存的字节数（压缩后），释放后减少
+	 * @return
+	 */
+	public long getStoredBytes() {
+		return storedBytes.get();
+	}
+
+	/**
+	 * 保存的字节数的峰值
+	 * @return
+	 */
+	public long getPeakStoredBytes() {
+		return peakStoredBytes.get();
+	}
+
+	/**
+	 * 当前占用的堆外内存字节数
+	 * @return
+	 */
+	public long getMemoryBytes() {
+		return memoryBytes.get();
+	}
+
+	/**
+	 * 为一个sheet创建保存数据的缓冲
+	 * @return
+	 * @throws IOException
+	 */
+	SpillBuffer createBuffer() throws IOException {
+		switch (type) {
+		case GZIP_TEMP_FILE:
+			return new FileSpillBuffer(true);
+		case OFF_HEAP:
+			return new OffHeapSpillBuffer();
+		case MEMORY_MAPPED:
+			return new MappedSpillBuffer();
+		default:
+			return new FileSpillBuffer(false);
+		}
+	}
+
+	/**
+	 * 返回给poi的不存在的文件，数据不保存在该文件中
+	 */
+	private File createPlaceholderFile(String kind) {
+		return new File(directory == null ? new File(System.getProperty("java.io.tmpdir")) : directory,
+				FILE_PREFIX + "-" + kind + "-" + System.identityHashCode(this) + "-" + System.nanoTime() + ".none");
+	}
+
+	private File createFile(String suffix) throws IOException {
+		if(directory == null) {
+			return TempFile.createTempFile(FILE_PREFIX, suffix);
+		}
+		return File.createTempFile(FILE_PREFIX, suffix, directory);
+	}
+
+	private void addStoredBytes(long bytes) {
+		long stored = storedBytes.addAndGet(bytes);
+		long peak;
+		while(stored > (peak = peakStoredBytes.get())) {
+			if(peakStoredBytes.compareAndSet(peak, stored)) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * 包装输出流，统计写入的字节数
+	 * @param outputStream
+	 * @param counter 写入字节数的计数器
+	 * @param stored 是否计入保存的字节数
+	 * @return
+	 */
+	private OutputStream counting(final OutputStream outputStream, final AtomicLong counter, final boolean stored) {
+		return new OutputStream() {
+
+			@Override
+			public void write(int b) throws IOException {
+				outputStream.write(b);
+				count(1);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				outputStream.write(b, off, len);
+				count(len);
+			}
+
+			private void count(long bytes) {
+				if(counter != null) {
+					counter.addAndGet(bytes);
+				}
+				if(stored) {
+					addStoredBytes(bytes);
+				}
+			}
+
+			@Override
+			public void flush() throws IOException {
+				outputStream.flush();
+			}
+
+			@Override
+			public void close() throws IOException {
+				outputStream.close();
+			}
+
+		};
+	}
+
+	/**
+	 * 一个sheet的数据缓冲，先写入，关闭输出流后再读出
+	 */
+	abstract class SpillBuffer {
+
+		/**
+		 * 返回给poi的文件，poi释放sheet时会删除该文件，数据不直接保存在文件中的缓冲返回一个不存在的文件
+		 * @return
+		 */
+		abstract File getFile();
+
+		/**
+		 * 写入未压缩的sheet xml
+		 * @return
+		 * @throws IOException
+		 */
+		final OutputStream openOutputStream() throws IOException {
+			return counting(doOpenOutputStream(), writtenBytes, false);
+		}
+
+		abstract OutputStream doOpenOutputStream() throws IOException;
+
+		abstract InputStream openInputStream() throws IOException;
+
+		/**
+		 * 释放占用的内存和文件，释放后不能再读
+		 * @return 文件都已删除时返回true
+		 */
+		abstract boolean release();
+
+	}
+
+	private class FileSpillBuffer extends SpillBuffer {
+
+		private final boolean gzip;
+
+		private final File file;
+
+		private final AtomicLong fileBytes = new AtomicLong();
+
+		private FileSpillBuffer(boolean gzip) throws IOException {
+			this.gzip = gzip;
+			this.file = createFile(gzip ? ".xml.gz" : ".xml");
+		}
+
+		@Override
+		File getFile() {
+			return file;
+		}
+
+		@Override
+		OutputStream doOpenOutputStream() throws IOException {
+			OutputStream outputStream = counting(new FileOutputStream(file), fileBytes, true);
+			return gzip ? new GZIPOutputStream(outputStream, 64 * 1024) : outputStream;
+		}
+
+		@Override
+		InputStream openInputStream() throws IOException {
+			InputStream inputStream = new FileInputStream(file);
+			return gzip ? new GZIPInputStream(inputStream, 64 * 1024) : inputStream;
+		}
+
+		@Override
+		boolean release() {
+			//poi释放sheet时可能已经删除了文件
+			file.delete();
+			storedBytes.addAndGet(-fileBytes.getAndSet(0));
+			return !file.exists();
+		}
+
+	}
+
+	private class OffHeapSpillBuffer extends SpillBuffer {
+
+		private final List<ByteBuffer> chunks = new ArrayList<>();
+
+		/**
+		 * 超过内存上限后写入的文件
+		 */
+		private File overflowFile;
+
+		private OutputStream overflowOutputStream;
+
+		private final AtomicLong overflowBytes = new AtomicLong();
+
+		private final File file;
+
+		private OffHeapSpillBuffer() {
+			file = createPlaceholderFile("offheap");
+		}
+
+		@Override
+		File getFile() {
+			return file;
+		}
+
+		@Override
+		OutputStream doOpenOutputStream() throws IOException {
+			return new OutputStream() {
+
+				@Override
+				public void write(int b) throws IOException {
+					write(new byte[] {(byte)b}, 0, 1);
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					while(len > 0) {
+						if(overflowOutputStream != null) {
+							overflowOutputStream.write(b, off, len);
+							return;
+						}
+						ByteBuffer chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+						if(chunk == null || !chunk.hasRemaining()) {
+							chunk = allocateChunk();
+							if(chunk == null) {
+								overflowFile = createFile(".xml");
+								overflowOutputStream = counting(new FileOutputStream(overflowFile), overflowBytes, true);
+								continue;
+							}
+							chunks.add(chunk);
+						}
+						int n = Math.min(len, chunk.remaining());
+						chunk.put(b, off, n);
+						off += n;
+						len -= n;
+					}
+				}
+
+				@Override
+				public void close() throws IOException {
+					if(overflowOutputStream != null) {
+						overflowOutputStream.close();
+					}
+				}
+
+			};
+		}
+
+		private ByteBuffer allocateChunk() {
+			long memory;
+			do {
+				memory = memoryBytes.get();
+				if(memory + MEMORY_CHUNK_SIZE > maxMemoryBytes) {
+					return null;
+				}
+			} while(!memoryBytes.compareAndSet(memory, memory + MEMORY_CHUNK_SIZE));
+			addStoredBytes(MEMORY_CHUNK_SIZE);
+			return ByteBuffer.allocateDirect(MEMORY_CHUNK_SIZE);
+		}
+
+		@Override
+		InputStream openInputStream() throws IOException {
+			List<ByteBuffer> buffers = new ArrayList<>();
+			for(ByteBuffer chunk : chunks) {
+				ByteBuffer buffer = chunk.duplicate();
+				buffer.flip();
+				buffers.add(buffer);
+			}
+			InputStream inputStream = new ByteBuffersInputStream(buffers);
+			if(overflowFile != null) {
+				inputStream = new SequenceInputStream(inputStream, new FileInputStream(overflowFile));
+			}
+			return inputStream;
+		}
+
+		@Override
+		boolean release() {
+			long memory = (long)chunks.size() * MEMORY_CHUNK_SIZE;
+			for(ByteBuffer chunk : chunks) {
+				BufferCleaner.clean(chunk);
+			}
+			chunks.clear();
+			memoryBytes.addAndGet(-memory);
+			storedBytes.addAndGet(-memory);
+			boolean success = true;
+			if(overflowFile != null) {
+				success = overflowFile.delete();
+				storedBytes.addAndGet(-overflowBytes.getAndSet(0));
+				overflowFile = null;
+			}
+			return success;
+		}
+
+	}
+
+	private class MappedSpillBuffer extends SpillBuffer {
+
+		/**
+		 * 映射的文件，不交给poi删除，解除映射后再删除
+		 */
+		private final File file;
+
+		private final File placeholderFile;
+
+		private final RandomAccessFile randomAccessFile;
+
+		private final List<MappedByteBuffer> regions = new ArrayList<>();
+
+		private long size;
+
+		private MappedSpillBuffer() throws IOException {
+			file = createFile(".xml");
+			placeholderFile = createPlaceholderFile("mapped");
+			randomAccessFile = new RandomAccessFile(file, "rw");
+		}
+
+		@Override
+		File getFile() {
+			return placeholderFile;
+		}
+
+		@Override
+		OutputStream doOpenOutputStream() throws IOException {
+			return new OutputStream() {
+
+				@Override
+				public void write(int b) throws IOException {
+					write(new byte[] {(byte)b}, 0, 1);
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					while(len > 0) {
+						MappedByteBuffer region = regions.isEmpty() ? null : regions.get(regions.size() - 1);
+						if(region == null || !region.hasRemaining()) {
+							region = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE,
+									(long)regions.size() * MAPPED_REGION_SIZE, MAPPED_REGION_SIZE);
+							regions.add(region);
+						}
+						int n = Math.min(len, region.remaining());
+						region.put(b, off, n);
+						off += n;
+						len -= n;
+						size += n;
+						addStoredBytes(n);
+					}
+				}
+
+			};
+		}
+
+		@Override
+		InputStream openInputStream() throws IOException {
+			List<ByteBuffer> buffers = new ArrayList<>();
+			for(MappedByteBuffer region : regions) {
+				ByteBuffer buffer = region.duplicate();
+				buffer.flip();
+				buffers.add(buffer);
+			}
+			return new ByteBuffersInputStream(buffers);
+		}
+
+		@Override
+		boolean release() {
+			//先解除映射再删除文件，有的系统不能删除仍在映射中的文件
+			for(MappedByteBuffer region : regions) {
+				BufferCleaner.clean(region);
+			}
+			regions.clear();
+			try {
+				randomAccessFile.close();
+			} catch (IOException e) {
+				//ignore
+			}
+			storedBytes.addAndGet(-size);
+			size = 0;
+			return file.delete() || !file.exists();
+		}
+
+	}
+
+	/**
+	 * 立即释放直接缓冲的内存或解除内存映射。JDK 9及以上通过sun.misc.Unsafe.invokeCleaner，
+	 * JDK 8通过DirectBuffer.cleaner().clean()，都不可用时什么都不做，留给GC回收
+	 */
+	private static class BufferCleaner {
+
+		private static final Object UNSAFE;
+
+		private static final Method INVOKE_CLEANER;
+
+		private static final Method CLEANER;
+
+		private static final Method CLEAN;
+
+		static {
+			Object unsafe = null;
+			Method invokeCleaner = null;
+			Method cleaner = null;
+			Method clean = null;
+			try {
+				Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+				invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+				Field field = unsafeClass.getDeclaredField("theUnsafe");
+				field.setAccessible(true);
+				unsafe = field.get(null);
+			} catch (Exception e) {
+				invokeCleaner = null;
+				try {
+					cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+					clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+				} catch (Exception e1) {
+					cleaner = null;
+					clean = null;
+				}
+			}
+			UNSAFE = unsafe;
+			INVOKE_CLEANER = invokeCleaner;
+			CLEANER = cleaner;
+			CLEAN = clean;
+		}
+
+		/**
+		 * @param buffer 通过allocateDirect或map得到的缓冲，不能是duplicate或slice
+		 */
+		static void clean(ByteBuffer buffer) {
+			if(!buffer.isDirect()) {
+				return;
+			}
+			try {
+				if(INVOKE_CLEANER != null) {
+					INVOKE_CLEANER.invoke(UNSAFE, buffer);
+				} else if(CLEANER != null) {
+					Object cleaner = CLEANER.invoke(buffer);
+					if(cleaner != null) {
+						CLEAN.invoke(cleaner);
+					}
+				}
+			} catch (Exception e) {
+				//留给GC回收
+			}
+		}
+
+	}
+
+	/**
+	 * 依次读出多个ByteBuffer中的数据
+	 */
+	private static class ByteBuffersInputStream extends InputStream {
+
+		private final List<ByteBuffer> buffers;
+
+		private int index;
+
+		private ByteBuffersInputStream(List<ByteBuffer> buffers) {
+			this.buffers = buffers;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if(len == 0) {
+				return 0;
+			}
+			while(index < buffers.size()) {
+				ByteBuffer buffer = buffers.get(index);
+				if(buffer.hasRemaining()) {
+					int n = Math.min(len, buffer.remaining());
+					buffer.get(b, off, n);
+					return n;
+				}
+				index++;
+			}
+			return -1;
+		}
+
+	}
+
+}
@@ -0,0 +1,53 @@
+package com.github.winter4666.excelio.out;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.streaming.SheetDataWriter;
+
+import com.github.winter4666.excelio.out.SpillStorage.SpillBuffer;
+
+/**
+ * 使用{@link SpillStorage}保存超出行窗口的数据的SXSSFWorkbook，释放时同时释放各个sheet的缓冲
+ * @author wutian
+ */
+class SpillingSXSSFWorkbook extends SXSSFWorkbook {
+
+	private final SpillStorage spillStorage;
+
+	private final List<SpillBuffer> spillBuffers = new ArrayList<>();
+
+	SpillingSXSSFWorkbook(int rowAccessWindowSize, SpillStorage spillStorage) {
+		super(rowAccessWindowSize);
+		this.spillStorage = spillStorage;
+	}
+
+	@Override
+	protected SheetDataWriter createSheetDataWriter() throws IOException {
+		SpillBuffer spillBuffer = spillStorage.createBuffer();
+		synchronized (spillBuffers) {
+			spillBuffers.add(spillBuffer);
+		}
+		return SpillSheetDataWriter.newInstance(spillBuffer);
+	}
+
+	/**
+	 * poi删除的是{@link SpillBuffer#getFile()}返回的文件，堆外内存和内存映射的缓冲返回的是不存在的文件，
+	 * 所以不使用poi的返回值，以各个缓冲的释放结果为准
+	 */
+	@Override
+	public boolean dispose() {
+		super.dispose();
+		boolean success = true;
+		synchronized (spillBuffers) {
+			for(SpillBuffer spillBuffer : spillBuffers) {
+				success = spillBuffer.release() && success;
+			}
+			spillBuffers.clear();
+		}
+		return success;
+	}
+
+}
@@ -0,0 +1,164 @@
+package com.github.winter4666.excelio.out;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.RichTextString;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+/**
+ * 把XSSF工作簿转换为SXSSF工作簿，已经写的行移到SXSSF的sheet中，超出行窗口的部分写到临时文件。
+ * 样式、列宽、合并单元格等sheet上的其余内容留在原来的工作簿中，作为SXSSF导出时的模板
+ * @author wutian
+ */
+class StreamingUpgrade {
+
+	private StreamingUpgrade() {
+
+	}
+
+	/**
+	 * @param workbook 转换后不能再直接使用
+	 * @param rowAccessWindowSize SXSSF工作簿的行窗口
+	 * @param trackAutoSizing 是否为{@link SXSSFSheet#autoSizeColumn(int)}跟踪所有列
+	 * @return
+	 */
+	static SXSSFWorkbook upgrade(XSSFWorkbook workbook,int rowAccessWindowSize,boolean trackAutoSizing) {
+		//SXSSF不允许在模板sheet已有的行之前写行，先取出所有的行
+		List<List<MovedRow>> sheetRows = new ArrayList<>();
+		for(int i = 0;i < workbook.getNumberOfSheets();i++) {
+			sheetRows.add(removeRows(workbook.getSheetAt(i)));
+		}
+		SXSSFWorkbook streamingWorkbook = new SXSSFWorkbook(workbook, rowAccessWindowSize);
+		for(int i = 0;i < streamingWorkbook.getNumberOfSheets();i++) {
+			SXSSFSheet sheet = streamingWorkbook.getSheetAt(i);
+			if(trackAutoSizing) {
+				sheet.trackAllColumnsForAutoSizing();
+			}
+			for(MovedRow movedRow : sheetRows.get(i)) {
+				movedRow.writeTo(sheet);
+			}
+		}
+		return streamingWorkbook;
+	}
+
+	/**
+	 * 按行号从小到大取出并删除所有的行，每次删除第一行不需要移动后面的行
+	 */
+	private static List<MovedRow> removeRows(XSSFSheet sheet) {
+		List<MovedRow> movedRows = new ArrayList<>(sheet.getPhysicalNumberOfRows());
+		while(sheet.getPhysicalNumberOfRows() > 0) {
+			XSSFRow row = sheet.getRow(sheet.getFirstRowNum());
+			movedRows.add(new MovedRow(row));
+			sheet.removeRow(row);
+		}
+		return movedRows;
+	}
+
+	/**
+	 * 从工作簿中删除前的行，只保留导出需要的值、样式和行高
+	 */
+	private static class MovedRow {
+
+		private final int rownum;
+
+		/**
+		 * 没有设置行高时为-1
+		 */
+		private final short height;
+
+		private final boolean zeroHeight;
+
+		private final CellStyle rowStyle;
+
+		private final int[] columns;
+
+		private final CellType[] cellTypes;
+
+		private final Object[] values;
+
+		private final CellStyle[] cellStyles;
+
+		MovedRow(XSSFRow row) {
+			rownum = row.getRowNum();
+			height = row.getCTRow().isSetHt() ? row.getHeight() : -1;
+			zeroHeight = row.getZeroHeight();
+			rowStyle = row.isFormatted() ? row.getRowStyle() : null;
+			int cellCount = row.getPhysicalNumberOfCells();
+			columns = new int[cellCount];
+			cellTypes = new CellType[cellCount];
+			values = new Object[cellCount];
+			cellStyles = new CellStyle[cellCount];
+			int i = 0;
+			for(Cell cell : row) {
+				columns[i] = cell.getColumnIndex();
+				cellTypes[i] = cell.getCellType();
+				cellStyles[i] = cell.getCellStyle();
+				switch (cellTypes[i]) {
+				case STRING:
+					values[i] = cell.getRichStringCellValue();
+					break;
+				case NUMERIC:
+					values[i] = cell.getNumericCellValue();
+					break;
+				case BOOLEAN:
+					values[i] = cell.getBooleanCellValue();
+					break;
+				case FORMULA:
+					values[i] = cell.getCellFormula();
+					break;
+				case ERROR:
+					values[i] = cell.getErrorCellValue();
+					break;
+				default:
+					break;
+				}
+				i++;
+			}
+		}
+
+		void writeTo(SXSSFSheet sheet) {
+			Row row = sheet.createRow(rownum);
+			if(height != -1) {
+				row.setHeight(height);
+			}
+			row.setZeroHeight(zeroHeight);
+			if(rowStyle != null) {
+				row.setRowStyle(rowStyle);
+			}
+			for(int i = 0;i < columns.length;i++) {
+				Cell cell = row.createCell(columns[i]);
+				switch (cellTypes[i]) {
+				case STRING:
+					cell.setCellValue((RichTextString)values[i]);
+					break;
+				case NUMERIC:
+					cell.setCellValue((Double)values[i]);
+					break;
+				case BOOLEAN:
+					cell.setCellValue((Boolean)values[i]);
+					break;
+				case FORMULA:
+					cell.setCellFormula((String)values[i]);
+					break;
+				case ERROR:
+					cell.setCellErrorValue((Byte)values[i]);
+					break;
+				default:
+					break;
+				}
+				cell.setCellStyle(cellStyles[i]);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,540 @@
+package com.github.winter4666.excelio.out;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.CellReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link ExcelWriter.ExcelFormat#STREAMING_XML}格式下的sheet，直接生成sheet的xml并压缩到自己的{@link DeflatedPart}中，
+ * 导出时由{@link StreamingXmlWorkbook}原样写入zip。不同的sheet可以在不同线程中写。
+ * 工作簿直接写到输出流时，压缩数据在写出行的同时直接写到输出流中。
+ * 内存中最多保留rowAccessWindowSize行，超出的行按行号从小到大写出，已写出的行不能再修改。
+ * 行中的单元格保存在可复用的数组中，写单元格时不创建Row、Cell对象。
+ * 列宽写在sheetData之前，所以只在第一次写出行之前设置的列宽有效。
+ * @author wutian
+ */
+class StreamingXmlSheet {
+
+	private final static Logger logger = LoggerFactory.getLogger(StreamingXmlSheet.class);
+
+	private static final byte CELL_TYPE_BLANK = 0;
+
+	private static final byte CELL_TYPE_STRING = 1;
+
+	private static final byte CELL_TYPE_NUMBER = 2;
+
+	private static final byte CELL_TYPE_BOOLEAN = 3;
+
+	private static final int MAX_COLUMN_COUNT = 16384;
+
+	/**
+	 * 列名缓存，如A、B、AA
+	 */
+	private static final String[] columnNames = new String[MAX_COLUMN_COUNT];
+
+	private final StreamingXmlWorkbook workbook;
+
+	private String sheetName;
+
+	private final int rowAccessWindowSize;
+
+	/**
+	 * 内存中还未写出的行
+	 */
+	private final RowWindow<BufferedRow> rows = new RowWindow<>();
+
+	/**
+	 * 已写出的行，可以重复使用
+	 */
+	private final ArrayDeque<BufferedRow> rowPool = new ArrayDeque<>();
+
+	private final TreeMap<Integer, Integer> columnWidths = new TreeMap<>();
+
+	private final MergedRegions mergedRegions = new MergedRegions();
+
+	/**
+	 * 已写出的最大行号
+	 */
+	private int lastFlushedRownum = -1;
+
+	/**
+	 * 开始写sheetData之后不为null
+	 */
+	private Writer out;
+
+	private DeflatedPart part;
+
+	private boolean closed;
+	
+	/**
+	 * 不为null时，开始写出行时使用估算的列宽度
+	 */
+	private ColumnWidthEstimator columnWidthEstimator;
+
+	private final char[] numberBuffer = new char[20];
+
+	StreamingXmlSheet(StreamingXmlWorkbook workbook, String sheetName, int rowAccessWindowSize) {
+		this.workbook = workbook;
+		this.sheetName = sheetName;
+		this.rowAccessWindowSize = rowAccessWindowSize;
+	}
+
+	String getSheetName() {
+		return sheetName;
+	}
+
+	/**
+	 * sheet名称写在workbook.xml中，导出之前都可以修改
+	 * @param sheetName 已经校验过的sheet名称
+	 */
+	void setSheetName(String sheetName) {
+		this.sheetName = sheetName;
+	}
+
+	/**
+	 * 是否已经开始写出sheet的xml
+	 * @return
+	 */
+	boolean isStarted() {
+		return part != null;
+	}
+
+	/**
+	 * 压缩好的sheet xml，sheet结束之后才完整
+	 * @return
+	 */
+	DeflatedPart getPart() {
+		return part;
+	}
+
+	/**
+	 * 是否还没有写过任何内容
+	 * @return
+	 */
+	boolean isEmpty() {
+		return part == null && rows.isEmpty() && mergedRegions.isEmpty();
+	}
+
+	boolean isClosed() {
+		return closed;
+	}
+
+	void setColumnWidthEstimator(ColumnWidthEstimator columnWidthEstimator) {
+		this.columnWidthEstimator = columnWidthEstimator;
+	}
+
+	/**
+	 * 设置列宽度（以1/256字符为单位），开始写出行之后设置的列宽会被忽略
+	 * @param column
+	 * @param width
+	 */
+	void setColumnWidth(int column, int width) {
+		if(part != null) {
+			if(!columnWidths.containsKey(column) || columnWidths.get(column) != width) {
+				logger.warn("column width of column " + column + " is ignored because rows of sheet " + sheetName + " have been flushed");
+			}
+			return;
+		}
+		columnWidths.put(column, width);
+	}
+
+	/**
+	 * 得到已设置的列宽度，没有设置过返回-1
+	 * @param column
+	 * @return
+	 */
+	int getColumnWidth(int column) {
+		Integer width = columnWidths.get(column);
+		return width == null ? -1 : width;
+	}
+
+	void setRowHeight(int rownum, float height) {
+		getRow(rownum).height = height;
+	}
+
+	void addMergedRegion(CellRangeAddress region) {
+		mergedRegions.add(region);
+	}
+
+	/**
+	 * 写一个单元格，数据类型的处理与{@link ExcelWriter#write(Object, int, int, CellStyle)}一致
+	 * @param rownum
+	 * @param column
+	 * @param data
+	 * @param cellStyle
+	 */
+	void writeCell(int rownum, int column, Object data, CellStyle cellStyle) {
+		int style = styleIndex(cellStyle);
+		if(data == null) {
+			getRow(rownum).setCell(column, CELL_TYPE_BLANK, 0, null, style);
+		} else if(data instanceof String) {
+			getRow(rownum).setCell(column, CELL_TYPE_STRING, 0, (String)data, style);
+		} else if(data instanceof Number) {
+			getRow(rownum).setCell(column, CELL_TYPE_NUMBER, ((Number)data).doubleValue(), null, style);
+		} else if(data instanceof Date) {
+			getRow(rownum).setCell(column, CELL_TYPE_NUMBER, DateUtil.getExcelDate((Date)data), null, style);
+		} else if(data instanceof Boolean) {
+			getRow(rownum).setCell(column, CELL_TYPE_BOOLEAN, (Boolean)data ? 1 : 0, null, style);
+		} else if(data instanceof LocalDateTime) {
+			getRow(rownum).setCell(column, CELL_TYPE_NUMBER, ExcelDates.getExcelDate((LocalDateTime)data), null, style);
+		} else if(data instanceof LocalDate) {
+			getRow(rownum).setCell(column, CELL_TYPE_NUMBER, ExcelDates.getExcelDate((LocalDate)data), null, style);
+		} else {
+			getRow(rownum).setCell(column, CELL_TYPE_STRING, 0, data.toString(), style);
+		}
+	}
+
+	/**
+	 * 写一个数字单元格
+	 * @param rownum
+	 * @param column
+	 * @param number
+	 * @param cellStyle
+	 */
+	void writeNumber(int rownum, int column, double number, CellStyle cellStyle) {
+		getRow(rownum).setCell(column, CELL_TYPE_NUMBER, number, null, styleIndex(cellStyle));
+	}
+
+	/**
+	 * 写一个布尔值单元格
+	 * @param rownum
+	 * @param column
+	 * @param value
+	 * @param cellStyle
+	 */
+	void writeBoolean(int rownum, int column, boolean value, CellStyle cellStyle) {
+		getRow(rownum).setCell(column, CELL_TYPE_BOOLEAN, value ? 1 : 0, null, styleIndex(cellStyle));
+	}
+
+	/**
+	 * 写一个只有样式的空单元格
+	 * @param rownum
+	 * @param column
+	 * @param cellStyle
+	 */
+	void writeBlank(int rownum, int column, CellStyle cellStyle) {
+		getRow(rownum).setCell(column, CELL_TYPE_BLANK, 0, null, styleIndex(cellStyle));
+	}
+
+	private static int styleIndex(CellStyle cellStyle) {
+		return cellStyle == null ? 0 : cellStyle.getIndex() & 0xFFFF;
+	}
+
+	private BufferedRow getRow(int rownum) {
+		BufferedRow row = rows.get(rownum);
+		if(row != null) {
+			return row;
+		}
+		if(rownum <= lastFlushedRownum) {
+			throw new IllegalArgumentException("Attempting to write a row[" + rownum + "] in the range [0,"
+					+ lastFlushedRownum + "] that has already been flushed.");
+		}
+		if(closed) {
+			throw new IllegalStateException("sheet " + sheetName + " has been closed");
+		}
+		//先写出行号更小的行，再放入新行
+		while(rows.size() >= rowAccessWindowSize && rows.firstRownum() < rownum) {
+			flushRow(rows.pollFirst());
+		}
+		row = rowPool.poll();
+		if(row == null) {
+			row = new BufferedRow();
+		}
+		row.rownum = rownum;
+		rows.put(rownum, row);
+		return row;
+	}
+
+	/**
+	 * 写出所有行，结束sheet
+	 */
+	void close() {
+		if(closed) {
+			return;
+		}
+		mergedRegions.validate();
+		try {
+			while(!rows.isEmpty()) {
+				flushRow(rows.pollFirst());
+			}
+			if(out == null) {
+				begin();
+			}
+			out.write("</sheetData>");
+			if(!mergedRegions.isEmpty()) {
+				out.write("<mergeCells count=\"");
+				writeLong(mergedRegions.size());
+				out.write("\">");
+				for(CellRangeAddress region : mergedRegions.getRegions()) {
+					out.write("<mergeCell ref=\"");
+					out.write(region.formatAsString());
+					out.write("\"/>");
+				}
+				out.write("</mergeCells>");
+			}
+			out.write("</worksheet>");
+			out.flush();
+			workbook.closePart(this);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		rowPool.clear();
+		out = null;
+		closed = true;
+	}
+
+	private void begin() throws IOException {
+		if(columnWidthEstimator != null) {
+			for(int column = 0;column <= columnWidthEstimator.getLastColumn();column++) {
+				int width = columnWidthEstimator.getWidth(column);
+				if(width > 0) {
+					columnWidths.put(column, width);
+				}
+			}
+		}
+		part = workbook.openPart(this);
+		out = new BufferedWriter(new OutputStreamWriter(part.getOutputStream(), StandardCharsets.UTF_8), 64 * 1024);
+		out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+		out.write("<worksheet xmlns=\"" + StreamingXmlWorkbook.NS_MAIN + "\" xmlns:r=\"" + StreamingXmlWorkbook.NS_RELATIONSHIPS + "\">");
+		if(!columnWidths.isEmpty()) {
+			out.write("<cols>");
+			for(Map.Entry<Integer, Integer> entry : columnWidths.entrySet()) {
+				out.write("<col min=\"");
+				writeLong(entry.getKey() + 1);
+				out.write("\" max=\"");
+				writeLong(entry.getKey() + 1);
+				out.write("\" width=\"");
+				out.write(Double.toString(entry.getValue() / 256.0));
+				out.write("\" customWidth=\"1\"/>");
+			}
+			out.write("</cols>");
+		}
+		out.write("<sheetData>");
+	}
+
+	private void flushRow(BufferedRow row) {
+		try {
+			if(out == null) {
+				begin();
+			}
+			out.write("<row r=\"");
+			writeLong(row.rownum + 1);
+			if(row.height >= 0) {
+				out.write("\" ht=\"");
+				out.write(Float.toString(row.height));
+				out.write("\" customHeight=\"1");
+			}
+			out.write("\">");
+			for(int i = 0;i < row.cellCount;i++) {
+				out.write("<c r=\"");
+				out.write(columnName(row.columns[i]));
+				writeLong(row.rownum + 1);
+				if(row.styles[i] != 0) {
+					out.write("\" s=\"");
+					writeLong(row.styles[i]);
+				}
+				switch (row.types[i]) {
+				case CELL_TYPE_STRING:
+					out.write("\" t=\"inlineStr\"><is><t");
+					String text = row.texts[i];
+					if(text.length() > 0 && (Character.isWhitespace(text.charAt(0)) || Character.isWhitespace(text.charAt(text.length() - 1)))) {
+						out.write(" xml:space=\"preserve\"");
+					}
+					out.write('>');
+					writeEscaped(text);
+					out.write("</t></is></c>");
+					break;
+				case CELL_TYPE_NUMBER:
+					double number = row.numbers[i];
+					if(Double.isNaN(number) || Double.isInfinite(number)) {
+						out.write("\" t=\"e\"><v>#NUM!</v></c>");
+					} else {
+						out.write("\"><v>");
+						writeNumber(number);
+						out.write("</v></c>");
+					}
+					break;
+				case CELL_TYPE_BOOLEAN:
+					out.write(row.numbers[i] != 0 ? "\" t=\"b\"><v>1</v></c>" : "\" t=\"b\"><v>0</v></c>");
+					break;
+				default:
+					out.write("\"/>");
+					break;
+				}
+			}
+			out.write("</row>");
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		lastFlushedRownum = row.rownum;
+		row.clear();
+		rowPool.push(row);
+	}
+
+	private void writeNumber(double number) throws IOException {
+		if(number == (long)number && Math.abs(number) < 1e15) {
+			writeLong((long)number);
+		} else {
+			out.write(Double.toString(number));
+		}
+	}
+
+	private void writeLong(long value) throws IOException {
+		if(value == Long.MIN_VALUE) {
+			out.write(Long.toString(value));
+			return;
+		}
+		int pos = numberBuffer.length;
+		boolean negative = value < 0;
+		if(negative) {
+			value = -value;
+		}
+		do {
+			numberBuffer[--pos] = (char)('0' + value % 10);
+			value /= 10;
+		} while(value != 0);
+		if(negative) {
+			numberBuffer[--pos] = '-';
+		}
+		out.write(numberBuffer, pos, numberBuffer.length - pos);
+	}
+
+	private void writeEscaped(String text) throws IOException {
+		int start = 0;
+		int length = text.length();
+		for(int i = 0;i < length;i++) {
+			char c = text.charAt(i);
+			String replacement;
+			if(c == '<') {
+				replacement = "&lt;";
+			} else if(c == '>') {
+				replacement = "&gt;";
+			} else if(c == '&') {
+				replacement = "&amp;";
+			} else if((c < 0x20 && c != '\t' && c != '\n' && c != '\r') || c == 0xFFFE || c == 0xFFFF) {
+				replacement = "?";
+			} else {
+				continue;
+			}
+			out.write(text, start, i - start);
+			out.write(replacement);
+			start = i + 1;
+		}
+		out.write(text, start, length - start);
+	}
+
+	static String columnName(int column) {
+		String name = columnNames[column];
+		if(name == null) {
+			name = CellReference.convertNumToColString(column);
+			columnNames[column] = name;
+		}
+		return name;
+	}
+
+	/**
+	 * 内存中的一行，单元格按列号从小到大保存在数组中
+	 */
+	private static class BufferedRow {
+
+		private int rownum;
+
+		private float height = -1;
+
+		private int cellCount;
+
+		private int[] columns = new int[16];
+
+		private byte[] types = new byte[16];
+
+		private double[] numbers = new double[16];
+
+		private String[] texts = new String[16];
+
+		private int[] styles = new int[16];
+
+		private void setCell(int column, byte type, double number, String text, int style) {
+			int index;
+			if(cellCount == 0 || columns[cellCount - 1] < column) {
+				index = cellCount;
+			} else {
+				index = binarySearch(column);
+				if(index >= 0) {
+					set(index, column, type, number, text, style);
+					return;
+				}
+				index = -index - 1;
+			}
+			if(cellCount == columns.length) {
+				grow();
+			}
+			if(index < cellCount) {
+				int moved = cellCount - index;
+				System.arraycopy(columns, index, columns, index + 1, moved);
+				System.arraycopy(types, index, types, index + 1, moved);
+				System.arraycopy(numbers, index, numbers, index + 1, moved);
+				System.arraycopy(texts, index, texts, index + 1, moved);
+				System.arraycopy(styles, index, styles, index + 1, moved);
+			}
+			set(index, column, type, number, text, style);
+			cellCount++;
+		}
+
+		private void set(int index, int column, byte type, double number, String text, int style) {
+			columns[index] = column;
+			types[index] = type;
+			numbers[index] = number;
+			texts[index] = text;
+			styles[index] = style;
+		}
+
+		private int binarySearch(int column) {
+			int low = 0;
+			int high = cellCount - 1;
+			while(low <= high) {
+				int mid = (low + high) >>> 1;
+				if(columns[mid] < column) {
+					low = mid + 1;
+				} else if(columns[mid] > column) {
+					high = mid - 1;
+				} else {
+					return mid;
+				}
+			}
+			return -(low + 1);
+		}
+
+		private void grow() {
+			int capacity = columns.length * 2;
+			columns = Arrays.copyOf(columns, capacity);
+			types = Arrays.copyOf(types, capacity);
+			numbers = Arrays.copyOf(numbers, capacity);
+			texts = Arrays.copyOf(texts, capacity);
+			styles = Arrays.copyOf(styles, capacity);
+		}
+
+		private void clear() {
+			Arrays.fill(texts, 0, cellCount, null);
+			cellCount = 0;
+			height = -1;
+		}
+
+	}
+
+}
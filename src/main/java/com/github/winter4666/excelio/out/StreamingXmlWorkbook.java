@@ -0,0 +1,271 @@
+package com.github.winter4666.excelio.out;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+/**
+ * {@link ExcelWriter.ExcelFormat#STREAMING_XML}格式的工作簿。
+ * 每个sheet的xml在写行的过程中直接压缩保存在内存中，不经过poi的Row、Cell对象，也不产生临时文件；
+ * 样式仍然通过一个只用来保存样式的XSSFWorkbook创建，导出时写出styles.xml、workbook.xml等其它部分，
+ * 并把各个sheet压缩好的数据原样组装成zip。
+ * 字符串以inlineStr的形式写在单元格中，不生成sharedStrings.xml，所以并行写的sheet之间不需要合并共享字符串。
+ * 也可以在创建时指定输出流，此时zip在创建时就在输出流上打开，每个sheet在写出行的同时直接压缩写到输出流中，
+ * 不在内存中保存压缩数据，结束时再写出样式等其它部分；这种方式下同一时间只能写一个sheet。
+ * @author wutian
+ */
+class StreamingXmlWorkbook {
+
+	static final String NS_MAIN = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+
+	static final String NS_RELATIONSHIPS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+	private static final String NS_PACKAGE_RELATIONSHIPS = "http://schemas.openxmlformats.org/package/2006/relationships";
+
+	private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+
+	/**
+	 * 保存样式的工作簿，不写入任何行
+	 */
+	private final XSSFWorkbook styleWorkbook;
+
+	private final int rowAccessWindowSize;
+
+	/**
+	 * 按导出顺序排列的sheet
+	 */
+	private final List<StreamingXmlSheet> sheets = new ArrayList<>();
+
+	private StreamingXmlSheet currentSheet;
+
+	/**
+	 * 直接写到输出流时的zip写入器，否则为null
+	 */
+	private final ZipPackageWriter directZipPackageWriter;
+
+	private final OutputStream directOutputStream;
+
+	StreamingXmlWorkbook(XSSFWorkbook styleWorkbook, int rowAccessWindowSize) {
+		this(styleWorkbook, rowAccessWindowSize, null);
+	}
+
+	/**
+	 * @param styleWorkbook 保存样式的工作簿
+	 * @param rowAccessWindowSize 每个sheet在内存中最多保存的行数
+	 * @param outputStream 不为null时直接写到该输出流
+	 */
+	StreamingXmlWorkbook(XSSFWorkbook styleWorkbook, int rowAccessWindowSize, OutputStream outputStream) {
+		this.styleWorkbook = styleWorkbook;
+		this.rowAccessWindowSize = rowAccessWindowSize;
+		if(outputStream != null) {
+			directOutputStream = new BufferedOutputStream(outputStream, 64 * 1024);
+			directZipPackageWriter = new ZipPackageWriter(directOutputStream);
+		} else {
+			directOutputStream = null;
+			directZipPackageWriter = null;
+		}
+	}
+
+	/**
+	 * 是否直接写到创建时指定的输出流
+	 * @return
+	 */
+	boolean isDirect() {
+		return directZipPackageWriter != null;
+	}
+
+	/**
+	 * 结束当前sheet，创建新的sheet作为当前sheet
+	 * @param sheetName 已经校验过的sheet名称
+	 * @return
+	 */
+	StreamingXmlSheet createSheet(String sheetName) {
+		if(currentSheet != null) {
+			currentSheet.close();
+		}
+		currentSheet = addSheet(sheetName);
+		return currentSheet;
+	}
+
+	/**
+	 * 在最后添加一个sheet，不改变当前sheet，用于在其它线程中写sheet
+	 * @param sheetName 已经校验过的sheet名称
+	 * @return
+	 */
+	synchronized StreamingXmlSheet addSheet(String sheetName) {
+		StreamingXmlSheet sheet = new StreamingXmlSheet(this, sheetName, rowAccessWindowSize);
+		sheets.add(sheet);
+		return sheet;
+	}
+
+	/**
+	 * 移除一个还没有写过内容的sheet
+	 * @param sheet
+	 */
+	synchronized void removeSheet(StreamingXmlSheet sheet) {
+		if(sheet.isStarted()) {
+			throw new IllegalStateException("sheet " + sheet.getSheetName() + " has been started");
+		}
+		sheets.remove(sheet);
+		if(currentSheet == sheet) {
+			currentSheet = null;
+		}
+	}
+
+	/**
+	 * sheet开始写出时创建保存压缩数据的部件，直接写到输出流时在zip中开始该sheet的部件
+	 * @param sheet
+	 * @return
+	 * @throws IOException
+	 */
+	synchronized DeflatedPart openPart(StreamingXmlSheet sheet) throws IOException {
+		if(directZipPackageWriter == null) {
+			return new DeflatedPart();
+		}
+		return directZipPackageWriter.beginEntry(sheetEntryName(sheets.indexOf(sheet) + 1));
+	}
+
+	/**
+	 * sheet写完时结束压缩
+	 * @param sheet
+	 * @throws IOException
+	 */
+	synchronized void closePart(StreamingXmlSheet sheet) throws IOException {
+		if(directZipPackageWriter == null) {
+			sheet.getPart().finish();
+		} else {
+			directZipPackageWriter.closeEntry();
+			directOutputStream.flush();
+		}
+	}
+
+	/**
+	 * 结束当前sheet，把整个文件写到outputStream
+	 * @param outputStream
+	 * @throws IOException
+	 */
+	synchronized void write(OutputStream outputStream) throws IOException {
+		if(directZipPackageWriter != null) {
+			throw new IllegalStateException("workbook is written to the output stream specified when creating");
+		}
+		if(currentSheet != null) {
+			currentSheet.close();
+		}
+		ZipPackageWriter zipPackageWriter = new ZipPackageWriter(outputStream);
+		writeSharedParts(zipPackageWriter);
+		for(int i = 1;i <= sheets.size();i++) {
+			StreamingXmlSheet sheet = sheets.get(i - 1);
+			if(!sheet.isClosed()) {
+				throw new IllegalStateException("sheet " + sheet.getSheetName() + " has not been finished");
+			}
+			zipPackageWriter.writeEntry(sheetEntryName(i), sheet.getPart());
+		}
+		zipPackageWriter.finish();
+	}
+
+	/**
+	 * 直接写到输出流时，结束当前sheet，写出样式等其它部分并结束zip，不关闭输出流
+	 * @throws IOException
+	 */
+	synchronized void finish() throws IOException {
+		if(directZipPackageWriter == null) {
+			throw new IllegalStateException("no output stream is specified when creating workbook");
+		}
+		if(currentSheet != null) {
+			currentSheet.close();
+		}
+		for(StreamingXmlSheet sheet : sheets) {
+			if(!sheet.isClosed()) {
+				throw new IllegalStateException("sheet " + sheet.getSheetName() + " has not been finished");
+			}
+		}
+		writeSharedParts(directZipPackageWriter);
+		directZipPackageWriter.finish();
+		directOutputStream.flush();
+	}
+
+	/**
+	 * 写出sheet以外的部分
+	 */
+	private void writeSharedParts(ZipPackageWriter zipPackageWriter) throws IOException {
+		writeEntry(zipPackageWriter, "[Content_Types].xml", contentTypes());
+		writeEntry(zipPackageWriter, "_rels/.rels", XML_DECLARATION
+				+ "<Relationships xmlns=\"" + NS_PACKAGE_RELATIONSHIPS + "\">"
+				+ "<Relationship Id=\"rId1\" Type=\"" + NS_RELATIONSHIPS + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+				+ "</Relationships>");
+		writeEntry(zipPackageWriter, "xl/workbook.xml", workbookXml());
+		writeEntry(zipPackageWriter, "xl/_rels/workbook.xml.rels", workbookRelationships());
+		ByteArrayOutputStream styles = new ByteArrayOutputStream();
+		styleWorkbook.getStylesSource().writeTo(styles);
+		zipPackageWriter.writeEntry("xl/styles.xml", styles.toByteArray());
+	}
+
+	private static String sheetEntryName(int sheetNum) {
+		return "xl/worksheets/sheet" + sheetNum + ".xml";
+	}
+
+	/**
+	 * 释放内存中的数据
+	 */
+	synchronized void dispose() {
+		for(StreamingXmlSheet sheet : sheets) {
+			if(sheet.getPart() != null) {
+				sheet.getPart().dispose();
+			}
+		}
+	}
+
+	private void writeEntry(ZipPackageWriter zipPackageWriter, String name, String content) throws IOException {
+		zipPackageWriter.writeEntry(name, content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private String contentTypes() {
+		StringBuilder sb = new StringBuilder(XML_DECLARATION);
+		sb.append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">");
+		sb.append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>");
+		sb.append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>");
+		sb.append("<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>");
+		sb.append("<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>");
+		for(int i = 1;i <= sheets.size();i++) {
+			sb.append("<Override PartName=\"/xl/worksheets/sheet").append(i)
+				.append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+		}
+		sb.append("</Types>");
+		return sb.toString();
+	}
+
+	private String workbookXml() {
+		StringBuilder sb = new StringBuilder(XML_DECLARATION);
+		sb.append("<workbook xmlns=\"").append(NS_MAIN).append("\" xmlns:r=\"").append(NS_RELATIONSHIPS).append("\"><sheets>");
+		for(int i = 1;i <= sheets.size();i++) {
+			sb.append("<sheet name=\"").append(escapeAttribute(sheets.get(i - 1).getSheetName()))
+				.append("\" sheetId=\"").append(i).append("\" r:id=\"rId").append(i).append("\"/>");
+		}
+		sb.append("</sheets></workbook>");
+		return sb.toString();
+	}
+
+	private String workbookRelationships() {
+		StringBuilder sb = new StringBuilder(XML_DECLARATION);
+		sb.append("<Relationships xmlns=\"").append(NS_PACKAGE_RELATIONSHIPS).append("\">");
+		for(int i = 1;i <= sheets.size();i++) {
+			sb.append("<Relationship Id=\"rId").append(i).append("\" Type=\"").append(NS_RELATIONSHIPS)
+				.append("/worksheet\" Target=\"worksheets/sheet").append(i).append(".xml\"/>");
+		}
+		sb.append("<Relationship Id=\"rId").append(sheets.size() + 1).append("\" Type=\"").append(NS_RELATIONSHIPS)
+			.append("/styles\" Target=\"styles.xml\"/>");
+		sb.append("</Relationships>");
+		return sb.toString();
+	}
+
+	private static String escapeAttribute(String value) {
+		return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+	}
+
+}
@@ -0,0 +1,284 @@
+package com.github.winter4666.excelio.out;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Color;
+import org.apache.poi.ss.usermodel.DataFormat;
+import org.apache.poi.ss.usermodel.ExtendedColor;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Workbook;
+
+/**
+ * 样式注册表，按样式的属性（字体、填充、边框、数据格式、对齐方式、换行）共享CellStyle，
+ * 避免每个单元格都在工作簿中创建一个新样式导致超出样式数量上限。
+ * 先由描述或原样式计算key，只有没有命中时才在工作簿中创建样式。线程安全。
+ * @author wutian
+ */
+public class StyleRegistry {
+
+	private final Workbook workbook;
+
+	private final DataFormat dataFormat;
+
+	private final Map<CellStyleDescriptor, CellStyle> descriptorStyles = new HashMap<>();
+
+	/**
+	 * 由描述解析出的属性（字体和数据格式按下标） -> 样式
+	 */
+	private final Map<StyleKey, CellStyle> resolvedDescriptorStyles = new HashMap<>();
+
+	private final Map<StyleKey, CellStyle> internedStyles = new HashMap<>();
+
+	private final Map<StyleKey, Font> fonts = new HashMap<>();
+
+	/**
+	 * 数据格式 -> 以原样式下标为下标的、设置了该数据格式的样式
+	 */
+	private final Map<String, CellStyle[]> dataFormatStyles = new HashMap<>();
+
+	private long hitCount;
+
+	private long missCount;
+
+	StyleRegistry(Workbook workbook) {
+		this.workbook = workbook;
+		this.dataFormat = workbook.createDataFormat();
+	}
+
+	/**
+	 * 得到与描述一致的样式，属性相同的描述返回同一个CellStyle
+	 * @param descriptor
+	 * @return
+	 */
+	public synchronized CellStyle getCellStyle(CellStyleDescriptor descriptor) {
+		CellStyle cellStyle = descriptorStyles.get(descriptor);
+		if(cellStyle != null) {
+			hitCount++;
+			return cellStyle;
+		}
+		Font font = getFont(descriptor.getFontName(), descriptor.getFontHeightInPoints(),
+				descriptor.isBold(), descriptor.isItalic(), descriptor.getFontColor());
+		short format = descriptor.getDataFormat() != null ? dataFormat.getFormat(descriptor.getDataFormat()) : -1;
+		//描述不同但解析出的属性相同（如只设置了数据格式的别名）时得到同一个样式
+		StyleKey key = new StyleKey(font.getIndexAsInt(), format, descriptor.isWrapText(), descriptor.getFillPattern(), descriptor.getFillForegroundColor(),
+				descriptor.getBorderTop(), descriptor.getBorderRight(), descriptor.getBorderBottom(), descriptor.getBorderLeft(),
+				descriptor.getBorderColor(), descriptor.getAlignment(), descriptor.getVerticalAlignment());
+		cellStyle = resolvedDescriptorStyles.get(key);
+		if(cellStyle != null) {
+			hitCount++;
+		} else {
+			missCount++;
+			cellStyle = createCellStyle(descriptor, font, format);
+			resolvedDescriptorStyles.put(key, cellStyle);
+			StyleKey styleKey = styleKey(cellStyle, cellStyle.getDataFormatString());
+			if(!internedStyles.containsKey(styleKey)) {
+				internedStyles.put(styleKey, cellStyle);
+			}
+		}
+		descriptorStyles.put(descriptor.copy(), cellStyle);
+		return cellStyle;
+	}
+
+	/**
+	 * 如果已经注册过属性相同的样式，返回已注册的样式，否则注册并返回该样式
+	 * @param cellStyle
+	 * @return
+	 */
+	public synchronized CellStyle intern(CellStyle cellStyle) {
+		StyleKey key = styleKey(cellStyle, cellStyle.getDataFormatString());
+		CellStyle internedStyle = internedStyles.get(key);
+		if(internedStyle != null) {
+			hitCount++;
+			return internedStyle;
+		}
+		missCount++;
+		internedStyles.put(key, cellStyle);
+		return cellStyle;
+	}
+
+	/**
+	 * 得到在cellStyle的基础上设置了数据格式的样式
+	 * @param cellStyle 原样式
+	 * @param format 数据格式，如yyyy-MM-dd HH:mm:ss
+	 * @return
+	 */
+	public synchronized CellStyle getDataFormatCellStyle(CellStyle cellStyle, String format) {
+		int index = cellStyle.getIndex() & 0xFFFF;
+		CellStyle[] styles = dataFormatStyles.get(format);
+		if(styles == null || styles.length <= index) {
+			styles = styles == null ? new CellStyle[Math.max(16, index + 1)] : Arrays.copyOf(styles, Math.max(styles.length * 2, index + 1));
+			dataFormatStyles.put(format, styles);
+		}
+		CellStyle formatCellStyle = styles[index];
+		if(formatCellStyle != null) {
+			hitCount++;
+			return formatCellStyle;
+		}
+		//原样式的属性加上数据格式就是要得到的样式的属性
+		short formatIndex = dataFormat.getFormat(format);
+		StyleKey key = styleKey(cellStyle, dataFormat.getFormat(formatIndex));
+		formatCellStyle = internedStyles.get(key);
+		if(formatCellStyle != null) {
+			hitCount++;
+		} else {
+			missCount++;
+			formatCellStyle = workbook.createCellStyle();
+			formatCellStyle.cloneStyleFrom(cellStyle);
+			formatCellStyle.setDataFormat(formatIndex);
+			internedStyles.put(key, formatCellStyle);
+		}
+		styles[index] = formatCellStyle;
+		return formatCellStyle;
+	}
+
+	/**
+	 * 得到属性相同的共享字体
+	 * @param fontName 字体名称
+	 * @param fontHeightInPoints 字号，小于0时使用默认字号
+	 * @param bold 粗体
+	 * @param italic 斜体
+	 * @param color 颜色下标，小于0时使用默认颜色
+	 * @return
+	 */
+	public synchronized Font getFont(String fontName, short fontHeightInPoints, boolean bold, boolean italic, short color) {
+		StyleKey key = new StyleKey(fontName, fontHeightInPoints, bold, italic, color);
+		Font font = fonts.get(key);
+		if(font == null) {
+			font = workbook.createFont();
+			if(fontName != null) {
+				font.setFontName(fontName);
+			}
+			if(fontHeightInPoints >= 0) {
+				font.setFontHeightInPoints(fontHeightInPoints);
+			}
+			font.setBold(bold);
+			font.setItalic(italic);
+			if(color >= 0) {
+				font.setColor(color);
+			}
+			fonts.put(key, font);
+		}
+		return font;
+	}
+
+	/**
+	 * 命中已有样式的次数
+	 * @return
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * 没有命中、新注册样式的次数
+	 * @return
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * 工作簿中的样式总数
+	 * @return
+	 */
+	public int getStyleCount() {
+		return workbook.getNumCellStyles();
+	}
+
+	private CellStyle createCellStyle(CellStyleDescriptor descriptor, Font font, short format) {
+		CellStyle cellStyle = workbook.createCellStyle();
+		cellStyle.setFont(font);
+		cellStyle.setWrapText(descriptor.isWrapText());
+		if(descriptor.getFillPattern() != null) {
+			cellStyle.setFillPattern(descriptor.getFillPattern());
+		}
+		if(descriptor.getFillForegroundColor() >= 0) {
+			cellStyle.setFillForegroundColor(descriptor.getFillForegroundColor());
+		}
+		if(descriptor.getBorderTop() != null) {
+			cellStyle.setBorderTop(descriptor.getBorderTop());
+		}
+		if(descriptor.getBorderRight() != null) {
+			cellStyle.setBorderRight(descriptor.getBorderRight());
+		}
+		if(descriptor.getBorderBottom() != null) {
+			cellStyle.setBorderBottom(descriptor.getBorderBottom());
+		}
+		if(descriptor.getBorderLeft() != null) {
+			cellStyle.setBorderLeft(descriptor.getBorderLeft());
+		}
+		if(descriptor.getBorderColor() >= 0) {
+			cellStyle.setTopBorderColor(descriptor.getBorderColor());
+			cellStyle.setRightBorderColor(descriptor.getBorderColor());
+			cellStyle.setBottomBorderColor(descriptor.getBorderColor());
+			cellStyle.setLeftBorderColor(descriptor.getBorderColor());
+		}
+		if(format >= 0) {
+			cellStyle.setDataFormat(format);
+		}
+		if(descriptor.getAlignment() != null) {
+			cellStyle.setAlignment(descriptor.getAlignment());
+		}
+		if(descriptor.getVerticalAlignment() != null) {
+			cellStyle.setVerticalAlignment(descriptor.getVerticalAlignment());
+		}
+		return cellStyle;
+	}
+
+	/**
+	 * @param cellStyle
+	 * @param dataFormatString 样式的数据格式，可以与cellStyle的不同
+	 * @return
+	 */
+	private StyleKey styleKey(CellStyle cellStyle, String dataFormatString) {
+		Font font = workbook.getFontAt(cellStyle.getFontIndexAsInt());
+		return new StyleKey(
+				font.getFontName(), font.getFontHeight(), font.getBold(), font.getItalic(), font.getColor(),
+				font.getStrikeout(), font.getTypeOffset(), font.getUnderline(), font.getCharSet(),
+				dataFormatString, cellStyle.getAlignment(), cellStyle.getVerticalAlignment(),
+				cellStyle.getWrapText(), cellStyle.getRotation(), cellStyle.getIndention(),
+				cellStyle.getHidden(), cellStyle.getLocked(), cellStyle.getShrinkToFit(),
+				cellStyle.getBorderTop(), cellStyle.getBorderRight(), cellStyle.getBorderBottom(), cellStyle.getBorderLeft(),
+				cellStyle.getTopBorderColor(), cellStyle.getRightBorderColor(),
+				cellStyle.getBottomBorderColor(), cellStyle.getLeftBorderColor(),
+				cellStyle.getFillPattern(), cellStyle.getFillForegroundColor(), cellStyle.getFillBackgroundColor(),
+				colorKey(cellStyle.getFillForegroundColorColor()), colorKey(cellStyle.getFillBackgroundColorColor()));
+	}
+
+	private static String colorKey(Color color) {
+		if(color instanceof ExtendedColor) {
+			return ((ExtendedColor)color).getARGBHex();
+		}
+		return null;
+	}
+
+	/**
+	 * 由若干属性组成的key
+	 */
+	private static class StyleKey {
+
+		private final Object[] attributes;
+
+		private final int hash;
+
+		private StyleKey(Object... attributes) {
+			this.attributes = attributes;
+			this.hash = Arrays.hashCode(attributes);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof StyleKey && Arrays.equals(attributes, ((StyleKey)obj).attributes);
+		}
+
+	}
+
+}
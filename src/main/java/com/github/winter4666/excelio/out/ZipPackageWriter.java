@@ -0,0 +1,312 @@
+package com.github.winter4666.excelio.out;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * 把{@link DeflatedPart}原样写入zip的写入器，不会重新压缩，超过4G的部件和文件使用zip64格式。
+ * 也可以通过{@link #beginEntry(String)}边压缩边写出一个部件，crc和大小写在部件之后的数据描述符中，
+ * 这样的部件开始时不知道大小，为了兼容Excel不使用zip64格式，压缩前后都必须小于4G。
+ * @author wutian
+ */
+class ZipPackageWriter {
+
+	private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+	private static final int METHOD_DEFLATED = 8;
+
+	/**
+	 * 文件名使用UTF-8编码
+	 */
+	private static final int FLAG_UTF8 = 0x0800;
+	
+	/**
+	 * crc和大小写在部件数据之后的数据描述符中
+	 */
+	private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+
+	private final OutputStream outputStream;
+
+	private final byte[] buffer = new byte[8];
+
+	private final List<Entry> entries = new ArrayList<>();
+
+	private final int dosTime;
+
+	private final int dosDate;
+
+	/**
+	 * 已写出的字节数
+	 */
+	private long written;
+	
+	/**
+	 * 正在边压缩边写出的部件
+	 */
+	private DeflatedPart openPart;
+	
+	private byte[] openPartName;
+	
+	private long openPartOffset;
+	
+	/**
+	 * 写到outputStream并计数的输出流，用于边压缩边写出的部件
+	 */
+	private final OutputStream countingOutputStream = new OutputStream() {
+		
+		@Override
+		public void write(int b) throws IOException {
+			outputStream.write(b);
+			written++;
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			outputStream.write(b, off, len);
+			written += len;
+		}
+		
+	};
+
+	ZipPackageWriter(OutputStream outputStream) {
+		this.outputStream = outputStream;
+		Calendar calendar = Calendar.getInstance();
+		dosTime = (calendar.get(Calendar.HOUR_OF_DAY) << 11) | (calendar.get(Calendar.MINUTE) << 5) | (calendar.get(Calendar.SECOND) >> 1);
+		dosDate = ((calendar.get(Calendar.YEAR) - 1980) << 9) | ((calendar.get(Calendar.MONTH) + 1) << 5) | calendar.get(Calendar.DAY_OF_MONTH);
+	}
+
+	/**
+	 * 写入一个已压缩的部件
+	 * @param name 部件在zip中的名称
+	 * @param part 已结束压缩的部件
+	 * @throws IOException
+	 */
+	void writeEntry(String name, DeflatedPart part) throws IOException {
+		checkNoOpenPart();
+		part.finish();
+		Entry entry = new Entry(name.getBytes(StandardCharsets.UTF_8), FLAG_UTF8, part.getCrc(), part.getSize(), part.getCompressedSize(), written);
+		entries.add(entry);
+		boolean zip64 = entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC;
+		writeInt(0x04034b50L);
+		writeShort(zip64 ? 45 : 20);
+		writeShort(entry.flags);
+		writeShort(METHOD_DEFLATED);
+		writeShort(dosTime);
+		writeShort(dosDate);
+		writeInt(entry.crc);
+		writeInt(zip64 ? ZIP64_MAGIC : entry.compressedSize);
+		writeInt(zip64 ? ZIP64_MAGIC : entry.size);
+		writeShort(entry.name.length);
+		writeShort(zip64 ? 20 : 0);
+		write(entry.name);
+		if(zip64) {
+			writeShort(0x0001);
+			writeShort(16);
+			writeLong(entry.size);
+			writeLong(entry.compressedSize);
+		}
+		part.writeCompressedTo(outputStream);
+		written += entry.compressedSize;
+	}
+
+	/**
+	 * 压缩并写入一个部件
+	 * @param name 部件在zip中的名称
+	 * @param content 部件内容
+	 * @throws IOException
+	 */
+	void writeEntry(String name, byte[] content) throws IOException {
+		DeflatedPart part = new DeflatedPart();
+		part.getOutputStream().write(content);
+		writeEntry(name, part);
+	}
+
+	/**
+	 * 开始边压缩边写出一个部件，写完后需要调用{@link #closeEntry()}，同一时间只能有一个这样的部件。
+	 * 本地文件头中没有zip64扩展字段，数据描述符中的大小只有4个字节，所以部件压缩前后都必须小于4G
+	 * @param name 部件在zip中的名称
+	 * @return 写入部件内容的DeflatedPart，压缩数据直接写到zip的输出流
+	 * @throws IOException
+	 */
+	DeflatedPart beginEntry(String name) throws IOException {
+		checkNoOpenPart();
+		openPartName = name.getBytes(StandardCharsets.UTF_8);
+		openPartOffset = written;
+		writeInt(0x04034b50L);
+		writeShort(20);
+		writeShort(FLAG_UTF8 | FLAG_DATA_DESCRIPTOR);
+		writeShort(METHOD_DEFLATED);
+		writeShort(dosTime);
+		writeShort(dosDate);
+		writeInt(0);
+		writeInt(0);
+		writeInt(0);
+		writeShort(openPartName.length);
+		writeShort(0);
+		write(openPartName);
+		openPart = new DeflatedPart(countingOutputStream);
+		return openPart;
+	}
+	
+	/**
+	 * 结束{@link #beginEntry(String)}开始的部件，写出数据描述符
+	 * @throws IOException 部件压缩前或压缩后达到4G时
+	 */
+	void closeEntry() throws IOException {
+		if(openPart == null) {
+			throw new IllegalStateException("no entry is open");
+		}
+		DeflatedPart part = openPart;
+		openPart = null;
+		part.finish();
+		if(part.getSize() >= ZIP64_MAGIC || part.getCompressedSize() >= ZIP64_MAGIC) {
+			throw new IOException("entry " + new String(openPartName, StandardCharsets.UTF_8) + " reaches 4GB (" + part.getSize() 
+					+ " bytes, " + part.getCompressedSize() + " bytes compressed), which is not supported when writing directly to the output stream, " 
+					+ "split the data into more sheets or export without specifying an output stream when building");
+		}
+		Entry entry = new Entry(openPartName, FLAG_UTF8 | FLAG_DATA_DESCRIPTOR, part.getCrc(), part.getSize(), part.getCompressedSize(), openPartOffset);
+		entries.add(entry);
+		writeInt(0x08074b50L);
+		writeInt(entry.crc);
+		writeInt(entry.compressedSize);
+		writeInt(entry.size);
+	}
+	
+	private void checkNoOpenPart() {
+		if(openPart != null) {
+			throw new IllegalStateException("entry " + new String(openPartName, StandardCharsets.UTF_8) + " has not been closed");
+		}
+	}
+	
+	/**
+	 * 写出中央目录，结束zip，不关闭outputStream
+	 * @throws IOException
+	 */
+	void finish() throws IOException {
+		checkNoOpenPart();
+		long centralDirectoryOffset = written;
+		for(Entry entry : entries) {
+			boolean sizeZip64 = entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC;
+			boolean offsetZip64 = entry.offset >= ZIP64_MAGIC;
+			int extraLength = (sizeZip64 ? 16 : 0) + (offsetZip64 ? 8 : 0);
+			writeInt(0x02014b50L);
+			writeShort(45);
+			writeShort(extraLength > 0 ? 45 : 20);
+			writeShort(entry.flags);
+			writeShort(METHOD_DEFLATED);
+			writeShort(dosTime);
+			writeShort(dosDate);
+			writeInt(entry.crc);
+			writeInt(sizeZip64 ? ZIP64_MAGIC : entry.compressedSize);
+			writeInt(sizeZip64 ? ZIP64_MAGIC : entry.size);
+			writeShort(entry.name.length);
+			writeShort(extraLength > 0 ? extraLength + 4 : 0);
+			writeShort(0);
+			writeShort(0);
+			writeShort(0);
+			writeInt(0);
+			writeInt(offsetZip64 ? ZIP64_MAGIC : entry.offset);
+			write(entry.name);
+			if(extraLength > 0) {
+				writeShort(0x0001);
+				writeShort(extraLength);
+				if(sizeZip64) {
+					writeLong(entry.size);
+					writeLong(entry.compressedSize);
+				}
+				if(offsetZip64) {
+					writeLong(entry.offset);
+				}
+			}
+		}
+		long centralDirectorySize = written - centralDirectoryOffset;
+		boolean zip64 = centralDirectoryOffset >= ZIP64_MAGIC || centralDirectorySize >= ZIP64_MAGIC || entries.size() >= 0xFFFF;
+		if(zip64) {
+			long zip64EndOffset = written;
+			writeInt(0x06064b50L);
+			writeLong(44);
+			writeShort(45);
+			writeShort(45);
+			writeInt(0);
+			writeInt(0);
+			writeLong(entries.size());
+			writeLong(entries.size());
+			writeLong(centralDirectorySize);
+			writeLong(centralDirectoryOffset);
+			writeInt(0x07064b50L);
+			writeInt(0);
+			writeLong(zip64EndOffset);
+			writeInt(1);
+		}
+		writeInt(0x06054b50L);
+		writeShort(0);
+		writeShort(0);
+		writeShort(zip64 ? 0xFFFF : entries.size());
+		writeShort(zip64 ? 0xFFFF : entries.size());
+		writeInt(zip64 ? ZIP64_MAGIC : centralDirectorySize);
+		writeInt(zip64 ? ZIP64_MAGIC : centralDirectoryOffset);
+		writeShort(0);
+		outputStream.flush();
+	}
+
+	private void write(byte[] bytes) throws IOException {
+		outputStream.write(bytes);
+		written += bytes.length;
+	}
+
+	private void writeShort(int value) throws IOException {
+		buffer[0] = (byte)value;
+		buffer[1] = (byte)(value >>> 8);
+		outputStream.write(buffer, 0, 2);
+		written += 2;
+	}
+
+	private void writeInt(long value) throws IOException {
+		for(int i = 0;i < 4;i++) {
+			buffer[i] = (byte)(value >>> (8 * i));
+		}
+		outputStream.write(buffer, 0, 4);
+		written += 4;
+	}
+
+	private void writeLong(long value) throws IOException {
+		for(int i = 0;i < 8;i++) {
+			buffer[i] = (byte)(value >>> (8 * i));
+		}
+		outputStream.write(buffer, 0, 8);
+		written += 8;
+	}
+
+	private static class Entry {
+
+		private final byte[] name;
+
+		private final int flags;
+
+		private final long crc;
+
+		private final long size;
+
+		private final long compressedSize;
+
+		/**
+		 * 本地文件头的位置
+		 */
+		private final long offset;
+
+		private Entry(byte[] name, int flags, long crc, long size, long compressedSize, long offset) {
+			this.name = name;
+			this.flags = flags;
+			this.crc = crc;
+			this.size = size;
+			this.compressedSize = compressedSize;
+			this.offset = offset;
+		}
+
+	}
+
+}
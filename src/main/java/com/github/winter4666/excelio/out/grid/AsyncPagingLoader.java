@@ -1,32 +1,109 @@
 package com.github.winter4666.excelio.out.grid;
 
+import java.util.ArrayDeque;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
+import com.github.winter4666.excelio.common.CancellationToken;
+import com.github.winter4666.excelio.out.ExportListener;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * 异步分页加载器
+ * 异步分页加载器。
+ * 可以设置预取页数，同时加载多页数据，加载完成的页仍然按页码顺序交给{@link #getRowData(GridDataLoaderListener)}，
+ * 此时数据源会在多个线程中被调用，需要是线程安全的。
+ * 除了按页码分页的{@link GridDataSource}，也可以使用按游标分页的{@link CursorGridDataSource}，
+ * 每一页返回下一页的游标（如最后一条记录的排序键），避免深分页时数据库扫描越来越多的记录。
+ * 加载任务默认在{@link LoaderExecutors#defaultExecutor()}中执行，也可以指定执行器或线程工厂。
+ * 默认的执行器每个任务使用一个新线程（JDK 21及以上为虚拟线程），不限制线程数，
+ * 需要有界的线程池时通过{@link #setExecutor(Executor)}指定{@link LoaderExecutors#sharedExecutor()}。
  * @author wutian
  */
 public class AsyncPagingLoader implements GridDataLoader {
 	
 	private final static Logger logger = LoggerFactory.getLogger(AsyncPagingLoader.class);
 	
-	private BlockingQueue<Object> gridRowDataQuene;
+	/**
+	 * 加载线程按页交给读取线程的数据，元素为一页数据的List或PoisonPill
+	 */
+	private BlockingQueue<Object> gridPageQuene;
 	
 	private int pageSize;
 	
 	private GridDataSource<?> gridDataSource;
 	
+	private CursorGridDataSource<?, ?> cursorGridDataSource;
+	
+	/**
+	 * 按游标分页时下一页的游标，只在加载线程中使用
+	 */
+	private Object cursor;
+	
+	/**
+	 * 按游标分页时是否已经没有下一页
+	 */
+	private boolean cursorExhausted;
+	
+	/**
+	 * 已加载等待读取的最大页数，加上读取线程正在处理的一页，和原来按行交接时最多保存pageSize*2条数据一致
+	 */
+	private static final int QUENE_PAGES = 1;
+	
+	/**
+	 * 默认的加载线程等待读取线程取走数据的超时时间（分钟）
+	 */
 	private static final int OFFER_TIMEOUT = 1;
 	
+	/**
+	 * 默认的读取线程等待数据的超时时间（分钟）
+	 */
 	private static final int POLL_TIMEOUT = 5;
 	
-	private Thread thread;
+	private long offerTimeoutNanos = TimeUnit.MINUTES.toNanos(OFFER_TIMEOUT);
+	
+	private long pollTimeoutNanos = TimeUnit.MINUTES.toNanos(POLL_TIMEOUT);
+	
+	private CancellationToken cancellationToken;
+	
+	/**
+	 * 为null时不计时
+	 */
+	private ExportListener exportListener;
+	
+	/**
+	 * 取消时中断加载线程、唤醒读取线程的监听器
+	 */
+	private Runnable cancelListener;
+	
+	/**
+	 * 加载线程执行的任务，超时或取消时用来中断加载线程
+	 */
+	private volatile FutureTask<?> loadTask;
+	
+	/**
+	 * 读取线程是否已经读完所有数据
+	 */
+	private boolean finished;
+	
+	private Executor executor;
+	
+	private ThreadFactory threadFactory;
+	
+	/**
+	 * 同时加载的页数
+	 */
+	private int prefetchPages;
 	
 	/**
 	 * 构造异步分页加载器，默认一次加载1000条数据
@@ -42,78 +119,334 @@ public class AsyncPagingLoader implements GridDataLoader {
 	 * @param pageSize 一次加载数据的条数
 	 */
 	public AsyncPagingLoader(GridDataSource<?> gridDataSource,int pageSize) {
+		this(gridDataSource, pageSize, 1);
+	}
+	
+	/**
+	 * 构造异步分页加载器
+	 * @param gridDataSource 数据源，prefetchPages大于1时需要是线程安全的
+	 * @param pageSize 一次加载数据的条数
+	 * @param prefetchPages 同时加载的页数，内存中最多保存(prefetchPages + 2) * pageSize条数据
+	 */
+	public AsyncPagingLoader(GridDataSource<?> gridDataSource,int pageSize,int prefetchPages) {
+		if(prefetchPages < 1) {
+			throw new IllegalArgumentException("prefetchPages must be positive");
+		}
 		this.gridDataSource = gridDataSource;
 		this.pageSize = pageSize;
+		this.prefetchPages = prefetchPages;
+	}
+	
+	private AsyncPagingLoader() {
+		
+	}
+	
+	/**
+	 * 构造按游标分页的异步加载器，默认一次加载1000条数据。
+	 * 使用静态方法而不是构造方法，避免用lambda表达式创建{@link GridDataSource}时和构造方法重载产生歧义
+	 * @param cursorGridDataSource 数据源
+	 * @return
+	 */
+	public static AsyncPagingLoader cursorLoader(CursorGridDataSource<?, ?> cursorGridDataSource) {
+		return cursorLoader(cursorGridDataSource,1000);
+	}
+	
+	/**
+	 * 构造按游标分页的异步加载器，下一页依赖上一页返回的游标，所以每次只加载一页
+	 * @param cursorGridDataSource 数据源
+	 * @param pageSize 一次加载数据的条数
+	 * @return
+	 */
+	public static AsyncPagingLoader cursorLoader(CursorGridDataSource<?, ?> cursorGridDataSource,int pageSize) {
+		AsyncPagingLoader asyncPagingLoader = new AsyncPagingLoader();
+		asyncPagingLoader.cursorGridDataSource = cursorGridDataSource;
+		asyncPagingLoader.pageSize = pageSize;
+		asyncPagingLoader.prefetchPages = 1;
+		return asyncPagingLoader;
+	}
+	
+	/**
+	 * 设置执行加载任务的执行器，预取页数大于1时各页的加载任务也在其中执行。
+	 * 执行器没有空闲线程时，还没有开始执行的页会直接在加载线程中加载
+	 * @param executor
+	 * @return
+	 */
+	public AsyncPagingLoader setExecutor(Executor executor) {
+		this.executor = executor;
+		return this;
+	}
+	
+	/**
+	 * 设置创建加载线程的线程工厂，每个加载任务使用一个新线程，设置了执行器时不起作用
+	 * @param threadFactory
+	 * @return
+	 */
+	public AsyncPagingLoader setThreadFactory(ThreadFactory threadFactory) {
+		this.threadFactory = threadFactory;
+		return this;
+	}
+	
+	/**
+	 * 设置加载线程等待读取线程取走数据的超时时间，默认1分钟
+	 * @param timeout
+	 * @param unit
+	 * @return
+	 */
+	public AsyncPagingLoader setOfferTimeout(long timeout,TimeUnit unit) {
+		this.offerTimeoutNanos = unit.toNanos(timeout);
+		return this;
+	}
+	
+	/**
+	 * 设置读取线程等待数据的超时时间，默认5分钟
+	 * @param timeout
+	 * @param unit
+	 * @return
+	 */
+	public AsyncPagingLoader setPollTimeout(long timeout,TimeUnit unit) {
+		this.pollTimeoutNanos = unit.toNanos(timeout);
+		return this;
+	}
+	
+	/**
+	 * 设置取消标记，取消或超过截止时间后中断正在加载的页，并让{@link #getRowData(GridDataLoaderListener)}抛出{@link CancellationException}
+	 */
+	@Override
+	public void setCancellationToken(CancellationToken cancellationToken) {
+		this.cancellationToken = cancellationToken;
+	}
+	
+	/**
+	 * 设置导出监听器，报告每一页数据源的耗时、两个线程互相等待的时间和队列中等待写的页数
+	 */
+	@Override
+	public void setExportListener(ExportListener exportListener) {
+		this.exportListener = exportListener;
+	}
+	
+	private Executor getExecutor() {
+		if(executor != null) {
+			return executor;
+		} else if(threadFactory != null) {
+			return LoaderExecutors.threadPerTaskExecutor(threadFactory);
+		} else {
+			return LoaderExecutors.defaultExecutor();
+		}
 	}
 	
 	@Override
 	public void loadData() {
-		gridRowDataQuene = new LinkedBlockingQueue<>(pageSize*2);
-		thread = new Thread(new Runnable() {
+		gridPageQuene = new ArrayBlockingQueue<>(QUENE_PAGES);
+		cursor = null;
+		cursorExhausted = false;
+		finished = false;
+		final Executor loadExecutor = getExecutor();
+		loadTask = new FutureTask<Void>(new Runnable() {
 			
 			@Override
 			public void run() {
 				int pageNo = 1;
+				//按页码顺序排列的正在加载的页
+				ArrayDeque<FutureTask<List<?>>> fetchingPages = new ArrayDeque<>();
+				int nextPageNo = 1;
 				try {
 					while(true) {
-						List<?> rowDataList = gridDataSource.getGridData(pageNo, pageSize);
-						if(rowDataList != null) {
-							for(Object rowData : rowDataList) {
-								if(!gridRowDataQuene.offer(rowData, OFFER_TIMEOUT, TimeUnit.MINUTES)) {
-									throw new RuntimeException("offer timeout");
+						while(fetchingPages.size() < prefetchPages) {
+							FutureTask<List<?>> fetchTask = newFetchTask(nextPageNo++);
+							fetchingPages.add(fetchTask);
+							if(prefetchPages > 1) {
+								try {
+									loadExecutor.execute(fetchTask);
+								} catch (RejectedExecutionException e) {
+									//执行器拒绝时在加载线程中加载
 								}
 							}
 						}
-						if(rowDataList == null || rowDataList.size() < pageSize) {
-							if(!gridRowDataQuene.offer(new PoisonPill(),OFFER_TIMEOUT, TimeUnit.MINUTES)) {
-								throw new RuntimeException("offer timeout");
-							}
+						List<?> rowDataList = awaitPage(fetchingPages.poll());
+						if(rowDataList != null && !rowDataList.isEmpty()) {
+							offer(rowDataList);
+						}
+						if(rowDataList == null || rowDataList.size() < pageSize || cursorExhausted) {
+							offer(new PoisonPill());
 							break;
 						} else {
 							pageNo++;
 						}
 					}
 				} catch (Throwable t) {
-					logger.error("error occours while get grid data from dataSource,pageNo=" + pageNo + ",pageSize=" + pageSize,t);
-					try {
-						gridRowDataQuene.clear();
-						gridRowDataQuene.put(new PoisonPill(t));
-					} catch (InterruptedException e) {
-						logger.error(e.getMessage(),e);
+					if(cancellationToken != null && cancellationToken.isCancelled()) {
+						logger.debug("loading grid data is cancelled,pageNo=" + pageNo + ",pageSize=" + pageSize);
+						if(!(t instanceof CancellationException)) {
+							//取消时加载线程被中断，告诉读取线程是取消而不是出错
+							CancellationException cancellationException = new CancellationException("export cancelled");
+							cancellationException.initCause(t);
+							t = cancellationException;
+						}
+					} else if(loadTask.isCancelled()) {
+						logger.debug("loading grid data is cancelled,pageNo=" + pageNo + ",pageSize=" + pageSize);
+					} else {
+						logger.error("error occours while get grid data from dataSource,pageNo=" + pageNo + ",pageSize=" + pageSize,t);
+					}
+					gridPageQuene.clear();
+					//清空后只有取消时放入的PoisonPill会占用队列，此时放入失败也不影响读取线程结束
+					gridPageQuene.offer(new PoisonPill(t));
+				} finally {
+					//已经结束或出错，取消还在加载的页
+					for(FutureTask<List<?>> fetchingPage : fetchingPages) {
+						fetchingPage.cancel(true);
 					}
 				}
 				
 			}
+		}, null);
+		if(cancellationToken != null) {
+			cancelListener = new Runnable() {
+				
+				@Override
+				public void run() {
+					loadTask.cancel(true);
+					//加载任务可能还没有开始执行，直接唤醒读取线程
+					gridPageQuene.offer(new PoisonPill(new CancellationException("export cancelled")));
+				}
+			};
+			cancellationToken.addCancelListener(cancelListener);
+		}
+		loadExecutor.execute(loadTask);
+	}
+	
+	private void offer(Object page) throws InterruptedException {
+		long timeout = offerTimeoutNanos;
+		if(cancellationToken != null) {
+			cancellationToken.throwIfCancelled();
+			timeout = Math.min(timeout, cancellationToken.remainingNanos());
+		}
+		long start = exportListener != null ? System.nanoTime() : 0;
+		boolean offered = gridPageQuene.offer(page, timeout, TimeUnit.NANOSECONDS);
+		if(exportListener != null) {
+			exportListener.onOfferBlocked(System.nanoTime() - start);
+		}
+		if(!offered) {
+			if(cancellationToken != null) {
+				cancellationToken.throwIfCancelled();
+			}
+			throw new RuntimeException("offer timeout");
+		}
+	}
+	
+	private FutureTask<List<?>> newFetchTask(int pageNo) {
+		return new FutureTask<List<?>>(new Callable<List<?>>() {
+			
+			@Override
+			public List<?> call() throws Exception {
+				if(exportListener == null) {
+					return fetchPage(pageNo);
+				}
+				long start = System.nanoTime();
+				List<?> page = fetchPage(pageNo);
+				exportListener.onPageLoaded(page == null ? 0 : page.size(), System.nanoTime() - start);
+				return page;
+			}
 		});
-		thread.start();
+	}
+	
+	private List<?> fetchPage(int pageNo) throws InterruptedException {
+		if(cursorGridDataSource != null) {
+			return getCursorPage(cursorGridDataSource);
+		}
+		return gridDataSource.getGridData(pageNo, pageSize);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private <C> List<?> getCursorPage(CursorGridDataSource<?, C> cursorGridDataSource) throws InterruptedException {
+		GridPage<?, C> gridPage = cursorGridDataSource.getGridData((C)cursor, pageSize);
+		if(gridPage == null) {
+			return null;
+		}
+		cursor = gridPage.getNextCursor();
+		cursorExhausted = cursor == null;
+		return gridPage.getRows();
+	}
+	
+	/**
+	 * 等待一页加载完成。该页还没有被线程池执行时直接在当前线程中加载，避免线程池被占满时互相等待
+	 */
+	private List<?> awaitPage(FutureTask<List<?>> fetchTask) throws Exception {
+		fetchTask.run();
+		try {
+			return fetchTask.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof Exception) {
+				throw (Exception)cause;
+			}
+			throw e;
+		}
 	}
 	
 	@Override
 	public void getRowData(GridDataLoaderListener listener) {
 		int i = 0;
-		while(true) {
-			try {
-				Object rowData = gridRowDataQuene.poll(POLL_TIMEOUT, TimeUnit.MINUTES);
-				if(rowData == null) {
-					thread.interrupt();
-					throw new RuntimeException("poll timeout");
-				} else if(rowData instanceof PoisonPill) {
-					PoisonPill poisonPill = (PoisonPill)rowData;
-					if(poisonPill.getT() != null) {
-						throw new RuntimeException("error occours while get grid data from dataSource", poisonPill.getT());
+		try {
+			while(true) {
+				try {
+					long timeout = pollTimeoutNanos;
+					if(cancellationToken != null) {
+						cancellationToken.throwIfCancelled();
+						timeout = Math.min(timeout, cancellationToken.remainingNanos());
+					}
+					Object page;
+					if(exportListener != null) {
+						exportListener.onQueueDepth(gridPageQuene.size());
+						long start = System.nanoTime();
+						page = gridPageQuene.poll(timeout, TimeUnit.NANOSECONDS);
+						exportListener.onPollBlocked(System.nanoTime() - start);
 					} else {
-						break;
+						page = gridPageQuene.poll(timeout, TimeUnit.NANOSECONDS);
 					}
-				} else {
-					listener.onReadRowData(i, rowData);
-					i++;
+					if(page == null) {
+						if(cancellationToken != null) {
+							cancellationToken.throwIfCancelled();
+						}
+						throw new RuntimeException("poll timeout");
+					} else if(page instanceof PoisonPill) {
+						PoisonPill poisonPill = (PoisonPill)page;
+						if(poisonPill.getT() instanceof CancellationException) {
+							throw (CancellationException)poisonPill.getT();
+						} else if(poisonPill.getT() != null) {
+							throw new RuntimeException("error occours while get grid data from dataSource", poisonPill.getT());
+						} else {
+							finished = true;
+							break;
+						}
+					} else {
+						for(Object rowData : (List<?>)page) {
+							listener.onReadRowData(i, rowData);
+							i++;
+						}
+					}
+				} catch (InterruptedException e) {
+					logger.error(e.getMessage(),e);
 				}
-			} catch (InterruptedException e) {
-				logger.error(e.getMessage(),e);
 			}
+		} finally {
+			release();
 		}
 	}
 	
+	@Override
+	public void release() {
+		if(loadTask != null && !finished) {
+			//超时、取消、写数据出错或没有读取数据时停止加载
+			loadTask.cancel(true);
+		}
+		if(cancelListener != null) {
+			cancellationToken.removeCancelListener(cancelListener);
+			cancelListener = null;
+		}
+	}
+
+
+	
 	/**
 	 * 致命药丸
 	 * @author wutian
@@ -153,4 +486,71 @@ public class AsyncPagingLoader implements GridDataLoader {
 		
 	}
 
+	/**
+	 * 按游标分页的表格数据源
+	 * @param <T>
+	 * @param <C> 游标类型
+	 */
+	public interface CursorGridDataSource<T, C> {
+		
+		/**
+		 * 获取表格数据
+		 * @param cursor 上一页返回的游标，第一页为null
+		 * @param pageSize 一页里面的记录数
+		 * @return 返回null、记录数小于pageSize或下一页游标为null时表示没有更多数据
+		 */
+		GridPage<T, C> getGridData(C cursor,int pageSize) throws InterruptedException;
+		
+	}
+	
+	/**
+	 * 按游标分页时的一页数据
+	 * @param <T>
+	 * @param <C> 游标类型
+	 */
+	public static class GridPage<T, C> {
+		
+		private List<T> rows;
+		
+		private C nextCursor;
+		
+		/**
+		 * @param rows 这一页的数据
+		 * @param nextCursor 下一页的游标，为null表示没有下一页
+		 */
+		public GridPage(List<T> rows, C nextCursor) {
+			this.rows = rows;
+			this.nextCursor = nextCursor;
+		}
+
+		public List<T> getRows() {
+			return rows;
+		}
+
+		public C getNextCursor() {
+			return nextCursor;
+		}
+		
+	}
+	
+	/**
+	 * 把按页码分页的数据源适配成按游标分页的数据源，游标为下一页的页码
+	 * @param <T>
+	 */
+	public static class PagingCursorDataSource<T> implements CursorGridDataSource<T, Integer> {
+		
+		private GridDataSource<T> gridDataSource;
+		
+		public PagingCursorDataSource(GridDataSource<T> gridDataSource) {
+			this.gridDataSource = gridDataSource;
+		}
+
+		@Override
+		public GridPage<T, Integer> getGridData(Integer cursor, int pageSize) throws InterruptedException {
+			int pageNo = cursor == null ? 1 : cursor;
+			return new GridPage<>(gridDataSource.getGridData(pageNo, pageSize), pageNo + 1);
+		}
+		
+	}
+
 }
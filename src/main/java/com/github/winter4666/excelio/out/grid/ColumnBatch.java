@@ -0,0 +1,128 @@
+package com.github.winter4666.excelio.out.grid;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按列保存的一批行数据，每个字段对应一个列向量（double[]、long[]、int[]、boolean[]或对象数组），
+ * 第i行的数据是各个列向量的第i个元素。列向量直接引用传入的数组，不复制
+ * @author wutian
+ */
+public class ColumnBatch {
+
+	private final int rowCount;
+
+	/**
+	 * 字段名到列向量
+	 */
+	private final Map<String, Object> columns = new LinkedHashMap<>();
+
+	/**
+	 * @param rowCount 行数，列向量的长度不能小于行数
+	 */
+	public ColumnBatch(int rowCount) {
+		if(rowCount < 0) {
+			throw new IllegalArgumentException("rowCount must not be negative");
+		}
+		this.rowCount = rowCount;
+	}
+
+	/**
+	 * 添加一个double列，NaN写为空单元格
+	 * @param fieldName 字段名
+	 * @param values 列向量
+	 * @return
+	 */
+	public ColumnBatch addColumn(String fieldName, double[] values) {
+		return putColumn(fieldName, values, values.length);
+	}
+
+	public ColumnBatch addColumn(String fieldName, long[] values) {
+		return putColumn(fieldName, values, values.length);
+	}
+
+	public ColumnBatch addColumn(String fieldName, int[] values) {
+		return putColumn(fieldName, values, values.length);
+	}
+
+	public ColumnBatch addColumn(String fieldName, boolean[] values) {
+		return putColumn(fieldName, values, values.length);
+	}
+
+	/**
+	 * 添加一个对象列，如String[]、Date[]，元素可以为null
+	 * @param fieldName 字段名
+	 * @param values 列向量
+	 * @return
+	 */
+	public ColumnBatch addColumn(String fieldName, Object[] values) {
+		return putColumn(fieldName, values, values.length);
+	}
+
+	private ColumnBatch putColumn(String fieldName, Object values, int length) {
+		if(length < rowCount) {
+			throw new IllegalArgumentException("column " + fieldName + " has " + length + " values, less than rowCount " + rowCount);
+		}
+		columns.put(fieldName, values);
+		return this;
+	}
+
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * 得到字段的列向量
+	 * @param fieldName 字段名
+	 * @return 没有该字段时返回null
+	 */
+	public Object getColumn(String fieldName) {
+		return columns.get(fieldName);
+	}
+
+	/**
+	 * 读取某一行某个字段的值，基本类型会装箱，double列中的NaN返回null
+	 * @param fieldName 字段名
+	 * @param rowIndex 批内的行号，从0开始
+	 * @return
+	 */
+	public Object getValue(String fieldName, int rowIndex) {
+		return getValue(columns.get(fieldName), rowIndex);
+	}
+
+	/**
+	 * 读取列向量中某一行的值，基本类型会装箱，double列中的NaN返回null
+	 * @param column 列向量
+	 * @param rowIndex 批内的行号，从0开始
+	 * @return
+	 */
+	static Object getValue(Object column, int rowIndex) {
+		if(column instanceof double[]) {
+			double value = ((double[])column)[rowIndex];
+			return Double.isNaN(value) ? null : value;
+		} else if(column instanceof long[]) {
+			return ((long[])column)[rowIndex];
+		} else if(column instanceof int[]) {
+			return ((int[])column)[rowIndex];
+		} else if(column instanceof boolean[]) {
+			return ((boolean[])column)[rowIndex];
+		} else if(column instanceof Object[]) {
+			return ((Object[])column)[rowIndex];
+		}
+		return null;
+	}
+
+	/**
+	 * 把某一行复制成Map，用于需要整行数据的场合，如{@link com.github.winter4666.excelio.common.GridColumn.FieldValueConverter}
+	 * @param rowIndex 批内的行号，从0开始
+	 * @return
+	 */
+	public Map<String, Object> getRow(int rowIndex) {
+		Map<String, Object> row = new LinkedHashMap<>();
+		for(Map.Entry<String, Object> entry : columns.entrySet()) {
+			row.put(entry.getKey(), getValue(entry.getValue(), rowIndex));
+		}
+		return row;
+	}
+
+}
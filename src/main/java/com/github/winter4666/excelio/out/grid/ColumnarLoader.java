@@ -0,0 +1,69 @@
+package com.github.winter4666.excelio.out.grid;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * 按列加载数据的加载器，数据由一批或多批{@link ColumnBatch}给出，批可以在迭代时才生成。
+ * {@link com.github.winter4666.excelio.out.ExcelWriter}写表格时按批读取，表格列按字段名绑定到列向量，
+ * 直接从基本类型数组写单元格，不为每一行创建对象，也不装箱。
+ * 其它使用者通过{@link #getRowData(GridDataLoaderListener)}读取时，每一行复制成一个Map。
+ * 批只能读取一次
+ * @author wutian
+ */
+public class ColumnarLoader implements GridDataLoader {
+
+	private final Iterator<ColumnBatch> batches;
+
+	public ColumnarLoader(ColumnBatch... batches) {
+		this(Arrays.asList(batches).iterator());
+	}
+
+	/**
+	 * @param batches 批的迭代器，可以在next()时才查询下一批数据
+	 */
+	public ColumnarLoader(Iterator<ColumnBatch> batches) {
+		this.batches = batches;
+	}
+
+	@Override
+	public void loadData() {
+
+	}
+
+	@Override
+	public void getRowData(final GridDataLoaderListener listener) {
+		getBatches(new ColumnBatchListener() {
+
+			@Override
+			public void onReadBatch(int firstGridRowNum, ColumnBatch batch) {
+				for(int i = 0;i < batch.getRowCount();i++) {
+					listener.onReadRowData(firstGridRowNum + i, batch.getRow(i));
+				}
+			}
+		});
+	}
+
+	/**
+	 * 按批读取数据
+	 * @param listener
+	 */
+	public void getBatches(ColumnBatchListener listener) {
+		int gridRowNum = 0;
+		while(batches.hasNext()) {
+			ColumnBatch batch = batches.next();
+			listener.onReadBatch(gridRowNum, batch);
+			gridRowNum += batch.getRowCount();
+		}
+	}
+
+	public interface ColumnBatchListener {
+
+		/**
+		 * @param firstGridRowNum 批中第一行在表格中的行号，从0开始
+		 * @param batch
+		 */
+		void onReadBatch(int firstGridRowNum, ColumnBatch batch);
+	}
+
+}
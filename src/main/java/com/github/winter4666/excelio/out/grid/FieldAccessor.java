@@ -0,0 +1,16 @@
+package com.github.winter4666.excelio.out.grid;
+
+/**
+ * 读取行数据中某个字段的值，由{@link FieldAccessors}根据行数据的类型和字段名生成
+ * @author wutian
+ */
+public interface FieldAccessor {
+
+	/**
+	 * 读取字段值
+	 * @param rowData 行数据
+	 * @return 字段值，路径上任意一级为null时返回null
+	 */
+	Object get(Object rowData);
+
+}
@@ -0,0 +1,388 @@
+package com.github.winter4666.excelio.out.grid;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.winter4666.excelio.common.GridColumn;
+
+/**
+ * 生成并缓存{@link FieldAccessor}。
+ * 字段名支持getter（getXxx、isXxx）、public字段以及用"."分隔的嵌套路径（如customer.name），
+ * Map类型的行数据按key读取。public的getter通过LambdaMetafactory生成直接调用，其余情况使用MethodHandle。
+ * 生成的{@link GridRowAccessor}通过ClassValue挂在行数据类型上，每个类型按字段名列表缓存在一个有界的LRU缓存中，
+ * 不会因为缓存而阻止行数据类型所在的类加载器被回收。
+ * @author wutian
+ */
+public class FieldAccessors {
+
+	/**
+	 * 每个行数据类型最多缓存的GridRowAccessor数量
+	 */
+	private static final int MAX_CACHED_ROW_ACCESSORS = 256;
+
+	private static final ClassValue<RowAccessorCache> rowAccessorCaches = new ClassValue<RowAccessorCache>() {
+
+		@Override
+		protected RowAccessorCache computeValue(Class<?> type) {
+			return new RowAccessorCache();
+		}
+
+	};
+
+	/**
+	 * ClassValue不能整体清空，调用{@link #clearCache()}后递增，各个类型的缓存发现不一致时清空自己
+	 */
+	private static volatile int cacheGeneration;
+
+	private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+	private FieldAccessors() {
+
+	}
+
+	/**
+	 * 得到行数据类型在一组表格列下的字段读取方案，结果会被缓存
+	 * @param rowClass 行数据类型
+	 * @param gridColumns 表格列信息
+	 * @return
+	 */
+	public static GridRowAccessor getRowAccessor(Class<?> rowClass, List<GridColumn> gridColumns) {
+		if(Map.class.isAssignableFrom(rowClass)) {
+			rowClass = Map.class;
+		}
+		String[] fieldNames = new String[gridColumns.size()];
+		for(int i = 0;i < fieldNames.length;i++) {
+			fieldNames[i] = gridColumns.get(i).getFieldName();
+		}
+		RowAccessorCache rowAccessorCache = rowAccessorCaches.get(rowClass);
+		List<String> key = Arrays.asList(fieldNames);
+		GridRowAccessor rowAccessor = rowAccessorCache.get(key);
+		if(rowAccessor == null) {
+			FieldAccessor[] fieldAccessors = new FieldAccessor[fieldNames.length];
+			for(int i = 0;i < fieldNames.length;i++) {
+				fieldAccessors[i] = getFieldAccessor(rowClass, fieldNames[i]);
+			}
+			rowAccessor = new GridRowAccessor(rowClass, fieldAccessors);
+			rowAccessorCache.put(key, rowAccessor);
+		}
+		return rowAccessor;
+	}
+
+	/**
+	 * 生成读取某个字段的FieldAccessor，不缓存
+	 * @param rowClass 行数据类型
+	 * @param fieldPath 字段名，支持用"."分隔的嵌套路径
+	 * @return
+	 */
+	public static FieldAccessor getFieldAccessor(Class<?> rowClass, String fieldPath) {
+		if(Map.class.isAssignableFrom(rowClass)) {
+			if(fieldPath.indexOf('.') < 0) {
+				return new MapEntryAccessor(fieldPath);
+			}
+			//Map的key本身可能包含"."，优先按完整的key读取
+			return new MapPathAccessor(fieldPath, buildPathAccessor(rowClass, fieldPath));
+		}
+		return buildPathAccessor(rowClass, fieldPath);
+	}
+
+	/**
+	 * 清空缓存
+	 */
+	public static void clearCache() {
+		cacheGeneration++;
+	}
+
+	private static FieldAccessor buildPathAccessor(Class<?> rowClass, String fieldPath) {
+		String[] names = fieldPath.split("\\.");
+		List<FieldAccessor> segments = new ArrayList<>(names.length);
+		Class<?> type = rowClass;
+		for(int i = 0;i < names.length;i++) {
+			Member member = type == null ? null : findMember(type, names[i]);
+			if(member != null) {
+				segments.add(member.accessor);
+				type = member.type;
+			} else if(i == 0 && !Map.class.isAssignableFrom(rowClass)) {
+				throw new RuntimeException("get value of " + fieldPath + " error, no getter or public field named "
+						+ names[i] + " in " + rowClass.getName());
+			} else {
+				//声明类型上找不到该属性（如声明为Object或接口），按运行时类型解析
+				segments.add(new DynamicFieldAccessor(names[i]));
+				type = null;
+			}
+		}
+		if(segments.size() == 1) {
+			return segments.get(0);
+		}
+		return new PathAccessor(segments.toArray(new FieldAccessor[segments.size()]));
+	}
+
+	private static Member findMember(Class<?> type, String name) {
+		if(Map.class.isAssignableFrom(type)) {
+			return new Member(new MapEntryAccessor(name), null);
+		}
+		String capitalizedName = name.substring(0, 1).toUpperCase() + name.substring(1);
+		Method method = findGetter(type, "get" + capitalizedName);
+		if(method == null) {
+			method = findGetter(type, "is" + capitalizedName);
+			if(method != null && method.getReturnType() != boolean.class && method.getReturnType() != Boolean.class) {
+				method = null;
+			}
+		}
+		if(method != null) {
+			return new Member(compileGetter(method), method.getReturnType());
+		}
+		try {
+			Field field = type.getField(name);
+			if(!Modifier.isStatic(field.getModifiers())) {
+				return new Member(compileField(field), field.getType());
+			}
+		} catch (NoSuchFieldException e) {
+			//没有public字段
+		}
+		return null;
+	}
+
+	private static Method findGetter(Class<?> type, String methodName) {
+		try {
+			Method method = type.getMethod(methodName);
+			if(method.getReturnType() == void.class || Modifier.isStatic(method.getModifiers())) {
+				return null;
+			}
+			return method;
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	private static FieldAccessor compileGetter(Method method) {
+		Class<?> declaringClass = method.getDeclaringClass();
+		try {
+			if(Modifier.isPublic(declaringClass.getModifiers()) && isVisible(declaringClass)) {
+				MethodHandle handle = lookup.unreflect(method);
+				CallSite callSite = LambdaMetafactory.metafactory(lookup,
+						"get",
+						MethodType.methodType(FieldAccessor.class),
+						MethodType.methodType(Object.class, Object.class),
+						handle,
+						handle.type().wrap().changeParameterType(0, declaringClass));
+				return (FieldAccessor)callSite.getTarget().invoke();
+			}
+		} catch (Throwable t) {
+			//无法生成lambda时使用MethodHandle
+		}
+		try {
+			method.setAccessible(true);
+			return new MethodHandleAccessor(method.getName(), lookup.unreflect(method));
+		} catch (IllegalAccessException | RuntimeException e) {
+			throw new RuntimeException("get value of " + method.getName() + " error", e);
+		}
+	}
+
+	private static FieldAccessor compileField(Field field) {
+		try {
+			field.setAccessible(true);
+			return new MethodHandleAccessor(field.getName(), lookup.unreflectGetter(field));
+		} catch (IllegalAccessException | RuntimeException e) {
+			throw new RuntimeException("get value of " + field.getName() + " error", e);
+		}
+	}
+
+	/**
+	 * 生成的lambda类定义在本类的ClassLoader中，只有能从这里看到的类才能直接引用
+	 */
+	private static boolean isVisible(Class<?> type) {
+		try {
+			return Class.forName(type.getName(), false, FieldAccessors.class.getClassLoader()) == type;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+	private static class Member {
+
+		private final FieldAccessor accessor;
+
+		/**
+		 * 属性的声明类型，用于解析嵌套路径的下一级
+		 */
+		private final Class<?> type;
+
+		private Member(FieldAccessor accessor, Class<?> type) {
+			this.accessor = accessor;
+			this.type = type;
+		}
+
+	}
+
+	private static class MethodHandleAccessor implements FieldAccessor {
+
+		private final String name;
+
+		private final MethodHandle handle;
+
+		private MethodHandleAccessor(String name, MethodHandle handle) {
+			this.name = name;
+			this.handle = handle.asType(MethodType.methodType(Object.class, Object.class));
+		}
+
+		@Override
+		public Object get(Object rowData) {
+			try {
+				return (Object)handle.invokeExact(rowData);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable t) {
+				throw new RuntimeException("get value of " + name + " error", t);
+			}
+		}
+
+	}
+
+	private static class MapEntryAccessor implements FieldAccessor {
+
+		private final String key;
+
+		private MapEntryAccessor(String key) {
+			this.key = key;
+		}
+
+		@Override
+		public Object get(Object rowData) {
+			return ((Map<?, ?>)rowData).get(key);
+		}
+
+	}
+
+	private static class MapPathAccessor implements FieldAccessor {
+
+		private final String key;
+
+		private final FieldAccessor pathAccessor;
+
+		private MapPathAccessor(String key, FieldAccessor pathAccessor) {
+			this.key = key;
+			this.pathAccessor = pathAccessor;
+		}
+
+		@Override
+		public Object get(Object rowData) {
+			Object value = ((Map<?, ?>)rowData).get(key);
+			if(value != null) {
+				return value;
+			}
+			return pathAccessor.get(rowData);
+		}
+
+	}
+
+	private static class PathAccessor implements FieldAccessor {
+
+		private final FieldAccessor[] segments;
+
+		private PathAccessor(FieldAccessor[] segments) {
+			this.segments = segments;
+		}
+
+		@Override
+		public Object get(Object rowData) {
+			Object value = rowData;
+			for(int i = 0;i < segments.length && value != null;i++) {
+				value = segments[i].get(value);
+			}
+			return value;
+		}
+
+	}
+
+	/**
+	 * 按值的运行时类型解析属性，缓存最近一次解析的结果
+	 */
+	private static class DynamicFieldAccessor implements FieldAccessor {
+
+		private final String name;
+
+		/**
+		 * 最近一次解析的结果，ownerType与accessor放在同一个对象中以保证多线程下的一致性
+		 */
+		private volatile ResolvedMember cached;
+
+		private DynamicFieldAccessor(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public Object get(Object rowData) {
+			Class<?> type = rowData.getClass();
+			ResolvedMember resolved = cached;
+			if(resolved == null || resolved.ownerType != type) {
+				Member member = findMember(type, name);
+				if(member == null) {
+					throw new RuntimeException("get value of " + name + " error, no getter or public field named "
+							+ name + " in " + type.getName());
+				}
+				resolved = new ResolvedMember(type, member.accessor);
+				cached = resolved;
+			}
+			return resolved.accessor.get(rowData);
+		}
+
+	}
+
+	private static class ResolvedMember {
+
+		private final Class<?> ownerType;
+
+		private final FieldAccessor accessor;
+
+		private ResolvedMember(Class<?> ownerType, FieldAccessor accessor) {
+			this.ownerType = ownerType;
+			this.accessor = accessor;
+		}
+
+	}
+
+	/**
+	 * 一个行数据类型的GridRowAccessor缓存，按字段名列表LRU淘汰
+	 */
+	private static class RowAccessorCache {
+
+		private final LinkedHashMap<List<String>, GridRowAccessor> rowAccessors = new LinkedHashMap<List<String>, GridRowAccessor>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<List<String>, GridRowAccessor> eldest) {
+				return size() > MAX_CACHED_ROW_ACCESSORS;
+			}
+
+		};
+
+		private int generation = cacheGeneration;
+
+		private synchronized GridRowAccessor get(List<String> fieldNames) {
+			if(generation != cacheGeneration) {
+				rowAccessors.clear();
+				generation = cacheGeneration;
+				return null;
+			}
+			return rowAccessors.get(fieldNames);
+		}
+
+		private synchronized void put(List<String> fieldNames, GridRowAccessor rowAccessor) {
+			rowAccessors.put(fieldNames, rowAccessor);
+		}
+
+	}
+
+}
@@ -1,5 +1,8 @@
 package com.github.winter4666.excelio.out.grid;
 
+import com.github.winter4666.excelio.common.CancellationToken;
+import com.github.winter4666.excelio.out.ExportListener;
+
 /**
  * excel导出表格时加载数据的接口
  * @author wutian
@@ -17,6 +20,34 @@ public interface GridDataLoader {
 	 */
 	void getRowData(GridDataLoaderListener listener);
 	
+	/**
+	 * 设置取消标记，在{@link #loadData()}之前调用。取消后加载器应尽快停止加载，
+	 * 并让{@link #getRowData(GridDataLoaderListener)}抛出{@link java.util.concurrent.CancellationException}。
+	 * 默认不做处理，写表格时仍会在每一行之前检查取消标记
+	 * @param cancellationToken
+	 */
+	default void setCancellationToken(CancellationToken cancellationToken) {
+		
+	}
+	
+	/**
+	 * 设置导出监听器，在{@link #loadData()}之前调用，异步加载的加载器通过它报告数据源耗时和线程间的等待。
+	 * 默认不做处理
+	 * @param exportListener
+	 */
+	default void setExportListener(ExportListener exportListener) {
+		
+	}
+	
+	/**
+	 * 停止加载并释放资源。写表格结束后无论成功还是出错都会调用，
+	 * 包括{@link #loadData()}之后写表头出错、{@link #getRowData(GridDataLoaderListener)}没有被调用的情况，可能被调用多次。
+	 * 默认不做处理
+	 */
+	default void release() {
+		
+	}
+	
 	interface GridDataLoaderListener {
 		void onReadRowData(int gridRowNum,Object rowData);
 	}
@@ -0,0 +1,49 @@
+package com.github.winter4666.excelio.out.grid;
+
+/**
+ * 某一种行数据类型在一组表格列下的字段读取方案，每一列对应一个{@link FieldAccessor}，
+ * 由{@link FieldAccessors#getRowAccessor(Class, java.util.List)}生成并缓存，线程安全
+ * @author wutian
+ */
+public class GridRowAccessor {
+
+	/**
+	 * 行数据类型，Map类型的行数据统一为Map.class
+	 */
+	private final Class<?> rowClass;
+
+	private final FieldAccessor[] fieldAccessors;
+
+	GridRowAccessor(Class<?> rowClass, FieldAccessor[] fieldAccessors) {
+		this.rowClass = rowClass;
+		this.fieldAccessors = fieldAccessors;
+	}
+
+	/**
+	 * 读取行数据中第columnIndex列的值
+	 * @param columnIndex 表格列的下标，从0开始
+	 * @param rowData 行数据
+	 * @return
+	 */
+	public Object getFieldValue(int columnIndex, Object rowData) {
+		return fieldAccessors[columnIndex].get(rowData);
+	}
+
+	/**
+	 * 得到第columnIndex列的字段读取器
+	 * @param columnIndex 表格列的下标，从0开始
+	 * @return
+	 */
+	public FieldAccessor getFieldAccessor(int columnIndex) {
+		return fieldAccessors[columnIndex];
+	}
+
+	public Class<?> getRowClass() {
+		return rowClass;
+	}
+
+	public int getColumnCount() {
+		return fieldAccessors.length;
+	}
+
+}
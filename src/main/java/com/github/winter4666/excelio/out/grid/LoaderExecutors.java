@@ -0,0 +1,153 @@
+package com.github.winter4666.excelio.out.grid;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link AsyncPagingLoader}加载数据使用的线程。
+ * JDK 21及以上默认每个任务使用一个虚拟线程；更低版本的JDK默认和以前一样每个任务创建一个新的平台线程。
+ * 所有加载器共享的有界线程池需要通过{@link AsyncPagingLoader#setExecutor(Executor)}显式使用，
+ * 线程数达到上限后新的任务排队等待，空闲的线程会自动结束。
+ * @author wutian
+ */
+public class LoaderExecutors {
+
+	private static Logger logger = LoggerFactory.getLogger(LoaderExecutors.class);
+
+	private static final String THREAD_NAME_PREFIX = "excel-io-loader-";
+
+	/**
+	 * 共享线程池中空闲线程的存活时间（秒）
+	 */
+	private static final long KEEP_ALIVE_SECONDS = 60;
+
+	/**
+	 * 共享线程池的最大线程数
+	 */
+	private static final int SHARED_POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+	private static final ThreadFactory VIRTUAL_THREAD_FACTORY = createVirtualThreadFactory();
+
+	/**
+	 * 不支持虚拟线程时默认使用的线程工厂，所有加载器共用，线程按序号命名
+	 */
+	private static final ThreadFactory PLATFORM_THREAD_FACTORY = namedThreadFactory(THREAD_NAME_PREFIX, false);
+
+	private static ThreadPoolExecutor sharedExecutor;
+
+	private LoaderExecutors() {
+
+	}
+
+	/**
+	 * 当前JDK是否支持虚拟线程
+	 * @return
+	 */
+	public static boolean isVirtualThreadAvailable() {
+		return VIRTUAL_THREAD_FACTORY != null;
+	}
+
+	/**
+	 * 每个任务使用一个虚拟线程的执行器
+	 * @return 当前JDK不支持虚拟线程时返回null
+	 */
+	public static Executor virtualThreadExecutor() {
+		if(VIRTUAL_THREAD_FACTORY == null) {
+			return null;
+		}
+		return threadPerTaskExecutor(VIRTUAL_THREAD_FACTORY);
+	}
+
+	/**
+	 * 每个任务用threadFactory创建一个线程的执行器
+	 * @param threadFactory
+	 * @return
+	 */
+	public static Executor threadPerTaskExecutor(final ThreadFactory threadFactory) {
+		return new Executor() {
+
+			@Override
+			public void execute(Runnable command) {
+				threadFactory.newThread(command).start();
+			}
+		};
+	}
+
+	/**
+	 * 所有加载器共享的有界线程池，线程为守护线程。默认的执行器不使用它，需要时通过{@link AsyncPagingLoader#setExecutor(Executor)}指定
+	 * @return
+	 */
+	public static synchronized Executor sharedExecutor() {
+		if(sharedExecutor == null || sharedExecutor.isShutdown()) {
+			sharedExecutor = new ThreadPoolExecutor(SHARED_POOL_SIZE, SHARED_POOL_SIZE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), namedThreadFactory(THREAD_NAME_PREFIX, true));
+			sharedExecutor.allowCoreThreadTimeOut(true);
+		}
+		return sharedExecutor;
+	}
+
+	/**
+	 * 默认的执行器，支持虚拟线程时使用虚拟线程，否则每个任务创建一个新的线程（excel-io-loader-N）。
+	 * 默认的执行器不限制线程数，需要限制同时加载的线程数时通过{@link AsyncPagingLoader#setExecutor(Executor)}指定{@link #sharedExecutor()}或自己的线程池
+	 * @return
+	 */
+	public static Executor defaultExecutor() {
+		Executor executor = virtualThreadExecutor();
+		return executor != null ? executor : threadPerTaskExecutor(PLATFORM_THREAD_FACTORY);
+	}
+
+	/**
+	 * 关闭共享线程池，已经提交的任务会继续执行完，之后再调用{@link #sharedExecutor()}会重新创建
+	 */
+	public static synchronized void shutdown() {
+		if(sharedExecutor != null) {
+			sharedExecutor.shutdown();
+			sharedExecutor = null;
+		}
+	}
+
+	/**
+	 * 创建按序号命名线程的线程工厂
+	 * @param namePrefix 线程名称前缀
+	 * @param daemon 是否为守护线程
+	 * @return
+	 */
+	public static ThreadFactory namedThreadFactory(final String namePrefix, final boolean daemon) {
+		return new ThreadFactory() {
+
+			private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, namePrefix + threadNumber.getAndIncrement());
+				thread.setDaemon(daemon);
+				return thread;
+			}
+		};
+	}
+
+	/**
+	 * 通过反射调用Thread.ofVirtual().name(prefix, 1).factory()，兼容JDK 21以下的版本
+	 */
+	private static ThreadFactory createVirtualThreadFactory() {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, THREAD_NAME_PREFIX + "virtual-", 1L);
+			return (ThreadFactory)builderClass.getMethod("factory").invoke(builder);
+		} catch (NoSuchMethodException | ClassNotFoundException e) {
+			return null;
+		} catch (Exception e) {
+			logger.debug("virtual thread is not available", e);
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,39 @@
+package com.github.winter4666.excelio.out;
+
+import java.io.ByteArrayInputStream;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+
+import com.github.winter4666.excelio.out.ExcelWriter.AutoSizeStrategy;
+import com.github.winter4666.excelio.out.ExcelWriter.ExcelFormat;
+
+import junit.framework.TestCase;
+
+public class ColumnWidthEstimatorTest extends TestCase {
+
+	public void testCharacterClasses() {
+		assertEquals(8f, ColumnWidthEstimator.textWidth("中文名称"));
+		assertEquals(4f, ColumnWidthEstimator.textWidth("1234"));
+		assertEquals(3f, ColumnWidthEstimator.textWidth("ab\nabc"));
+	}
+
+	public void testEstimatedWidths() throws Exception {
+		for(ExcelFormat excelFormat : new ExcelFormat[] {ExcelFormat.SXSSF, ExcelFormat.STREAMING_XML}) {
+			ExcelWriter excelWriter = new ExcelWriterBuilder().setExcelFormat(excelFormat)
+					.enableAutoSizeColumn(AutoSizeStrategy.ESTIMATE).build();
+			excelWriter.write("短").write("一个比较长的中文标题").nextLine();
+			excelWriter.write("merged across two columns", 2).nextLine();
+			Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(excelWriter.exportToByteArray()));
+			try {
+				Sheet sheet = workbook.getSheetAt(0);
+				assertTrue(excelFormat.name(), sheet.getColumnWidth(1) > sheet.getColumnWidth(0));
+				assertTrue(excelFormat.name(), sheet.getColumnWidth(0) >= 12 * 256);
+			} finally {
+				workbook.close();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,101 @@
+package com.github.winter4666.excelio.out;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+
+import com.github.winter4666.excelio.common.GridColumn;
+import com.github.winter4666.excelio.common.GridColumn.FieldValueConverter;
+import com.github.winter4666.excelio.out.ExcelWriter.ExcelFormat;
+import com.github.winter4666.excelio.out.ExcelWriter.GridCellStyle;
+import com.github.winter4666.excelio.out.grid.ColumnBatch;
+import com.github.winter4666.excelio.out.grid.ColumnarLoader;
+import com.github.winter4666.excelio.out.grid.GridDataLoader.GridDataLoaderListener;
+
+import junit.framework.TestCase;
+
+public class ColumnarExportTest extends TestCase {
+
+	private static List<GridColumn> gridColumns() {
+		return Arrays.asList(GridColumn.newInstance("id", "Id"), GridColumn.newInstance("price", "Price"),
+				GridColumn.newInstance("name", "Name"), GridColumn.newInstance("flag", "Flag").fieldValueConverter(new FieldValueConverter() {
+
+					@Override
+					public Object convert(Object fieldValue, Object rowData) {
+						return (Boolean)fieldValue ? "Y" : ((Map<?, ?>)rowData).get("name");
+					}
+				}));
+	}
+
+	private static ColumnarLoader loader() {
+		return new ColumnarLoader(
+				new ColumnBatch(2).addColumn("id", new long[] {1, 2}).addColumn("price", new double[] {1.5, Double.NaN})
+						.addColumn("name", new String[] {"a", null}).addColumn("flag", new boolean[] {true, false}),
+				new ColumnBatch(1).addColumn("id", new int[] {3}).addColumn("price", new double[] {3})
+						.addColumn("name", new String[] {"c"}).addColumn("flag", new boolean[] {false}));
+	}
+
+	public void testWriteColumnar() throws Exception {
+		for(ExcelFormat excelFormat : Arrays.asList(ExcelFormat.XSSF, ExcelFormat.STREAMING_XML)) {
+			ExcelWriter excelWriter = new ExcelWriterBuilder().setExcelFormat(excelFormat).build();
+			excelWriter.writeGrid(gridColumns(), loader());
+			Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(excelWriter.exportToByteArray()));
+			try {
+				Sheet sheet = workbook.getSheetAt(0);
+				assertEquals("Id", sheet.getRow(0).getCell(0).getStringCellValue());
+				assertEquals(1.0, sheet.getRow(1).getCell(0).getNumericCellValue());
+				assertEquals(1.5, sheet.getRow(1).getCell(1).getNumericCellValue());
+				assertEquals("a", sheet.getRow(1).getCell(2).getStringCellValue());
+				assertEquals("Y", sheet.getRow(1).getCell(3).getStringCellValue());
+				assertEquals(CellType.BLANK, sheet.getRow(2).getCell(1).getCellType());
+				assertEquals(3.0, sheet.getRow(3).getCell(0).getNumericCellValue());
+				assertEquals("c", sheet.getRow(3).getCell(3).getStringCellValue());
+			} finally {
+				workbook.close();
+			}
+		}
+	}
+
+	public void testCustomStyle() throws Exception {
+		ExcelWriter excelWriter = new ExcelWriterBuilder().setExcelFormat(ExcelFormat.CSV).build();
+		final List<String> styledValues = new ArrayList<>();
+		excelWriter.writeGrid(gridColumns(), loader(), new GridCellStyle() {
+
+			@Override
+			public CellStyle getHeaderCellStyle(ExcelWriter excelWriter, String fieldName) {
+				return null;
+			}
+
+			@Override
+			public CellStyle getDataCellStyle(ExcelWriter excelWriter, String fieldName, int gridRowNum, Object fieldValue) {
+				styledValues.add(gridRowNum + ":" + fieldValue);
+				return null;
+			}
+		});
+		assertEquals("\uFEFFId,Price,Name,Flag\r\n1,1.5,a,Y\r\n2,,,\r\n3,3,c,c\r\n", new String(excelWriter.exportToByteArray(), StandardCharsets.UTF_8));
+		assertEquals(Arrays.asList("0:1", "0:1.5", "0:a", "0:Y", "1:2", "1:null", "1:null", "1:null", "2:3", "2:3.0", "2:c", "2:c"), styledValues);
+	}
+
+	public void testGetRowData() {
+		final List<Object> rows = new ArrayList<>();
+		loader().getRowData(new GridDataLoaderListener() {
+
+			@Override
+			public void onReadRowData(int gridRowNum, Object rowData) {
+				rows.add(gridRowNum + ":" + rowData);
+			}
+		});
+		assertEquals(Arrays.asList("0:{id=1, price=1.5, name=a, flag=true}", "1:{id=2, price=null, name=null, flag=false}",
+				"2:{id=3, price=3.0, name=c, flag=false}"), rows);
+	}
+
+}
@@ -0,0 +1,80 @@
+package com.github.winter4666.excelio.out;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import com.github.winter4666.excelio.common.GridColumn;
+import com.github.winter4666.excelio.common.GridColumn.FieldValueConverter;
+import com.github.winter4666.excelio.out.ExcelWriter.ExcelFormat;
+
+import junit.framework.TestCase;
+
+public class DelimitedTextExportTest extends TestCase {
+
+	public void testCsv() throws Exception {
+		ExcelWriter excelWriter = new ExcelWriterBuilder().setExcelFormat(ExcelFormat.CSV).setRowAccessWindowSize(2).build();
+		excelWriter.setDateFormat("yyyy/MM/dd");
+		excelWriter.write("title", 3).nextLine();
+		Date date = new SimpleDateFormat("yyyy-MM-dd").parse("2020-01-02");
+		List<Map<String, Object>> rows = new ArrayList<>();
+		for(int i = 0;i < 3;i++) {
+			Map<String, Object> row = new HashMap<>();
+			row.put("name", i == 1 ? "a,\"b\"\nc" : "name" + i);
+			row.put("amount", i * 1.5);
+			row.put("date", date);
+			row.put("status", i);
+			rows.add(row);
+		}
+		excelWriter.writeGrid(Arrays.asList(GridColumn.newInstance("name", "Name"), GridColumn.newInstance("amount", "Amount"),
+				GridColumn.newInstance("date", "Date"), GridColumn.newInstance("status", "Status").fieldValueConverter(new FieldValueConverter() {
+
+					@Override
+					public Object convert(Object fieldValue, Object rowData) {
+						return (Integer)fieldValue == 0 ? "off" : "on";
+					}
+				})), rows);
+		excelWriter.nextSheet("second");
+		excelWriter.write(1L).write(null).write(12345678901L);
+		String text = new String(excelWriter.exportToByteArray(), StandardCharsets.UTF_8);
+		assertEquals("\uFEFFtitle,,\r\n"
+				+ "Name,Amount,Date,Status\r\n"
+				+ "name0,0,2020/01/02,off\r\n"
+				+ "\"a,\"\"b\"\"\nc\",1.5,2020/01/02,on\r\n"
+				+ "name2,3,2020/01/02,on\r\n"
+				+ "\r\n"
+				+ "1,,12345678901\r\n", text);
+	}
+
+	public void testGzipTsvToOutputStream() throws Exception {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		ExcelWriter excelWriter = new ExcelWriterBuilder().setExcelFormat(ExcelFormat.TSV).setOutputStream(outputStream)
+				.enableGzip().build();
+		excelWriter.write("a\tb").write("c,d").nextLine().write(2.5);
+		excelWriter.export();
+		InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(outputStream.toByteArray()));
+		ByteArrayOutputStream unzipped = new ByteArrayOutputStream();
+		byte[] buf = new byte[1024];
+		int len;
+		while((len = inputStream.read(buf)) > 0) {
+			unzipped.write(buf, 0, len);
+		}
+		assertEquals("\uFEFF\"a\tb\"\tc,d\r\n2.5\r\n", new String(unzipped.toByteArray(), StandardCharsets.UTF_8));
+		try {
+			excelWriter.export();
+			fail();
+		} catch (IllegalStateException e) {
+
+		}
+	}
+
+}
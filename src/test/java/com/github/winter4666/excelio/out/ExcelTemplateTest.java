@@ -0,0 +1,164 @@
+package com.github.winter4666.excelio.out;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import com.github.winter4666.excelio.common.GridColumn;
+import com.github.winter4666.excelio.out.ExcelWriter.ExcelFormat;
+
+import junit.framework.TestCase;
+
+public class ExcelTemplateTest extends TestCase {
+
+	/**
+	 * 销售报表模板中的一行
+	 */
+	public static class SalesLine {
+
+		private final String product;
+
+		private final double revenue;
+
+		public SalesLine(String product, double revenue) {
+			this.product = product;
+			this.revenue = revenue;
+		}
+
+		public String getProduct() {
+			return product;
+		}
+
+		public double getRevenue() {
+			return revenue;
+		}
+
+	}
+
+	private static List<GridColumn> gridColumns = Arrays.asList(GridColumn.newInstance("product", "Product"), GridColumn.newInstance("revenue", "Revenue"));
+
+	private static List<SalesLine> salesLines(int count) {
+		List<SalesLine> salesLines = new ArrayList<>();
+		for(int i = 0;i < count;i++) {
+			salesLines.add(new SalesLine("product" + i, i * 2.25));
+		}
+		return salesLines;
+	}
+
+	/**
+	 * 标题、表头和样例行，第二个sheet为说明
+	 */
+	private static byte[] templateContent() throws Exception {
+		XSSFWorkbook workbook = new XSSFWorkbook();
+		try {
+			Sheet sheet = workbook.createSheet("Report");
+			Font bold = workbook.createFont();
+			bold.setBold(true);
+			CellStyle titleStyle = workbook.createCellStyle();
+			titleStyle.setFont(bold);
+			Row title = sheet.createRow(0);
+			title.createCell(0).setCellValue("Sales Report");
+			title.getCell(0).setCellStyle(titleStyle);
+			sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, 1));
+			Row header = sheet.createRow(1);
+			header.createCell(0).setCellValue("Product");
+			header.createCell(1).setCellValue("Revenue");
+			CellStyle productStyle = workbook.createCellStyle();
+			productStyle.setBorderBottom(BorderStyle.THIN);
+			CellStyle revenueStyle = workbook.createCellStyle();
+			revenueStyle.setDataFormat(workbook.createDataFormat().getFormat("0.00"));
+			Row sample = sheet.createRow(2);
+			sample.createCell(0).setCellStyle(productStyle);
+			sample.createCell(1).setCellStyle(revenueStyle);
+			sheet.setColumnWidth(0, 30 * 256);
+			workbook.createSheet("Notes").createRow(0).createCell(0).setCellValue("static");
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			workbook.write(outputStream);
+			return outputStream.toByteArray();
+		} finally {
+			workbook.close();
+		}
+	}
+
+	public void testWriteBelowAnchor() throws Exception {
+		byte[] content = templateContent();
+		ExcelTemplate template = ExcelTemplate.newBuilder(new ByteArrayInputStream(content)).setSheetName("Report").setAnchorRow(2).build();
+		int templateStyles;
+		Workbook templateWorkbook = WorkbookFactory.create(new ByteArrayInputStream(content));
+		try {
+			templateStyles = templateWorkbook.getNumCellStyles();
+		} finally {
+			templateWorkbook.close();
+		}
+		//同一个模板多次导出
+		for(int n = 0;n < 2;n++) {
+			ExcelWriter excelWriter = new ExcelWriterBuilder().setTemplate(template).setRowAccessWindowSize(50).build();
+			assertEquals(ExcelFormat.SXSSF, excelWriter.getExcelFormat());
+			excelWriter.writeGrid(gridColumns, salesLines(500));
+			Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(excelWriter.exportToByteArray()));
+			try {
+				assertEquals(2, workbook.getNumberOfSheets());
+				assertEquals("static", workbook.getSheet("Notes").getRow(0).getCell(0).getStringCellValue());
+				Sheet sheet = workbook.getSheet("Report");
+				assertEquals("Sales Report", sheet.getRow(0).getCell(0).getStringCellValue());
+				assertEquals(1, sheet.getNumMergedRegions());
+				assertEquals("Revenue", sheet.getRow(1).getCell(1).getStringCellValue());
+				assertEquals(30 * 256, sheet.getColumnWidth(0));
+				assertEquals("product0", sheet.getRow(2).getCell(0).getStringCellValue());
+				assertEquals(BorderStyle.THIN, sheet.getRow(2).getCell(0).getCellStyle().getBorderBottom());
+				assertEquals("0.00", sheet.getRow(501).getCell(1).getCellStyle().getDataFormatString());
+				assertEquals(499 * 2.25, sheet.getRow(501).getCell(1).getNumericCellValue());
+				assertEquals(502, sheet.getPhysicalNumberOfRows());
+				//只使用模板中已有的样式
+				assertEquals(templateStyles, workbook.getNumCellStyles());
+			} finally {
+				workbook.close();
+			}
+		}
+	}
+
+	public void testDefaultAnchor() throws Exception {
+		ExcelTemplate template = ExcelTemplate.newBuilder(new ByteArrayInputStream(templateContent())).build();
+		//没有设置锚点行时从最后一行的下一行开始，样例行也作为模板内容保留
+		assertEquals(3, template.getAnchorRow());
+		ExcelWriter excelWriter = new ExcelWriterBuilder().setTemplate(template).build();
+		excelWriter.ignoreGridHeader(false).writeGrid(gridColumns, salesLines(2));
+		Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(excelWriter.exportToByteArray()));
+		try {
+			Sheet sheet = workbook.getSheetAt(0);
+			assertEquals("Product", sheet.getRow(3).getCell(0).getStringCellValue());
+			assertEquals("product1", sheet.getRow(5).getCell(0).getStringCellValue());
+		} finally {
+			workbook.close();
+		}
+	}
+
+	public void testInvalidUsage() throws Exception {
+		try {
+			ExcelTemplate.newBuilder(new ByteArrayInputStream(templateContent())).setSheetName("missing").build();
+			fail();
+		} catch (IllegalArgumentException e) {
+
+		}
+		ExcelTemplate template = ExcelTemplate.newBuilder(new ByteArrayInputStream(templateContent())).build();
+		try {
+			new ExcelWriterBuilder().setTemplate(template).setOutputStream(new ByteArrayOutputStream()).build();
+			fail();
+		} catch (IllegalArgumentException e) {
+
+		}
+	}
+
+}
@@ -0,0 +1,114 @@
+package com.github.winter4666.excelio.out;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+
+import com.github.winter4666.excelio.common.CancellationToken;
+import com.github.winter4666.excelio.common.GridColumn;
+import com.github.winter4666.excelio.common.GridColumn.FieldValueConverter;
+import com.github.winter4666.excelio.out.ExcelWriter.ExcelFormat;
+import com.github.winter4666.excelio.out.ExcelWriter.GridCellStyle;
+import com.github.winter4666.excelio.out.grid.AsyncPagingLoader;
+import com.github.winter4666.excelio.out.grid.AsyncPagingLoader.GridDataSource;
+
+import junit.framework.TestCase;
+
+public class ExcelWriterCancellationTest extends TestCase {
+
+	public void testCancelWriteGridDisposesTempFiles() throws IOException {
+		final CancellationToken cancellationToken = CancellationToken.newInstance();
+		ExcelWriter excelWriter = new ExcelWriterBuilder().setExcelFormat(ExcelFormat.SXSSF)
+				.setRowAccessWindowSize(10).setCancellationToken(cancellationToken).build();
+		int tempFiles = countSxssfTempFiles();
+		List<Map<String, Object>> rows = new ArrayList<>();
+		for(int i = 0;i < 1000;i++) {
+			Map<String, Object> row = new HashMap<>();
+			row.put("id", i);
+			rows.add(row);
+		}
+		final int[] written = new int[1];
+		GridColumn gridColumn = GridColumn.newInstance("id").fieldValueConverter(new FieldValueConverter() {
+
+			@Override
+			public Object convert(Object fieldValue, Object rowData) {
+				if(++written[0] == 500) {
+					cancellationToken.cancel();
+				}
+				return fieldValue;
+			}
+		});
+		try {
+			excelWriter.writeGrid(Arrays.asList(gridColumn), rows);
+			fail();
+		} catch (CancellationException e) {
+			assertEquals("export cancelled", e.getMessage());
+		}
+		assertEquals(500, written[0]);
+		assertTrue(countSxssfTempFiles() < tempFiles + 1);
+		try {
+			excelWriter.exportToByteArray();
+			fail();
+		} catch (IllegalStateException e) {
+		}
+	}
+
+	public void testHeaderErrorStopsLoader() throws InterruptedException {
+		final CountDownLatch interrupted = new CountDownLatch(1);
+		AsyncPagingLoader loader = new AsyncPagingLoader(new GridDataSource<Integer>() {
+
+			@Override
+			public List<Integer> getGridData(int pageNo, int pageSize) throws InterruptedException {
+				try {
+					Thread.sleep(60000);
+				} catch (InterruptedException e) {
+					interrupted.countDown();
+					throw e;
+				}
+				return null;
+			}
+		}, 10);
+		ExcelWriter excelWriter = new ExcelWriterBuilder().setCancellationToken(CancellationToken.newInstance()).build();
+		try {
+			excelWriter.writeGrid(Arrays.asList(GridColumn.newInstance("id")), loader, new GridCellStyle() {
+
+				@Override
+				public CellStyle getHeaderCellStyle(ExcelWriter excelWriter, String fieldName) {
+					throw new IllegalStateException("header");
+				}
+
+				@Override
+				public CellStyle getDataCellStyle(ExcelWriter excelWriter, String fieldName, int gridRowNum, Object fieldValue) {
+					return null;
+				}
+			});
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals("header", e.getMessage());
+		}
+		assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+	}
+
+	private int countSxssfTempFiles() {
+		File[] files = new File(System.getProperty("java.io.tmpdir"), "poifiles").listFiles();
+		int count = 0;
+		if(files != null) {
+			for(File file : files) {
+				if(file.getName().startsWith("poi-sxssf-sheet")) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+}
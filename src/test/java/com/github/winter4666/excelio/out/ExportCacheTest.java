@@ -0,0 +1,213 @@
+package com.github.winter4666.excelio.out;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+
+import com.github.winter4666.excelio.common.GridColumn;
+import com.github.winter4666.excelio.out.ExcelWriter.ExcelFormat;
+import com.github.winter4666.excelio.out.ExportCache.ContentWriter;
+
+import junit.framework.TestCase;
+
+public class ExportCacheTest extends TestCase {
+
+	private File directory;
+
+	@Override
+	protected void setUp() throws Exception {
+		directory = Files.createTempDirectory("export-cache").toFile();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		File[] files = directory.listFiles();
+		if(files != null) {
+			for(File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	private static ContentWriter contentWriter(final String report, final AtomicInteger generations, final long sleepMillis) {
+		return new ContentWriter() {
+
+			@Override
+			public void write(ExcelWriter excelWriter) throws Exception {
+				generations.incrementAndGet();
+				Thread.sleep(sleepMillis);
+				List<Map<String, Object>> rows = new ArrayList<>();
+				for(int i = 0;i < 100;i++) {
+					Map<String, Object> row = new HashMap<>();
+					row.put("name", report + "-" + i);
+					rows.add(row);
+				}
+				excelWriter.writeGrid(Arrays.asList(GridColumn.newInstance("name", "Name")), rows);
+			}
+		};
+	}
+
+	private static ExcelWriterBuilder builder() {
+		return new ExcelWriterBuilder().setExcelFormat(ExcelFormat.STREAMING_XML);
+	}
+
+	public void testHit() throws Exception {
+		ExportCache exportCache = ExportCache.newBuilder(directory).build();
+		AtomicInteger generations = new AtomicInteger();
+		byte[] first = exportCache.getBytes("report-a?x=1", builder(), contentWriter("a", generations, 0));
+		byte[] second = exportCache.getBytes("report-a?x=1", builder(), contentWriter("a", generations, 0));
+		assertEquals(1, generations.get());
+		assertTrue(Arrays.equals(first, second));
+		assertEquals(1, exportCache.getHitCount());
+		assertEquals(1, exportCache.getMissCount());
+		Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(first));
+		try {
+			assertEquals("a-99", workbook.getSheetAt(0).getRow(100).getCell(0).getStringCellValue());
+		} finally {
+			workbook.close();
+		}
+		//重启后目录中的文件继续有效
+		ExportCache reopened = ExportCache.newBuilder(directory).build();
+		assertEquals(1, reopened.getEntryCount());
+		assertTrue(Arrays.equals(first, reopened.getBytes("report-a?x=1", builder(), contentWriter("a", generations, 0))));
+		assertEquals(1, generations.get());
+	}
+
+	public void testSingleFlight() throws Exception {
+		final ExportCache exportCache = ExportCache.newBuilder(directory).build();
+		final AtomicInteger generations = new AtomicInteger();
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executorService = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<byte[]>> futures = new ArrayList<>();
+			for(int i = 0;i < 8;i++) {
+				futures.add(executorService.submit(new Callable<byte[]>() {
+
+					@Override
+					public byte[] call() throws Exception {
+						start.await();
+						return exportCache.getBytes("report-b", builder(), contentWriter("b", generations, 200));
+					}
+				}));
+			}
+			start.countDown();
+			byte[] expected = futures.get(0).get(10, TimeUnit.SECONDS);
+			for(Future<byte[]> future : futures) {
+				assertTrue(Arrays.equals(expected, future.get(10, TimeUnit.SECONDS)));
+			}
+			assertEquals(1, generations.get());
+			assertEquals(1, exportCache.getMissCount());
+		} finally {
+			executorService.shutdown();
+		}
+	}
+
+	/**
+	 * 生成很快时，检查缓存和登记生成任务之间完成的生成不会导致再生成一次
+	 */
+	public void testSingleFlightWithoutDelay() throws Exception {
+		final ExportCache exportCache = ExportCache.newBuilder(directory).build();
+		final AtomicInteger generations = new AtomicInteger();
+		ExecutorService executorService = Executors.newFixedThreadPool(4);
+		try {
+			for(int round = 0;round < 20;round++) {
+				final String fingerprint = "report-e-" + round;
+				final CountDownLatch start = new CountDownLatch(1);
+				List<Future<byte[]>> futures = new ArrayList<>();
+				for(int i = 0;i < 4;i++) {
+					futures.add(executorService.submit(new Callable<byte[]>() {
+
+						@Override
+						public byte[] call() throws Exception {
+							start.await();
+							return exportCache.getBytes(fingerprint, builder(), contentWriter("e", generations, 0));
+						}
+					}));
+				}
+				start.countDown();
+				for(Future<byte[]> future : futures) {
+					future.get(10, TimeUnit.SECONDS);
+				}
+				assertEquals(round + 1, generations.get());
+			}
+			assertEquals(20, exportCache.getMissCount());
+		} finally {
+			executorService.shutdown();
+		}
+	}
+
+	public void testTimeToLive() throws Exception {
+		ExportCache exportCache = ExportCache.newBuilder(directory).setTimeToLive(50, TimeUnit.MILLISECONDS).build();
+		AtomicInteger generations = new AtomicInteger();
+		exportCache.getBytes("report-c", builder(), contentWriter("c", generations, 0));
+		Thread.sleep(100);
+		exportCache.getBytes("report-c", builder(), contentWriter("c", generations, 0));
+		assertEquals(2, generations.get());
+		Thread.sleep(100);
+		exportCache.removeExpired();
+		assertEquals(0, exportCache.getEntryCount());
+		assertEquals(0, directory.listFiles().length);
+	}
+
+	public void testEviction() throws Exception {
+		AtomicInteger generations = new AtomicInteger();
+		long fileSize = ExportCache.newBuilder(directory).build().getBytes("measure", builder(), contentWriter("a", generations, 0)).length;
+		ExportCache exportCache = ExportCache.newBuilder(directory).setMaxSize(fileSize * 5 / 2).build();
+		exportCache.clear();
+		exportCache.getBytes("a", builder(), contentWriter("a", generations, 0));
+		exportCache.getBytes("b", builder(), contentWriter("b", generations, 0));
+		//a最近使用过，淘汰b
+		exportCache.getBytes("a", builder(), contentWriter("a", generations, 0));
+		exportCache.getBytes("c", builder(), contentWriter("c", generations, 0));
+		assertEquals(2, exportCache.getEntryCount());
+		assertTrue(exportCache.getSize() <= fileSize * 5 / 2);
+		generations.set(0);
+		exportCache.getBytes("a", builder(), contentWriter("a", generations, 0));
+		exportCache.getBytes("c", builder(), contentWriter("c", generations, 0));
+		assertEquals(0, generations.get());
+		exportCache.getBytes("b", builder(), contentWriter("b", generations, 0));
+		assertEquals(1, generations.get());
+		assertEquals(2, directory.listFiles().length);
+	}
+
+	public void testFailureNotCached() throws Exception {
+		ExportCache exportCache = ExportCache.newBuilder(directory).build();
+		try {
+			exportCache.getBytes("report-d", builder(), new ContentWriter() {
+
+				@Override
+				public void write(ExcelWriter excelWriter) throws Exception {
+					throw new IOException("data source unavailable");
+				}
+			});
+			fail();
+		} catch (IOException e) {
+			assertEquals("data source unavailable", e.getMessage());
+		}
+		assertEquals(0, exportCache.getEntryCount());
+		assertEquals(0, directory.listFiles().length);
+		AtomicInteger generations = new AtomicInteger();
+		exportCache.getBytes("report-d", builder(), contentWriter("d", generations, 0));
+		assertEquals(1, generations.get());
+		exportCache.invalidate("report-d");
+		assertEquals(0, exportCache.getSize());
+	}
+
+}
@@ -0,0 +1,113 @@
+package com.github.winter4666.excelio.out;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.github.winter4666.excelio.common.GridColumn;
+import com.github.winter4666.excelio.common.GridColumn.FieldValueConverter;
+import com.github.winter4666.excelio.out.ExcelWriter.AutoSizeStrategy;
+import com.github.winter4666.excelio.out.ExcelWriter.ExcelFormat;
+import com.github.winter4666.excelio.out.ExportListener.Phase;
+import com.github.winter4666.excelio.out.MetricsExportListener.MetricsSink;
+import com.github.winter4666.excelio.out.grid.AsyncPagingLoader;
+import com.github.winter4666.excelio.out.grid.AsyncPagingLoader.GridDataSource;
+
+import junit.framework.TestCase;
+
+public class ExportListenerTest extends TestCase {
+
+	private static List<GridColumn> gridColumns() {
+		return Arrays.asList(GridColumn.newInstance("group", "Group").mergeRepeated(true),
+				GridColumn.newInstance("id", "Id").fieldValueConverter(new FieldValueConverter() {
+
+					@Override
+					public Object convert(Object fieldValue, Object rowData) {
+						return "#" + fieldValue;
+					}
+				}));
+	}
+
+	private static AsyncPagingLoader slowLoader(final int rows) {
+		return new AsyncPagingLoader(new GridDataSource<Map<String, Object>>() {
+
+			@Override
+			public List<Map<String, Object>> getGridData(int pageNo, int pageSize) throws InterruptedException {
+				Thread.sleep(5);
+				List<Map<String, Object>> page = new ArrayList<>();
+				for(int i = (pageNo - 1) * pageSize;i < Math.min(pageNo * pageSize, rows);i++) {
+					Map<String, Object> row = new HashMap<>();
+					row.put("group", i / 10);
+					row.put("id", i);
+					page.add(row);
+				}
+				return page;
+			}
+		}, 100);
+	}
+
+	public void testMetrics() throws Exception {
+		final AtomicReference<ExportMetrics> finished = new AtomicReference<>();
+		ExcelWriter excelWriter = new ExcelWriterBuilder().setExcelFormat(ExcelFormat.XSSF).enableAutoSizeColumn(AutoSizeStrategy.ESTIMATE)
+				.setExportListener(new ExportListener() {
+
+					@Override
+					public void onExportFinished(ExportMetrics metrics) {
+						finished.set(metrics);
+					}
+				}).build();
+		excelWriter.writeGrid(gridColumns(), slowLoader(1000));
+		byte[] bytes = excelWriter.exportToByteArray();
+		ExportMetrics metrics = finished.get();
+		assertNotNull(metrics);
+		assertEquals(1000, metrics.getRows());
+		assertEquals(11, metrics.getPages());
+		assertTrue(metrics.getDataSourceNanos() >= TimeUnit.MILLISECONDS.toNanos(5 * 11));
+		assertTrue(metrics.getPollBlockedNanos() > 0);
+		assertTrue(metrics.getQueueDepthSamples() > 0);
+		assertTrue(metrics.getRowsPerSecond() > 0);
+		for(Phase phase : Phase.values()) {
+			assertTrue(phase.name(), metrics.getPhaseNanos(phase) > 0);
+		}
+		assertEquals(bytes.length, metrics.getBytesWritten());
+		assertTrue(metrics.getCellStyleCount() > 0);
+		//"#id"和表头，group是数字
+		assertEquals(1000 + 2, metrics.getSharedStringCount());
+	}
+
+	public void testMetricsSink() throws Exception {
+		final Map<String, Long> values = new ConcurrentHashMap<>();
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		ExcelWriter excelWriter = new ExcelWriterBuilder().setOutputStream(outputStream)
+				.setExportListener(new MetricsExportListener(new MetricsSink() {
+
+					@Override
+					public void recordNanos(String name, long nanos) {
+						values.merge(name + ".count", 1L, Long::sum);
+					}
+
+					@Override
+					public void increment(String name, long amount) {
+						values.merge(name, amount, Long::sum);
+					}
+
+					@Override
+					public void recordValue(String name, long value) {
+						values.put(name, value);
+					}
+				}, "export")).build();
+		excelWriter.writeGrid(gridColumns(), slowLoader(250));
+		excelWriter.export();
+		assertEquals(Long.valueOf(250), values.get("export.rows"));
+		assertEquals(Long.valueOf(3), values.get("export.datasource.count"));
+		assertEquals(Long.valueOf(1), values.get("export.phase.serialize.count"));
+		assertEquals(Long.valueOf(outputStream.size()), values.get("export.bytes"));
+	}
+
+}
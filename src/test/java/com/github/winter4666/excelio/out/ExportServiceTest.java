@@ -0,0 +1,214 @@
+package com.github.winter4666.excelio.out;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+
+import com.github.winter4666.excelio.common.GridColumn;
+import com.github.winter4666.excelio.out.ExcelWriter.ExcelFormat;
+import com.github.winter4666.excelio.out.ExportJob.ExportTask;
+
+import junit.framework.TestCase;
+
+public class ExportServiceTest extends TestCase {
+
+	private static final long MB = 1024 * 1024;
+
+	private ExportService exportService;
+
+	@Override
+	protected void tearDown() throws Exception {
+		if(exportService != null) {
+			exportService.shutdown();
+			assertTrue(exportService.awaitTermination(10, TimeUnit.SECONDS));
+		}
+	}
+
+	private static ExportTask<Integer> blockingTask(final CountDownLatch release, final AtomicInteger running, final AtomicInteger maxRunning) {
+		return new ExportTask<Integer>() {
+
+			@Override
+			public Integer export(ExcelWriter excelWriter) throws Exception {
+				int current = running.incrementAndGet();
+				maxRunning.accumulateAndGet(current, Math::max);
+				try {
+					assertTrue(release.await(10, TimeUnit.SECONDS));
+					return current;
+				} finally {
+					running.decrementAndGet();
+				}
+			}
+		};
+	}
+
+	public void testMemoryCostEstimate() {
+		ExportTask<Void> task = excelWriter -> null;
+		long xssf = ExportJob.newInstance(new ExcelWriterBuilder(), 10, task).getMemoryCost();
+		long xssfLarge = ExportJob.newInstance(new ExcelWriterBuilder(), 10, task).expectedRows(100000).getMemoryCost();
+		assertEquals(ExportJob.BASE_COST + (xssf - ExportJob.BASE_COST) * 10, xssfLarge);
+		long sxssf = ExportJob.newInstance(new ExcelWriterBuilder().setExcelFormat(ExcelFormat.SXSSF), 10, task)
+				.expectedRows(1000000).getMemoryCost();
+		long sxssfWide = ExportJob.newInstance(new ExcelWriterBuilder().setExcelFormat(ExcelFormat.SXSSF).setRowAccessWindowSize(1000), 10, task)
+				.getMemoryCost();
+		assertTrue(sxssf < xssf);
+		assertEquals(ExportJob.BASE_COST + (sxssf - ExportJob.BASE_COST) * 10, sxssfWide);
+		//没有指定格式时按输出流选择STREAMING_XML格式
+		long streaming = ExportJob.newInstance(new ExcelWriterBuilder().setOutputStream(new ByteArrayOutputStream()), 10, task).getMemoryCost();
+		assertTrue(streaming < sxssf);
+		assertEquals(123, ExportJob.newInstance(new ExcelWriterBuilder(), 10, task).memoryCost(123).getMemoryCost());
+	}
+
+	public void testAdmission() throws Exception {
+		exportService = new ExportService(4, 100 * MB);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		List<CompletableFuture<Integer>> futures = new ArrayList<>();
+		for(int i = 0;i < 4;i++) {
+			futures.add(exportService.submit(ExportJob.newInstance(new ExcelWriterBuilder(), 1, blockingTask(release, running, maxRunning))
+					.memoryCost(40 * MB)));
+		}
+		waitUntilRunning(running, 2);
+		assertEquals(2, exportService.getPendingCount());
+		assertEquals(20 * MB, exportService.getAvailableMemory());
+		release.countDown();
+		for(CompletableFuture<Integer> future : futures) {
+			future.get(10, TimeUnit.SECONDS);
+		}
+		assertEquals(2, maxRunning.get());
+		waitUntilAvailable(100 * MB);
+	}
+
+	public void testOversizedExportRunsAlone() throws Exception {
+		exportService = new ExportService(4, 100 * MB);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		CompletableFuture<Integer> large = exportService.submit(ExportJob.newInstance(new ExcelWriterBuilder(), 1,
+				blockingTask(release, running, maxRunning)).memoryCost(500 * MB));
+		CompletableFuture<Integer> small = exportService.submit(ExportJob.newInstance(new ExcelWriterBuilder(), 1,
+				blockingTask(release, running, maxRunning)).memoryCost(MB));
+		waitUntilRunning(running, 1);
+		assertEquals(1, exportService.getPendingCount());
+		assertEquals(0, exportService.getAvailableMemory());
+		release.countDown();
+		assertEquals(Integer.valueOf(1), large.get(10, TimeUnit.SECONDS));
+		assertEquals(Integer.valueOf(1), small.get(10, TimeUnit.SECONDS));
+		assertEquals(1, maxRunning.get());
+	}
+
+	public void testCancelPending() throws Exception {
+		exportService = new ExportService(1, 100 * MB);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		CompletableFuture<Integer> first = exportService.submit(ExportJob.newInstance(new ExcelWriterBuilder(), 1,
+				blockingTask(release, running, maxRunning)).memoryCost(100 * MB));
+		final AtomicInteger cancelledRuns = new AtomicInteger();
+		CompletableFuture<Void> second = exportService.submit(ExportJob.newInstance(new ExcelWriterBuilder(), 1, new ExportTask<Void>() {
+
+			@Override
+			public Void export(ExcelWriter excelWriter) {
+				cancelledRuns.incrementAndGet();
+				return null;
+			}
+		}));
+		waitUntilRunning(running, 1);
+		assertEquals(1, exportService.getPendingCount());
+		assertTrue(second.cancel(false));
+		assertEquals(0, exportService.getPendingCount());
+		release.countDown();
+		first.get(10, TimeUnit.SECONDS);
+		assertEquals(0, cancelledRuns.get());
+	}
+
+	public void testExportThroughService() throws Exception {
+		exportService = new ExportService(2, 64 * MB);
+		final List<Map<String, Object>> rows = new ArrayList<>();
+		for(int i = 0;i < 100;i++) {
+			Map<String, Object> row = new HashMap<>();
+			row.put("id", i);
+			rows.add(row);
+		}
+		List<CompletableFuture<byte[]>> futures = new ArrayList<>();
+		for(ExcelFormat excelFormat : Arrays.asList(ExcelFormat.XSSF, ExcelFormat.SXSSF, ExcelFormat.STREAMING_XML)) {
+			futures.add(exportService.submit(ExportJob.newInstance(new ExcelWriterBuilder().setExcelFormat(excelFormat), 1,
+					new ExportTask<byte[]>() {
+
+				@Override
+				public byte[] export(ExcelWriter excelWriter) throws Exception {
+					excelWriter.writeGrid(Arrays.asList(GridColumn.newInstance("id", "Id")), rows);
+					return excelWriter.exportToByteArray();
+				}
+			})));
+		}
+		for(CompletableFuture<byte[]> future : futures) {
+			Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(future.get(10, TimeUnit.SECONDS)));
+			try {
+				assertEquals(99.0, workbook.getSheetAt(0).getRow(100).getCell(0).getNumericCellValue());
+			} finally {
+				workbook.close();
+			}
+		}
+		CompletableFuture<Void> failed = exportService.submit(ExportJob.newInstance(new ExcelWriterBuilder(), 1, new ExportTask<Void>() {
+
+			@Override
+			public Void export(ExcelWriter excelWriter) {
+				throw new IllegalStateException("failed");
+			}
+		}));
+		try {
+			failed.get(10, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		waitUntilAvailable(64 * MB);
+	}
+
+	public void testShutdown() throws Exception {
+		exportService = new ExportService(1, 10 * MB);
+		exportService.shutdown();
+		try {
+			exportService.submit(ExportJob.newInstance(new ExcelWriterBuilder(), 1, excelWriter -> null));
+			fail();
+		} catch (RejectedExecutionException e) {
+
+		}
+	}
+
+	/**
+	 * 导出结果返回后才释放预算
+	 */
+	private void waitUntilAvailable(long expected) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while(exportService.getAvailableMemory() != expected && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		assertEquals(expected, exportService.getAvailableMemory());
+	}
+
+	private static void waitUntilRunning(AtomicInteger running, int expected) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while(running.get() < expected && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		assertEquals(expected, running.get());
+		//再等一会，确认没有更多导出获准执行
+		Thread.sleep(50);
+	}
+
+}
@@ -0,0 +1,119 @@
+package com.github.winter4666.excelio.out;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+
+import com.github.winter4666.excelio.common.GridColumn;
+import com.github.winter4666.excelio.out.ExcelWriter.ExcelFormat;
+
+import junit.framework.TestCase;
+
+public class GridPlanTest extends TestCase {
+
+	public static class Order {
+
+		private final String customer;
+
+		private final double amount;
+
+		public Order(String customer, double amount) {
+			this.customer = customer;
+			this.amount = amount;
+		}
+
+		public String getCustomer() {
+			return customer;
+		}
+
+		public double getAmount() {
+			return amount;
+		}
+
+	}
+
+	private static List<Order> orders(int count) {
+		List<Order> orders = new ArrayList<>();
+		for(int i = 0;i < count;i++) {
+			orders.add(new Order("customer" + i, i * 1.5));
+		}
+		return orders;
+	}
+
+	private static GridPlan plan() {
+		List<GridColumn> gridColumns = Arrays.asList(GridColumn.newInstance("customer", "Customer"), GridColumn.newInstance("amount", "Amount"));
+		GridPlan gridPlan = GridPlan.newBuilder(gridColumns, Order.class).setColumnWidths(20f, 10f)
+				.setHeaderStyle(CellStyleDescriptor.newInstance().bold(true))
+				.setDataStyle("amount", CellStyleDescriptor.newInstance().dataFormat("0.00")).build();
+		//编译后修改原来的列不影响方案
+		gridColumns.get(0).label("changed");
+		return gridPlan;
+	}
+
+	public void testWriteGridPlan() throws Exception {
+		final GridPlan gridPlan = plan();
+		ExecutorService executorService = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<byte[]>> futures = new ArrayList<>();
+			for(int i = 0;i < 8;i++) {
+				final ExcelFormat excelFormat = i % 2 == 0 ? ExcelFormat.SXSSF : ExcelFormat.STREAMING_XML;
+				futures.add(executorService.submit(new Callable<byte[]>() {
+
+					@Override
+					public byte[] call() throws Exception {
+						ExcelWriter excelWriter = new ExcelWriterBuilder().setExcelFormat(excelFormat).build();
+						excelWriter.writeGrid(gridPlan, orders(100));
+						return excelWriter.exportToByteArray();
+					}
+				}));
+			}
+			for(Future<byte[]> future : futures) {
+				Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(future.get()));
+				try {
+					Sheet sheet = workbook.getSheetAt(0);
+					assertEquals("Customer", sheet.getRow(0).getCell(0).getStringCellValue());
+					assertTrue(workbook.getFontAt(sheet.getRow(0).getCell(0).getCellStyle().getFontIndexAsInt()).getBold());
+					assertEquals("0.00", sheet.getRow(1).getCell(1).getCellStyle().getDataFormatString());
+					assertEquals(148.5, sheet.getRow(100).getCell(1).getNumericCellValue());
+					assertEquals(20 * 256, sheet.getColumnWidth(0));
+				} finally {
+					workbook.close();
+				}
+			}
+		} finally {
+			executorService.shutdown();
+		}
+	}
+
+	public void testSheetJobWithPlan() throws Exception {
+		GridPlan gridPlan = plan();
+		ExcelWriter excelWriter = new ExcelWriterBuilder().setExcelFormat(ExcelFormat.STREAMING_XML).build();
+		excelWriter.writeSheets(Arrays.asList(SheetJob.newInstance("a", gridPlan, orders(10)), SheetJob.newInstance("b", gridPlan, orders(20))));
+		Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(excelWriter.exportToByteArray()));
+		try {
+			assertEquals("customer19", workbook.getSheet("b").getRow(20).getCell(0).getStringCellValue());
+			assertEquals("0.00", workbook.getSheet("a").getRow(1).getCell(1).getCellStyle().getDataFormatString());
+		} finally {
+			workbook.close();
+		}
+	}
+
+	public void testUnknownField() {
+		try {
+			GridPlan.compile(Arrays.asList(GridColumn.newInstance("missing")), Order.class);
+			fail();
+		} catch (RuntimeException e) {
+
+		}
+	}
+
+}
@@ -0,0 +1,110 @@
+package com.github.winter4666.excelio.out;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.ss.util.CellRangeAddress;
+
+import com.github.winter4666.excelio.common.GridColumn;
+import com.github.winter4666.excelio.out.ExcelWriter.ExcelFormat;
+import com.github.winter4666.excelio.out.grid.AsyncPagingLoader;
+import com.github.winter4666.excelio.out.grid.AsyncPagingLoader.GridDataSource;
+
+import junit.framework.TestCase;
+
+public class MergeRepeatedTest extends TestCase {
+
+	private static List<GridColumn> gridColumns() {
+		return Arrays.asList(GridColumn.newInstance("region", "Region").mergeRepeated(true),
+				GridColumn.newInstance("dept", "Dept").cellNum(2).mergeRepeated(true), GridColumn.newInstance("name", "Name"));
+	}
+
+	private static Map<String, Object> row(String region, String dept, String name) {
+		Map<String, Object> row = new HashMap<>();
+		row.put("region", region);
+		row.put("dept", dept);
+		row.put("name", name);
+		return row;
+	}
+
+	private static List<Map<String, Object>> rows() {
+		return Arrays.asList(row("east", "sales", "a"), row("east", "sales", "b"), row("east", "hr", "c"),
+				row("west", "hr", "d"), row("west", "hr", "e"), row(null, null, "f"), row(null, null, "g"));
+	}
+
+	private static Set<String> mergedRegions(Sheet sheet) {
+		Set<String> regions = new HashSet<>();
+		for(CellRangeAddress region : sheet.getMergedRegions()) {
+			regions.add(region.formatAsString());
+		}
+		return regions;
+	}
+
+	public void testMergeRepeated() throws Exception {
+		for(ExcelFormat excelFormat : Arrays.asList(ExcelFormat.HSSF, ExcelFormat.XSSF, ExcelFormat.SXSSF, ExcelFormat.STREAMING_XML)) {
+			ExcelWriter excelWriter = new ExcelWriterBuilder().setExcelFormat(excelFormat).setRowAccessWindowSize(2).build();
+			excelWriter.writeGrid(gridColumns(), rows());
+			Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(excelWriter.exportToByteArray()));
+			try {
+				Sheet sheet = workbook.getSheetAt(0);
+				//west开始时hr重新合并，null不合并
+				assertEquals(new HashSet<>(Arrays.asList("B1:C1", "A2:A4", "B2:C3", "B4:C4", "A5:A6", "B5:C6", "B7:C7", "B8:C8")),
+						mergedRegions(sheet));
+				assertEquals("east", sheet.getRow(1).getCell(0).getStringCellValue());
+				assertEquals("", sheet.getRow(2).getCell(0).getStringCellValue());
+				assertEquals("hr", sheet.getRow(4).getCell(1).getStringCellValue());
+				assertEquals("e", sheet.getRow(5).getCell(3).getStringCellValue());
+			} finally {
+				workbook.close();
+			}
+		}
+	}
+
+	public void testMergeRepeatedWithPagingLoader() throws Exception {
+		ExcelWriter excelWriter = new ExcelWriterBuilder().setExcelFormat(ExcelFormat.SXSSF).setRowAccessWindowSize(10)
+				.setMaxRowsPerSheet(1000).build();
+		excelWriter.writeGrid(Arrays.asList(GridColumn.newInstance("group", "Group").mergeRepeated(true), GridColumn.newInstance("id", "Id")),
+				new AsyncPagingLoader(new GridDataSource<Map<String, Object>>() {
+
+					@Override
+					public List<Map<String, Object>> getGridData(int pageNo, int pageSize) {
+						List<Map<String, Object>> page = new ArrayList<>();
+						for(int i = (pageNo - 1) * pageSize;i < Math.min(pageNo * pageSize, 3000);i++) {
+							Map<String, Object> row = new HashMap<>();
+							row.put("group", i / 7);
+							row.put("id", i);
+							page.add(row);
+						}
+						return page;
+					}
+				}, 100));
+		Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(excelWriter.exportToByteArray()));
+		try {
+			assertEquals(4, workbook.getNumberOfSheets());
+			Set<String> regions = mergedRegions(workbook.getSheetAt(0));
+			assertTrue(regions.contains("A2:A8"));
+			//跨sheet的值在两个sheet中分别合并：第一个sheet的数据是0~998，142 * 7 = 994
+			assertTrue(regions.contains("A996:A1000"));
+			assertTrue(mergedRegions(workbook.getSheetAt(1)).contains("A2:A3"));
+		} finally {
+			workbook.close();
+		}
+	}
+
+	public void testCsvWritesEveryValue() throws Exception {
+		ExcelWriter excelWriter = new ExcelWriterBuilder().setExcelFormat(ExcelFormat.CSV).build();
+		excelWriter.writeGrid(gridColumns(), rows().subList(0, 2));
+		assertEquals("\uFEFFRegion,Dept,,Name\r\neast,sales,,a\r\neast,sales,,b\r\n", new String(excelWriter.exportToByteArray(), StandardCharsets.UTF_8));
+	}
+
+}
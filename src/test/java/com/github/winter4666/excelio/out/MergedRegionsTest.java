@@ -0,0 +1,133 @@
+package com.github.winter4666.excelio.out;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import com.github.winter4666.excelio.out.ExcelWriter.ExcelFormat;
+
+import junit.framework.TestCase;
+
+public class MergedRegionsTest extends TestCase {
+
+	public void testValidate() {
+		MergedRegions mergedRegions = new MergedRegions();
+		mergedRegions.add(new CellRangeAddress(0, 3, 0, 0));
+		mergedRegions.add(new CellRangeAddress(0, 0, 1, 2));
+		mergedRegions.add(new CellRangeAddress(1, 2, 1, 1));
+		mergedRegions.add(new CellRangeAddress(4, 5, 0, 2));
+		mergedRegions.validate();
+		mergedRegions.add(new CellRangeAddress(2, 4, 2, 3));
+		try {
+			mergedRegions.validate();
+			fail();
+		} catch (IllegalStateException e) {
+
+		}
+	}
+
+	public void testValidateWithExisting() throws Exception {
+		MergedRegions mergedRegions = new MergedRegions();
+		mergedRegions.add(new CellRangeAddress(0, 1, 2, 3));
+		mergedRegions.validate(Arrays.asList(new CellRangeAddress(0, 1, 0, 1)));
+		try {
+			mergedRegions.validate(Arrays.asList(new CellRangeAddress(1, 2, 3, 4)));
+			fail();
+		} catch (IllegalStateException e) {
+
+		}
+		//和模板中已有的区域重叠
+		XSSFWorkbook templateWorkbook = new XSSFWorkbook();
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try {
+			templateWorkbook.createSheet().createRow(0).createCell(0).setCellValue("title");
+			templateWorkbook.getSheetAt(0).addMergedRegion(new CellRangeAddress(0, 0, 0, 1));
+			templateWorkbook.write(outputStream);
+		} finally {
+			templateWorkbook.close();
+		}
+		ExcelTemplate template = ExcelTemplate.newBuilder(new ByteArrayInputStream(outputStream.toByteArray())).build();
+		ExcelWriter excelWriter = new ExcelWriterBuilder().setTemplate(template).build();
+		excelWriter.write("a").nextLine();
+		excelWriter.mergeCells(0, 1, 1, 2);
+		try {
+			excelWriter.exportToByteArray();
+			fail();
+		} catch (IllegalStateException e) {
+
+		}
+	}
+
+	public void testSingleCell() {
+		try {
+			new MergedRegions().add(new CellRangeAddress(1, 1, 1, 1));
+			fail();
+		} catch (IllegalArgumentException e) {
+
+		}
+	}
+
+	/**
+	 * 和两两比较的结果一致
+	 */
+	public void testRandomRegions() {
+		Random random = new Random(42);
+		for(int round = 0;round < 200;round++) {
+			MergedRegions mergedRegions = new MergedRegions();
+			List<CellRangeAddress> regions = new ArrayList<>();
+			for(int i = 0;i < 8;i++) {
+				int firstRow = random.nextInt(20);
+				int firstCol = random.nextInt(10);
+				CellRangeAddress region = new CellRangeAddress(firstRow, firstRow + random.nextInt(3), firstCol, firstCol + 1 + random.nextInt(2));
+				regions.add(region);
+				mergedRegions.add(region);
+			}
+			boolean overlap = false;
+			for(int i = 0;i < regions.size();i++) {
+				for(int j = i + 1;j < regions.size();j++) {
+					overlap |= regions.get(i).intersects(regions.get(j));
+				}
+			}
+			try {
+				mergedRegions.validate();
+				assertFalse(overlap);
+			} catch (IllegalStateException e) {
+				assertTrue(overlap);
+			}
+		}
+	}
+
+	public void testManyMerges() throws Exception {
+		ExcelWriter excelWriter = new ExcelWriterBuilder().setExcelFormat(ExcelFormat.SXSSF).build();
+		for(int i = 0;i < 5000;i++) {
+			excelWriter.write("group" + i, 2, 2).write(i).nextLine().nextLine();
+		}
+		Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(excelWriter.exportToByteArray()));
+		try {
+			assertEquals(5000, workbook.getSheetAt(0).getNumMergedRegions());
+		} finally {
+			workbook.close();
+		}
+	}
+
+	public void testOverlapOnExport() throws Exception {
+		ExcelWriter excelWriter = new ExcelWriterBuilder().setExcelFormat(ExcelFormat.XSSF).build();
+		excelWriter.write("a", 2, 2);
+		excelWriter.mergeCells(1, 2, 1, 2);
+		try {
+			excelWriter.exportToByteArray();
+			fail();
+		} catch (IllegalStateException e) {
+
+		}
+	}
+
+}
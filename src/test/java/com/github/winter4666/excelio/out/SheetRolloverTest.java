@@ -0,0 +1,79 @@
+package com.github.winter4666.excelio.out;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+
+import com.github.winter4666.excelio.common.GridColumn;
+import com.github.winter4666.excelio.out.ExcelWriter.ExcelFormat;
+
+import junit.framework.TestCase;
+
+public class SheetRolloverTest extends TestCase {
+
+	private static List<GridColumn> gridColumns = Arrays.asList(GridColumn.newInstance("name", "Name"), GridColumn.newInstance("amount", "Amount"));
+
+	private static List<Map<String, Object>> rows(int count) {
+		List<Map<String, Object>> rows = new ArrayList<>();
+		for(int i = 0;i < count;i++) {
+			Map<String, Object> row = new HashMap<>();
+			row.put("name", "name" + i);
+			row.put("amount", i);
+			rows.add(row);
+		}
+		return rows;
+	}
+
+	public void testRollover() throws Exception {
+		ExcelWriter excelWriter = new ExcelWriterBuilder().setExcelFormat(ExcelFormat.SXSSF).setSheetName("data")
+				.setMaxRowsPerSheet(10).build();
+		excelWriter.setColumnsWidth(12f, 20f);
+		excelWriter.write("title", 2).nextLine();
+		excelWriter.writeGrid(gridColumns, rows(25));
+		Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(excelWriter.exportToByteArray()));
+		try {
+			//第一个sheet：标题、表头和8行数据，之后每个sheet：表头和9行数据
+			assertEquals(3, workbook.getNumberOfSheets());
+			assertEquals("data (2)", workbook.getSheetName(1));
+			assertEquals("data (3)", workbook.getSheetName(2));
+			assertEquals("name7", workbook.getSheetAt(0).getRow(9).getCell(0).getStringCellValue());
+			assertEquals(10, workbook.getSheetAt(0).getPhysicalNumberOfRows());
+			for(int i = 1;i < 3;i++) {
+				Sheet sheet = workbook.getSheetAt(i);
+				assertEquals("Name", sheet.getRow(0).getCell(0).getStringCellValue());
+				assertEquals(20 * 256, sheet.getColumnWidth(1));
+			}
+			assertEquals("name8", workbook.getSheetAt(1).getRow(1).getCell(0).getStringCellValue());
+			assertEquals("name24", workbook.getSheetAt(2).getRow(8).getCell(0).getStringCellValue());
+		} finally {
+			workbook.close();
+		}
+	}
+
+	public void testRolloverInParallel() throws Exception {
+		ExcelWriter excelWriter = new ExcelWriterBuilder().setExcelFormat(ExcelFormat.STREAMING_XML).setMaxRowsPerSheet(100).build();
+		excelWriter.writeSheets(Arrays.asList(SheetJob.newInstance("a", gridColumns, rows(250)), SheetJob.newInstance("b", gridColumns, rows(50))));
+		Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(excelWriter.exportToByteArray()));
+		try {
+			assertEquals(4, workbook.getNumberOfSheets());
+			int rowCount = 0;
+			for(int i = 0;i < workbook.getNumberOfSheets();i++) {
+				Sheet sheet = workbook.getSheetAt(i);
+				assertEquals("Name", sheet.getRow(0).getCell(0).getStringCellValue());
+				rowCount += sheet.getPhysicalNumberOfRows() - 1;
+			}
+			assertEquals(300, rowCount);
+			assertEquals("name249", workbook.getSheet("a (3)").getRow(52).getCell(0).getStringCellValue());
+		} finally {
+			workbook.close();
+		}
+	}
+
+}
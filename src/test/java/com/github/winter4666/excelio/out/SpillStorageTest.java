@@ -0,0 +1,86 @@
+package com.github.winter4666.excelio.out;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+
+import com.github.winter4666.excelio.common.GridColumn;
+
+import junit.framework.TestCase;
+
+public class SpillStorageTest extends TestCase {
+
+	public void testGzipTempFile() throws Exception {
+		SpillStorage spillStorage = SpillStorage.gzipTempFile(null);
+		export(spillStorage);
+		assertTrue(spillStorage.getPeakStoredBytes() * 3 < spillStorage.getWrittenBytes());
+	}
+
+	public void testOffHeapWithOverflow() throws Exception {
+		SpillStorage spillStorage = SpillStorage.offHeap(512 * 1024, null);
+		export(spillStorage);
+		assertTrue(spillStorage.getPeakStoredBytes() >= spillStorage.getWrittenBytes());
+		assertEquals(0, spillStorage.getMemoryBytes());
+	}
+
+	public void testMemoryMapped() throws Exception {
+		SpillStorage spillStorage = SpillStorage.memoryMapped(null);
+		export(spillStorage);
+		assertEquals(spillStorage.getWrittenBytes(), spillStorage.getPeakStoredBytes());
+	}
+
+	public void testDisposeReleasesEverything() throws Exception {
+		File directory = Files.createTempDirectory("spill").toFile();
+		try {
+			for(SpillStorage spillStorage : Arrays.asList(SpillStorage.offHeap(512 * 1024, directory), SpillStorage.memoryMapped(directory))) {
+				SpillingSXSSFWorkbook workbook = new SpillingSXSSFWorkbook(10, spillStorage);
+				Sheet sheet = workbook.createSheet();
+				for(int i = 0;i < 20000;i++) {
+					sheet.createRow(i).createCell(0).setCellValue("name" + i);
+				}
+				workbook.write(new ByteArrayOutputStream());
+				assertTrue(workbook.dispose());
+				workbook.close();
+				assertEquals(0, spillStorage.getStoredBytes());
+				assertEquals(0, directory.listFiles().length);
+			}
+		} finally {
+			directory.delete();
+		}
+	}
+
+	private void export(SpillStorage spillStorage) throws Exception {
+		ExcelWriter excelWriter = new ExcelWriterBuilder().setSpillStorage(spillStorage).setRowAccessWindowSize(10).build();
+		List<Map<String, Object>> rows = new ArrayList<>();
+		for(int i = 0;i < 20000;i++) {
+			Map<String, Object> row = new HashMap<>();
+			row.put("name", "name" + i);
+			row.put("amount", i);
+			rows.add(row);
+		}
+		excelWriter.writeGrid(Arrays.asList(GridColumn.newInstance("name", "Name"), GridColumn.newInstance("amount", "Amount")), rows);
+		byte[] bytes = excelWriter.exportToByteArray();
+		assertTrue(spillStorage.getWrittenBytes() > 0);
+		assertEquals(0, spillStorage.getStoredBytes());
+
+		Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(bytes));
+		try {
+			Sheet sheet = workbook.getSheetAt(0);
+			assertEquals("name19999", sheet.getRow(20000).getCell(0).getStringCellValue());
+			assertEquals(19999.0, sheet.getRow(20000).getCell(1).getNumericCellValue());
+		} finally {
+			workbook.close();
+		}
+	}
+
+}
@@ -0,0 +1,161 @@
+package com.github.winter4666.excelio.out;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+
+import com.github.winter4666.excelio.common.GridColumn;
+import com.github.winter4666.excelio.out.ExcelWriter.ExcelFormat;
+
+import junit.framework.TestCase;
+
+public class StreamingUpgradeTest extends TestCase {
+
+	private static final long PAID_AT = 1500000000000L;
+
+	/**
+	 * 各种类型的值，用来检查转换前后写的值和样式都保留
+	 */
+	public static class Payment {
+
+		private final int index;
+
+		public Payment(int index) {
+			this.index = index;
+		}
+
+		public String getPayer() {
+			return "payer" + index;
+		}
+
+		public long getAmount() {
+			return index;
+		}
+
+		public Date getPaidAt() {
+			return new Date(PAID_AT + index * 60000L);
+		}
+
+		public boolean isRefunded() {
+			return index % 2 == 1;
+		}
+
+	}
+
+	private static List<GridColumn> gridColumns = Arrays.asList(GridColumn.newInstance("payer", "Payer"), GridColumn.newInstance("amount", "Amount"),
+			GridColumn.newInstance("paidAt", "Paid At"), GridColumn.newInstance("refunded", "Refunded"));
+
+	private static List<Payment> payments(int count) {
+		List<Payment> payments = new ArrayList<>();
+		for(int i = 0;i < count;i++) {
+			payments.add(new Payment(i));
+		}
+		return payments;
+	}
+
+	public void testUpgradeByRows() throws Exception {
+		ExcelWriter excelWriter = new ExcelWriterBuilder().enableStreamingUpgrade(100).setRowAccessWindowSize(50).build();
+		excelWriter.setColumnsWidth(12f, 20f);
+		excelWriter.write("title", 2, 1, excelWriter.getCellStyle(CellStyleDescriptor.newInstance().bold(true))).nextLine();
+		excelWriter.setCurrentRowHeight(30f);
+		excelWriter.writeGrid(gridColumns, payments(1000));
+		assertEquals(ExcelFormat.SXSSF, excelWriter.getExcelFormat());
+		assertTrue(excelWriter.getCurrentSheet() instanceof SXSSFSheet);
+		Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(excelWriter.exportToByteArray()));
+		try {
+			Sheet sheet = workbook.getSheetAt(0);
+			assertEquals(1002, sheet.getPhysicalNumberOfRows());
+			assertEquals("title", sheet.getRow(0).getCell(0).getStringCellValue());
+			assertTrue(workbook.getFontAt(sheet.getRow(0).getCell(0).getCellStyle().getFontIndexAsInt()).getBold());
+			assertEquals(1, sheet.getNumMergedRegions());
+			assertEquals(20 * 256, sheet.getColumnWidth(1));
+			assertEquals(30f, sheet.getRow(1).getHeightInPoints());
+			assertEquals(sheet.getDefaultRowHeightInPoints(), sheet.getRow(2).getHeightInPoints());
+			assertEquals("payer0", sheet.getRow(2).getCell(0).getStringCellValue());
+			//转换前写的行和转换后写的行
+			for(int rownum : new int[] {2, 1001}) {
+				int index = rownum - 2;
+				Row row = sheet.getRow(rownum);
+				assertEquals((double)index, row.getCell(1).getNumericCellValue());
+				assertEquals(new Date(PAID_AT + index * 60000L), row.getCell(2).getDateCellValue());
+				assertEquals("yyyy-MM-dd HH:mm:ss", row.getCell(2).getCellStyle().getDataFormatString());
+				assertEquals(index % 2 == 1, row.getCell(3).getBooleanCellValue());
+			}
+		} finally {
+			workbook.close();
+		}
+	}
+
+	public void testUpgradeByHeap() throws Exception {
+		//每个单元格按1000字节估算，写100个单元格后转换
+		ExcelWriter excelWriter = new ExcelWriterBuilder().enableStreamingUpgrade(0, 100 * 1000).build();
+		excelWriter.writeGrid(gridColumns, payments(20));
+		assertEquals(ExcelFormat.XSSF, excelWriter.getExcelFormat());
+		excelWriter.writeGrid(gridColumns, payments(20));
+		assertEquals(ExcelFormat.SXSSF, excelWriter.getExcelFormat());
+		Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(excelWriter.exportToByteArray()));
+		try {
+			assertEquals(42, workbook.getSheetAt(0).getPhysicalNumberOfRows());
+			assertEquals("payer19", workbook.getSheetAt(0).getRow(41).getCell(0).getStringCellValue());
+			assertTrue(workbook.getSheetAt(0).getRow(41).getCell(3).getBooleanCellValue());
+		} finally {
+			workbook.close();
+		}
+	}
+
+	public void testLocationInsideWindow() throws Exception {
+		ExcelWriter excelWriter = new ExcelWriterBuilder().enableStreamingUpgrade(10).setRowAccessWindowSize(20)
+				.enableAutoSizeColumn().build();
+		for(int i = 0;i < 100;i++) {
+			excelWriter.write("row" + i).nextLine();
+		}
+		excelWriter.location(90, 1).write("inside");
+		try {
+			excelWriter.location(10, 1).write("flushed");
+			fail();
+		} catch (IllegalArgumentException e) {
+
+		}
+		excelWriter.location(100, 0).write("last");
+		Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(excelWriter.exportToByteArray()));
+		try {
+			Sheet sheet = workbook.getSheetAt(0);
+			assertEquals("inside", sheet.getRow(90).getCell(1).getStringCellValue());
+			assertEquals("row5", sheet.getRow(5).getCell(0).getStringCellValue());
+			assertEquals("last", sheet.getRow(100).getCell(0).getStringCellValue());
+			assertTrue(sheet.getColumnWidth(0) != sheet.getDefaultColumnWidth() * 256);
+		} finally {
+			workbook.close();
+		}
+	}
+
+	public void testNoUpgradeBelowThreshold() throws Exception {
+		ExcelWriter excelWriter = new ExcelWriterBuilder().enableStreamingUpgrade(100).build();
+		excelWriter.writeGrid(gridColumns, payments(50));
+		assertEquals(ExcelFormat.XSSF, excelWriter.getExcelFormat());
+		try {
+			new ExcelWriterBuilder().setExcelFormat(ExcelFormat.HSSF).enableStreamingUpgrade(100).build();
+			fail();
+		} catch (IllegalArgumentException e) {
+
+		}
+	}
+
+	public void testMemoryCostWithUpgrade() {
+		ExportJob.ExportTask<Void> task = excelWriter -> null;
+		long inMemory = ExportJob.newInstance(new ExcelWriterBuilder(), 10, task).expectedRows(1000000).getMemoryCost();
+		long upgraded = ExportJob.newInstance(new ExcelWriterBuilder().enableStreamingUpgrade(1000), 10, task)
+				.expectedRows(1000000).getMemoryCost();
+		assertEquals(ExportJob.BASE_COST + 1000 * 10 * 1000 + 100 * 10 * 500, upgraded);
+		assertTrue(upgraded < inMemory);
+	}
+
+}
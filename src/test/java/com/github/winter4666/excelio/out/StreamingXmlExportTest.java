@@ -0,0 +1,239 @@
+package com.github.winter4666.excelio.out;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+
+import com.github.winter4666.excelio.common.GridColumn;
+import com.github.winter4666.excelio.out.ExcelWriter.ExcelFormat;
+import com.github.winter4666.excelio.out.grid.GridDataLoader;
+
+import junit.framework.TestCase;
+
+public class StreamingXmlExportTest extends TestCase {
+
+	public void testWriteAndReadBack() throws Exception {
+		ExcelWriter excelWriter = new ExcelWriterBuilder().setExcelFormat(ExcelFormat.STREAMING_XML)
+				.setRowAccessWindowSize(10).setSheetName("data").build();
+		excelWriter.setColumnsWidth(10f, 20f);
+		excelWriter.write("title <&>", 2).nextLine();
+		List<Map<String, Object>> rows = new ArrayList<>();
+		for(int i = 0;i < 100;i++) {
+			Map<String, Object> row = new HashMap<>();
+			row.put("name", "name" + i);
+			row.put("amount", i * 1.5);
+			rows.add(row);
+		}
+		excelWriter.writeGrid(Arrays.asList(GridColumn.newInstance("name", "Name"), GridColumn.newInstance("amount", "Amount")), rows);
+		excelWriter.nextSheet("second");
+		Date now = new Date();
+		excelWriter.write(now).write(null).write(42L, 1, 3);
+		byte[] bytes = excelWriter.exportToByteArray();
+
+		Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(bytes));
+		try {
+			Sheet sheet = workbook.getSheet("data");
+			assertEquals("title <&>", sheet.getRow(0).getCell(0).getStringCellValue());
+			assertEquals(1, sheet.getNumMergedRegions());
+			assertEquals(20 * 256, sheet.getColumnWidth(1));
+			assertEquals("Name", sheet.getRow(1).getCell(0).getStringCellValue());
+			assertEquals("name99", sheet.getRow(101).getCell(0).getStringCellValue());
+			assertEquals(99 * 1.5, sheet.getRow(101).getCell(1).getNumericCellValue());
+			Sheet second = workbook.getSheet("second");
+			assertEquals(now.getTime() / 1000, second.getRow(0).getCell(0).getDateCellValue().getTime() / 1000);
+			assertEquals(42.0, second.getRow(0).getCell(2).getNumericCellValue());
+			assertEquals(1, second.getNumMergedRegions());
+		} finally {
+			workbook.close();
+		}
+	}
+
+	public void testWriteSheetsInParallel() throws Exception {
+		ExcelWriter excelWriter = new ExcelWriterBuilder().setExcelFormat(ExcelFormat.STREAMING_XML).build();
+		List<GridColumn> gridColumns = Arrays.asList(GridColumn.newInstance("name", "Name"), GridColumn.newInstance("amount", "Amount"));
+		List<SheetJob> sheetJobs = new ArrayList<>();
+		for(int sheet = 0;sheet < 4;sheet++) {
+			List<Map<String, Object>> rows = new ArrayList<>();
+			for(int i = 0;i < 5000;i++) {
+				Map<String, Object> row = new HashMap<>();
+				row.put("name", "sheet" + sheet + "-" + i);
+				row.put("amount", i);
+				rows.add(row);
+			}
+			sheetJobs.add(SheetJob.newInstance("sheet" + sheet, gridColumns, rows));
+		}
+		excelWriter.writeSheets(sheetJobs);
+		excelWriter.nextSheet("summary").write("done");
+		byte[] bytes = excelWriter.exportToByteArray();
+
+		Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(bytes));
+		try {
+			assertEquals(5, workbook.getNumberOfSheets());
+			for(int sheet = 0;sheet < 4;sheet++) {
+				Sheet s = workbook.getSheetAt(sheet);
+				assertEquals("sheet" + sheet, s.getSheetName());
+				assertEquals("sheet" + sheet + "-4999", s.getRow(5000).getCell(0).getStringCellValue());
+			}
+			assertEquals("done", workbook.getSheet("summary").getRow(0).getCell(0).getStringCellValue());
+		} finally {
+			workbook.close();
+		}
+	}
+
+	public void testWriteAfterParallelSheets() throws Exception {
+		ExcelWriter excelWriter = new ExcelWriterBuilder().setExcelFormat(ExcelFormat.STREAMING_XML).build();
+		List<GridColumn> gridColumns = Arrays.asList(GridColumn.newInstance("name", "Name"));
+		List<Map<String, Object>> rows = new ArrayList<>();
+		for(int i = 0;i < 10;i++) {
+			Map<String, Object> row = new HashMap<>();
+			row.put("name", "name" + i);
+			rows.add(row);
+		}
+		excelWriter.writeSheets(Arrays.asList(SheetJob.newInstance("a", gridColumns, rows), SheetJob.newInstance("b", gridColumns, rows)));
+		excelWriter.write("tail");
+		Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(excelWriter.exportToByteArray()));
+		try {
+			assertEquals(3, workbook.getNumberOfSheets());
+			assertEquals("name9", workbook.getSheet("b").getRow(10).getCell(0).getStringCellValue());
+			assertEquals("tail", workbook.getSheetAt(2).getRow(0).getCell(0).getStringCellValue());
+		} finally {
+			workbook.close();
+		}
+		//没有继续写时不留下空sheet
+		excelWriter = new ExcelWriterBuilder().setExcelFormat(ExcelFormat.STREAMING_XML).build();
+		excelWriter.writeSheets(Arrays.asList(SheetJob.newInstance("a", gridColumns, rows), SheetJob.newInstance("b", gridColumns, rows)));
+		workbook = WorkbookFactory.create(new ByteArrayInputStream(excelWriter.exportToByteArray()));
+		try {
+			assertEquals(2, workbook.getNumberOfSheets());
+		} finally {
+			workbook.close();
+		}
+	}
+
+	public void testSequentialSheetsIgnoreExecutor() throws Exception {
+		ExcelWriter excelWriter = new ExcelWriterBuilder().setExcelFormat(ExcelFormat.XSSF).build();
+		List<GridColumn> gridColumns = Arrays.asList(GridColumn.newInstance("name", "Name"));
+		List<Map<String, Object>> rows = new ArrayList<>();
+		Map<String, Object> row = new HashMap<>();
+		row.put("name", "only");
+		rows.add(row);
+		//非STREAMING_XML格式在当前线程中依次写，不需要线程池
+		excelWriter.writeSheets(Arrays.asList(SheetJob.newInstance("a", gridColumns, rows), SheetJob.newInstance("b", gridColumns, rows)), null);
+		Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(excelWriter.exportToByteArray()));
+		try {
+			assertEquals(2, workbook.getNumberOfSheets());
+			assertEquals("only", workbook.getSheet("b").getRow(1).getCell(0).getStringCellValue());
+		} finally {
+			workbook.close();
+		}
+	}
+
+	public void testParallelFailureWaitsForAllSheets() throws Exception {
+		final AtomicBoolean slowFinished = new AtomicBoolean();
+		GridDataLoader failing = new GridDataLoader() {
+
+			@Override
+			public void loadData() {
+
+			}
+
+			@Override
+			public void getRowData(GridDataLoaderListener listener) {
+				throw new IllegalStateException("data source unavailable");
+			}
+		};
+		GridDataLoader slow = new GridDataLoader() {
+
+			@Override
+			public void loadData() {
+
+			}
+
+			@Override
+			public void getRowData(GridDataLoaderListener listener) {
+				try {
+					Thread.sleep(300);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				slowFinished.set(true);
+			}
+		};
+		ExcelWriter excelWriter = new ExcelWriterBuilder().setExcelFormat(ExcelFormat.STREAMING_XML).build();
+		List<GridColumn> gridColumns = Arrays.asList(GridColumn.newInstance("name", "Name"));
+		ExecutorService executorService = Executors.newFixedThreadPool(2);
+		try {
+			excelWriter.writeSheets(Arrays.asList(SheetJob.newInstance("failing", gridColumns, failing), SheetJob.newInstance("slow", gridColumns, slow)), executorService);
+			fail();
+		} catch (RuntimeException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+			assertTrue(slowFinished.get());
+		} finally {
+			executorService.shutdown();
+			excelWriter.dispose();
+		}
+	}
+
+	public void testWriteToFlushedRow() {
+		ExcelWriter excelWriter = new ExcelWriterBuilder().setExcelFormat(ExcelFormat.STREAMING_XML)
+				.setRowAccessWindowSize(2).build();
+		for(int i = 0;i < 5;i++) {
+			excelWriter.write(i).nextLine();
+		}
+		try {
+			excelWriter.location(0, 1).write("late");
+			fail();
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+	}
+
+	public void testWriteDirectlyToOutputStream() throws Exception {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		ExcelWriter excelWriter = new ExcelWriterBuilder().setOutputStream(outputStream)
+				.setRowAccessWindowSize(10).setSheetName("first").build();
+		List<GridColumn> gridColumns = Arrays.asList(GridColumn.newInstance("name", "Name"), GridColumn.newInstance("amount", "Amount"));
+		List<Map<String, Object>> rows = new ArrayList<>();
+		for(int i = 0;i < 20000;i++) {
+			Map<String, Object> row = new HashMap<>();
+			row.put("name", "name" + i);
+			row.put("amount", i);
+			rows.add(row);
+		}
+		excelWriter.writeGrid(gridColumns, rows);
+		//写完第一个sheet的行之前已经开始输出
+		assertTrue(outputStream.size() > 0);
+		excelWriter.writeSheets(Arrays.asList(SheetJob.newInstance("second", gridColumns, rows.subList(0, 10)),
+				SheetJob.newInstance("third", gridColumns, rows.subList(0, 20))));
+		try {
+			excelWriter.exportToByteArray();
+			fail();
+		} catch (IllegalStateException e) {
+			//expected
+		}
+		excelWriter.export();
+
+		Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(outputStream.toByteArray()));
+		try {
+			assertEquals(3, workbook.getNumberOfSheets());
+			assertEquals("name19999", workbook.getSheet("first").getRow(20000).getCell(0).getStringCellValue());
+			assertEquals(10, workbook.getSheet("second").getLastRowNum());
+			assertEquals("name19", workbook.getSheet("third").getRow(20).getCell(0).getStringCellValue());
+		} finally {
+			workbook.close();
+		}
+	}
+
+}
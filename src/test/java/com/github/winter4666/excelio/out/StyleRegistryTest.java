@@ -0,0 +1,83 @@
+package com.github.winter4666.excelio.out;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.IndexedColors;
+
+import com.github.winter4666.excelio.common.GridColumn;
+import com.github.winter4666.excelio.out.ExcelWriter.GridStyleDescriptor;
+
+import junit.framework.TestCase;
+
+public class StyleRegistryTest extends TestCase {
+
+	public void testDescriptorsAreInterned() {
+		ExcelWriter excelWriter = new ExcelWriterBuilder().build();
+		StyleRegistry styleRegistry = excelWriter.getStyleRegistry();
+		CellStyle first = excelWriter.getCellStyle(CellStyleDescriptor.newInstance().bold(true).border(BorderStyle.THIN));
+		CellStyle second = excelWriter.getCellStyle(CellStyleDescriptor.newInstance().border(BorderStyle.THIN).bold(true));
+		assertSame(first, second);
+		assertEquals(1, styleRegistry.getMissCount());
+		assertEquals(1, styleRegistry.getHitCount());
+		assertNotSame(first, excelWriter.getCellStyle(CellStyleDescriptor.newInstance().bold(true)));
+	}
+
+	public void testHitDoesNotCreateStyle() {
+		ExcelWriter excelWriter = new ExcelWriterBuilder().build();
+		StyleRegistry styleRegistry = excelWriter.getStyleRegistry();
+		CellStyle first = excelWriter.getCellStyle(CellStyleDescriptor.newInstance().dataFormat("0.00"));
+		CellStyle second = excelWriter.getCellStyle(CellStyleDescriptor.newInstance().dataFormat("yyyy-MM-dd"));
+		int styleCount = styleRegistry.getStyleCount();
+		//原样式加上数据格式后与已有的样式相同时不创建新样式
+		assertSame(second, styleRegistry.getDataFormatCellStyle(first, "yyyy-MM-dd"));
+		assertSame(first, styleRegistry.getDataFormatCellStyle(second, "0.00"));
+		assertSame(first, excelWriter.getCellStyle(CellStyleDescriptor.newInstance().dataFormat("0.00")));
+		assertEquals(styleCount, styleRegistry.getStyleCount());
+	}
+
+	public void testInternPoiStyle() {
+		ExcelWriter excelWriter = new ExcelWriterBuilder().build();
+		CellStyle shared = excelWriter.getCellStyle(CellStyleDescriptor.newInstance().fill(IndexedColors.YELLOW.getIndex()));
+		CellStyle created = excelWriter.cloneDefaultCellStyle();
+		created.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+		created.setFillForegroundColor(IndexedColors.YELLOW.getIndex());
+		assertSame(shared, excelWriter.getStyleRegistry().intern(created));
+	}
+
+	public void testGridStyleDescriptor() throws Exception {
+		ExcelWriter excelWriter = new ExcelWriterBuilder().build();
+		int styleCount = excelWriter.getStyleRegistry().getStyleCount();
+		List<Map<String, Object>> rows = new ArrayList<>();
+		for(int i = 0;i < 1000;i++) {
+			Map<String, Object> row = new HashMap<>();
+			row.put("time", new Date());
+			row.put("amount", i);
+			rows.add(row);
+		}
+		excelWriter.writeGrid(Arrays.asList(GridColumn.newInstance("time", "Time"), GridColumn.newInstance("amount", "Amount")), rows,
+				new GridStyleDescriptor() {
+
+					@Override
+					public CellStyleDescriptor getHeaderCellStyle(String fieldName) {
+						return CellStyleDescriptor.newInstance().bold(true);
+					}
+
+					@Override
+					public CellStyleDescriptor getDataCellStyle(String fieldName, int gridRowNum, Object fieldValue) {
+						return CellStyleDescriptor.newInstance().fill(gridRowNum % 2 == 0 ? IndexedColors.WHITE.getIndex() : IndexedColors.GREY_25_PERCENT.getIndex());
+					}
+				});
+		//表头、两种数据样式以及它们的日期格式样式
+		assertEquals(styleCount + 5, excelWriter.getStyleRegistry().getStyleCount());
+		excelWriter.exportToByteArray();
+	}
+
+}
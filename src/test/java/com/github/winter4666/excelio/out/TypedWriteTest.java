@@ -0,0 +1,117 @@
+package com.github.winter4666.excelio.out;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+
+import com.github.winter4666.excelio.common.GridColumn;
+import com.github.winter4666.excelio.common.GridColumn.FieldValueConverter;
+import com.github.winter4666.excelio.common.GridColumn.ValueType;
+import com.github.winter4666.excelio.out.ExcelWriter.ExcelFormat;
+
+import junit.framework.TestCase;
+
+public class TypedWriteTest extends TestCase {
+
+	public void testExcelDate() {
+		for(LocalDateTime dateTime : Arrays.asList(LocalDateTime.of(1900, 1, 1, 0, 0), LocalDateTime.of(1900, 2, 28, 12, 0),
+				LocalDateTime.of(1900, 3, 1, 0, 0), LocalDateTime.of(2020, 5, 6, 7, 8, 9))) {
+			Date date = Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+			assertEquals(DateUtil.getExcelDate(date), ExcelDates.getExcelDate(dateTime), 1e-9);
+		}
+		assertEquals(-1.0, ExcelDates.getExcelDate(LocalDate.of(1899, 1, 1)));
+	}
+
+	public void testTypedWrite() throws Exception {
+		for(ExcelFormat excelFormat : Arrays.asList(ExcelFormat.XSSF, ExcelFormat.STREAMING_XML)) {
+			ExcelWriter excelWriter = new ExcelWriterBuilder().setExcelFormat(excelFormat).build();
+			excelWriter.write(42L).write(1.5).write(true).write(LocalDate.of(2020, 1, 2)).write(LocalDateTime.of(2020, 1, 2, 3, 4, 5));
+			excelWriter.nextLine();
+			List<Map<String, Object>> rows = new ArrayList<>();
+			for(int i = 0;i < 3;i++) {
+				Map<String, Object> row = new HashMap<>();
+				row.put("id", (long)i);
+				row.put("amount", i == 1 ? null : i * 0.5);
+				row.put("enabled", i % 2 == 0);
+				row.put("name", "name" + i);
+				rows.add(row);
+			}
+			excelWriter.writeGrid(Arrays.asList(GridColumn.newInstance("id", "Id").valueType(ValueType.LONG),
+					GridColumn.newInstance("amount", "Amount").valueType(ValueType.NUMBER),
+					GridColumn.newInstance("enabled", "Enabled").valueType(ValueType.BOOLEAN),
+					GridColumn.newInstance("name", "Name").valueType(ValueType.STRING)), rows);
+			Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(excelWriter.exportToByteArray()));
+			try {
+				Sheet sheet = workbook.getSheetAt(0);
+				assertEquals(42.0, sheet.getRow(0).getCell(0).getNumericCellValue());
+				assertEquals(1.5, sheet.getRow(0).getCell(1).getNumericCellValue());
+				assertTrue(sheet.getRow(0).getCell(2).getBooleanCellValue());
+				assertTrue(DateUtil.isCellDateFormatted(sheet.getRow(0).getCell(3)));
+				assertEquals(ExcelDates.getExcelDate(LocalDate.of(2020, 1, 2)), sheet.getRow(0).getCell(3).getNumericCellValue());
+				assertEquals(ExcelDates.getExcelDate(LocalDateTime.of(2020, 1, 2, 3, 4, 5)), sheet.getRow(0).getCell(4).getNumericCellValue(), 1e-9);
+				assertEquals(2.0, sheet.getRow(4).getCell(0).getNumericCellValue());
+				assertEquals(1.0, sheet.getRow(4).getCell(1).getNumericCellValue());
+				assertEquals(CellType.BLANK, sheet.getRow(3).getCell(1).getCellType());
+				assertFalse(sheet.getRow(3).getCell(2).getBooleanCellValue());
+				assertEquals("name2", sheet.getRow(4).getCell(3).getStringCellValue());
+			} finally {
+				workbook.close();
+			}
+		}
+	}
+
+	public void testCharAndMismatchedValueType() throws Exception {
+		ExcelWriter excelWriter = new ExcelWriterBuilder().setExcelFormat(ExcelFormat.XSSF).build();
+		excelWriter.write('x').nextLine();
+		List<Map<String, Object>> rows = new ArrayList<>();
+		Map<String, Object> row = new HashMap<>();
+		row.put("id", 7L);
+		row.put("enabled", true);
+		rows.add(row);
+		//转换器返回的值不是声明的类型时按普通对象写
+		excelWriter.writeGrid(Arrays.asList(GridColumn.newInstance("id", "Id").valueType(ValueType.LONG).fieldValueConverter(new FieldValueConverter() {
+
+					@Override
+					public Object convert(Object fieldValue, Object rowData) {
+						return "#" + fieldValue;
+					}
+				}), GridColumn.newInstance("enabled", "Enabled").valueType(ValueType.BOOLEAN).fieldValueConverter(new FieldValueConverter() {
+
+					@Override
+					public Object convert(Object fieldValue, Object rowData) {
+						return (Boolean)fieldValue ? "Y" : "N";
+					}
+				})), rows);
+		Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(excelWriter.exportToByteArray()));
+		try {
+			Sheet sheet = workbook.getSheetAt(0);
+			assertEquals("x", sheet.getRow(0).getCell(0).getStringCellValue());
+			assertEquals("#7", sheet.getRow(2).getCell(0).getStringCellValue());
+			assertEquals("Y", sheet.getRow(2).getCell(1).getStringCellValue());
+		} finally {
+			workbook.close();
+		}
+	}
+
+	public void testTypedWriteCsv() throws Exception {
+		ExcelWriter excelWriter = new ExcelWriterBuilder().setExcelFormat(ExcelFormat.CSV).build();
+		excelWriter.setDateFormat("yyyy-MM-dd");
+		excelWriter.write(Long.MAX_VALUE).write(0.1).write(false).write(LocalDate.of(2020, 1, 2));
+		assertEquals("\uFEFF9223372036854775807,0.1,FALSE,2020-01-02\r\n", new String(excelWriter.exportToByteArray(), StandardCharsets.UTF_8));
+	}
+
+}
@@ -0,0 +1,211 @@
+package com.github.winter4666.excelio.out.grid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.github.winter4666.excelio.common.CancellationToken;
+
+import com.github.winter4666.excelio.out.grid.AsyncPagingLoader.CursorGridDataSource;
+import com.github.winter4666.excelio.out.grid.AsyncPagingLoader.GridDataSource;
+import com.github.winter4666.excelio.out.grid.AsyncPagingLoader.GridPage;
+import com.github.winter4666.excelio.out.grid.AsyncPagingLoader.PagingCursorDataSource;
+import com.github.winter4666.excelio.out.grid.GridDataLoader.GridDataLoaderListener;
+
+import junit.framework.TestCase;
+
+public class AsyncPagingLoaderTest extends TestCase {
+
+	public void testPrefetchKeepsPageOrder() {
+		final int total = 1003;
+		AsyncPagingLoader loader = new AsyncPagingLoader(new GridDataSource<Integer>() {
+
+			@Override
+			public List<Integer> getGridData(int pageNo, int pageSize) throws InterruptedException {
+				//后面的页先返回
+				Thread.sleep(20 - pageNo % 5 * 4);
+				List<Integer> page = new ArrayList<>();
+				for(int i = (pageNo - 1) * pageSize;i < Math.min(pageNo * pageSize, total);i++) {
+					page.add(i);
+				}
+				return page;
+			}
+		}, 50, 4);
+		final List<Object> rows = new ArrayList<>();
+		loader.loadData();
+		loader.getRowData(new GridDataLoaderListener() {
+
+			@Override
+			public void onReadRowData(int gridRowNum, Object rowData) {
+				assertEquals(gridRowNum, rowData);
+				rows.add(rowData);
+			}
+		});
+		assertEquals(total, rows.size());
+	}
+
+	public void testPrefetchError() {
+		AsyncPagingLoader loader = new AsyncPagingLoader(new GridDataSource<Integer>() {
+
+			@Override
+			public List<Integer> getGridData(int pageNo, int pageSize) throws InterruptedException {
+				if(pageNo == 3) {
+					throw new IllegalStateException("page 3");
+				}
+				List<Integer> page = new ArrayList<>();
+				for(int i = 0;i < pageSize;i++) {
+					page.add(i);
+				}
+				return page;
+			}
+		}, 10, 3);
+		loader.loadData();
+		try {
+			loader.getRowData(new GridDataLoaderListener() {
+
+				@Override
+				public void onReadRowData(int gridRowNum, Object rowData) {
+				}
+			});
+			fail();
+		} catch (RuntimeException e) {
+			assertEquals("page 3", e.getCause().getMessage());
+		}
+	}
+
+	public void testCursorDataSource() {
+		final int total = 95;
+		final List<Integer> cursors = new ArrayList<>();
+		AsyncPagingLoader loader = AsyncPagingLoader.cursorLoader(new CursorGridDataSource<Integer, Integer>() {
+
+			@Override
+			public GridPage<Integer, Integer> getGridData(Integer cursor, int pageSize) throws InterruptedException {
+				cursors.add(cursor);
+				int start = cursor == null ? 0 : cursor + 1;
+				List<Integer> page = new ArrayList<>();
+				for(int i = start;i < Math.min(start + pageSize, total);i++) {
+					page.add(i);
+				}
+				return new GridPage<>(page, page.isEmpty() ? null : page.get(page.size() - 1));
+			}
+		}, 10);
+		assertEquals(total, readAll(loader).size());
+		assertEquals(10, cursors.size());
+		assertNull(cursors.get(0));
+		assertEquals(Integer.valueOf(89), cursors.get(9));
+	}
+
+	public void testPagingCursorDataSource() {
+		AsyncPagingLoader loader = AsyncPagingLoader.cursorLoader(new PagingCursorDataSource<>(new GridDataSource<Integer>() {
+
+			@Override
+			public List<Integer> getGridData(int pageNo, int pageSize) throws InterruptedException {
+				List<Integer> page = new ArrayList<>();
+				for(int i = (pageNo - 1) * pageSize;i < Math.min(pageNo * pageSize, 25);i++) {
+					page.add(i);
+				}
+				return page;
+			}
+		}), 10);
+		assertEquals(25, readAll(loader).size());
+	}
+
+	public void testThreadFactory() {
+		final List<String> threadNames = new ArrayList<>();
+		GridDataSource<Integer> gridDataSource = new GridDataSource<Integer>() {
+
+			@Override
+			public List<Integer> getGridData(int pageNo, int pageSize) throws InterruptedException {
+				threadNames.add(Thread.currentThread().getName());
+				return new ArrayList<>();
+			}
+		};
+		readAll(new AsyncPagingLoader(gridDataSource, 10).setThreadFactory(LoaderExecutors.namedThreadFactory("export-", true)));
+		assertEquals("export-1", threadNames.get(0));
+		readAll(new AsyncPagingLoader(gridDataSource, 10));
+		assertTrue(threadNames.get(1).startsWith("excel-io-loader-"));
+		//不同加载器的线程按序号区分
+		readAll(new AsyncPagingLoader(gridDataSource, 10));
+		assertFalse(threadNames.get(1).equals(threadNames.get(2)));
+		//共享线程池需要显式指定
+		readAll(new AsyncPagingLoader(gridDataSource, 10).setExecutor(LoaderExecutors.sharedExecutor()));
+		assertTrue(threadNames.get(3).startsWith("excel-io-loader-"));
+		LoaderExecutors.shutdown();
+	}
+
+	public void testCancelInterruptsFetch() throws InterruptedException {
+		final CountDownLatch fetching = new CountDownLatch(1);
+		final CountDownLatch interrupted = new CountDownLatch(1);
+		AsyncPagingLoader loader = new AsyncPagingLoader(new GridDataSource<Integer>() {
+
+			@Override
+			public List<Integer> getGridData(int pageNo, int pageSize) throws InterruptedException {
+				fetching.countDown();
+				try {
+					Thread.sleep(60000);
+				} catch (InterruptedException e) {
+					interrupted.countDown();
+					throw e;
+				}
+				return null;
+			}
+		}, 10);
+		final CancellationToken cancellationToken = CancellationToken.newInstance();
+		loader.setCancellationToken(cancellationToken);
+		new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					fetching.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				cancellationToken.cancel();
+			}
+		}).start();
+		try {
+			readAll(loader);
+			fail();
+		} catch (CancellationException e) {
+		}
+		assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+	}
+
+	public void testDeadline() {
+		AsyncPagingLoader loader = new AsyncPagingLoader(new GridDataSource<Integer>() {
+
+			@Override
+			public List<Integer> getGridData(int pageNo, int pageSize) throws InterruptedException {
+				Thread.sleep(60000);
+				return null;
+			}
+		}, 10);
+		loader.setCancellationToken(CancellationToken.withTimeout(100, TimeUnit.MILLISECONDS));
+		long start = System.currentTimeMillis();
+		try {
+			readAll(loader);
+			fail();
+		} catch (CancellationException e) {
+			assertEquals("export deadline exceeded", e.getMessage());
+		}
+		assertTrue(System.currentTimeMillis() - start < 5000);
+	}
+
+	private List<Object> readAll(AsyncPagingLoader loader) {
+		final List<Object> rows = new ArrayList<>();
+		loader.loadData();
+		loader.getRowData(new GridDataLoaderListener() {
+
+			@Override
+			public void onReadRowData(int gridRowNum, Object rowData) {
+				assertEquals(gridRowNum, rowData);
+				rows.add(rowData);
+			}
+		});
+		return rows;
+	}
+
+}
@@ -0,0 +1,92 @@
+package com.github.winter4666.excelio.out.grid;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.github.winter4666.excelio.common.GridColumn;
+
+import junit.framework.TestCase;
+
+public class FieldAccessorsTest extends TestCase {
+
+	public void testGetterIsGetterAndPublicField() {
+		Order order = new Order();
+		GridRowAccessor rowAccessor = FieldAccessors.getRowAccessor(Order.class, Arrays.asList(
+				GridColumn.newInstance("id"), GridColumn.newInstance("paid"), GridColumn.newInstance("remark")));
+		assertEquals(Long.valueOf(7), rowAccessor.getFieldValue(0, order));
+		assertEquals(Boolean.TRUE, rowAccessor.getFieldValue(1, order));
+		assertEquals("fast", rowAccessor.getFieldValue(2, order));
+		assertSame(rowAccessor, FieldAccessors.getRowAccessor(Order.class, Arrays.asList(
+				GridColumn.newInstance("id"), GridColumn.newInstance("paid"), GridColumn.newInstance("remark"))));
+	}
+
+	public void testClearCache() {
+		GridRowAccessor rowAccessor = FieldAccessors.getRowAccessor(Order.class, Arrays.asList(GridColumn.newInstance("id")));
+		assertNotSame(rowAccessor, FieldAccessors.getRowAccessor(Order.class, Arrays.asList(GridColumn.newInstance("paid"))));
+		FieldAccessors.clearCache();
+		GridRowAccessor rebuilt = FieldAccessors.getRowAccessor(Order.class, Arrays.asList(GridColumn.newInstance("id")));
+		assertNotSame(rowAccessor, rebuilt);
+		assertSame(rebuilt, FieldAccessors.getRowAccessor(Order.class, Arrays.asList(GridColumn.newInstance("id"))));
+	}
+
+	public void testNestedPath() {
+		Order order = new Order();
+		FieldAccessor accessor = FieldAccessors.getFieldAccessor(Order.class, "customer.name");
+		assertEquals("alice", accessor.get(order));
+		order.customer = null;
+		assertNull(accessor.get(order));
+	}
+
+	public void testMapRows() {
+		Map<String, Object> customer = new HashMap<>();
+		customer.put("name", "bob");
+		Map<String, Object> row = new HashMap<>();
+		row.put("id", 1);
+		row.put("customer", customer);
+		GridRowAccessor rowAccessor = FieldAccessors.getRowAccessor(HashMap.class, Arrays.asList(
+				GridColumn.newInstance("id"), GridColumn.newInstance("customer.name")));
+		assertEquals(1, rowAccessor.getFieldValue(0, row));
+		assertEquals("bob", rowAccessor.getFieldValue(1, row));
+		row.put("customer.name", "carol");
+		assertEquals("carol", rowAccessor.getFieldValue(1, row));
+	}
+
+	public void testMissingField() {
+		try {
+			FieldAccessors.getFieldAccessor(Order.class, "missing");
+			fail();
+		} catch (RuntimeException e) {
+			assertTrue(e.getMessage().contains("missing"));
+		}
+	}
+
+	public static class Order {
+
+		public String remark = "fast";
+
+		private Customer customer = new Customer();
+
+		public long getId() {
+			return 7;
+		}
+
+		public boolean isPaid() {
+			return true;
+		}
+
+		public Customer getCustomer() {
+			return customer;
+		}
+
+	}
+
+	public static class Customer {
+
+		public String getName() {
+			return "alice";
+		}
+
+	}
+
+}